@@ -19,11 +19,27 @@ package org.apache.kyuubi.engine.flink.operation
 
 import java.util
 
+import org.apache.kyuubi.config.KyuubiConf
+import org.apache.kyuubi.config.KyuubiConf._
 import org.apache.kyuubi.operation.{Operation, OperationManager}
 import org.apache.kyuubi.session.Session
+import org.apache.kyuubi.util.RowSetUtils
 
 class FlinkSQLOperationManager extends OperationManager("FlinkSQLOperationManager") {
 
+  override def initialize(conf: KyuubiConf): Unit = {
+    RowSetUtils.setupEncodePool(
+      this,
+      conf.get(ENGINE_RESULT_ENCODE_PARALLELISM),
+      conf.get(ENGINE_RESULT_ENCODE_PARALLEL_THRESHOLD))
+    super.initialize(conf)
+  }
+
+  override def stop(): Unit = {
+    RowSetUtils.shutdownEncodePool(this)
+    super.stop()
+  }
+
   override def newExecuteStatementOperation(
       session: Session,
       statement: String,
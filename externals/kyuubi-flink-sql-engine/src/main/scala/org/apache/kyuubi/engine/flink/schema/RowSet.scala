@@ -21,7 +21,7 @@ import java.nio.ByteBuffer
 import java.util
 import java.util.Collections
 
-import scala.collection.JavaConverters.{collectionAsScalaIterableConverter, mapAsJavaMapConverter, seqAsJavaListConverter}
+import scala.collection.JavaConverters.{mapAsJavaMapConverter, seqAsJavaListConverter}
 import scala.language.implicitConversions
 
 import org.apache.flink.table.types.logical._
@@ -29,6 +29,7 @@ import org.apache.flink.types.Row
 import org.apache.hive.service.rpc.thrift._
 
 import org.apache.kyuubi.engine.flink.result.{ColumnInfo, ResultSet}
+import org.apache.kyuubi.util.RowSetUtils
 
 object RowSet {
 
@@ -57,10 +58,10 @@ object RowSet {
   def toColumnBasedSet(rows: Seq[Row], resultSet: ResultSet): TRowSet = {
     val size = rows.length
     val tRowSet = new TRowSet(0, new util.ArrayList[TRow](size))
-    resultSet.getColumns.asScala.zipWithIndex.foreach { case (filed, i) =>
-      val tColumn = toTColumn(rows, i, filed.getLogicalType)
-      tRowSet.addToColumns(tColumn)
-    }
+    val columns = resultSet.getColumns
+    RowSetUtils.toTColumns(columns.size, size) { i =>
+      toTColumn(rows, i, columns.get(i).getLogicalType)
+    }.foreach(tRowSet.addToColumns)
     tRowSet
   }
 
@@ -23,6 +23,7 @@ import scala.collection.JavaConverters._
 
 import org.apache.spark.kyuubi.SQLOperationListener
 import org.apache.spark.sql.Row
+import org.apache.spark.sql.catalyst.InternalRow
 import org.apache.spark.sql.types._
 
 import org.apache.kyuubi.{KyuubiSQLException, Logging}
@@ -40,7 +41,8 @@ class ExecuteStatement(
     override val statement: String,
     override val shouldRunAsync: Boolean,
     queryTimeout: Long,
-    incrementalCollect: Boolean)
+    incrementalCollect: Boolean,
+    streamingCollect: Boolean)
   extends SparkOperation(OperationType.EXECUTE_STATEMENT, session) with Logging {
 
   import org.apache.kyuubi.KyuubiSparkUtils._
@@ -52,6 +54,8 @@ class ExecuteStatement(
     spark.conf.getOption(KyuubiConf.OPERATION_SCHEDULER_POOL.key).orElse(
       session.sessionManager.getConf.get(KyuubiConf.OPERATION_SCHEDULER_POOL))
 
+  @volatile private var streamingResult: StreamingCollectResult = _
+
   private var statementTimeoutCleaner: Option[ScheduledExecutorService] = None
 
   private val operationLog: OperationLog = OperationLog.createOperationLog(session, getHandle)
@@ -100,14 +104,23 @@ class ExecuteStatement(
       statementEvent.queryExecution = result.queryExecution.toString()
       setState(OperationState.COMPILED)
       debug(result.queryExecution)
-      iter =
-        if (incrementalCollect) {
-          info("Execute in incremental collect mode")
-          new IterableFetchIterator[Row](result.toLocalIterator().asScala.toIterable)
-        } else {
-          info("Execute in full collect mode")
-          new ArrayFetchIterator(result.collect())
-        }
+      if (incrementalCollect) {
+        info("Execute in incremental collect mode")
+        iter = new IterableFetchIterator[Row](result.toLocalIterator().asScala.toIterable)
+      } else if (streamingCollect) {
+        info("Execute in streaming collect mode")
+        val conf = session.sessionManager.getConf
+        streamingResult = new StreamingCollectResult(
+          result,
+          conf.get(KyuubiConf.OPERATION_STREAMING_COLLECT_BLOCK_SIZE),
+          conf.get(KyuubiConf.OPERATION_STREAMING_COLLECT_FETCH_PARALLELISM),
+          conf.get(KyuubiConf.OPERATION_STREAMING_COLLECT_MEMORY_LIMIT))
+        internalIter = new IterableFetchIterator[InternalRow](streamingResult)
+        streamingResult.awaitJob()
+      } else {
+        info("Execute in full collect mode")
+        iter = new ArrayFetchIterator(result.collect())
+      }
       setState(OperationState.FINISHED)
     } catch {
       onError(cancel = true)
@@ -182,6 +195,7 @@ class ExecuteStatement(
   override def cleanup(targetState: OperationState): Unit = {
     spark.sparkContext.removeSparkListener(operationListener)
     super.cleanup(targetState)
+    Option(streamingResult).foreach(_.close())
   }
 
   override def setState(newState: OperationState): Unit = {
@@ -23,6 +23,8 @@ import java.time.ZoneId
 import org.apache.commons.lang3.StringUtils
 import org.apache.hive.service.rpc.thrift.{TRowSet, TTableSchema}
 import org.apache.spark.sql.{DataFrame, Row, SparkSession}
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.internal.SQLConf
 import org.apache.spark.sql.types.StructType
 
 import org.apache.kyuubi.{KyuubiSQLException, Utils}
@@ -33,7 +35,7 @@ import org.apache.kyuubi.operation.FetchOrientation._
 import org.apache.kyuubi.operation.OperationState.OperationState
 import org.apache.kyuubi.operation.OperationType.OperationType
 import org.apache.kyuubi.operation.log.OperationLog
-import org.apache.kyuubi.schema.{RowSet, SchemaHelper}
+import org.apache.kyuubi.schema.{InternalRowSetEncoder, RowSet, SchemaHelper}
 import org.apache.kyuubi.session.Session
 
 abstract class SparkOperation(opType: OperationType, session: Session)
@@ -49,6 +51,13 @@ abstract class SparkOperation(opType: OperationType, session: Session)
 
   protected var iter: FetchIterator[Row] = _
 
+  // set instead of iter by the operations whose result rows are kept in Spark's internal format
+  protected var internalIter: FetchIterator[InternalRow] = _
+
+  private lazy val internalRowSetEncoder = SQLConf.withExistingConf(spark.sessionState.conf) {
+    new InternalRowSetEncoder(resultSchema, timeZone)
+  }
+
   protected var result: DataFrame = _
 
   protected def resultSchema: StructType
@@ -143,15 +152,30 @@ abstract class SparkOperation(opType: OperationType, session: Session)
     validateDefaultFetchOrientation(order)
     assertState(OperationState.FINISHED)
     setHasResultSet(true)
+    if (internalIter != null) {
+      val taken = fetch(internalIter, order, rowSetSize)
+      val resultRowSet = internalRowSetEncoder.toTRowSet(taken, getProtocolVersion)
+      resultRowSet.setStartRowOffset(internalIter.getPosition)
+      resultRowSet
+    } else {
+      val taken = fetch(iter, order, rowSetSize)
+      val resultRowSet = RowSet.toTRowSet(taken, resultSchema, getProtocolVersion, timeZone)
+      resultRowSet.setStartRowOffset(iter.getPosition)
+      resultRowSet
+    }
+  }
+
+  private def fetch[T](
+      fetchIter: FetchIterator[T],
+      order: FetchOrientation,
+      rowSetSize: Int): IndexedSeq[T] = {
     order match {
-      case FETCH_NEXT => iter.fetchNext()
-      case FETCH_PRIOR => iter.fetchPrior(rowSetSize);
-      case FETCH_FIRST => iter.fetchAbsolute(0);
+      case FETCH_NEXT => fetchIter.fetchNext()
+      case FETCH_PRIOR => fetchIter.fetchPrior(rowSetSize);
+      case FETCH_FIRST => fetchIter.fetchAbsolute(0);
     }
-    val taken = iter.take(rowSetSize)
-    val resultRowSet = RowSet.toTRowSet(taken.toList, resultSchema, getProtocolVersion, timeZone)
-    resultRowSet.setStartRowOffset(iter.getPosition)
-    resultRowSet
+    // the row set builders access the rows by index
+    fetchIter.take(rowSetSize).toIndexedSeq
   }
 
   override def shouldRunAsync: Boolean = false
@@ -22,6 +22,7 @@ import java.util.concurrent.ConcurrentHashMap
 
 import scala.collection.JavaConverters._
 
+import org.apache.kyuubi.config.KyuubiConf
 import org.apache.kyuubi.config.KyuubiConf._
 import org.apache.kyuubi.config.KyuubiConf.OperationModes._
 import org.apache.kyuubi.engine.spark.repl.KyuubiSparkILoop
@@ -29,6 +30,7 @@ import org.apache.kyuubi.engine.spark.session.SparkSessionImpl
 import org.apache.kyuubi.engine.spark.shim.SparkCatalogShim
 import org.apache.kyuubi.operation.{Operation, OperationManager}
 import org.apache.kyuubi.session.{Session, SessionHandle}
+import org.apache.kyuubi.util.RowSetUtils
 
 class SparkSQLOperationManager private (name: String) extends OperationManager(name) {
 
@@ -36,10 +38,24 @@ class SparkSQLOperationManager private (name: String) extends OperationManager(n
 
   private lazy val operationModeDefault = getConf.get(OPERATION_PLAN_ONLY)
   private lazy val operationIncrementalCollectDefault = getConf.get(OPERATION_INCREMENTAL_COLLECT)
+  private lazy val operationStreamingCollectDefault = getConf.get(OPERATION_STREAMING_COLLECT)
   private lazy val operationLanguageDefault = getConf.get(OPERATION_LANGUAGE)
 
   private val sessionToRepl = new ConcurrentHashMap[SessionHandle, KyuubiSparkILoop]().asScala
 
+  override def initialize(conf: KyuubiConf): Unit = {
+    RowSetUtils.setupEncodePool(
+      this,
+      conf.get(ENGINE_RESULT_ENCODE_PARALLELISM),
+      conf.get(ENGINE_RESULT_ENCODE_PARALLEL_THRESHOLD))
+    super.initialize(conf)
+  }
+
+  override def stop(): Unit = {
+    RowSetUtils.shutdownEncodePool(this)
+    super.stop()
+  }
+
   def closeILoop(session: SessionHandle): Unit = {
     val maybeRepl = sessionToRepl.remove(session)
     maybeRepl.foreach(_.close())
@@ -60,7 +76,15 @@ class SparkSQLOperationManager private (name: String) extends OperationManager(n
             case NONE =>
               val incrementalCollect = spark.conf.getOption(OPERATION_INCREMENTAL_COLLECT.key)
                 .map(_.toBoolean).getOrElse(operationIncrementalCollectDefault)
-              new ExecuteStatement(session, statement, runAsync, queryTimeout, incrementalCollect)
+              val streamingCollect = spark.conf.getOption(OPERATION_STREAMING_COLLECT.key)
+                .map(_.toBoolean).getOrElse(operationStreamingCollectDefault)
+              new ExecuteStatement(
+                session,
+                statement,
+                runAsync,
+                queryTimeout,
+                incrementalCollect,
+                streamingCollect)
             case mode =>
               new PlanOnlyStatement(session, statement, mode)
           }
@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.engine.spark.operation
+
+import java.io.{BufferedInputStream, ByteArrayInputStream, DataInputStream, DataOutputStream, File, FileInputStream, InputStream, OutputStream, SequenceInputStream}
+import java.nio.file.{Files, Path}
+import java.util.concurrent.{Executor, ThreadPoolExecutor}
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable.ArrayBuffer
+import scala.concurrent.ExecutionContext
+import scala.util.{Failure, Success, Try}
+import scala.util.control.NonFatal
+
+import org.apache.spark.FutureAction
+import org.apache.spark.kyuubi.{CompressionCodecHelper, ResultBlockHelper, SparkContextHelper}
+import org.apache.spark.sql.DataFrame
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.catalyst.expressions.{UnsafeProjection, UnsafeRow}
+import org.apache.spark.sql.types.StructType
+import org.apache.spark.storage.BlockId
+
+import org.apache.kyuubi.{KyuubiSQLException, Logging, Utils}
+import org.apache.kyuubi.util.ThreadUtils
+
+/**
+ * The result of a query computed by a single Spark job, rather than one job per partition as
+ * `Dataset.toLocalIterator` does.
+ *
+ * Each task writes its partition as compressed [[UnsafeRow]] bytes to the block manager of its
+ * executor, in blocks of up to `blockSize` bytes spilled to the executor's local disk if needed,
+ * and only returns the block ids to the driver, so the result does not count towards
+ * `spark.driver.maxResultSize`. The driver pulls the blocks of the finished partitions with up
+ * to `fetchParallelism` threads while the job runs, keeps them in memory up to `memoryLimit`
+ * bytes and in local spill files beyond, and removes them from the executors right away. A
+ * partition whose blocks are lost with their executor, e.g. removed by the dynamic allocation,
+ * is computed again by a job of its own.
+ *
+ * Iterating the result returns the rows in partition order, waiting for the partitions that are
+ * not pulled yet, and can be started over for the FETCH_FIRST orientation. The blocks left by
+ * the other task attempts, e.g. the speculative ones, are removed once every partition is pulled
+ * or the result is closed.
+ *
+ * @param result the query to collect, the jobs are submitted with the current local properties
+ * @param blockSize the max bytes of a block stored by a task
+ * @param fetchParallelism the max number of partitions pulled by the driver at the same time
+ * @param memoryLimit the max bytes of the pulled blocks kept in the driver memory
+ */
+class StreamingCollectResult(
+    result: DataFrame,
+    blockSize: Long,
+    fetchParallelism: Int,
+    memoryLimit: Long) extends Iterable[InternalRow] with Logging {
+  import StreamingCollectResult._
+
+  private val schema: StructType = result.schema
+
+  private val sc = result.sparkSession.sparkContext
+
+  private val rdd = result.queryExecution.toRdd
+
+  private val numPartitions = rdd.partitions.length
+
+  // for the jobs computing the lost partitions again, e.g. with the job group of the statement
+  private val localProperties = SparkContextHelper.getLocalProperties(sc)
+
+  // the blocks of every task attempt are named after its id, and removed once it is collected
+  private val resultBroadcast = ResultBlockHelper.reserveResultId(sc)
+
+  private val resultId = resultBroadcast.id
+
+  // null until pulled, then the bytes or the spill files of the blocks of each partition
+  private val partitions = new Array[Seq[AnyRef]](numPartitions)
+
+  private var numPulled: Int = 0
+
+  private var memoryUsed: Long = 0L
+
+  private var spillDir: Path = _
+
+  private val recomputeJobs = new ArrayBuffer[FutureAction[Unit]]
+
+  private var jobFinished: Boolean = false
+
+  private var failure: Throwable = _
+
+  private var closed: Boolean = false
+
+  private val fetchPool: ThreadPoolExecutor = ThreadUtils.newDaemonQueuedThreadPool(
+    fetchParallelism,
+    Int.MaxValue,
+    60000L,
+    s"streaming-collect-fetch-$resultId")
+
+  private val job = submitJob(0 until numPartitions, attempt = 0)
+  job.onComplete(onJobCompleted(_, recompute = false))(sameThread)
+
+  override def iterator: Iterator[InternalRow] = new Iterator[InternalRow] {
+    private var index = 0
+    private var rows: Iterator[InternalRow] = Iterator.empty
+
+    override def hasNext: Boolean = {
+      while (!rows.hasNext && index < numPartitions) {
+        rows = readPartition(index)
+        index += 1
+      }
+      rows.hasNext
+    }
+
+    override def next(): InternalRow = {
+      if (!hasNext) throw new NoSuchElementException("End of the query result")
+      rows.next()
+    }
+  }
+
+  /**
+   * Waits for the job to finish, so that the query is not reported finished before its result is
+   * computed, and throws if the job fails or the result is closed before.
+   */
+  def awaitJob(): Unit = synchronized {
+    while (!jobFinished && failure == null && !closed) wait()
+    if (closed) throw KyuubiSQLException("The query result has been closed")
+    if (failure != null) throw collectError()
+  }
+
+  /**
+   * Cancels the jobs still running, and releases the pulled partitions and the blocks left in the
+   * executors.
+   */
+  def close(): Unit = {
+    val jobs = synchronized {
+      if (closed) {
+        Nil
+      } else {
+        closed = true
+        partitions.indices.foreach(partitions(_) = null)
+        memoryUsed = 0L
+        if (spillDir != null) Utils.deleteDirectoryRecursively(spillDir.toFile)
+        fetchPool.shutdownNow()
+        notifyAll()
+        job +: recomputeJobs
+      }
+    }
+    jobs.filterNot(_.isCompleted).foreach(_.cancel())
+    removeBlocks()
+  }
+
+  private def submitJob(partitionIds: Seq[Int], attempt: Int): FutureAction[Unit] = {
+    val (partitionSchema, id, size) = (schema, resultId, blockSize)
+    sc.submitJob(
+      rdd,
+      (rows: Iterator[InternalRow]) =>
+        ResultBlockHelper.putTaskResult(id, size)(serializePartition(partitionSchema, rows, _)),
+      partitionIds,
+      (index: Int, blockIds: Seq[BlockId]) => onPartitionFinished(index, blockIds, attempt),
+      ())
+  }
+
+  // called by the DAGScheduler event loop, so the blocks are pulled by the fetch pool
+  private def onPartitionFinished(index: Int, blockIds: Seq[BlockId], attempt: Int): Unit = {
+    synchronized {
+      if (!closed) {
+        fetchPool.execute(new Runnable {
+          override def run(): Unit = pull(index, blockIds, attempt)
+        })
+      }
+    }
+  }
+
+  private def onJobCompleted(result: Try[Unit], recompute: Boolean): Unit = {
+    val isClosed = synchronized {
+      result match {
+        case Success(_) => if (!recompute) jobFinished = true
+        case Failure(e) => if (failure == null) failure = e
+      }
+      notifyAll()
+      closed
+    }
+    // the tasks finished after the result is closed may have stored their blocks
+    if (isClosed) removeBlocks()
+  }
+
+  private def onJobFailed(e: Throwable): Unit = synchronized {
+    if (failure == null) failure = e
+    notifyAll()
+  }
+
+  private def pull(index: Int, blockIds: Seq[BlockId], attempt: Int): Unit = {
+    val chunks = new ArrayBuffer[AnyRef]
+    try {
+      val lost = blockIds.exists { blockId =>
+        ResultBlockHelper.getRemoteBytes(blockId) match {
+          case Some(bytes) =>
+            chunks += keep(index, chunks.length, bytes)
+            false
+          case None => true
+        }
+      }
+      val allPulled = synchronized {
+        if (!lost && !closed) {
+          partitions(index) = chunks
+          numPulled += 1
+          notifyAll()
+        }
+        numPulled == numPartitions
+      }
+      if (lost) release(chunks)
+      blockIds.foreach(removeBlock)
+      if (lost) {
+        if (attempt < MAX_RECOMPUTE_ATTEMPTS) {
+          recompute(index, attempt + 1)
+        } else {
+          onJobFailed(KyuubiSQLException(s"The partition $index of the query result is lost" +
+            s" ${attempt + 1} times, as its executors have been removed"))
+        }
+      } else if (allPulled) {
+        removeBlocks()
+      }
+    } catch {
+      case e: Throwable =>
+        release(chunks)
+        onJobFailed(e)
+    }
+  }
+
+  private def recompute(index: Int, attempt: Int): Unit = synchronized {
+    if (!closed) {
+      warn(s"The partition $index of the query result is lost, computing it again")
+      val retry = SparkContextHelper.withLocalProperties(sc, localProperties) {
+        submitJob(Seq(index), attempt)
+      }
+      recomputeJobs += retry
+      retry.onComplete(onJobCompleted(_, recompute = true))(sameThread)
+    }
+  }
+
+  // keeps a pulled block in memory if the memory limit allows, otherwise in a spill file
+  private def keep(index: Int, chunk: Int, bytes: Array[Byte]): AnyRef = {
+    val inMemory = synchronized {
+      if (closed) throw KyuubiSQLException("The query result has been closed")
+      val fits = memoryUsed + bytes.length <= memoryLimit
+      if (fits) memoryUsed += bytes.length
+      fits
+    }
+    if (inMemory) bytes else Files.write(spillFile(index, chunk), bytes).toFile
+  }
+
+  private def release(chunks: Seq[AnyRef]): Unit = chunks.foreach {
+    case bytes: Array[Byte] => synchronized { if (!closed) memoryUsed -= bytes.length }
+    case file: File => file.delete()
+  }
+
+  private def spillFile(index: Int, chunk: Int): Path = synchronized {
+    if (closed) throw KyuubiSQLException("The query result has been closed")
+    if (spillDir == null) {
+      spillDir = Utils.createTempDir(namePrefix = "kyuubi-result")
+      debug(s"Spilling the query result blocks beyond $memoryLimit bytes to $spillDir")
+    }
+    spillDir.resolve(s"part-$index-$chunk")
+  }
+
+  private def removeBlock(blockId: BlockId): Unit = {
+    try {
+      ResultBlockHelper.removeBlock(blockId)
+    } catch {
+      case NonFatal(e) => warn(s"Failed to remove the query result block $blockId", e)
+    }
+  }
+
+  private def removeBlocks(): Unit = {
+    try {
+      ResultBlockHelper.removeResult(resultId)
+    } catch {
+      case NonFatal(e) => warn(s"Failed to remove the blocks of the query result $resultId", e)
+    }
+  }
+
+  private def collectError(): KyuubiSQLException = {
+    KyuubiSQLException(s"Error collecting the query result: ${failure.getMessage}", failure)
+  }
+
+  private def readPartition(index: Int): Iterator[InternalRow] = {
+    val chunks = synchronized {
+      while (partitions(index) == null) {
+        if (closed) throw KyuubiSQLException("The query result has been closed")
+        if (failure != null) throw collectError()
+        wait()
+      }
+      partitions(index)
+    }
+    val in = new SequenceInputStream(chunks.iterator.map(openChunk).asJavaEnumeration)
+    deserializePartition(CompressionCodecHelper.compressedInputStream(in), schema.length)
+  }
+}
+
+object StreamingCollectResult {
+
+  /**
+   * The max number of times a partition whose blocks are lost is computed again.
+   */
+  private val MAX_RECOMPUTE_ATTEMPTS = 3
+
+  private val sameThread: ExecutionContext = ExecutionContext.fromExecutor(new Executor {
+    override def execute(command: Runnable): Unit = command.run()
+  })
+
+  /**
+   * Encodes the rows of a partition on the executor side as a compressed stream of
+   * size-prefixed [[UnsafeRow]]s, terminated by -1.
+   */
+  private def serializePartition(
+      schema: StructType,
+      rows: Iterator[InternalRow],
+      os: OutputStream): Unit = {
+    lazy val projection = UnsafeProjection.create(schema)
+    val out = new DataOutputStream(CompressionCodecHelper.compressedOutputStream(os))
+    val buffer = new Array[Byte](4096)
+    rows.foreach { row =>
+      val unsafeRow = row match {
+        case r: UnsafeRow => r
+        case r => projection(r)
+      }
+      out.writeInt(unsafeRow.getSizeInBytes)
+      unsafeRow.writeToStream(out, buffer)
+    }
+    out.writeInt(-1)
+    out.close()
+  }
+
+  private def openChunk(chunk: AnyRef): InputStream = chunk match {
+    case bytes: Array[Byte] => new ByteArrayInputStream(bytes)
+    case file: File => new BufferedInputStream(new FileInputStream(file))
+  }
+
+  private def deserializePartition(in: InputStream, numFields: Int): Iterator[InternalRow] = {
+    new Iterator[InternalRow] {
+      private val din = new DataInputStream(in)
+      private var rowSize = readRowSize()
+
+      private def readRowSize(): Int = {
+        val size = din.readInt()
+        if (size < 0) din.close()
+        size
+      }
+
+      override def hasNext: Boolean = rowSize >= 0
+
+      override def next(): InternalRow = {
+        if (!hasNext) throw new NoSuchElementException("End of the partition")
+        val bytes = new Array[Byte](rowSize)
+        din.readFully(bytes)
+        val row = new UnsafeRow(numFields)
+        row.pointTo(bytes, rowSize)
+        rowSize = readRowSize()
+        row
+      }
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.schema
+
+import java.nio.ByteBuffer
+import java.time.ZoneId
+
+import org.apache.hive.service.rpc.thrift._
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.catalyst.{CatalystTypeConverters, InternalRow}
+import org.apache.spark.sql.types._
+
+import org.apache.kyuubi.util.RowSetUtils
+
+/**
+ * Encodes Spark [[InternalRow]]s, e.g. the `UnsafeRow`s of a query result or the rows of a
+ * `ColumnarBatch`, into a [[TRowSet]] without converting them to external [[Row]]s first.
+ *
+ * The columns of primitive, string, binary and decimal types are read with the typed getters of
+ * [[InternalRow]] into pre-sized value lists, and only the values of the other types are converted
+ * to their external form to be formatted by [[RowSet.toHiveString]], so the result is the same as
+ * the one of [[RowSet.toTRowSet]].
+ *
+ * The converters honor `spark.sql.datetime.java8API.enabled`, so the encoder should be created
+ * with the SQLConf of the session being active.
+ */
+class InternalRowSetEncoder(schema: StructType, timeZone: ZoneId) {
+
+  // only the types that can not be read by the typed getters need a converter
+  private val toScala: Array[Any => Any] = schema.fields.map { field =>
+    field.dataType match {
+      case BooleanType | ByteType | ShortType | IntegerType | LongType | FloatType | DoubleType |
+          StringType | BinaryType | _: DecimalType => null
+      case dataType => CatalystTypeConverters.createToScalaConverter(dataType)
+    }
+  }
+
+  private val toRow = CatalystTypeConverters.createToScalaConverter(schema)
+
+  // reused by all the columns encoded by a thread, its bytes are copied out per column
+  private val reusedNulls = new ThreadLocal[java.util.BitSet] {
+    override def initialValue(): java.util.BitSet = new java.util.BitSet()
+  }
+
+  def toTRowSet(rows: IndexedSeq[InternalRow], protocolVersion: TProtocolVersion): TRowSet = {
+    if (protocolVersion.getValue < TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V6.getValue) {
+      RowSet.toRowBasedSet(rows.map(toRow(_).asInstanceOf[Row]), schema, timeZone)
+    } else {
+      toColumnBasedSet(rows)
+    }
+  }
+
+  def toColumnBasedSet(rows: IndexedSeq[InternalRow]): TRowSet = {
+    val tRowSet = new TRowSet(0, new java.util.ArrayList[TRow](0))
+    RowSetUtils.toTColumns(schema.length, rows.length) { ordinal =>
+      val nulls = reusedNulls.get
+      nulls.clear()
+      toTColumn(rows, ordinal, nulls)
+    }.foreach(tRowSet.addToColumns)
+    tRowSet
+  }
+
+  private def toTColumn(
+      rows: IndexedSeq[InternalRow],
+      ordinal: Int,
+      nulls: java.util.BitSet): TColumn = {
+    schema(ordinal).dataType match {
+      case BooleanType =>
+        val values = getOrSetAsNull[java.lang.Boolean](rows, ordinal, nulls, true) {
+          _.getBoolean(ordinal)
+        }
+        TColumn.boolVal(new TBoolColumn(values, toBuffer(nulls)))
+
+      case ByteType =>
+        val values = getOrSetAsNull[java.lang.Byte](rows, ordinal, nulls, 0.toByte) {
+          _.getByte(ordinal)
+        }
+        TColumn.byteVal(new TByteColumn(values, toBuffer(nulls)))
+
+      case ShortType =>
+        val values = getOrSetAsNull[java.lang.Short](rows, ordinal, nulls, 0.toShort) {
+          _.getShort(ordinal)
+        }
+        TColumn.i16Val(new TI16Column(values, toBuffer(nulls)))
+
+      case IntegerType =>
+        val values = getOrSetAsNull[java.lang.Integer](rows, ordinal, nulls, 0) {
+          _.getInt(ordinal)
+        }
+        TColumn.i32Val(new TI32Column(values, toBuffer(nulls)))
+
+      case LongType =>
+        val values = getOrSetAsNull[java.lang.Long](rows, ordinal, nulls, 0L) {
+          _.getLong(ordinal)
+        }
+        TColumn.i64Val(new TI64Column(values, toBuffer(nulls)))
+
+      case FloatType =>
+        val values = getOrSetAsNull[java.lang.Double](rows, ordinal, nulls, 0.toDouble) {
+          _.getFloat(ordinal).toDouble
+        }
+        TColumn.doubleVal(new TDoubleColumn(values, toBuffer(nulls)))
+
+      case DoubleType =>
+        val values = getOrSetAsNull[java.lang.Double](rows, ordinal, nulls, 0.toDouble) {
+          _.getDouble(ordinal)
+        }
+        TColumn.doubleVal(new TDoubleColumn(values, toBuffer(nulls)))
+
+      case StringType =>
+        val values = getOrSetAsNull[java.lang.String](rows, ordinal, nulls, "") {
+          _.getUTF8String(ordinal).toString
+        }
+        TColumn.stringVal(new TStringColumn(values, toBuffer(nulls)))
+
+      case BinaryType =>
+        val values = getOrSetAsNull[ByteBuffer](rows, ordinal, nulls, ByteBuffer.allocate(0)) {
+          row => ByteBuffer.wrap(row.getBinary(ordinal))
+        }
+        TColumn.binaryVal(new TBinaryColumn(values, toBuffer(nulls)))
+
+      case d: DecimalType =>
+        val values = getOrSetAsNull[java.lang.String](rows, ordinal, nulls, "") {
+          _.getDecimal(ordinal, d.precision, d.scale).toJavaBigDecimal.toPlainString
+        }
+        TColumn.stringVal(new TStringColumn(values, toBuffer(nulls)))
+
+      case dataType =>
+        val converter = toScala(ordinal)
+        val values = getOrSetAsNull[java.lang.String](rows, ordinal, nulls, "") { row =>
+          RowSet.toHiveString((converter(row.get(ordinal, dataType)), dataType), timeZone)
+        }
+        TColumn.stringVal(new TStringColumn(values, toBuffer(nulls)))
+    }
+  }
+
+  private def getOrSetAsNull[T](
+      rows: IndexedSeq[InternalRow],
+      ordinal: Int,
+      nulls: java.util.BitSet,
+      defaultVal: T)(getter: InternalRow => T): java.util.List[T] = {
+    val size = rows.length
+    val ret = new java.util.ArrayList[T](size)
+    var idx = 0
+    while (idx < size) {
+      val row = rows(idx)
+      if (row.isNullAt(ordinal)) {
+        nulls.set(idx)
+        ret.add(defaultVal)
+      } else {
+        ret.add(getter(row))
+      }
+      idx += 1
+    }
+    ret
+  }
+
+  private def toBuffer(nulls: java.util.BitSet): ByteBuffer = ByteBuffer.wrap(nulls.toByteArray)
+}
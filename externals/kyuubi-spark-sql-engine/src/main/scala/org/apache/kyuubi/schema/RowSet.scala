@@ -34,6 +34,8 @@ import org.apache.hive.service.rpc.thrift._
 import org.apache.spark.sql.Row
 import org.apache.spark.sql.types._
 
+import org.apache.kyuubi.util.RowSetUtils
+
 object RowSet {
 
   def toTRowSet(
@@ -61,10 +63,9 @@ object RowSet {
   def toColumnBasedSet(rows: Seq[Row], schema: StructType, timeZone: ZoneId): TRowSet = {
     val size = rows.length
     val tRowSet = new TRowSet(0, new java.util.ArrayList[TRow](size))
-    schema.zipWithIndex.foreach { case (filed, i) =>
-      val tColumn = toTColumn(rows, i, filed.dataType, timeZone)
-      tRowSet.addToColumns(tColumn)
-    }
+    RowSetUtils.toTColumns(schema.length, size) { i =>
+      toTColumn(rows, i, schema(i).dataType, timeZone)
+    }.foreach(tRowSet.addToColumns)
     tRowSet
   }
 
@@ -216,7 +217,10 @@ object RowSet {
       .withChronology(IsoChronology.INSTANCE)
   }
 
-  private lazy val simpleDateFormatter = new SimpleDateFormat("yyyy-MM-dd", Locale.US)
+  // SimpleDateFormat is not thread-safe, and the columns may be encoded in parallel
+  private val simpleDateFormatter = new ThreadLocal[SimpleDateFormat] {
+    override def initialValue(): SimpleDateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US)
+  }
 
   private lazy val timestampFormatter: DateTimeFormatter = {
     createBuilder().appendPattern("yyyy-MM-dd HH:mm:ss")
@@ -225,8 +229,10 @@ object RowSet {
       .withChronology(IsoChronology.INSTANCE)
   }
 
-  private lazy val simpleTimestampFormatter = {
-    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US)
+  private val simpleTimestampFormatter = new ThreadLocal[SimpleDateFormat] {
+    override def initialValue(): SimpleDateFormat = {
+      new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US)
+    }
   }
 
   /**
@@ -239,13 +245,13 @@ object RowSet {
         "null"
 
       case (d: Date, DateType) =>
-        simpleDateFormatter.format(d)
+        simpleDateFormatter.get.format(d)
 
       case (ld: LocalDate, DateType) =>
         dateFormatter.format(ld)
 
       case (t: Timestamp, TimestampType) =>
-        simpleTimestampFormatter.format(t)
+        simpleTimestampFormatter.get.format(t)
 
       case (i: Instant, TimestampType) =>
         timestampFormatter.withZone(timeZone).format(i)
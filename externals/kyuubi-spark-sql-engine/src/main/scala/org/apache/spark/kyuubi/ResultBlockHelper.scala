@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.spark.kyuubi
+
+import java.io.OutputStream
+import java.nio.ByteBuffer
+
+import scala.collection.mutable.ArrayBuffer
+
+import org.apache.spark.{SparkContext, SparkEnv, SparkException, TaskContext}
+import org.apache.spark.broadcast.Broadcast
+import org.apache.spark.storage.{BlockId, BroadcastBlockId, StorageLevel}
+import org.apache.spark.util.Utils
+import org.apache.spark.util.io.ChunkedByteBufferOutputStream
+
+/**
+ * Keeps the results of tasks in the block managers of the executors, and reads them from the
+ * driver side, as the block manager APIs are not public
+ */
+object ResultBlockHelper {
+
+  /**
+   * Reserves the id of a broadcast variable for the blocks of a query result, so that the blocks
+   * stored by every task attempt, including the failed and the speculative ones, can be removed
+   * at once by [[removeResult]]. The returned variable must be referenced as long as the result
+   * is in use, as the blocks are also removed by the context cleaner once it is collected.
+   */
+  def reserveResultId(sc: SparkContext): Broadcast[Unit] = sc.broadcast(())
+
+  /**
+   * Writes the result of the running task through `f`, and stores it as blocks of up to
+   * `blockSize` bytes in the block manager of the current executor, each spilled to the
+   * executor's local disk if the storage memory is not enough. The stored blocks are removed if
+   * the task fails or is killed.
+   */
+  def putTaskResult(resultId: Long, blockSize: Long)(f: OutputStream => Unit): Seq[BlockId] = {
+    val out = new TaskResultOutputStream(resultId, blockSize)
+    try {
+      f(out)
+      out.close()
+      out.blockIds
+    } catch {
+      case e: Throwable =>
+        out.blockIds.foreach { blockId =>
+          Utils.tryLogNonFatalError(SparkEnv.get.blockManager.removeBlock(blockId))
+        }
+        throw e
+    }
+  }
+
+  /**
+   * Fetches a block from the executor holding it, None if the block is lost with its executor.
+   */
+  def getRemoteBytes(blockId: BlockId): Option[Array[Byte]] = {
+    SparkEnv.get.blockManager.getRemoteBytes(blockId).map { bytes =>
+      try bytes.toArray finally bytes.dispose()
+    }
+  }
+
+  def removeBlock(blockId: BlockId): Unit = {
+    SparkEnv.get.blockManager.master.removeBlock(blockId)
+  }
+
+  /**
+   * Removes the blocks of a query result from all the block managers, without waiting.
+   */
+  def removeResult(resultId: Long): Unit = {
+    SparkEnv.get.blockManager.master.removeBroadcast(
+      resultId,
+      removeFromMaster = true,
+      blocking = false)
+  }
+}
+
+/**
+ * Stores the bytes written by a task as blocks of up to `blockSize` bytes, each block is stored
+ * as soon as it is full, so the task holds at most one block in memory.
+ */
+private class TaskResultOutputStream(resultId: Long, blockSize: Long) extends OutputStream {
+
+  private val taskAttemptId = TaskContext.get().taskAttemptId()
+
+  private val stored = new ArrayBuffer[BlockId]
+
+  private var block = newBlock()
+
+  private var closed = false
+
+  def blockIds: Seq[BlockId] = stored.toList
+
+  override def write(b: Int): Unit = {
+    block.write(b)
+    if (block.size >= blockSize) putBlock()
+  }
+
+  override def write(b: Array[Byte], off: Int, len: Int): Unit = {
+    var written = 0
+    while (written < len) {
+      val n = math.min(len - written, blockSize - block.size).toInt
+      block.write(b, off + written, n)
+      written += n
+      if (block.size >= blockSize) putBlock()
+    }
+  }
+
+  // an empty partition still has a block, as the readers expect at least one
+  override def close(): Unit = {
+    if (!closed) {
+      closed = true
+      if (block.size > 0 || stored.isEmpty) putBlock()
+    }
+  }
+
+  private def newBlock(): ChunkedByteBufferOutputStream = {
+    new ChunkedByteBufferOutputStream(64 * 1024, ByteBuffer.allocate)
+  }
+
+  private def putBlock(): Unit = {
+    block.close()
+    val blockId = BroadcastBlockId(resultId, s"result_${taskAttemptId}_${stored.length}")
+    val put = SparkEnv.get.blockManager.putBytes(
+      blockId,
+      block.toChunkedByteBuffer,
+      StorageLevel.MEMORY_AND_DISK_SER)
+    if (!put) throw new SparkException(s"Failed to store the task result block $blockId")
+    stored += blockId
+    block = newBlock()
+  }
+}
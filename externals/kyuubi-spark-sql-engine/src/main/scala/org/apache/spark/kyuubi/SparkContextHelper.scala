@@ -17,6 +17,10 @@
 
 package org.apache.spark.kyuubi
 
+import java.util.Properties
+
+import scala.collection.JavaConverters._
+
 import org.apache.hadoop.security.Credentials
 import org.apache.spark.SparkContext
 import org.apache.spark.deploy.SparkHadoopUtil
@@ -52,6 +56,28 @@ object SparkContextHelper extends Logging {
     }
   }
 
+  /**
+   * Copies the local properties of the current thread, e.g. the job group of a statement.
+   */
+  def getLocalProperties(sc: SparkContext): Properties = {
+    val local = sc.getLocalProperties
+    val props = new Properties()
+    local.stringPropertyNames().asScala.foreach { key =>
+      props.setProperty(key, local.getProperty(key))
+    }
+    props
+  }
+
+  /**
+   * Runs `f` with the given local properties, to submit jobs on behalf of a statement from a
+   * thread other than the one running the statement.
+   */
+  def withLocalProperties[T](sc: SparkContext, props: Properties)(f: => T): T = {
+    val old = sc.getLocalProperties
+    sc.setLocalProperties(props)
+    try f finally sc.setLocalProperties(old)
+  }
+
 }
 
 /**
@@ -33,6 +33,7 @@ import org.apache.spark.sql.catalyst.analysis.FunctionRegistry
 import org.apache.spark.sql.types._
 
 import org.apache.kyuubi.Utils
+import org.apache.kyuubi.config.KyuubiConf
 import org.apache.kyuubi.engine.spark.WithSparkSQLEngine
 import org.apache.kyuubi.engine.spark.shim.SparkCatalogShim
 import org.apache.kyuubi.operation.{HiveMetadataTests, SparkQueryTests}
@@ -878,4 +879,29 @@ class SparkOperationSuite extends WithSparkSQLEngine with HiveMetadataTests with
     token.setPassword(bytes)
     token
   }
+
+  test("long poll the operation status for the polling timeout of the session") {
+    val sessionConf = Map(KyuubiConf.OPERATION_STATUS_POLLING_TIMEOUT.key -> "500")
+    withSessionConf(sessionConf)(Map.empty)(Map.empty) {
+      withSessionHandle { (client, handle) =>
+        val req = new TExecuteStatementReq(
+          handle,
+          "SELECT java_method('java.lang.Thread', 'sleep', 10000L)")
+        req.setRunAsync(true)
+        val opHandle = client.ExecuteStatement(req).getOperationHandle
+        try {
+          val start = System.currentTimeMillis()
+          val resp = client.GetOperationStatus(new TGetOperationStatusReq(opHandle))
+          val elapsed = System.currentTimeMillis() - start
+          assert(resp.getStatus.getStatusCode === TStatusCode.SUCCESS_STATUS)
+          assert(Set(TOperationState.PENDING_STATE, TOperationState.RUNNING_STATE)
+            .contains(resp.getOperationState))
+          // held for the timeout of the session rather than the one of the engine, 5s by default
+          assert(elapsed >= 400 && elapsed < 4000)
+        } finally {
+          client.CancelOperation(new TCancelOperationReq(opHandle))
+        }
+      }
+    }
+  }
 }
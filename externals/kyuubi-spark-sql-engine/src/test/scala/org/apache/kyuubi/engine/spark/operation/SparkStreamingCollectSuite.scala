@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.engine.spark.operation
+
+import java.sql.SQLException
+
+import scala.collection.mutable.ArrayBuffer
+
+import org.apache.kyuubi.KyuubiSQLException
+import org.apache.kyuubi.config.KyuubiConf._
+import org.apache.kyuubi.engine.spark.WithSparkSQLEngine
+import org.apache.kyuubi.operation.HiveJDBCTestHelper
+
+class SparkStreamingCollectSuite extends WithSparkSQLEngine with HiveJDBCTestHelper {
+
+  override def withKyuubiConf: Map[String, String] = Map(
+    OPERATION_STREAMING_COLLECT.key -> "true",
+    OPERATION_STREAMING_COLLECT_BLOCK_SIZE.key -> "4096",
+    OPERATION_STREAMING_COLLECT_MEMORY_LIMIT.key -> "65536",
+    "spark.driver.maxResultSize" -> "1m")
+
+  override protected def jdbcUrl: String = getJdbcUrl
+
+  test("streaming collect query result in partition order") {
+    withJdbcStatement() { statement =>
+      val rs = statement.executeQuery(
+        "SELECT id, CAST(id AS STRING) FROM range(0, 10000, 1, 8) ORDER BY id DESC")
+      val result = new ArrayBuffer[Long]
+      while (rs.next()) {
+        assert(rs.getString(2) === rs.getLong(1).toString)
+        result += rs.getLong(1)
+      }
+      assert(result === (0L until 10000L).reverse)
+    }
+  }
+
+  test("keep the partitions out of the driver max result size") {
+    withJdbcStatement() { statement =>
+      val rs = statement.executeQuery(
+        "SELECT id, sha2(CAST(id AS STRING), 256) FROM range(0, 100000, 1, 4)")
+      var count = 0L
+      while (rs.next()) {
+        assert(rs.getLong(1) === count)
+        assert(rs.getString(2).length === 64)
+        count += 1
+      }
+      assert(count === 100000L)
+    }
+  }
+
+  test("read the pulled partitions again") {
+    val result = new StreamingCollectResult(spark.range(0, 10000, 1, 8).toDF(), 1024, 2, 16384)
+    try {
+      assert(result.map(_.getLong(0)).toSeq === (0L until 10000L))
+      assert(result.iterator.size === 10000)
+    } finally {
+      result.close()
+    }
+    val e = intercept[KyuubiSQLException](result.iterator.hasNext)
+    assert(e.getMessage.contains("has been closed"))
+  }
+
+  test("fail the fetch if the job fails") {
+    val result = new StreamingCollectResult(
+      spark.sql("SELECT assert_true(id < 5000) FROM range(0, 10000, 1, 8)"),
+      1024,
+      2,
+      16384)
+    try {
+      val e = intercept[KyuubiSQLException](result.iterator.size)
+      assert(e.getMessage.contains("Error collecting the query result"))
+    } finally {
+      result.close()
+    }
+  }
+
+  test("report the job failure as the operation error") {
+    withJdbcStatement() { statement =>
+      val e = intercept[SQLException] {
+        statement.executeQuery("SELECT assert_true(id < 5000) FROM range(0, 10000, 1, 8)")
+      }
+      assert(e.getMessage.contains("Error collecting the query result"))
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc
+
+import java.sql.Connection
+import java.util.Properties
+import java.util.concurrent.{Callable, Executors, TimeUnit}
+
+import scala.collection.JavaConverters._
+
+import org.apache.kyuubi.engine.spark.WithSparkSQLEngine
+
+class KyuubiConnectionTransportPoolSuite extends WithSparkSQLEngine {
+
+  override def withKyuubiConf: Map[String, String] = Map.empty
+
+  private def connect(): Connection = {
+    new KyuubiHiveDriver().connect(getJdbcUrl + "transportPoolSize=3", new Properties())
+  }
+
+  // the thrift classes are relocated in the shaded driver, access the transports reflectively
+  private def transports(connection: Connection): Seq[AnyRef] = {
+    def field(name: String): AnyRef = {
+      val f = connection.getClass.getDeclaredField(name)
+      f.setAccessible(true)
+      f.get(connection)
+    }
+    field("transport") +: field("pooledTransports").asInstanceOf[java.util.List[AnyRef]].asScala
+  }
+
+  private def isOpen(transport: AnyRef): Boolean = {
+    transport.getClass.getMethod("isOpen").invoke(transport).asInstanceOf[Boolean]
+  }
+
+  test("concurrent statements share the transports of the pool") {
+    val connection = connect()
+    val executor = Executors.newFixedThreadPool(6)
+    try {
+      assert(transports(connection).size === 3)
+      val queries = (0 until 12).map { i =>
+        executor.submit(new Callable[Long] {
+          override def call(): Long = {
+            val statement = connection.createStatement()
+            try {
+              val rs = statement.executeQuery(s"SELECT count(*) + $i FROM range(1000)")
+              assert(rs.next())
+              rs.getLong(1)
+            } finally {
+              statement.close()
+            }
+          }
+        })
+      }
+      assert(queries.map(_.get(60, TimeUnit.SECONDS)) === (0 until 12).map(_ + 1000L))
+    } finally {
+      executor.shutdownNow()
+      connection.close()
+    }
+  }
+
+  test("close releases every transport of the pool") {
+    val connection = connect()
+    val opened = transports(connection)
+    assert(opened.size === 3)
+    assert(opened.forall(isOpen))
+    val statement = connection.createStatement()
+    val rs = statement.executeQuery("SELECT 1")
+    assert(rs.next())
+    connection.close()
+    assert(opened.forall(t => !isOpen(t)))
+    assert(transports(connection).tail.isEmpty)
+  }
+}
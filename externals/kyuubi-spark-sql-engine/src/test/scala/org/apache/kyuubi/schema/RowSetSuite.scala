@@ -26,6 +26,7 @@ import scala.collection.JavaConverters._
 
 import org.apache.hive.service.rpc.thrift.TProtocolVersion
 import org.apache.spark.sql.Row
+import org.apache.spark.sql.catalyst.{CatalystTypeConverters, InternalRow}
 import org.apache.spark.sql.types._
 import org.apache.spark.unsafe.types.CalendarInterval
 
@@ -263,4 +264,19 @@ class RowSetSuite extends KyuubiFunSuite {
       }
     }
   }
+
+  test("encode internal rows as the external ones") {
+    val toScala = CatalystTypeConverters.createToScalaConverter(schema)
+    val internalRows = rows.map { row =>
+      InternalRow.fromSeq(row.toSeq.map(CatalystTypeConverters.convertToCatalyst))
+    }.toIndexedSeq
+    val externalRows = internalRows.map(toScala).map(_.asInstanceOf[Row])
+    val encoder = new InternalRowSetEncoder(schema, zoneId)
+    TProtocolVersion.values().foreach { proto =>
+      assert(
+        encoder.toTRowSet(internalRows, proto) ===
+          RowSet.toTRowSet(externalRows, schema, proto, zoneId),
+        proto.toString)
+    }
+  }
 }
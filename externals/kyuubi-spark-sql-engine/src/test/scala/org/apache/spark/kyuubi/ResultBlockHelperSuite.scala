@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.spark.kyuubi
+
+import org.apache.spark.{SparkEnv, SparkException}
+import org.apache.spark.storage.BlockId
+import org.scalatest.time.SpanSugar._
+
+import org.apache.kyuubi.engine.spark.WithSparkSQLEngine
+
+class ResultBlockHelperSuite extends WithSparkSQLEngine {
+
+  override def withKyuubiConf: Map[String, String] = Map.empty
+
+  private def resultBlocks(resultId: Long): Seq[BlockId] = {
+    SparkEnv.get.blockManager.master.getMatchingBlockIds(
+      _.name.startsWith(s"broadcast_${resultId}_result_"),
+      true)
+  }
+
+  test("store the task results as blocks of bounded size") {
+    val reserved = ResultBlockHelper.reserveResultId(spark.sparkContext)
+    val resultId = reserved.id
+    val blockIds = spark.sparkContext.runJob(
+      spark.sparkContext.parallelize(1 to 2, 2),
+      (it: Iterator[Int]) =>
+        ResultBlockHelper.putTaskResult(resultId, 100) { out =>
+          it.foreach(i => out.write(Array.fill[Byte](250)(i.toByte)))
+        })
+    try {
+      assert(blockIds.map(_.size) === Array(3, 3))
+      assert(resultBlocks(resultId).toSet === blockIds.flatten.toSet)
+      blockIds.zipWithIndex.foreach { case (ids, i) =>
+        val bytes = ids.flatMap(ResultBlockHelper.getRemoteBytes(_).get)
+        assert(bytes.map(_.toInt) === Seq.fill(250)(i + 1))
+      }
+    } finally {
+      ResultBlockHelper.removeResult(resultId)
+    }
+    eventually(timeout(10.seconds))(assert(resultBlocks(resultId).isEmpty))
+  }
+
+  test("remove the stored blocks of a failed task") {
+    val reserved = ResultBlockHelper.reserveResultId(spark.sparkContext)
+    val resultId = reserved.id
+    intercept[SparkException] {
+      spark.sparkContext.runJob(
+        spark.sparkContext.parallelize(1 to 1, 1),
+        (_: Iterator[Int]) =>
+          ResultBlockHelper.putTaskResult(resultId, 100) { out =>
+            out.write(new Array[Byte](250))
+            throw new IllegalStateException("failing the task")
+          })
+    }
+    assert(resultBlocks(resultId).isEmpty)
+  }
+}
@@ -46,6 +46,7 @@ import org.apache.hive.service.rpc.thrift.TRowSet
 import org.apache.hive.service.rpc.thrift.TStringColumn
 import org.apache.hive.service.rpc.thrift.TStringValue
 
+import org.apache.kyuubi.util.RowSetUtils
 import org.apache.kyuubi.util.RowSetUtils.bitSetToBuffer
 
 object RowSet {
@@ -74,13 +75,10 @@ object RowSet {
   def toColumnBasedSet(rows: Seq[List[_]], schema: List[Column]): TRowSet = {
     val size = rows.size
     val tRowSet = new TRowSet(0, new java.util.ArrayList[TRow](size))
-    schema.zipWithIndex.foreach { case (filed, i) =>
-      val tColumn = toTColumn(
-        rows,
-        i,
-        filed.getType)
-      tRowSet.addToColumns(tColumn)
-    }
+    val columns = schema.toIndexedSeq
+    RowSetUtils.toTColumns(columns.size, size) { i =>
+      toTColumn(rows, i, columns(i).getType)
+    }.foreach(tRowSet.addToColumns)
     tRowSet
   }
 
@@ -548,6 +548,28 @@ object KyuubiConf {
       .version("1.4.0")
       .fallbackConf(FRONTEND_WORKER_KEEPALIVE_TIME)
 
+  val FRONTEND_MYSQL_WORKER_QUEUE_SIZE: ConfigEntry[Int] =
+    buildConf("frontend.mysql.worker.queue.size")
+      .doc("The number of MySQL connections which can wait for a free thread of the command" +
+        " execution thread pool, when all the threads are busy. The commands of a connection are" +
+        " run one by one, and the commands arriving beyond the limit are rejected with an error" +
+        " packet.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ >= 0, "must be non-negative number")
+      .createWithDefault(100)
+
+  val FRONTEND_MYSQL_FETCH_SIZE: ConfigEntry[Int] =
+    buildConf("frontend.mysql.fetch.size")
+      .doc("The number of rows fetched from the engine at a time when the MySQL frontend service" +
+        " sends a query result to the client. The rows are written to the client batch by" +
+        " batch, and the next batch is not fetched until the client has read enough of the" +
+        " previous ones.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ > 0, "must be positive number")
+      .createWithDefault(1000)
+
   // ///////////////////////////////////////////////////////////////////////////////////////////////
   //                                 SQL Engine Configuration                                    //
   // ///////////////////////////////////////////////////////////////////////////////////////////////
@@ -589,6 +611,18 @@ object KyuubiConf {
     .timeConf
     .createWithDefault(Duration.ofSeconds(60).toMillis)
 
+  val ENGINE_CONNECTION_POOL_SIZE: ConfigEntry[Int] =
+    buildConf("session.engine.connection.pool.size")
+      .doc("The maximum number of connections from a Kyuubi session to its engine. The requests" +
+        " of different operations of the session are sent over different connections in" +
+        " parallel, and the connections beyond the first one are only opened when the requests" +
+        " overlap. A cancel request never waits for the others, it uses a temporary connection" +
+        " if all the connections are busy.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ > 0, "must be positive")
+      .createWithDefault(4)
+
   val ENGINE_INIT_TIMEOUT: ConfigEntry[Long] = buildConf("session.engine.initialize.timeout")
     .doc("Timeout for starting the background engine, e.g. SparkSQLEngine.")
     .version("1.0.0")
@@ -731,7 +765,13 @@ object KyuubiConf {
 
   val OPERATION_STATUS_POLLING_TIMEOUT: ConfigEntry[Long] =
     buildConf("operation.status.polling.timeout")
-      .doc("Timeout(ms) for long polling asynchronous running sql query's status")
+      .doc("Timeout(ms) for long polling asynchronous running sql query's status. A status" +
+        " request of a running query returns as soon as the query completes, or after this" +
+        " timeout. Kyuubi server passes its value of the session to the engine, so that the" +
+        " server tracks the queries running in the engines with fewer status requests, it can" +
+        " also be set per session by the clients connecting to an engine directly. A value not" +
+        " shorter than `kyuubi.session.engine.request.timeout` would make every status request" +
+        " to the engine time out, half of the request timeout is passed instead.")
       .version("1.0.0")
       .timeConf
       .createWithDefault(Duration.ofSeconds(5).toMillis)
@@ -744,6 +784,37 @@ object KyuubiConf {
       .intConf
       .createWithDefault(5)
 
+  val OPERATION_STATUS_POLLING_SCHEDULED: ConfigEntry[Boolean] =
+    buildConf("operation.status.polling.scheduled")
+      .doc("When true, Kyuubi server tracks the statements running in the engines with a few" +
+        " threads of a shared scheduled pool, rather than one thread of the exec pool per" +
+        " statement for its whole runtime, so the number of the running statements is not" +
+        " bounded by kyuubi.backend.server.exec.pool.size. The engines return the status" +
+        " requests right away, which are rescheduled with an interval backing off up to" +
+        " `kyuubi.operation.status.polling.max.interval`. Note that, the completion of a long" +
+        " running statement may be noticed up to that interval later than long polling.")
+      .version("1.5.0")
+      .booleanConf
+      .createWithDefault(false)
+
+  val OPERATION_STATUS_POLLING_MAX_INTERVAL: ConfigEntry[Long] =
+    buildConf("operation.status.polling.max.interval")
+      .doc("The max interval(ms) between two status requests of a statement when the" +
+        " scheduled status polling is enabled. It falls back to" +
+        s" ${OPERATION_STATUS_POLLING_TIMEOUT.key}, so that a long running statement costs no" +
+        " more status and log requests than with the engine long polling.")
+      .version("1.5.0")
+      .fallbackConf(OPERATION_STATUS_POLLING_TIMEOUT)
+
+  val OPERATION_STATUS_POLLING_THREADS: ConfigEntry[Int] =
+    buildConf("operation.status.polling.threads")
+      .doc("The number of threads of Kyuubi server to poll the status of the running statements" +
+        " when the scheduled status polling is enabled.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ > 0, "must be positive")
+      .createWithDefault(4)
+
   val OPERATION_FORCE_CANCEL: ConfigEntry[Boolean] =
     buildConf("operation.interrupt.on.cancel")
       .doc("When true, all running tasks will be interrupted if one cancels a query. " +
@@ -765,6 +836,35 @@ object KyuubiConf {
       .checkValue(_ >= 1000, "must >= 1s if set")
       .createOptional
 
+  val OPERATION_RESULT_PREFETCH: ConfigEntry[Boolean] =
+    buildConf("operation.result.prefetch")
+      .doc("When true, the Kyuubi server fetches the next result batch of a query from the" +
+        " engine in the background while the current one is being returned to the client, and" +
+        " the small client fetch sizes are coalesced into engine fetches of at least" +
+        " `kyuubi.operation.result.prefetch.batch.size` rows.")
+      .version("1.5.0")
+      .booleanConf
+      .createWithDefault(false)
+
+  val OPERATION_RESULT_PREFETCH_BATCH_SIZE: ConfigEntry[Int] =
+    buildConf("operation.result.prefetch.batch.size")
+      .doc("The minimum number of rows fetched from the engine per request when the result" +
+        " prefetch is enabled, the rows beyond the client fetch size are kept at server-side" +
+        " for the following client fetches.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ > 0, "must be positive")
+      .createWithDefault(1000)
+
+  val OPERATION_RESULT_PREFETCH_THREADS: ConfigEntry[Int] =
+    buildConf("operation.result.prefetch.threads")
+      .doc("The number of threads of the Kyuubi server to fetch the result batches from the" +
+        " engines in the background when the result prefetch is enabled.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ > 0, "must be positive")
+      .createWithDefault(8)
+
   val OPERATION_INCREMENTAL_COLLECT: ConfigEntry[Boolean] =
     buildConf("operation.incremental.collect")
       .internal
@@ -774,6 +874,49 @@ object KyuubiConf {
       .booleanConf
       .createWithDefault(false)
 
+  val OPERATION_STREAMING_COLLECT: ConfigEntry[Boolean] =
+    buildConf("operation.streaming.collect")
+      .doc("When true, and the incremental collect is off, the query runs as a single Spark job" +
+        " whose partitions are stored in the block managers of the executors, in blocks of up" +
+        " to `kyuubi.operation.streaming.collect.block.size` bytes, rather than returned to the" +
+        " Spark driver side as task results, so they do not count towards" +
+        " `spark.driver.maxResultSize`. The blocks of the finished partitions are pulled by the" +
+        " Spark driver concurrently while the job runs, kept in memory up to" +
+        " `kyuubi.operation.streaming.collect.memory.limit` and spilled to local disk beyond," +
+        " then fetched by the client in order once the job finishes.")
+      .version("1.5.0")
+      .booleanConf
+      .createWithDefault(false)
+
+  val OPERATION_STREAMING_COLLECT_BLOCK_SIZE: ConfigEntry[Long] =
+    buildConf("operation.streaming.collect.block.size")
+      .doc("The maximum bytes of a block of the serialized query result partitions stored by a" +
+        " task in the streaming collect mode, a larger partition is stored as multiple blocks," +
+        " so neither the task nor the Spark driver holds a whole partition in memory at once.")
+      .version("1.5.0")
+      .longConf
+      .checkValue(v => v > 0 && v < Int.MaxValue, "must be positive and less than 2g")
+      .createWithDefault(4L * 1024 * 1024)
+
+  val OPERATION_STREAMING_COLLECT_FETCH_PARALLELISM: ConfigEntry[Int] =
+    buildConf("operation.streaming.collect.fetch.parallelism")
+      .doc("The number of threads of an operation in the streaming collect mode to pull the" +
+        " blocks of the finished partitions from the executors to the Spark driver side.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ > 0, "must be positive")
+      .createWithDefault(4)
+
+  val OPERATION_STREAMING_COLLECT_MEMORY_LIMIT: ConfigEntry[Long] =
+    buildConf("operation.streaming.collect.memory.limit")
+      .doc("The maximum bytes of the serialized query result blocks kept in the Spark driver" +
+        " memory by an operation in the streaming collect mode, the blocks beyond are spilled" +
+        " to local disk.")
+      .version("1.5.0")
+      .longConf
+      .checkValue(_ >= 0, "must be non-negative")
+      .createWithDefault(64L * 1024 * 1024)
+
   val SERVER_OPERATION_LOG_DIR_ROOT: ConfigEntry[String] =
     buildConf("operation.log.dir.root")
       .doc("Root directory for query operation log at server-side.")
@@ -870,6 +1013,33 @@ object KyuubiConf {
     .intConf
     .createWithDefault(-1)
 
+  val ENGINE_STANDBY_POOL_SIZE: ConfigEntry[Int] = buildConf("engine.standby.pool.size")
+    .doc("The number of standby engines pre-launched for each user and engine configuration " +
+      "of the CONNECTION share level. A new connection claims one of them through ZooKeeper " +
+      "instead of launching a new engine, and the claimed ones are replenished in the " +
+      "background. 0 means disabled.")
+    .version("1.5.0")
+    .intConf
+    .checkValue(_ >= 0, "must be non-negative")
+    .createWithDefault(0)
+
+  val ENGINE_STANDBY_IDLE_TIMEOUT: ConfigEntry[Long] = buildConf("engine.standby.idle.timeout")
+    .doc("The standby engines self-terminate if they are not claimed for this duration, " +
+      s"instead of ${ENGINE_IDLE_TIMEOUT.key}, so that they are kept for the future " +
+      "connections. 0 or negative means not to self-terminate. Once claimed, an engine of the " +
+      "CONNECTION share level stops with its connection as usual.")
+    .version("1.5.0")
+    .timeConf
+    .createWithDefault(Duration.ofHours(12).toMillis)
+
+  val ENGINE_STANDBY_LAUNCH_THREADS: ConfigEntry[Int] = buildConf("engine.standby.launch.threads")
+    .doc("The max number of standby engines being launched by a Kyuubi server at the same " +
+      s"time, see also ${ENGINE_STANDBY_POOL_SIZE.key}.")
+    .version("1.5.0")
+    .intConf
+    .checkValue(_ > 0, "must be positive")
+    .createWithDefault(4)
+
   val ENGINE_INITIALIZE_SQL: ConfigEntry[Seq[String]] =
     buildConf("engine.initialize.sql")
       .doc("SemiColon-separated list of SQL statements to be initialized in the newly created " +
@@ -995,6 +1165,61 @@ object KyuubiConf {
         "Unsupported event loggers")
       .createWithDefault(Seq("SPARK"))
 
+  val EVENT_JSON_ASYNC_ENABLED: ConfigEntry[Boolean] =
+    buildConf("event.json.async.enabled")
+      .doc("When true, the builtin JSON logger of both server and engine events puts the events" +
+        " into a bounded queue, and a writer thread writes them in batches to the event files," +
+        " so that the callers do not wait for flushing the files. Otherwise, the events are" +
+        " written and flushed one by one by the callers.")
+      .version("1.5.0")
+      .booleanConf
+      .createWithDefault(false)
+
+  val EVENT_JSON_ASYNC_QUEUE_SIZE: ConfigEntry[Int] =
+    buildConf("event.json.async.queue.size")
+      .doc("The capacity of the event queue of the JSON logger when" +
+        s" ${EVENT_JSON_ASYNC_ENABLED.key} is true.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ > 0, "must be positive number")
+      .createWithDefault(10000)
+
+  object EventQueueFullPolicy extends Enumeration {
+    type EventQueueFullPolicy = Value
+    val BLOCK, DROP = Value
+  }
+
+  val EVENT_JSON_ASYNC_QUEUE_FULL_POLICY: ConfigEntry[String] =
+    buildConf("event.json.async.queue.full.policy")
+      .doc("What to do with the new events when the event queue of the JSON logger is full." +
+        " <ul>" +
+        " <li>BLOCK: the callers wait until the writer thread takes events off the queue.</li>" +
+        " <li>DROP: the new events are dropped, and a warning is logged.</li>" +
+        " </ul>")
+      .version("1.5.0")
+      .stringConf
+      .transform(_.toUpperCase(Locale.ROOT))
+      .checkValues(EventQueueFullPolicy.values.map(_.toString))
+      .createWithDefault(EventQueueFullPolicy.BLOCK.toString)
+
+  val EVENT_JSON_ASYNC_FLUSH_SIZE: ConfigEntry[Int] =
+    buildConf("event.json.async.flush.size")
+      .doc("The writer thread of the JSON logger flushes the event files once this many events" +
+        " are written since the last flush.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ > 0, "must be positive number")
+      .createWithDefault(1000)
+
+  val EVENT_JSON_ASYNC_FLUSH_INTERVAL: ConfigEntry[Long] =
+    buildConf("event.json.async.flush.interval")
+      .doc("The writer thread of the JSON logger flushes the event files at least this often" +
+        " when there are events written since the last flush.")
+      .version("1.5.0")
+      .timeConf
+      .checkValue(_ > 0, "must be positive number")
+      .createWithDefault(Duration.ofSeconds(1).toMillis)
+
   val ENGINE_UI_STOP_ENABLED: ConfigEntry[Boolean] =
     buildConf("engine.ui.stop.enabled")
       .doc("When true, allows Kyuubi engine to be killed from the Spark Web UI.")
@@ -1025,6 +1250,26 @@ object KyuubiConf {
       .stringConf
       .createWithDefault("engine_operation_logs")
 
+  val ENGINE_RESULT_ENCODE_PARALLELISM: ConfigEntry[Int] =
+    buildConf("engine.result.encode.parallelism")
+      .doc("The number of threads of the pool shared by all the operations of an engine to" +
+        " encode the columns of a result batch in parallel, when the batch is returned in the" +
+        " column based format. When it is 1, the columns are always encoded one by one.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ > 0, "must be positive")
+      .createWithDefault(1)
+
+  val ENGINE_RESULT_ENCODE_PARALLEL_THRESHOLD: ConfigEntry[Int] =
+    buildConf("engine.result.encode.parallel.threshold")
+      .doc("The minimum number of values, i.e. rows multiplied by columns, of a result batch to" +
+        s" encode its columns in parallel if ${ENGINE_RESULT_ENCODE_PARALLELISM.key} is" +
+        " greater than 1.")
+      .version("1.5.0")
+      .intConf
+      .checkValue(_ > 0, "must be positive")
+      .createWithDefault(100000)
+
   val SESSION_NAME: OptionalConfigEntry[String] =
     buildConf("session.name")
       .doc("A human readable name of session and we use empty string by default. " +
@@ -19,8 +19,14 @@ package org.apache.kyuubi.events
 
 import java.io.{BufferedOutputStream, FileOutputStream, IOException, PrintWriter}
 import java.net.URI
+import java.util.concurrent.{LinkedBlockingQueue, TimeUnit}
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantReadWriteLock
 
+import scala.collection.JavaConverters._
+import scala.collection.mutable
 import scala.collection.mutable.HashMap
+import scala.util.control.NonFatal
 
 import org.apache.commons.lang3.StringUtils
 import org.apache.hadoop.conf.Configuration
@@ -29,9 +35,10 @@ import org.apache.hadoop.fs.permission.FsPermission
 
 import org.apache.kyuubi.Logging
 import org.apache.kyuubi.config.{ConfigEntry, KyuubiConf}
-import org.apache.kyuubi.config.KyuubiConf.ENGINE_EVENT_JSON_LOG_PATH
+import org.apache.kyuubi.config.KyuubiConf._
 import org.apache.kyuubi.events.JsonEventLogger._
 import org.apache.kyuubi.service.AbstractService
+import org.apache.kyuubi.util.NamedThreadFactory
 
 /**
  * This event logger logs Kyuubi engine events in JSON file format.
@@ -39,6 +46,10 @@ import org.apache.kyuubi.service.AbstractService
  *   ${ENGINE_EVENT_JSON_LOG_PATH}/${eventType}/day=${date}/${logName}.json
  * The ${eventType} is based on core concepts of the Kyuubi systems, e.g. engine/session/statement
  * The ${date} is based on the time of events, e.g. engine.startTime, statement.startTime
+ *
+ * When [[EVENT_JSON_ASYNC_ENABLED]] is true, the events are put into a bounded queue, and a writer
+ * thread writes them in batches, flushing the touched files only once per batch, so that the
+ * callers do not wait for the file system.
  * @param logName the engine id formed of appId + attemptId(if any)
  */
 class JsonEventLogger[T <: KyuubiEvent](
@@ -53,6 +64,22 @@ class JsonEventLogger[T <: KyuubiEvent](
   private var fs: FileSystem = _
   private val writers = HashMap.empty[String, Logger]
 
+  private var asyncEnabled: Boolean = false
+  private var dropOnFull: Boolean = false
+  private var flushSize: Int = _
+  private var flushIntervalMs: Long = _
+  private var queue: LinkedBlockingQueue[T] = _
+  private var writerThread: Thread = _
+  @volatile private var stopping: Boolean = false
+  // set if the writer thread dies of an unexpected error, the events are written synchronously
+  @volatile private var writerFailed: Boolean = false
+  // held shared by the enqueues and exclusively to set `stopping`, so that an event is either
+  // queued before the writer thread may see `stopping`, or dropped and counted
+  private val stoppingLock = new ReentrantReadWriteLock()
+  private val dropped = new AtomicLong(0)
+
+  def getDroppedCount: Long = dropped.get
+
   private def getOrUpdate(event: KyuubiEvent): Logger = synchronized {
     val partitions = event.partitions.map(kv => s"${kv._1}=${kv._2}").mkString(Path.SEPARATOR)
     writers.getOrElseUpdate(
@@ -91,10 +118,58 @@ class JsonEventLogger[T <: KyuubiEvent](
     logRoot = URI.create(conf.get(logPath))
     fs = FileSystem.get(logRoot, hadoopConf)
     requireLogRootWritable()
+    asyncEnabled = conf.get(EVENT_JSON_ASYNC_ENABLED)
+    if (asyncEnabled) {
+      dropOnFull =
+        conf.get(EVENT_JSON_ASYNC_QUEUE_FULL_POLICY) == EventQueueFullPolicy.DROP.toString
+      flushSize = conf.get(EVENT_JSON_ASYNC_FLUSH_SIZE)
+      flushIntervalMs = conf.get(EVENT_JSON_ASYNC_FLUSH_INTERVAL)
+      queue = new LinkedBlockingQueue[T](conf.get(EVENT_JSON_ASYNC_QUEUE_SIZE))
+    }
     super.initialize(conf)
   }
 
-  override def stop(): Unit = synchronized {
+  override def start(): Unit = synchronized {
+    if (asyncEnabled) {
+      writerThread = new NamedThreadFactory(s"$logName-json-event-writer", daemon = true)
+        .newThread(() => {
+          try {
+            runWriter()
+          } catch {
+            case e: Throwable =>
+              writerFailed = true
+              error("The event writer thread died, the events are written synchronously", e)
+          }
+        })
+      writerThread.start()
+    }
+    super.start()
+  }
+
+  override def stop(): Unit = {
+    // not holding the lock, the writer thread needs it to open the event files
+    if (writerThread != null) {
+      // waits for the enqueues in progress, a blocked one is released as the writer drains
+      stoppingLock.writeLock().lock()
+      try {
+        stopping = true
+      } finally {
+        stoppingLock.writeLock().unlock()
+      }
+      try {
+        writerThread.join()
+      } catch {
+        case e: InterruptedException => warn("Interrupted while waiting the event writer", e)
+      }
+      writerThread = null
+    }
+    synchronized {
+      closeWriters()
+      super.stop()
+    }
+  }
+
+  private def closeWriters(): Unit = {
     writers.foreach { case (name, (writer, stream)) =>
       try {
         writer.close()
@@ -102,18 +177,130 @@ class JsonEventLogger[T <: KyuubiEvent](
         case e: IOException => error(s"File to close $name's event writer", e)
       }
     }
-    super.stop()
   }
 
   override def logEvent(kyuubiEvent: T): Unit = {
-    val (writer, stream) = getOrUpdate(kyuubiEvent)
+    if (asyncEnabled) {
+      enqueue(kyuubiEvent)
+    } else {
+      val logger = write(kyuubiEvent)
+      flush(logger)
+    }
+  }
+
+  private def write(kyuubiEvent: T): Logger = {
+    val logger = getOrUpdate(kyuubiEvent)
     // scalastyle:off println
-    writer.println(kyuubiEvent.toJson)
+    logger._1.println(kyuubiEvent.toJson)
     // scalastyle:on println
+    logger
+  }
+
+  private def flush(logger: Logger): Unit = {
+    val (writer, stream) = logger
     writer.flush()
     stream.foreach(_.hflush())
   }
 
+  private def enqueue(kyuubiEvent: T): Unit = {
+    stoppingLock.readLock().lock()
+    val accepted =
+      try {
+        if (stopping) {
+          false
+        } else if (writerFailed) {
+          writeSync(kyuubiEvent)
+          true
+        } else if (dropOnFull) {
+          queue.offer(kyuubiEvent)
+        } else {
+          // waits in slices, so that the callers do not hang on a full queue if the writer dies
+          var queued = false
+          while (!queued && !writerFailed) {
+            queued = queue.offer(kyuubiEvent, WRITER_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)
+          }
+          if (!queued) writeSync(kyuubiEvent)
+          true
+        }
+      } finally {
+        stoppingLock.readLock().unlock()
+      }
+    if (!accepted) {
+      val count = dropped.incrementAndGet()
+      if (count % DROPPED_EVENTS_WARN_INTERVAL == 1) {
+        warn(s"Dropped $count ${kyuubiEvent.eventType} etc. events in total, as the event queue" +
+          " is full or the logger is stopped")
+      }
+    }
+  }
+
+  /**
+   * Writes and flushes the events left in the queue by the dead writer thread, then `kyuubiEvent`.
+   */
+  private def writeSync(kyuubiEvent: T): Unit = synchronized {
+    var queued = queue.poll()
+    while (queued != null) {
+      flush(write(queued))
+      queued = queue.poll()
+    }
+    flush(write(kyuubiEvent))
+  }
+
+  /**
+   * Takes the queued events in batches and writes them, the event files written are flushed
+   * together once [[flushSize]] events are written or [[flushIntervalMs]] passes, and when the
+   * logger is stopping after the queue is drained.
+   */
+  private def runWriter(): Unit = {
+    val batch = new java.util.ArrayList[T](flushSize)
+    val dirty = mutable.LinkedHashSet.empty[Logger]
+    var unflushed = 0
+    var lastFlush = System.currentTimeMillis()
+
+    def flushDirty(): Unit = {
+      dirty.foreach { logger =>
+        try {
+          flush(logger)
+        } catch {
+          case NonFatal(e) => error("Failed to flush the event writer", e)
+        }
+      }
+      dirty.clear()
+      unflushed = 0
+      lastFlush = System.currentTimeMillis()
+    }
+
+    while (!stopping || !queue.isEmpty) {
+      val waitMs =
+        if (dirty.isEmpty) flushIntervalMs
+        else math.max(1L, lastFlush + flushIntervalMs - System.currentTimeMillis())
+      try {
+        val head = queue.poll(waitMs, TimeUnit.MILLISECONDS)
+        if (head != null) {
+          batch.add(head)
+          queue.drainTo(batch, flushSize - 1)
+        }
+      } catch {
+        // only stop() ends the writer, so that no queued event is left behind
+        case _: InterruptedException =>
+      }
+      batch.asScala.foreach { event =>
+        try {
+          dirty += write(event)
+        } catch {
+          case NonFatal(e) => error(s"Failed to write the ${event.eventType} event", e)
+        }
+      }
+      unflushed += batch.size
+      batch.clear()
+      if (unflushed >= flushSize ||
+        (dirty.nonEmpty && System.currentTimeMillis() - lastFlush >= flushIntervalMs)) {
+        flushDirty()
+      }
+    }
+    flushDirty()
+  }
+
   // This method is only called by kyuubiServer
   def createEventLogRootDir(conf: KyuubiConf, hadoopConf: Configuration): Unit = {
     val logRoot: URI = URI.create(conf.get(ENGINE_EVENT_JSON_LOG_PATH))
@@ -131,4 +318,6 @@ class JsonEventLogger[T <: KyuubiEvent](
 object JsonEventLogger {
   val JSON_LOG_DIR_PERM: FsPermission = new FsPermission(Integer.parseInt("770", 8).toShort)
   val JSON_LOG_FILE_PERM: FsPermission = new FsPermission(Integer.parseInt("660", 8).toShort)
+  private val DROPPED_EVENTS_WARN_INTERVAL = 1000
+  private val WRITER_CHECK_INTERVAL_MS = 100L
 }
@@ -17,6 +17,11 @@
 
 package org.apache.kyuubi.operation
 
+import java.util.concurrent.{ConcurrentHashMap, ConcurrentSkipListSet}
+import java.util.concurrent.atomic.AtomicLong
+
+import scala.collection.mutable.ArrayBuffer
+
 import org.apache.hive.service.rpc.thrift._
 
 import org.apache.kyuubi.KyuubiSQLException
@@ -34,11 +39,21 @@ import org.apache.kyuubi.session.Session
  */
 abstract class OperationManager(name: String) extends AbstractService(name) {
 
-  final private val handleToOperation = new java.util.HashMap[OperationHandle, Operation]()
+  import OperationManager._
+
+  final private val handleToOperation = new ConcurrentHashMap[OperationHandle, Operation]()
+
+  // the operations ordered by the earliest time they may be timed-out, so that a check only
+  // visits the operations which are about to expire
+  final private val expiryQueue = new ConcurrentSkipListSet[ExpiryEntry]()
+  final private val handleToExpiry = new ConcurrentHashMap[OperationHandle, ExpiryEntry]()
+  final private val expirySequence = new AtomicLong(0L)
+  @volatile private var operationIdleTimeout: Long = 0L
 
   def getOperationCount: Int = handleToOperation.size()
 
   override def initialize(conf: KyuubiConf): Unit = {
+    operationIdleTimeout = conf.get(KyuubiConf.OPERATION_IDLE_TIMEOUT)
     LogDivertAppender.initialize()
     super.initialize(conf)
   }
@@ -70,22 +85,27 @@ abstract class OperationManager(name: String) extends AbstractService(name) {
       schemaName: String,
       functionName: String): Operation
 
-  final def addOperation(operation: Operation): Operation = synchronized {
+  final def addOperation(operation: Operation): Operation = {
     handleToOperation.put(operation.getHandle, operation)
+    if (operationIdleTimeout > 0) {
+      scheduleExpiryCheck(operation.getHandle, System.currentTimeMillis() + operationIdleTimeout)
+    }
     operation
   }
 
   @throws[KyuubiSQLException]
   final def getOperation(opHandle: OperationHandle): Operation = {
-    val operation = synchronized { handleToOperation.get(opHandle) }
+    val operation = handleToOperation.get(opHandle)
     if (operation == null) throw KyuubiSQLException(s"Invalid $opHandle")
     operation
   }
 
   @throws[KyuubiSQLException]
-  final def removeOperation(opHandle: OperationHandle): Operation = synchronized {
+  final def removeOperation(opHandle: OperationHandle): Operation = {
     val operation = handleToOperation.remove(opHandle)
     if (operation == null) throw KyuubiSQLException(s"Invalid $opHandle")
+    val expiry = handleToExpiry.remove(opHandle)
+    if (expiry != null) expiryQueue.remove(expiry)
     operation
   }
 
@@ -125,16 +145,57 @@ abstract class OperationManager(name: String) extends AbstractService(name) {
     }
   }
 
-  final def removeExpiredOperations(handles: Seq[OperationHandle]): Seq[Operation] = synchronized {
-    handles.map(handleToOperation.get).filter { operation =>
-      val isTimeout = operation != null && operation.isTimedOut
-      if (isTimeout) {
-        handleToOperation.remove(operation.getHandle)
-        warn("Operation " + operation.getHandle + " is timed-out and will be closed")
-        isTimeout
+  /**
+   * Remove the timed-out operations of all the sessions. Only the operations whose expiry check is
+   * due are visited, the ones accessed since their last check are checked again later.
+   *
+   * @return the removed operations, which are left to their sessions to close
+   */
+  final def removeExpiredOperations(): Seq[Operation] = {
+    val now = System.currentTimeMillis()
+    val expired = new ArrayBuffer[Operation]
+    val rescheduled = new ArrayBuffer[(OperationHandle, Long)]
+    var entry = expiryQueue.pollFirst()
+    while (entry != null) {
+      if (entry.deadline > now) {
+        expiryQueue.add(entry)
+        entry = null
       } else {
-        false
+        val operation = handleToOperation.get(entry.handle)
+        if (operation == null) {
+          // already closed
+          handleToExpiry.remove(entry.handle, entry)
+        } else if (operation.isTimedOut) {
+          handleToExpiry.remove(entry.handle, entry)
+          if (handleToOperation.remove(entry.handle, operation)) {
+            warn("Operation " + operation.getHandle + " is timed-out and will be closed")
+            expired += operation
+          }
+        } else {
+          val deadline = operation.getStatus.lastModified + operationIdleTimeout
+          rescheduled += ((entry.handle, math.max(deadline, now + 1)))
+        }
+        entry = expiryQueue.pollFirst()
       }
     }
+    rescheduled.foreach { case (opHandle, deadline) => scheduleExpiryCheck(opHandle, deadline) }
+    expired
+  }
+
+  private def scheduleExpiryCheck(opHandle: OperationHandle, deadline: Long): Unit = {
+    val entry = ExpiryEntry(deadline, expirySequence.incrementAndGet(), opHandle)
+    handleToExpiry.put(opHandle, entry)
+    expiryQueue.add(entry)
+  }
+}
+
+object OperationManager {
+
+  private case class ExpiryEntry(deadline: Long, sequence: Long, handle: OperationHandle)
+    extends Comparable[ExpiryEntry] {
+    override def compareTo(other: ExpiryEntry): Int = {
+      val byDeadline = java.lang.Long.compare(deadline, other.deadline)
+      if (byDeadline != 0) byDeadline else java.lang.Long.compare(sequence, other.sequence)
+    }
   }
 }
@@ -17,13 +17,15 @@
 
 package org.apache.kyuubi.operation.log
 
-import java.io.{BufferedReader, IOException}
+import java.io.{FileOutputStream, IOException, RandomAccessFile}
 import java.nio.ByteBuffer
 import java.nio.charset.StandardCharsets
 import java.nio.file.{Files, Path, Paths}
-import java.util.{ArrayList => JArrayList}
+import java.util.{ArrayList => JArrayList, List => JList}
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicLong}
 
-import scala.collection.mutable.ListBuffer
+import scala.collection.mutable.{ArrayBuffer, ListBuffer}
 
 import org.apache.hive.service.rpc.thrift.{TColumn, TRow, TRowSet, TStringColumn}
 
@@ -46,6 +48,9 @@ object OperationLog extends Logging {
 
   def removeCurrentOperationLog(): Unit = OPERATION_LOG.remove()
 
+  // the max number of messages flushed to the log file in a single write
+  final private val MAX_FLUSH_BATCH = 1024
+
   /**
    * The operation log root directory, this directory will delete when JVM exit.
    */
@@ -81,16 +86,26 @@ object OperationLog extends Logging {
   }
 }
 
+/**
+ * The log file is written and read with the stream I/O rather than FileChannels, which are closed
+ * for good once a thread using them is interrupted, e.g. by cancelling an operation.
+ */
 class OperationLog(path: Path) {
 
-  private val writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)
-  private val reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)
+  private val writer = new FileOutputStream(path.toFile)
+  private val reader = new LogFileReader(new RandomAccessFile(path.toFile, "r"))
+
+  // the messages written but not flushed to the log file yet, in order
+  private val pendingMessages = new ConcurrentLinkedQueue[Array[Byte]]()
+  private val flushing = new AtomicBoolean(false)
+  // the end of the last whole batch of messages in the log file, readers never go beyond it
+  private val flushedOffset = new AtomicLong(0L)
 
-  private val extraReaders: ListBuffer[BufferedReader] = ListBuffer()
+  private val extraReaders: ListBuffer[LogFileReader] = ListBuffer()
 
   def addExtraLog(path: Path): Unit = synchronized {
     try {
-      extraReaders += Files.newBufferedReader(path, StandardCharsets.UTF_8)
+      extraReaders += new LogFileReader(new RandomAccessFile(path.toFile, "r"))
     } catch {
       case _: IOException =>
     }
@@ -99,34 +114,32 @@ class OperationLog(path: Path) {
   /**
    * write log to the operation log file
    */
-  def write(msg: String): Unit = synchronized {
-    try {
-      writer.write(msg)
-      writer.flush()
-    } catch {
-      case _: IOException => // TODO: better do nothing?
-    }
+  def write(msg: String): Unit = {
+    pendingMessages.offer(msg.getBytes(StandardCharsets.UTF_8))
+    flush()
   }
 
-  private def readLogs(
-      reader: BufferedReader,
-      lastRows: Int,
-      maxRows: Int): (JArrayList[String], Int) = {
-    val logs = new JArrayList[String]
-    var i = 0
-    try {
-      var line: String = reader.readLine()
-      while ((i < lastRows || maxRows <= 0) && line != null) {
-        logs.add(line)
-        line = reader.readLine()
-        i += 1
+  /**
+   * Flush the pending messages to the log file. The writers never wait for each other, the one
+   * who wins the flushing flag flushes the messages of the others too in batches.
+   */
+  private def flush(): Unit = {
+    while (!pendingMessages.isEmpty && flushing.compareAndSet(false, true)) {
+      try {
+        val batch = new ArrayBuffer[Array[Byte]]
+        var msg = pendingMessages.poll()
+        while (msg != null) {
+          batch += msg
+          msg = if (batch.size < OperationLog.MAX_FLUSH_BATCH) pendingMessages.poll() else null
+        }
+        val bytes = if (batch.size == 1) batch.head else Array.concat(batch: _*)
+        writer.write(bytes)
+        flushedOffset.addAndGet(bytes.length)
+      } catch {
+        case _: IOException => // TODO: better do nothing?
+      } finally {
+        flushing.set(false)
       }
-      (logs, i)
-    } catch {
-      case e: IOException =>
-        val absPath = path.toAbsolutePath
-        val opHandle = absPath.getFileName
-        throw KyuubiSQLException(s"Operation[$opHandle] log file $absPath is not found", e)
     }
   }
 
@@ -136,12 +149,18 @@ class OperationLog(path: Path) {
    * @param maxRows maximum result number can reach
    */
   def read(maxRows: Int): TRowSet = synchronized {
-    val (logs, lines) = readLogs(reader, maxRows, maxRows)
-    var lastRows = maxRows - lines
-    for (extraReader <- extraReaders if lastRows > 0 || maxRows <= 0) {
-      val (extraLogs, extraRows) = readLogs(extraReader, lastRows, maxRows)
-      lastRows = lastRows - extraRows
-      logs.addAll(extraLogs)
+    val logs = new JArrayList[String]
+    try {
+      flush()
+      var lastRows = maxRows - reader.readLines(logs, maxRows, flushedOffset.get())
+      for (extraReader <- extraReaders if lastRows > 0 || maxRows <= 0) {
+        lastRows = lastRows - extraReader.readLines(logs, lastRows, extraReader.size)
+      }
+    } catch {
+      case e: IOException =>
+        val absPath = path.toAbsolutePath
+        val opHandle = absPath.getFileName
+        throw KyuubiSQLException(s"Operation[$opHandle] log file $absPath is not found", e)
     }
 
     val tColumn = TColumn.stringVal(new TStringColumn(logs, ByteBuffer.allocate(0)))
@@ -178,3 +197,87 @@ class OperationLog(path: Path) {
     }
   }
 }
+
+/**
+ * Reads the lines of a growing log file incrementally from the byte offset where the last read
+ * stopped. The reads never block the writers of the file.
+ *
+ * As [[java.io.BufferedReader#readLine]], a line is terminated by '\n', '\r' or "\r\n", and
+ * the trailing characters at the end of the file make a line too.
+ */
+private[log] class LogFileReader(file: RandomAccessFile) {
+
+  private var offset = 0L
+  // the last line ends with a '\r', so a following '\n' belongs to it
+  private var skipLF = false
+  private var buffer = ByteBuffer.allocate(LogFileReader.INITIAL_BUFFER_SIZE)
+
+  def size: Long = file.length()
+
+  /**
+   * Read the lines until `end` of the file into `logs`.
+   *
+   * @param maxLines the max number of lines to read, unlimited if it is not positive
+   * @return the number of lines read
+   */
+  def readLines(logs: JList[String], maxLines: Int, end: Long): Int = {
+    var lines = 0
+    var eof = offset >= end
+    while (!eof && (maxLines <= 0 || lines < maxLines)) {
+      buffer.clear()
+      buffer.limit(math.min(buffer.capacity().toLong, end - offset).toInt)
+      file.seek(offset)
+      var n = 0
+      while (buffer.hasRemaining && n >= 0) {
+        n = file.read(buffer.array(), buffer.position(), buffer.remaining())
+        if (n > 0) buffer.position(buffer.position() + n)
+      }
+      val bytes = buffer.array()
+      val limit = buffer.position()
+      eof = offset + limit >= end || limit < buffer.limit()
+
+      var start = 0
+      var i = 0
+      if (skipLF && limit > 0) {
+        if (bytes(0) == '\n') {
+          start = 1
+          i = 1
+        }
+        skipLF = false
+      }
+      while (i < limit && (maxLines <= 0 || lines < maxLines)) {
+        val b = bytes(i)
+        if (b == '\n' || b == '\r') {
+          logs.add(new String(bytes, start, i - start, StandardCharsets.UTF_8))
+          lines += 1
+          if (b == '\r') {
+            if (i + 1 == limit) {
+              skipLF = true
+            } else if (bytes(i + 1) == '\n') {
+              i += 1
+            }
+          }
+          start = i + 1
+        }
+        i += 1
+      }
+
+      if (eof && start < limit && (maxLines <= 0 || lines < maxLines)) {
+        logs.add(new String(bytes, start, limit - start, StandardCharsets.UTF_8))
+        lines += 1
+        start = limit
+      } else if (start == 0 && limit == buffer.capacity()) {
+        // a line longer than the buffer
+        buffer = ByteBuffer.allocate(buffer.capacity() * 2)
+      }
+      offset += start
+    }
+    lines
+  }
+
+  def close(): Unit = file.close()
+}
+
+private[log] object LogFileReader {
+  final val INITIAL_BUFFER_SIZE = 64 * 1024
+}
@@ -24,6 +24,7 @@ import scala.concurrent.CancellationException
 import org.apache.hive.service.rpc.thrift.{TGetInfoType, TGetInfoValue, TProtocolVersion, TRowSet, TTableSchema}
 
 import org.apache.kyuubi.config.KyuubiConf
+import org.apache.kyuubi.config.KyuubiConf.OPERATION_STATUS_POLLING_TIMEOUT
 import org.apache.kyuubi.operation.{OperationHandle, OperationStatus}
 import org.apache.kyuubi.operation.FetchOrientation.FetchOrientation
 import org.apache.kyuubi.session.SessionHandle
@@ -34,7 +35,7 @@ import org.apache.kyuubi.session.SessionHandle
 abstract class AbstractBackendService(name: String)
   extends CompositeService(name) with BackendService {
 
-  private lazy val timeout = conf.get(KyuubiConf.OPERATION_STATUS_POLLING_TIMEOUT)
+  private lazy val timeout = conf.get(OPERATION_STATUS_POLLING_TIMEOUT)
 
   override def openSession(
       protocol: TProtocolVersion,
@@ -119,8 +120,12 @@ abstract class AbstractBackendService(name: String)
   override def getOperationStatus(operationHandle: OperationHandle): OperationStatus = {
     val operation = sessionManager.operationManager.getOperation(operationHandle)
     if (operation.shouldRunAsync) {
+      // the caller, e.g. the Kyuubi server, may choose its own timeout per session
+      val pollingTimeout = operation.getSession.conf.get(OPERATION_STATUS_POLLING_TIMEOUT.key)
+        .map(OPERATION_STATUS_POLLING_TIMEOUT.valueConverter)
+        .getOrElse(timeout)
       try {
-        operation.getBackgroundHandle.get(timeout, TimeUnit.MILLISECONDS)
+        operation.getBackgroundHandle.get(pollingTimeout, TimeUnit.MILLISECONDS)
       } catch {
         case e: TimeoutException =>
           debug(s"$operationHandle: Long polling timed out, ${e.getMessage}")
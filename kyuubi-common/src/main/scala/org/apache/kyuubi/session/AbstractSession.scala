@@ -17,8 +17,6 @@
 
 package org.apache.kyuubi.session
 
-import scala.collection.JavaConverters._
-
 import org.apache.hive.service.rpc.thrift.{TGetInfoType, TGetInfoValue, TProtocolVersion, TRowSet, TTableSchema}
 
 import org.apache.kyuubi.{KyuubiSQLException, Logging}
@@ -197,9 +195,7 @@ abstract class AbstractSession(
     }
   }
 
-  override def closeExpiredOperations: Unit = {
-    val operations = sessionManager.operationManager
-      .removeExpiredOperations(opHandleSet.asScala.toSeq)
+  override def closeExpiredOperations(operations: Seq[Operation]): Unit = {
     operations.foreach { op =>
       // After the last expired Handle has been cleaned, the 'lastIdleTime' needs to be updated.
       withAcquireRelease(false) {
@@ -19,8 +19,8 @@ package org.apache.kyuubi.session
 
 import org.apache.hive.service.rpc.thrift.{TGetInfoType, TGetInfoValue, TProtocolVersion, TRowSet, TTableSchema}
 
+import org.apache.kyuubi.operation.{Operation, OperationHandle}
 import org.apache.kyuubi.operation.FetchOrientation.FetchOrientation
-import org.apache.kyuubi.operation.OperationHandle
 
 trait Session {
 
@@ -75,5 +75,9 @@ trait Session {
       maxRows: Int,
       fetchLog: Boolean): TRowSet
 
-  def closeExpiredOperations: Unit
+  /**
+   * Close the operations of this session which have been removed as timed-out by the operation
+   * manager.
+   */
+  def closeExpiredOperations(operations: Seq[Operation]): Unit
 }
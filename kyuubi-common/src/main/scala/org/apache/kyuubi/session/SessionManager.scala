@@ -254,10 +254,11 @@ abstract class SessionManager(name: String) extends CompositeService(name) {
                 case e: KyuubiSQLException =>
                   warn(s"Error closing idle session ${session.handle}", e)
               }
-            } else {
-              session.closeExpiredOperations
             }
           }
+          operationManager.removeExpiredOperations().groupBy(_.getSession).foreach {
+            case (session, operations) => session.closeExpiredOperations(operations)
+          }
         }
       }
     }
@@ -17,20 +17,21 @@
 
 package org.apache.kyuubi.util
 
-import java.util.concurrent.{Future, SynchronousQueue, ThreadPoolExecutor, TimeUnit}
+import java.util.concurrent.{BlockingQueue, Future, SynchronousQueue, ThreadPoolExecutor, TimeUnit}
 
 case class ExecutorPoolCaptureOom(
     poolName: String,
     corePoolSize: Int,
     maximumPoolSize: Int,
     keepAliveSeconds: Long,
-    hook: Runnable)
+    hook: Runnable,
+    workQueue: BlockingQueue[Runnable] = new SynchronousQueue[Runnable]())
   extends ThreadPoolExecutor(
     corePoolSize,
     maximumPoolSize,
     keepAliveSeconds,
     TimeUnit.MILLISECONDS,
-    new SynchronousQueue[Runnable](),
+    workQueue,
     new NamedThreadFactory(poolName, false)) {
 
   override def afterExecute(r: Runnable, t: Throwable): Unit = {
@@ -18,12 +18,157 @@
 package org.apache.kyuubi.util
 
 import java.nio.ByteBuffer
+import java.util.concurrent.{Callable, ForkJoinPool}
 
+import scala.collection.JavaConverters._
 import scala.language.implicitConversions
+import scala.util.Try
 
-object RowSetUtils {
+import org.apache.hive.service.rpc.thrift._
+
+import org.apache.kyuubi.Logging
+
+object RowSetUtils extends Logging {
+
+  @volatile private var encodePool: Option[ForkJoinPool] = None
+
+  @volatile private var encodeParallelThreshold: Long = Long.MaxValue
+
+  // the service which set up the encode pool, and so shuts it down
+  private var encodePoolOwner: AnyRef = _
 
   implicit def bitSetToBuffer(bitSet: java.util.BitSet): ByteBuffer = {
     ByteBuffer.wrap(bitSet.toByteArray)
   }
+
+  /**
+   * Set up the pool shared by all the operations of this engine to encode the columns of a
+   * result batch in parallel, the columns are encoded one by one if `parallelism` is 1. The pool
+   * is set up once, by the first owner, until that owner shuts it down with [[shutdownEncodePool]],
+   * the settings of the other owners meanwhile are ignored with a warning.
+   *
+   * @param owner the service owning the pool
+   * @param parallelism the number of threads of the pool
+   * @param threshold the minimum number of values of a batch to encode its columns in parallel
+   */
+  def setupEncodePool(owner: AnyRef, parallelism: Int, threshold: Int): Unit = synchronized {
+    if (encodePoolOwner == null) {
+      encodePoolOwner = owner
+      if (parallelism > 1) {
+        encodePool = Some(ThreadUtils.newDaemonForkJoinPool(parallelism, "result-encode-pool"))
+        encodeParallelThreshold = threshold
+      }
+    } else if (encodePoolOwner ne owner) {
+      warn(s"The result encode pool is already set up by $encodePoolOwner, ignoring the" +
+        s" parallelism $parallelism and the threshold $threshold of $owner")
+    }
+  }
+
+  /** Shut down the encode pool if it is owned by `owner`, the columns are encoded one by one. */
+  def shutdownEncodePool(owner: AnyRef): Unit = synchronized {
+    if (encodePoolOwner eq owner) {
+      encodePool.foreach(_.shutdown())
+      encodePool = None
+      encodeParallelThreshold = Long.MaxValue
+      encodePoolOwner = null
+    }
+  }
+
+  /**
+   * Encode the columns of a result batch with `toTColumn`, in parallel if the pool is set up and
+   * the batch is large enough, otherwise one by one in the calling thread.
+   *
+   * @param numColumns the number of columns
+   * @param numRows the number of rows
+   * @param toTColumn encodes the column of the given ordinal, must be thread-safe
+   * @return the columns in ordinal order
+   */
+  def toTColumns(numColumns: Int, numRows: Int)(toTColumn: Int => TColumn): Seq[TColumn] = {
+    encodePool match {
+      case Some(pool) if numColumns > 1 && numColumns.toLong * numRows >= encodeParallelThreshold =>
+        // the failures are kept as they are, fork-join tasks rethrow a copy of them
+        val tasks = (0 until numColumns).map { ordinal =>
+          new Callable[Try[TColumn]] {
+            override def call(): Try[TColumn] = Try(toTColumn(ordinal))
+          }
+        }
+        pool.invokeAll(tasks.asJava).asScala.map(_.get().get)
+      case _ =>
+        (0 until numColumns).map(toTColumn)
+    }
+  }
+
+  /** Returns the number of rows of `rowSet`, in either the columnar or the row-based layout. */
+  def numRows(rowSet: TRowSet): Int = {
+    if (rowSet.isSetColumns && !rowSet.getColumns.isEmpty) {
+      val column = rowSet.getColumns.get(0)
+      column.getSetField match {
+        case TColumn._Fields.BOOL_VAL => column.getBoolVal.getValuesSize
+        case TColumn._Fields.BYTE_VAL => column.getByteVal.getValuesSize
+        case TColumn._Fields.I16_VAL => column.getI16Val.getValuesSize
+        case TColumn._Fields.I32_VAL => column.getI32Val.getValuesSize
+        case TColumn._Fields.I64_VAL => column.getI64Val.getValuesSize
+        case TColumn._Fields.DOUBLE_VAL => column.getDoubleVal.getValuesSize
+        case TColumn._Fields.STRING_VAL => column.getStringVal.getValuesSize
+        case TColumn._Fields.BINARY_VAL => column.getBinaryVal.getValuesSize
+      }
+    } else {
+      rowSet.getRowsSize
+    }
+  }
+
+  /**
+   * Returns the `size` rows of `rowSet` starting from `from`, or `rowSet` itself if it is taken
+   * as a whole.
+   */
+  def slice(rowSet: TRowSet, from: Int, size: Int): TRowSet = {
+    if (from == 0 && size == numRows(rowSet)) {
+      rowSet
+    } else {
+      val until = from + size
+      val sliced = new TRowSet(rowSet.getStartRowOffset + from, new java.util.ArrayList[TRow](0))
+      if (rowSet.isSetColumns) {
+        rowSet.getColumns.asScala.foreach(c => sliced.addToColumns(sliceColumn(c, from, until)))
+      } else {
+        sliced.setRows(new java.util.ArrayList[TRow](rowSet.getRows.subList(from, until)))
+      }
+      sliced
+    }
+  }
+
+  private def sliceColumn(column: TColumn, from: Int, until: Int): TColumn = {
+    def values[T](list: java.util.List[T]): java.util.List[T] = {
+      new java.util.ArrayList[T](list.subList(from, until))
+    }
+    def nulls(bytes: Array[Byte]): java.util.BitSet = {
+      java.util.BitSet.valueOf(bytes).get(from, until)
+    }
+
+    column.getSetField match {
+      case TColumn._Fields.BOOL_VAL =>
+        val c = column.getBoolVal
+        TColumn.boolVal(new TBoolColumn(values(c.getValues), nulls(c.getNulls)))
+      case TColumn._Fields.BYTE_VAL =>
+        val c = column.getByteVal
+        TColumn.byteVal(new TByteColumn(values(c.getValues), nulls(c.getNulls)))
+      case TColumn._Fields.I16_VAL =>
+        val c = column.getI16Val
+        TColumn.i16Val(new TI16Column(values(c.getValues), nulls(c.getNulls)))
+      case TColumn._Fields.I32_VAL =>
+        val c = column.getI32Val
+        TColumn.i32Val(new TI32Column(values(c.getValues), nulls(c.getNulls)))
+      case TColumn._Fields.I64_VAL =>
+        val c = column.getI64Val
+        TColumn.i64Val(new TI64Column(values(c.getValues), nulls(c.getNulls)))
+      case TColumn._Fields.DOUBLE_VAL =>
+        val c = column.getDoubleVal
+        TColumn.doubleVal(new TDoubleColumn(values(c.getValues), nulls(c.getNulls)))
+      case TColumn._Fields.STRING_VAL =>
+        val c = column.getStringVal
+        TColumn.stringVal(new TStringColumn(values(c.getValues), nulls(c.getNulls)))
+      case TColumn._Fields.BINARY_VAL =>
+        val c = column.getBinaryVal
+        TColumn.binaryVal(new TBinaryColumn(values(c.getValues), nulls(c.getNulls)))
+    }
+  }
 }
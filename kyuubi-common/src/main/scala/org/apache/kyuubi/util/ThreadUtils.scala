@@ -17,15 +17,21 @@
 
 package org.apache.kyuubi.util
 
-import java.util.concurrent.{LinkedBlockingQueue, ScheduledExecutorService, ScheduledThreadPoolExecutor, ThreadPoolExecutor, TimeUnit}
+import java.util.concurrent.{ForkJoinPool, ForkJoinWorkerThread, LinkedBlockingQueue, ScheduledExecutorService, ScheduledThreadPoolExecutor, ThreadPoolExecutor, TimeUnit}
 
 import org.apache.kyuubi.Logging
 
 object ThreadUtils extends Logging {
 
   def newDaemonSingleThreadScheduledExecutor(threadName: String): ScheduledExecutorService = {
-    val threadFactory = new NamedThreadFactory(threadName, daemon = true)
-    val executor = new ScheduledThreadPoolExecutor(1, threadFactory)
+    newDaemonScheduledThreadPool(1, threadName)
+  }
+
+  def newDaemonScheduledThreadPool(
+      poolSize: Int,
+      threadPoolName: String): ScheduledExecutorService = {
+    val threadFactory = new NamedThreadFactory(threadPoolName, daemon = true)
+    val executor = new ScheduledThreadPoolExecutor(poolSize, threadFactory)
     executor.setRemoveOnCancelPolicy(true)
     executor
   }
@@ -49,4 +55,16 @@ object ThreadUtils extends Logging {
     executor.allowCoreThreadTimeOut(true)
     executor
   }
+
+  def newDaemonForkJoinPool(parallelism: Int, threadPoolName: String): ForkJoinPool = {
+    val factory = new ForkJoinPool.ForkJoinWorkerThreadFactory {
+      override def newThread(pool: ForkJoinPool): ForkJoinWorkerThread = {
+        val thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool)
+        thread.setName(s"$threadPoolName-${thread.getPoolIndex}")
+        thread.setDaemon(true)
+        thread
+      }
+    }
+    new ForkJoinPool(parallelism, factory, null, false)
+  }
 }
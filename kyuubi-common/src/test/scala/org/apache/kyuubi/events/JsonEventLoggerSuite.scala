@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.events
+
+import java.nio.file.{Files, Path, Paths}
+
+import scala.collection.JavaConverters._
+
+import org.apache.hadoop.conf.Configuration
+import org.scalatest.time.SpanSugar._
+
+import org.apache.kyuubi.{KyuubiFunSuite, Utils}
+import org.apache.kyuubi.config.KyuubiConf
+import org.apache.kyuubi.config.KyuubiConf._
+
+case class TestJsonEvent(id: Int, day: String) extends KyuubiEvent {
+  override def partitions: Seq[(String, String)] = {
+    // kills the writer thread, a fatal error is not caught per event
+    if (day == "fatal") throw new StackOverflowError("fatal")
+    ("day", day) :: Nil
+  }
+}
+
+class JsonEventLoggerSuite extends KyuubiFunSuite {
+
+  private def newLogger(logRoot: Path, conf: KyuubiConf): JsonEventLogger[TestJsonEvent] = {
+    conf.set(ENGINE_EVENT_JSON_LOG_PATH, logRoot.toUri.toString)
+    val logger = new JsonEventLogger[TestJsonEvent](
+      "test",
+      ENGINE_EVENT_JSON_LOG_PATH,
+      new Configuration())
+    logger.initialize(conf)
+    logger.start()
+    logger
+  }
+
+  private def readLines(logRoot: Path, day: String): Seq[String] = {
+    val file = Paths.get(logRoot.toString, "test_json", s"day=$day", "test.json")
+    if (Files.exists(file)) Files.readAllLines(file).asScala else Nil
+  }
+
+  test("write the events asynchronously to the files of their partitions") {
+    val logRoot = Utils.createTempDir()
+    val conf = KyuubiConf()
+      .set(EVENT_JSON_ASYNC_ENABLED, true)
+      .set(EVENT_JSON_ASYNC_QUEUE_SIZE, 10)
+      .set(EVENT_JSON_ASYNC_FLUSH_SIZE, 7)
+    val logger = newLogger(logRoot, conf)
+    val events = (0 until 100).map(i => TestJsonEvent(i, if (i % 2 == 0) "even" else "odd"))
+    events.foreach(logger.logEvent)
+    logger.stop()
+
+    assert(logger.getDroppedCount === 0)
+    assert(readLines(logRoot, "even") === events.filter(_.id % 2 == 0).map(_.toJson))
+    assert(readLines(logRoot, "odd") === events.filter(_.id % 2 == 1).map(_.toJson))
+  }
+
+  test("flush the written events after the flush interval") {
+    val logRoot = Utils.createTempDir()
+    val conf = KyuubiConf()
+      .set(EVENT_JSON_ASYNC_ENABLED, true)
+      .set(EVENT_JSON_ASYNC_FLUSH_SIZE, 1000)
+      .set(EVENT_JSON_ASYNC_FLUSH_INTERVAL, 100L)
+    val logger = newLogger(logRoot, conf)
+    try {
+      val event = TestJsonEvent(1, "2021-11-01")
+      logger.logEvent(event)
+      eventually(timeout(10.seconds), interval(100.milliseconds)) {
+        assert(readLines(logRoot, "2021-11-01") === Seq(event.toJson))
+      }
+    } finally {
+      logger.stop()
+    }
+  }
+
+  test("drop the events logged after the logger is stopped") {
+    val logRoot = Utils.createTempDir()
+    val conf = KyuubiConf()
+      .set(EVENT_JSON_ASYNC_ENABLED, true)
+      .set(EVENT_JSON_ASYNC_QUEUE_FULL_POLICY, "drop")
+    val logger = newLogger(logRoot, conf)
+    logger.stop()
+    logger.logEvent(TestJsonEvent(1, "2021-11-01"))
+    assert(logger.getDroppedCount === 1)
+    assert(readLines(logRoot, "2021-11-01").isEmpty)
+  }
+
+  test("write or count as dropped every event logged concurrently with stop") {
+    Seq("block", "drop").foreach { policy =>
+      val logRoot = Utils.createTempDir()
+      val conf = KyuubiConf()
+        .set(EVENT_JSON_ASYNC_ENABLED, true)
+        .set(EVENT_JSON_ASYNC_QUEUE_SIZE, 8)
+        .set(EVENT_JSON_ASYNC_QUEUE_FULL_POLICY, policy)
+        .set(EVENT_JSON_ASYNC_FLUSH_SIZE, 4)
+      val logger = newLogger(logRoot, conf)
+      val numThreads = 4
+      val numEvents = 500
+      val threads = (0 until numThreads).map { t =>
+        new Thread(() => {
+          (0 until numEvents).foreach(i => logger.logEvent(TestJsonEvent(i, s"t$t")))
+        })
+      }
+      threads.foreach(_.start())
+      Thread.sleep(5)
+      logger.stop()
+      // none of the callers hangs in BLOCK mode once the logger is stopped
+      threads.foreach(_.join(10000))
+      assert(threads.forall(!_.isAlive))
+
+      val written = (0 until numThreads).map(t => readLines(logRoot, s"t$t").size).sum
+      assert(written + logger.getDroppedCount === numThreads * numEvents)
+    }
+  }
+
+  test("write the events synchronously once the writer thread dies") {
+    val logRoot = Utils.createTempDir()
+    val conf = KyuubiConf()
+      .set(EVENT_JSON_ASYNC_ENABLED, true)
+      .set(EVENT_JSON_ASYNC_QUEUE_SIZE, 4)
+      .set(EVENT_JSON_ASYNC_FLUSH_SIZE, 1)
+    val logger = newLogger(logRoot, conf)
+    try {
+      logger.logEvent(TestJsonEvent(0, "fatal"))
+      eventually(timeout(10.seconds), interval(100.milliseconds)) {
+        assert(!Thread.getAllStackTraces.keySet.asScala
+          .exists(_.getName.startsWith("test-json-event-writer")))
+      }
+      val events = (1 to 100).map(TestJsonEvent(_, "2021-11-01"))
+      // nothing takes from the queue anymore, none of the callers waits on it
+      val caller = new Thread(() => events.foreach(logger.logEvent))
+      caller.start()
+      caller.join(10000)
+      assert(!caller.isAlive)
+      assert(readLines(logRoot, "2021-11-01") === events.map(_.toJson))
+    } finally {
+      logger.stop()
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.operation
+
+import org.apache.hive.service.rpc.thrift.TProtocolVersion
+
+import org.apache.kyuubi.{KyuubiFunSuite, KyuubiSQLException}
+import org.apache.kyuubi.config.KyuubiConf
+import org.apache.kyuubi.session.NoopSessionManager
+
+class OperationManagerSuite extends KyuubiFunSuite {
+
+  test("remove the expired operations only") {
+    val sessionManager = new NoopSessionManager
+    sessionManager.initialize(KyuubiConf().set(KyuubiConf.OPERATION_IDLE_TIMEOUT, 500L))
+    val operationManager = sessionManager.operationManager
+    val session = sessionManager.getSession(sessionManager.openSession(
+      TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V10,
+      "kyuubi",
+      "passwd",
+      "localhost",
+      Map.empty))
+    val handles = (0 until 10).map(_ => session.getTypeInfo)
+    // not run yet, so it never expires until it is finished
+    val pending = operationManager.addOperation(
+      new NoopOperation(OperationType.EXECUTE_STATEMENT, session))
+    assert(operationManager.getOperationCount === 11)
+    assert(operationManager.removeExpiredOperations().isEmpty)
+
+    session.closeOperation(handles(0))
+    Thread.sleep(600)
+    val expired = operationManager.removeExpiredOperations()
+    assert(expired.map(_.getHandle).toSet === handles.drop(1).toSet)
+    assert(operationManager.getOperationCount === 1)
+    intercept[KyuubiSQLException](operationManager.getOperation(handles(1)))
+
+    pending.run()
+    Thread.sleep(300)
+    assert(operationManager.removeExpiredOperations().isEmpty)
+    Thread.sleep(300)
+    assert(operationManager.removeExpiredOperations() === Seq(pending))
+    assert(operationManager.getOperationCount === 0)
+    assert(operationManager.removeExpiredOperations().isEmpty)
+    sessionManager.stop()
+  }
+
+  test("operations never expire without the idle timeout") {
+    val sessionManager = new NoopSessionManager
+    sessionManager.initialize(KyuubiConf().set(KyuubiConf.OPERATION_IDLE_TIMEOUT, 0L))
+    val session = sessionManager.getSession(sessionManager.openSession(
+      TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V10,
+      "kyuubi",
+      "passwd",
+      "localhost",
+      Map.empty))
+    session.getTypeInfo
+    Thread.sleep(100)
+    assert(sessionManager.operationManager.removeExpiredOperations().isEmpty)
+    assert(sessionManager.operationManager.getOperationCount === 1)
+    sessionManager.stop()
+  }
+}
@@ -21,6 +21,7 @@ import java.io.File
 import java.nio.file.{Files, Paths}
 
 import scala.collection.JavaConverters._
+import scala.collection.mutable.ArrayBuffer
 
 import org.apache.hive.service.rpc.thrift.TProtocolVersion
 
@@ -203,4 +204,69 @@ class OperationLogSuite extends KyuubiFunSuite {
     operationLog.close()
     tempDir.toFile.delete()
   }
+
+  test("incremental reads of the lines written concurrently") {
+    val tempDir = Utils.createTempDir()
+    val operationLog = new OperationLog(tempDir.resolve("operation.log"))
+    val writers = (0 until 4).map { w =>
+      new Thread(() => (0 until 1000).foreach(i => operationLog.write(s"$w-$i\n")))
+    }
+    writers.foreach(_.start())
+    val lines = new ArrayBuffer[String]
+    while (writers.exists(_.isAlive)) {
+      lines ++= operationLog.read(100).getColumns.get(0).getStringVal.getValues.asScala
+    }
+    lines ++= operationLog.read(-1).getColumns.get(0).getStringVal.getValues.asScala
+    assert(lines.size === 4000)
+    (0 until 4).foreach { w =>
+      assert(lines.filter(_.startsWith(s"$w-")) === (0 until 1000).map(i => s"$w-$i"))
+    }
+    operationLog.close()
+    tempDir.toFile.delete()
+  }
+
+  test("keep the log file usable after a writer thread is interrupted") {
+    val tempDir = Utils.createTempDir()
+    val operationLog = new OperationLog(tempDir.resolve("operation.log"))
+    def read(): Seq[String] = {
+      operationLog.read(-1).getColumns.get(0).getStringVal.getValues.asScala
+    }
+    var linesReadInterrupted: Seq[String] = Nil
+    var stillInterrupted = false
+    val writer = new Thread(() => {
+      Thread.currentThread().interrupt()
+      operationLog.write(msg1 + "\n")
+      linesReadInterrupted = read()
+      stillInterrupted = Thread.currentThread().isInterrupted
+    })
+    writer.start()
+    writer.join()
+    assert(linesReadInterrupted === Seq(msg1))
+    assert(stillInterrupted)
+
+    operationLog.write(msg2 + "\n")
+    assert(read() === Seq(msg2))
+    operationLog.close()
+    tempDir.toFile.delete()
+  }
+
+  test("read lines of all the terminators and longer than the read buffer") {
+    val tempDir = Utils.createTempDir()
+    val operationLog = new OperationLog(tempDir.resolve("operation.log"))
+    val longLine = "x" * (LogFileReader.INITIAL_BUFFER_SIZE * 3 + 1)
+    operationLog.write("a\rb\r")
+    operationLog.write("\nc\n\n")
+    // characters of multiple bytes in UTF-8
+    val multiBytes = Array(0x4E2D, 0x6587).map(_.toChar).mkString
+    operationLog.write(longLine + "\n" + multiBytes)
+    def read(maxRows: Int): Seq[String] = {
+      operationLog.read(maxRows).getColumns.get(0).getStringVal.getValues.asScala
+    }
+    assert(read(1) === Seq("a"))
+    assert(read(3) === Seq("b", "c", ""))
+    assert(read(-1) === Seq(longLine, multiBytes))
+    assert(read(-1).isEmpty)
+    operationLog.close()
+    tempDir.toFile.delete()
+  }
 }
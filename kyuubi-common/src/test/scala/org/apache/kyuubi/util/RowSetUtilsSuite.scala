@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.util
+
+import java.util.concurrent.ConcurrentHashMap
+
+import scala.collection.JavaConverters._
+
+import org.apache.hive.service.rpc.thrift.{TColumn, TStringColumn}
+
+import org.apache.kyuubi.KyuubiFunSuite
+
+class RowSetUtilsSuite extends KyuubiFunSuite {
+
+  private val threads = ConcurrentHashMap.newKeySet[String]()
+
+  private val owner = new Object
+
+  private def toTColumn(ordinal: Int): TColumn = {
+    threads.add(Thread.currentThread().getName)
+    TColumn.stringVal(new TStringColumn(
+      List(ordinal.toString).asJava,
+      RowSetUtils.bitSetToBuffer(
+        new java.util.BitSet())))
+  }
+
+  override def afterEach(): Unit = {
+    RowSetUtils.shutdownEncodePool(owner)
+    threads.clear()
+    super.afterEach()
+  }
+
+  test("encode the columns in the calling thread by default") {
+    val columns = RowSetUtils.toTColumns(100, 10000)(toTColumn)
+    assert(columns.map(_.getStringVal.getValues.get(0)) === (0 until 100).map(_.toString))
+    assert(threads.asScala === Set(Thread.currentThread().getName))
+  }
+
+  test("encode the columns of large batches in parallel") {
+    RowSetUtils.setupEncodePool(owner, 4, 1000)
+
+    RowSetUtils.toTColumns(100, 9)(toTColumn)
+    assert(threads.asScala === Set(Thread.currentThread().getName))
+
+    val columns = RowSetUtils.toTColumns(100, 10)(toTColumn)
+    assert(columns.map(_.getStringVal.getValues.get(0)) === (0 until 100).map(_.toString))
+    assert(threads.asScala.exists(_.startsWith("result-encode-pool")))
+  }
+
+  test("throw the failure of a column encoded in parallel") {
+    RowSetUtils.setupEncodePool(owner, 4, 1)
+    val e = intercept[IllegalStateException] {
+      RowSetUtils.toTColumns(10, 10) { ordinal =>
+        if (ordinal == 5) throw new IllegalStateException("bad column")
+        toTColumn(ordinal)
+      }
+    }
+    assert(e.getMessage === "bad column")
+  }
+
+  test("keep the encode pool until its owner shuts it down") {
+    RowSetUtils.setupEncodePool(owner, 4, 1)
+    val other = new Object
+    RowSetUtils.setupEncodePool(other, 1, Int.MaxValue)
+    RowSetUtils.shutdownEncodePool(other)
+    RowSetUtils.toTColumns(100, 10)(toTColumn)
+    assert(threads.asScala.exists(_.startsWith("result-encode-pool")))
+
+    RowSetUtils.shutdownEncodePool(owner)
+    threads.clear()
+    RowSetUtils.toTColumns(100, 10)(toTColumn)
+    assert(threads.asScala === Set(Thread.currentThread().getName))
+  }
+}
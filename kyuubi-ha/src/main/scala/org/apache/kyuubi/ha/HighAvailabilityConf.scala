@@ -148,4 +148,13 @@ object HighAvailabilityConf {
       .version("1.4.0")
       .booleanConf
       .createWithDefault(false)
+
+  val HA_ZK_PUBLISH_LOAD_INTERVAL: ConfigEntry[Long] =
+    buildConf("ha.zookeeper.publish.load.interval")
+      .doc("The interval to publish the load of the Kyuubi server, i.e. the number of open" +
+        " sessions and active exec pool threads, into its znode data as configs, so that the" +
+        " Kyuubi JDBC driver prefers the less loaded servers. Not published if not positive.")
+      .version("1.5.0")
+      .timeConf
+      .createWithDefault(0)
 }
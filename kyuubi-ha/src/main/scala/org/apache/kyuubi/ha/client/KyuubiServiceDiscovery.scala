@@ -26,4 +26,8 @@ import org.apache.kyuubi.service.FrontendService
  * @param fe the frontend service to publish for service discovery
  */
 class KyuubiServiceDiscovery(
-    fe: FrontendService) extends ServiceDiscovery("KyuubiServiceDiscovery", fe)
+    fe: FrontendService) extends ServiceDiscovery("KyuubiServiceDiscovery", fe) {
+
+  // the engine znodes are parsed by EngineRef, only the Kyuubi servers publish their load
+  override def publishesLoad: Boolean = true
+}
@@ -46,6 +46,9 @@ abstract class ServiceDiscovery(
 
   def discoveryClient: ServiceDiscoveryClient = _discoveryClient
 
+  /** Whether the load of the service is appended to its znode data */
+  def publishesLoad: Boolean = false
+
   override def initialize(conf: KyuubiConf): Unit = {
     this.conf = conf
 
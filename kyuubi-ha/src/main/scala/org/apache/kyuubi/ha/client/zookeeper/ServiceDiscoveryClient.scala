@@ -19,9 +19,12 @@ package org.apache.kyuubi.ha.client.zookeeper
 
 import java.io.IOException
 import java.nio.charset.StandardCharsets
+import java.util.concurrent.ScheduledExecutorService
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
 
+import scala.util.control.NonFatal
+
 import org.apache.curator.framework.CuratorFramework
 import org.apache.curator.framework.recipes.nodes.PersistentNode
 import org.apache.curator.framework.state.ConnectionState
@@ -47,10 +50,13 @@ import org.apache.kyuubi.ha.HighAvailabilityConf.HA_ZK_ENGINE_REF_ID
 import org.apache.kyuubi.ha.HighAvailabilityConf.HA_ZK_NAMESPACE
 import org.apache.kyuubi.ha.HighAvailabilityConf.HA_ZK_NODE_TIMEOUT
 import org.apache.kyuubi.ha.HighAvailabilityConf.HA_ZK_PUBLISH_CONFIGS
+import org.apache.kyuubi.ha.HighAvailabilityConf.HA_ZK_PUBLISH_LOAD_INTERVAL
 import org.apache.kyuubi.ha.client.ServiceDiscovery
 import org.apache.kyuubi.ha.client.ZooKeeperClientProvider.buildZookeeperClient
 import org.apache.kyuubi.ha.client.zookeeper.ServiceDiscoveryClient.connectionChecker
 import org.apache.kyuubi.ha.client.zookeeper.ServiceDiscoveryClient.createServiceNode
+import org.apache.kyuubi.ha.client.zookeeper.ServiceDiscoveryClient.withLoad
+import org.apache.kyuubi.ha.client.zookeeper.ServiceDiscoveryClient.znodeDataToPublish
 import org.apache.kyuubi.util.KyuubiHadoopUtils
 import org.apache.kyuubi.util.ThreadUtils
 
@@ -64,6 +70,7 @@ class ServiceDiscoveryClient(serviceDiscovery: ServiceDiscovery) extends Logging
   private lazy val instance: String = serviceDiscovery.fe.connectionUrl
   private var zkClient: CuratorFramework = _
   private var serviceNode: PersistentNode = _
+  private var loadPublisher: ScheduledExecutorService = _
 
   def namespace: String = _namespace
 
@@ -100,7 +107,12 @@ class ServiceDiscoveryClient(serviceDiscovery: ServiceDiscovery) extends Logging
   }
 
   def registerService(conf: KyuubiConf): Unit = {
-    serviceNode = createServiceNode(conf, zkClient, namespace, instance)
+    serviceNode = createServiceNode(
+      conf,
+      zkClient,
+      namespace,
+      instance,
+      publishLoad = serviceDiscovery.publishesLoad)
     // Set a watch on the serviceNode
     val watcher = new DeRegisterWatcher
     if (zkClient.checkExists.usingWatcher(watcher).forPath(serviceNode.getActualPath) == null) {
@@ -108,6 +120,42 @@ class ServiceDiscoveryClient(serviceDiscovery: ServiceDiscovery) extends Logging
       throw new KyuubiException(s"Unable to create znode for this Kyuubi " +
         s"instance[${instance}] on ZooKeeper.")
     }
+    startLoadPublisher(conf)
+  }
+
+  /**
+   * Periodically republish the znode data with the current load of this server appended, which
+   * the Kyuubi JDBC driver uses to prefer the less loaded servers.
+   */
+  private def startLoadPublisher(conf: KyuubiConf): Unit = {
+    val data = znodeDataToPublish(conf, instance)
+    val interval = conf.get(HA_ZK_PUBLISH_LOAD_INTERVAL)
+    if (serviceDiscovery.publishesLoad && interval > 0 && data.contains("=")) {
+      var lastData = withLoad(conf, data, 0, 0)
+      loadPublisher = ThreadUtils.newDaemonSingleThreadScheduledExecutor("zk-load-publisher")
+      loadPublisher.scheduleWithFixedDelay(
+        () => {
+          try {
+            val sessionManager = serviceDiscovery.fe.be.sessionManager
+            val newData = withLoad(
+              conf,
+              data,
+              sessionManager.getOpenSessionCount,
+              sessionManager.getActiveCount)
+            val node = serviceNode
+            // only write to ZooKeeper when the load has changed
+            if (newData != lastData && node != null) {
+              node.setData(newData.getBytes(StandardCharsets.UTF_8))
+              lastData = newData
+            }
+          } catch {
+            case NonFatal(e) => warn("Failed to publish the server load to ZooKeeper", e)
+          }
+        },
+        interval,
+        interval,
+        TimeUnit.MILLISECONDS)
+    }
   }
 
   /**
@@ -115,6 +163,10 @@ class ServiceDiscoveryClient(serviceDiscovery: ServiceDiscovery) extends Logging
    * and the znode will be deleted upon the serviceNode closed.
    */
   def deregisterService(): Unit = {
+    if (loadPublisher != null) {
+      loadPublisher.shutdownNow()
+      loadPublisher = null
+    }
     // close the EPHEMERAL_SEQUENTIAL node in zk
     if (serviceNode != null) {
       try {
@@ -163,7 +215,8 @@ object ServiceDiscoveryClient extends Logging {
       namespace: String,
       instance: String,
       version: Option[String] = None,
-      external: Boolean = false): PersistentNode = {
+      external: Boolean = false,
+      publishLoad: Boolean = false): PersistentNode = {
     val ns = ZKPaths.makePath(null, namespace)
     try {
       zkClient
@@ -187,7 +240,9 @@ object ServiceDiscoveryClient extends Logging {
       if (external) CreateMode.PERSISTENT_SEQUENTIAL
       else CreateMode.EPHEMERAL_SEQUENTIAL
     val znodeData =
-      if (conf.get(HA_ZK_PUBLISH_CONFIGS) && session.isEmpty) {
+      if (publishLoad) {
+        withLoad(conf, znodeDataToPublish(conf, instance), 0, 0)
+      } else if (conf.get(HA_ZK_PUBLISH_CONFIGS) && session.isEmpty) {
         addConfsToPublish(conf, instance)
       } else {
         instance
@@ -217,6 +272,36 @@ object ServiceDiscoveryClient extends Logging {
     serviceNode
   }
 
+  final val LOAD_OPEN_SESSIONS = "kyuubi.server.load.open.sessions"
+  final val LOAD_EXEC_POOL_ACTIVE = "kyuubi.server.load.exec.pool.active"
+
+  /**
+   * The znode data of a Kyuubi server without its load, the configs if they are published,
+   * otherwise the instance, unless the load is published which requires the configs format.
+   */
+  private[client] def znodeDataToPublish(conf: KyuubiConf, instance: String): String = {
+    if (conf.get(HA_ZK_PUBLISH_CONFIGS)) {
+      addConfsToPublish(conf, instance)
+    } else if (conf.get(HA_ZK_PUBLISH_LOAD_INTERVAL) > 0 && instance.contains(":")) {
+      val hostPort = instance.split(":", 2)
+      s"hive.server2.thrift.bind.host=${hostPort(0)};hive.server2.thrift.port=${hostPort(1)}"
+    } else {
+      instance
+    }
+  }
+
+  private[client] def withLoad(
+      conf: KyuubiConf,
+      data: String,
+      openSessions: Int,
+      execPoolActive: Int): String = {
+    if (conf.get(HA_ZK_PUBLISH_LOAD_INTERVAL) > 0 && data.contains("=")) {
+      s"$data;$LOAD_OPEN_SESSIONS=$openSessions;$LOAD_EXEC_POOL_ACTIVE=$execPoolActive"
+    } else {
+      data
+    }
+  }
+
   /**
    * Refer to the implementation of HIVE-11581 to simplify user connection parameters.
    * https://issues.apache.org/jira/browse/HIVE-11581
@@ -217,4 +217,68 @@ class ServiceDiscoverySuite extends KerberizedTestHelper {
     assert(host === host2)
     assert(port === port2)
   }
+
+  test("publish server load to zookeeper") {
+    val namespace = "kyuubiserver-load"
+    val loadConf = KyuubiConf()
+      .set(HA_ZK_QUORUM, zkServer.getConnectString)
+      .set(HA_ZK_NAMESPACE, namespace)
+      .set(HA_ZK_PUBLISH_LOAD_INTERVAL, 100L)
+      .set(KyuubiConf.FRONTEND_THRIFT_BINARY_BIND_PORT, 0)
+
+    val server: Serverable = new NoopThriftBinaryFrontendServer()
+    server.initialize(loadConf)
+    server.start()
+
+    val znodeRoot = s"/$namespace"
+    val serviceDiscovery = new KyuubiServiceDiscovery(server.frontendServices.head)
+    withZkClient(loadConf) { framework =>
+      try {
+        serviceDiscovery.initialize(loadConf)
+        serviceDiscovery.start()
+
+        val child = framework.getChildren.forPath(znodeRoot).asScala.head
+        val data = new String(framework.getData.forPath(s"$znodeRoot/$child"), "UTF-8")
+        assert(data.contains(s"${zookeeper.ServiceDiscoveryClient.LOAD_OPEN_SESSIONS}=0"))
+        assert(data.contains(s"${zookeeper.ServiceDiscoveryClient.LOAD_EXEC_POOL_ACTIVE}=0"))
+        val (host, port) = ServiceDiscovery.parseInstanceHostPort(data)
+        assert(s"$host:$port" === server.frontendServices.head.connectionUrl)
+      } finally {
+        serviceDiscovery.stop()
+        server.stop()
+      }
+    }
+  }
+
+  test("do not publish the load of engines to zookeeper") {
+    val instance = "127.0.0.1:10009"
+    val loadConf = KyuubiConf()
+      .set(HA_ZK_QUORUM, zkServer.getConnectString)
+      .set(HA_ZK_PUBLISH_LOAD_INTERVAL, 100L)
+    withZkClient(loadConf) { framework =>
+      val path = ServiceDiscovery.createAndGetServiceNode(
+        loadConf,
+        framework,
+        "kyuubiengine-load",
+        instance)
+      assert(new String(framework.getData.forPath(path), "UTF-8") === instance)
+    }
+  }
+
+  test("append server load to the published znode data") {
+    import zookeeper.ServiceDiscoveryClient._
+    val instance = "127.0.0.1:10009"
+    val loadConf = KyuubiConf().set(HA_ZK_PUBLISH_LOAD_INTERVAL, 1000L)
+    assert(withLoad(conf.clone.unset(HA_ZK_PUBLISH_LOAD_INTERVAL), instance, 1, 2) === instance)
+
+    val data = withLoad(loadConf, znodeDataToPublish(loadConf, instance), 1, 2)
+    assert(data === "hive.server2.thrift.bind.host=127.0.0.1;hive.server2.thrift.port=10009;" +
+      s"$LOAD_OPEN_SESSIONS=1;$LOAD_EXEC_POOL_ACTIVE=2")
+    assert(ServiceDiscovery.parseInstanceHostPort(data) === (("127.0.0.1", 10009)))
+
+    val configsConf = loadConf.clone.set(HA_ZK_PUBLISH_CONFIGS, true)
+    val configsData = withLoad(configsConf, znodeDataToPublish(configsConf, instance), 0, 0)
+    assert(configsData.startsWith(addConfsToPublish(configsConf, instance)))
+    assert(configsData.endsWith(s"$LOAD_OPEN_SESSIONS=0;$LOAD_EXEC_POOL_ACTIVE=0"))
+  }
 }
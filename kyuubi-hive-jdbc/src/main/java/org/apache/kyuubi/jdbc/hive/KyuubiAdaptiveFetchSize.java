@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.hive.service.rpc.thrift.TColumn;
+import org.apache.hive.service.rpc.thrift.TColumnValue;
+import org.apache.hive.service.rpc.thrift.TRow;
+import org.apache.hive.service.rpc.thrift.TRowSet;
+
+/**
+ * Derives the row count of each FetchResults request from the previous batches, aiming at a target
+ * payload size and round trip time. The size grows by at most {@link #MAX_GROWTH_FACTOR} per batch,
+ * and shrinks at once when a batch turns out too large or too slow.
+ */
+class KyuubiAdaptiveFetchSize {
+
+  static final int MIN_FETCH_SIZE = 10;
+  static final int MAX_FETCH_SIZE = 100000;
+  static final int MAX_GROWTH_FACTOR = 2;
+
+  private final long targetBytes;
+  private final long targetLatencyMs;
+  private int fetchSize;
+
+  KyuubiAdaptiveFetchSize(int initialFetchSize, long targetBytes, long targetLatencyMs) {
+    this.targetBytes = targetBytes;
+    this.targetLatencyMs = targetLatencyMs;
+    reset(initialFetchSize);
+  }
+
+  /** Restarts the adaption from the given fetch size, e.g. after the user changed it. */
+  synchronized void reset(int initialFetchSize) {
+    this.fetchSize = clamp(initialFetchSize);
+  }
+
+  /** @return the row count to request with the next FetchResults call */
+  synchronized int nextFetchSize() {
+    return fetchSize;
+  }
+
+  /**
+   * Updates the fetch size with a fetched batch.
+   *
+   * @param results the deserialized batch
+   * @param numRows the number of rows in the batch
+   * @param elapsedNanos the round trip time of the FetchResults call
+   */
+  synchronized void onFetched(TRowSet results, int numRows, long elapsedNanos) {
+    if (numRows <= 0) {
+      return;
+    }
+    double bytesPerRow = Math.max(1.0, (double) estimateBytes(results) / numRows);
+    long sizeByBytes = (long) (targetBytes / bytesPerRow);
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    long sizeByLatency =
+        elapsedMs <= 0 ? Long.MAX_VALUE : (long) ((double) numRows * targetLatencyMs / elapsedMs);
+    long nextSize = Math.min(sizeByBytes, sizeByLatency);
+    nextSize = Math.min(nextSize, (long) fetchSize * MAX_GROWTH_FACTOR);
+    fetchSize = clamp(nextSize);
+  }
+
+  private static int clamp(long size) {
+    return (int) Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, size));
+  }
+
+  /** Estimates the payload size of a batch by walking its values, without re-serializing it. */
+  static long estimateBytes(TRowSet results) {
+    if (results == null) {
+      return 0L;
+    }
+    long bytes = 0L;
+    if (results.isSetBinaryColumns()) {
+      bytes += results.bufferForBinaryColumns().remaining();
+    }
+    if (results.isSetColumns()) {
+      for (TColumn column : results.getColumns()) {
+        bytes += estimateBytes(column);
+      }
+    }
+    if (results.isSetRows()) {
+      for (TRow row : results.getRows()) {
+        for (TColumnValue value : row.getColVals()) {
+          bytes += estimateBytes(value);
+        }
+      }
+    }
+    return bytes;
+  }
+
+  private static long estimateBytes(TColumn column) {
+    if (column.getSetField() == null) {
+      return 0L;
+    }
+    switch (column.getSetField()) {
+      case BOOL_VAL:
+        return column.getBoolVal().getValuesSize();
+      case BYTE_VAL:
+        return column.getByteVal().getValuesSize();
+      case I16_VAL:
+        return 2L * column.getI16Val().getValuesSize();
+      case I32_VAL:
+        return 4L * column.getI32Val().getValuesSize();
+      case I64_VAL:
+        return 8L * column.getI64Val().getValuesSize();
+      case DOUBLE_VAL:
+        return 8L * column.getDoubleVal().getValuesSize();
+      case STRING_VAL:
+        long stringBytes = 0L;
+        for (String value : column.getStringVal().getValues()) {
+          stringBytes += value == null ? 0 : value.length();
+        }
+        return stringBytes;
+      case BINARY_VAL:
+        long binaryBytes = 0L;
+        for (ByteBuffer value : column.getBinaryVal().getValues()) {
+          binaryBytes += value == null ? 0 : value.remaining();
+        }
+        return binaryBytes;
+      default:
+        return 0L;
+    }
+  }
+
+  private static long estimateBytes(TColumnValue value) {
+    if (value.getSetField() == null) {
+      return 0L;
+    }
+    switch (value.getSetField()) {
+      case BOOL_VAL:
+      case BYTE_VAL:
+        return 1L;
+      case I16_VAL:
+        return 2L;
+      case I32_VAL:
+        return 4L;
+      case I64_VAL:
+      case DOUBLE_VAL:
+        return 8L;
+      case STRING_VAL:
+        String str = value.getStringVal().getValue();
+        return str == null ? 0L : str.length();
+      default:
+        return 0L;
+    }
+  }
+}
@@ -47,6 +47,7 @@ import org.apache.hadoop.hive.common.type.HiveIntervalDayTime;
 import org.apache.hadoop.hive.common.type.HiveIntervalYearMonth;
 import org.apache.hadoop.hive.serde2.thrift.Type;
 import org.apache.hive.service.cli.TableSchema;
+import org.apache.hive.service.rpc.thrift.TColumn;
 
 /** Data independent base class which implements the common part of all Kyuubi result sets. */
 public abstract class KyuubiBaseResultSet implements ResultSet {
@@ -55,6 +56,9 @@ public abstract class KyuubiBaseResultSet implements ResultSet {
   protected SQLWarning warningChain = null;
   protected boolean wasNull = false;
   protected Object[] row;
+  // set instead of row when the current row lives in a column-based batch
+  protected KyuubiColumnarBatch columnarBatch;
+  protected int columnarRowIndex;
   protected List<String> columnNames;
   protected List<String> normalizedColumnNames;
   protected List<String> columnTypes;
@@ -183,6 +187,10 @@ public abstract class KyuubiBaseResultSet implements ResultSet {
   }
 
   public boolean getBoolean(int columnIndex) throws SQLException {
+    if (isColumnar(columnIndex, TColumn._Fields.BOOL_VAL)) {
+      wasNull = columnarBatch.isNull(columnIndex - 1, columnarRowIndex);
+      return columnarBatch.getBoolean(columnIndex - 1, columnarRowIndex);
+    }
     Object obj = getObject(columnIndex);
     if (Boolean.class.isInstance(obj)) {
       return (Boolean) obj;
@@ -279,6 +287,10 @@ public abstract class KyuubiBaseResultSet implements ResultSet {
   }
 
   public double getDouble(int columnIndex) throws SQLException {
+    if (isColumnar(columnIndex, null) && columnarBatch.isNumeric(columnIndex - 1)) {
+      wasNull = columnarBatch.isNull(columnIndex - 1, columnarRowIndex);
+      return columnarBatch.getDouble(columnIndex - 1, columnarRowIndex);
+    }
     try {
       Object obj = getObject(columnIndex);
       if (Number.class.isInstance(obj)) {
@@ -333,6 +345,10 @@ public abstract class KyuubiBaseResultSet implements ResultSet {
   }
 
   public int getInt(int columnIndex) throws SQLException {
+    if (isColumnar(columnIndex, null) && columnarBatch.isIntegral(columnIndex - 1)) {
+      wasNull = columnarBatch.isNull(columnIndex - 1, columnarRowIndex);
+      return (int) columnarBatch.getLong(columnIndex - 1, columnarRowIndex);
+    }
     try {
       Object obj = getObject(columnIndex);
       if (Number.class.isInstance(obj)) {
@@ -354,6 +370,10 @@ public abstract class KyuubiBaseResultSet implements ResultSet {
   }
 
   public long getLong(int columnIndex) throws SQLException {
+    if (isColumnar(columnIndex, null) && columnarBatch.isIntegral(columnIndex - 1)) {
+      wasNull = columnarBatch.isNull(columnIndex - 1, columnarRowIndex);
+      return columnarBatch.getLong(columnIndex - 1, columnarRowIndex);
+    }
     try {
       Object obj = getObject(columnIndex);
       if (Number.class.isInstance(obj)) {
@@ -402,20 +422,43 @@ public abstract class KyuubiBaseResultSet implements ResultSet {
     throw new SQLFeatureNotSupportedException("Method not supported");
   }
 
-  private Object getColumnValue(int columnIndex) throws SQLException {
-    if (row == null) {
-      throw new SQLException("No row found.");
-    }
-    if (row.length == 0) {
-      throw new SQLException("RowSet does not contain any columns!");
+  /**
+   * Checks whether the current row lives in a columnar batch and the column can be read from it in
+   * place.
+   *
+   * @param columnIndex the first column is 1, the second is 2, ...
+   * @param type the required vector type, or null for any
+   */
+  private boolean isColumnar(int columnIndex, TColumn._Fields type) throws SQLException {
+    if (columnarBatch == null) {
+      return false;
     }
-    if (columnIndex > row.length) {
+    if (columnIndex < 1 || columnIndex > columnarBatch.numColumns()) {
       throw new SQLException("Invalid columnIndex: " + columnIndex);
     }
+    return type == null || columnarBatch.getColumnType(columnIndex - 1) == type;
+  }
+
+  private Object getColumnValue(int columnIndex) throws SQLException {
+    Object value;
+    if (isColumnar(columnIndex, null)) {
+      value = columnarBatch.getObject(columnIndex - 1, columnarRowIndex);
+    } else {
+      if (row == null) {
+        throw new SQLException("No row found.");
+      }
+      if (row.length == 0) {
+        throw new SQLException("RowSet does not contain any columns!");
+      }
+      if (columnIndex > row.length) {
+        throw new SQLException("Invalid columnIndex: " + columnIndex);
+      }
+      value = row[columnIndex - 1];
+    }
     Type columnType = getSchema().getColumnDescriptorAt(columnIndex - 1).getType();
 
     try {
-      Object evaluated = evaluate(columnType, row[columnIndex - 1]);
+      Object evaluated = evaluate(columnType, value);
       wasNull = evaluated == null;
       return evaluated;
     } catch (Exception e) {
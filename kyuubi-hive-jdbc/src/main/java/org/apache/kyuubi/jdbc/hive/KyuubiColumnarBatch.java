@@ -0,0 +1,429 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.hive.service.cli.RowSet;
+import org.apache.hive.service.cli.RowSetFactory;
+import org.apache.hive.service.rpc.thrift.TColumn;
+import org.apache.hive.service.rpc.thrift.TBinaryColumn;
+import org.apache.hive.service.rpc.thrift.TBoolColumn;
+import org.apache.hive.service.rpc.thrift.TByteColumn;
+import org.apache.hive.service.rpc.thrift.TDoubleColumn;
+import org.apache.hive.service.rpc.thrift.TI16Column;
+import org.apache.hive.service.rpc.thrift.TI32Column;
+import org.apache.hive.service.rpc.thrift.TI64Column;
+import org.apache.hive.service.rpc.thrift.TProtocolVersion;
+import org.apache.hive.service.rpc.thrift.TRow;
+import org.apache.hive.service.rpc.thrift.TRowSet;
+import org.apache.hive.service.rpc.thrift.TStringColumn;
+import org.apache.thrift.TException;
+
+/**
+ * A column-based batch of fetched rows, read in place from the {@link TColumn} vectors and their
+ * null bitmaps instead of being pivoted into {@code Object[]} rows. The batch that holds the
+ * current row of a {@link KyuubiQueryResultSet} is available via {@code
+ * resultSet.unwrap(KyuubiColumnarBatch.class)}.
+ *
+ * <p>As a {@link RowSet}, {@link #extractSubset(int)} splits the batch without copying the
+ * vectors, and {@link #addRow(Object[])} appends to a copy of the vectors owned by the batch.
+ */
+public class KyuubiColumnarBatch implements RowSet {
+
+  private final TRowSet tRowSet;
+  // resolved once per column, so that a cell access is a list lookup plus a bitmap probe
+  private final TColumn._Fields[] types;
+  private final List<?>[] values;
+  private final ByteBuffer[] nulls;
+  // the rows of the batch are the rows [from, from + numRows) of the vectors
+  private int from;
+  private int numRows;
+  private long startOffset;
+  // whether the vectors are copies owned by this batch, which rows are appended to
+  private boolean detached;
+
+  private KyuubiColumnarBatch(TRowSet tRowSet) {
+    this.tRowSet = tRowSet;
+    List<TColumn> columns = tRowSet.getColumns();
+    int numColumns = columns.size();
+    this.types = new TColumn._Fields[numColumns];
+    this.values = new List<?>[numColumns];
+    this.nulls = new ByteBuffer[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      TColumn column = columns.get(i);
+      types[i] = column.getSetField();
+      switch (types[i]) {
+        case BOOL_VAL:
+          values[i] = column.getBoolVal().getValues();
+          nulls[i] = column.getBoolVal().bufferForNulls();
+          break;
+        case BYTE_VAL:
+          values[i] = column.getByteVal().getValues();
+          nulls[i] = column.getByteVal().bufferForNulls();
+          break;
+        case I16_VAL:
+          values[i] = column.getI16Val().getValues();
+          nulls[i] = column.getI16Val().bufferForNulls();
+          break;
+        case I32_VAL:
+          values[i] = column.getI32Val().getValues();
+          nulls[i] = column.getI32Val().bufferForNulls();
+          break;
+        case I64_VAL:
+          values[i] = column.getI64Val().getValues();
+          nulls[i] = column.getI64Val().bufferForNulls();
+          break;
+        case DOUBLE_VAL:
+          values[i] = column.getDoubleVal().getValues();
+          nulls[i] = column.getDoubleVal().bufferForNulls();
+          break;
+        case STRING_VAL:
+          values[i] = column.getStringVal().getValues();
+          nulls[i] = column.getStringVal().bufferForNulls();
+          break;
+        case BINARY_VAL:
+          values[i] = column.getBinaryVal().getValues();
+          nulls[i] = column.getBinaryVal().bufferForNulls();
+          break;
+        default:
+          throw new IllegalArgumentException("Unrecognized column type " + types[i]);
+      }
+    }
+    this.from = 0;
+    this.numRows = numColumns == 0 ? 0 : values[0].size();
+    this.startOffset = tRowSet.getStartRowOffset();
+  }
+
+  // a view of the first numRows rows of the batch, sharing its vectors
+  private KyuubiColumnarBatch(KyuubiColumnarBatch batch, int numRows) {
+    this.tRowSet = batch.tRowSet;
+    this.types = batch.types;
+    this.values = batch.values.clone();
+    this.nulls = batch.nulls.clone();
+    this.from = batch.from;
+    this.numRows = numRows;
+    this.startOffset = batch.startOffset;
+  }
+
+  /**
+   * Wraps a fetched {@link TRowSet} as a columnar batch when it is column-based and uncompressed,
+   * otherwise falls back to {@link RowSetFactory#create(TRowSet, TProtocolVersion)}.
+   */
+  public static RowSet create(TRowSet results, TProtocolVersion version) throws TException {
+    if (version.getValue() >= TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V6.getValue()
+        && results.isSetColumns()
+        && !results.isSetBinaryColumns()) {
+      return new KyuubiColumnarBatch(results);
+    }
+    return RowSetFactory.create(results, version);
+  }
+
+  /**
+   * @param columnIndex the first column is 0, the second is 1, ...
+   * @return the column vector of the rows of the batch, the one received from the server unless
+   *     the batch has been split or appended to
+   */
+  public TColumn getColumn(int columnIndex) {
+    return toTRowSet().getColumns().get(columnIndex);
+  }
+
+  /** @return the Thrift type of the column vector, e.g. {@link TColumn._Fields#I32_VAL} */
+  public TColumn._Fields getColumnType(int columnIndex) {
+    return types[columnIndex];
+  }
+
+  public boolean isNull(int columnIndex, int rowIndex) {
+    ByteBuffer bitmap = nulls[columnIndex];
+    if (bitmap == null) {
+      return false;
+    }
+    int bitIndex = from + rowIndex;
+    int byteIndex = bitmap.position() + bitIndex / 8;
+    return byteIndex < bitmap.limit() && (bitmap.get(byteIndex) & (1 << (bitIndex % 8))) != 0;
+  }
+
+  /** @return whether the column holds tinyint, smallint, int or bigint values */
+  public boolean isIntegral(int columnIndex) {
+    switch (types[columnIndex]) {
+      case BYTE_VAL:
+      case I16_VAL:
+      case I32_VAL:
+      case I64_VAL:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** @return whether the column holds integral or floating point values */
+  public boolean isNumeric(int columnIndex) {
+    return isIntegral(columnIndex) || types[columnIndex] == TColumn._Fields.DOUBLE_VAL;
+  }
+
+  /** Reads a cell of an integral column, 0 for null. */
+  public long getLong(int columnIndex, int rowIndex) {
+    if (isNull(columnIndex, rowIndex)) {
+      return 0L;
+    }
+    switch (types[columnIndex]) {
+      case BYTE_VAL:
+        return (Byte) values[columnIndex].get(from + rowIndex);
+      case I16_VAL:
+        return (Short) values[columnIndex].get(from + rowIndex);
+      case I32_VAL:
+        return (Integer) values[columnIndex].get(from + rowIndex);
+      case I64_VAL:
+        return (Long) values[columnIndex].get(from + rowIndex);
+      default:
+        throw new IllegalStateException("Column " + columnIndex + " is not integral");
+    }
+  }
+
+  /** Reads a cell of a numeric column, 0 for null. */
+  public double getDouble(int columnIndex, int rowIndex) {
+    if (types[columnIndex] == TColumn._Fields.DOUBLE_VAL) {
+      return isNull(columnIndex, rowIndex)
+          ? 0d
+          : (Double) values[columnIndex].get(from + rowIndex);
+    }
+    return getLong(columnIndex, rowIndex);
+  }
+
+  /** Reads a cell of a boolean column, false for null. */
+  public boolean getBoolean(int columnIndex, int rowIndex) {
+    if (types[columnIndex] != TColumn._Fields.BOOL_VAL) {
+      throw new IllegalStateException("Column " + columnIndex + " is not boolean");
+    }
+    return !isNull(columnIndex, rowIndex) && (Boolean) values[columnIndex].get(from + rowIndex);
+  }
+
+  /** Reads a cell the same way as the values of a row materialized by {@link RowSetFactory}. */
+  public Object getObject(int columnIndex, int rowIndex) {
+    if (isNull(columnIndex, rowIndex)) {
+      return null;
+    }
+    Object value = values[columnIndex].get(from + rowIndex);
+    if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = (ByteBuffer) value;
+      if (buffer.hasArray()
+          && buffer.arrayOffset() == 0
+          && buffer.position() == 0
+          && buffer.remaining() == buffer.array().length) {
+        return buffer.array();
+      }
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.duplicate().get(bytes);
+      return bytes;
+    }
+    return value;
+  }
+
+  @Override
+  public int numColumns() {
+    return types.length;
+  }
+
+  @Override
+  public int numRows() {
+    return numRows;
+  }
+
+  @Override
+  public long getStartOffset() {
+    return startOffset;
+  }
+
+  @Override
+  public void setStartOffset(long startOffset) {
+    this.startOffset = startOffset;
+  }
+
+  @Override
+  public TRowSet toTRowSet() {
+    if (!detached && from == 0 && (types.length == 0 || numRows == values[0].size())) {
+      return tRowSet;
+    }
+    TRowSet rowSet = new TRowSet(startOffset, new ArrayList<TRow>(0));
+    for (int i = 0; i < types.length; i++) {
+      rowSet.addToColumns(toTColumn(i));
+    }
+    return rowSet;
+  }
+
+  /**
+   * Appends a row of the values returned by {@link #getObject(int, int)}, the vectors are copied
+   * by the first append, as they may be shared with the server response or the other batches.
+   */
+  @Override
+  public RowSet addRow(Object[] fields) {
+    if (fields.length != types.length) {
+      throw new IllegalArgumentException(
+          "Expect " + types.length + " fields, but got " + fields.length);
+    }
+    if (!detached) {
+      detach();
+    }
+    for (int i = 0; i < types.length; i++) {
+      Object value = fields[i];
+      if (value == null) {
+        setNull(i, numRows);
+        value = defaultValue(types[i]);
+      } else if (value instanceof byte[]) {
+        value = ByteBuffer.wrap((byte[]) value);
+      }
+      @SuppressWarnings("unchecked")
+      List<Object> vector = (List<Object>) values[i];
+      vector.add(value);
+    }
+    numRows++;
+    return this;
+  }
+
+  /**
+   * Removes the first {@code maxRows} rows of the batch and returns them as another batch, the
+   * vectors are shared rather than copied.
+   */
+  @Override
+  public RowSet extractSubset(int maxRows) {
+    int n = Math.min(maxRows, numRows);
+    KyuubiColumnarBatch subset = new KyuubiColumnarBatch(this, n);
+    from += n;
+    numRows -= n;
+    startOffset += n;
+    return subset;
+  }
+
+  // copies the rows of the batch to vectors and null bitmaps owned by it
+  private void detach() {
+    for (int i = 0; i < types.length; i++) {
+      values[i] = new ArrayList<>(values[i].subList(from, from + numRows));
+      nulls[i] = ByteBuffer.wrap(nullBits(i).toByteArray());
+    }
+    from = 0;
+    detached = true;
+  }
+
+  private void setNull(int columnIndex, int rowIndex) {
+    ByteBuffer bitmap = nulls[columnIndex];
+    int byteIndex = (from + rowIndex) / 8;
+    if (byteIndex >= bitmap.limit()) {
+      // doubled, so that appending the null values takes amortized constant time
+      byte[] bytes = Arrays.copyOf(bitmap.array(), Math.max(byteIndex + 1, bitmap.limit() * 2));
+      bitmap = ByteBuffer.wrap(bytes);
+      nulls[columnIndex] = bitmap;
+    }
+    bitmap.put(byteIndex, (byte) (bitmap.get(byteIndex) | (1 << ((from + rowIndex) % 8))));
+  }
+
+  // the null bits of the rows of the batch, starting from 0
+  private BitSet nullBits(int columnIndex) {
+    BitSet bits = new BitSet(numRows);
+    for (int i = 0; i < numRows; i++) {
+      if (isNull(columnIndex, i)) {
+        bits.set(i);
+      }
+    }
+    return bits;
+  }
+
+  @SuppressWarnings("unchecked")
+  private TColumn toTColumn(int columnIndex) {
+    ByteBuffer nullBytes = ByteBuffer.wrap(nullBits(columnIndex).toByteArray());
+    List<?> vector = new ArrayList<>(values[columnIndex].subList(from, from + numRows));
+    switch (types[columnIndex]) {
+      case BOOL_VAL:
+        return TColumn.boolVal(new TBoolColumn((List<Boolean>) vector, nullBytes));
+      case BYTE_VAL:
+        return TColumn.byteVal(new TByteColumn((List<Byte>) vector, nullBytes));
+      case I16_VAL:
+        return TColumn.i16Val(new TI16Column((List<Short>) vector, nullBytes));
+      case I32_VAL:
+        return TColumn.i32Val(new TI32Column((List<Integer>) vector, nullBytes));
+      case I64_VAL:
+        return TColumn.i64Val(new TI64Column((List<Long>) vector, nullBytes));
+      case DOUBLE_VAL:
+        return TColumn.doubleVal(new TDoubleColumn((List<Double>) vector, nullBytes));
+      case STRING_VAL:
+        return TColumn.stringVal(new TStringColumn((List<String>) vector, nullBytes));
+      case BINARY_VAL:
+        return TColumn.binaryVal(new TBinaryColumn((List<ByteBuffer>) vector, nullBytes));
+      default:
+        throw new IllegalStateException("Unrecognized column type " + types[columnIndex]);
+    }
+  }
+
+  // the value kept in a vector for null, as the vectors do not take null elements
+  private static Object defaultValue(TColumn._Fields type) {
+    switch (type) {
+      case BOOL_VAL:
+        return false;
+      case BYTE_VAL:
+        return (byte) 0;
+      case I16_VAL:
+        return (short) 0;
+      case I32_VAL:
+        return 0;
+      case I64_VAL:
+        return 0L;
+      case DOUBLE_VAL:
+        return 0d;
+      case STRING_VAL:
+        return "";
+      case BINARY_VAL:
+        return ByteBuffer.allocate(0);
+      default:
+        throw new IllegalStateException("Unrecognized column type " + type);
+    }
+  }
+
+  /** Materializes {@code Object[]} rows, for callers that still consume the row-based view. */
+  @Override
+  public Iterator<Object[]> iterator() {
+    if (numRows == 0) {
+      return Collections.emptyIterator();
+    }
+    return new Iterator<Object[]>() {
+      private int rowIndex = 0;
+
+      @Override
+      public boolean hasNext() {
+        return rowIndex < numRows;
+      }
+
+      @Override
+      public Object[] next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Object[] row = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+          row[i] = getObject(i, rowIndex);
+        }
+        rowIndex++;
+        return row;
+      }
+    };
+  }
+}
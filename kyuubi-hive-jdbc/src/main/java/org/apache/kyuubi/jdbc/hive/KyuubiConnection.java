@@ -28,8 +28,11 @@ import java.security.SecureRandom;
 import java.sql.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
@@ -68,6 +71,7 @@ import org.apache.kyuubi.jdbc.hive.Utils.JdbcConnectionParams;
 import org.apache.kyuubi.jdbc.hive.logs.KyuubiLoggable;
 import org.apache.thrift.TException;
 import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocolException;
 import org.apache.thrift.transport.THttpClient;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
@@ -86,16 +90,28 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
   private JdbcConnectionParams connParams;
   private final boolean isEmbeddedMode;
   private TTransport transport;
+  private int transportPoolSize = 1;
+  // the transports opened in addition to the primary one when transportPoolSize > 1
+  private final List<TTransport> pooledTransports = new ArrayList<TTransport>();
+  // dispatches the RPC calls over the transports of the pool, null without a pool
+  private PooledHandler pooledHandler = null;
   private boolean assumeSubject;
   // TODO should be replaced by CliServiceClient
   private TCLIService.Iface client;
   private boolean isClosed = true;
   private SQLWarning warningChain = null;
+  // set once an RPC failed at the transport or protocol level, or the server lost the session,
+  // the session is unusable afterwards
+  private volatile boolean broken = false;
   private TSessionHandle sessHandle = null;
   private final List<TProtocolVersion> supportedProtocols = new LinkedList<TProtocolVersion>();
   private int loginTimeout = 0;
   private TProtocolVersion protocol;
   private int fetchSize = KyuubiStatement.DEFAULT_FETCH_SIZE;
+  private int prefetchBatches = 0;
+  private long adaptiveFetchTargetBytes = 0;
+  private long adaptiveFetchTargetLatencyMs = 0;
+  private int batchInsertRows = JdbcConnectionParams.DEFAULT_BATCH_INSERT_ROWS;
   private String initFile = null;
   private boolean initFileCompleted = false;
 
@@ -127,6 +143,28 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
     if (sessConfMap.containsKey(JdbcConnectionParams.FETCH_SIZE)) {
       fetchSize = Integer.parseInt(sessConfMap.get(JdbcConnectionParams.FETCH_SIZE));
     }
+    if (sessConfMap.containsKey(JdbcConnectionParams.PREFETCH_BATCHES)) {
+      prefetchBatches = Integer.parseInt(sessConfMap.get(JdbcConnectionParams.PREFETCH_BATCHES));
+    }
+    if (Boolean.parseBoolean(sessConfMap.get(JdbcConnectionParams.ADAPTIVE_FETCH_SIZE))) {
+      adaptiveFetchTargetBytes = JdbcConnectionParams.DEFAULT_ADAPTIVE_FETCH_TARGET_BYTES;
+      adaptiveFetchTargetLatencyMs = JdbcConnectionParams.DEFAULT_ADAPTIVE_FETCH_TARGET_LATENCY_MS;
+      if (sessConfMap.containsKey(JdbcConnectionParams.ADAPTIVE_FETCH_TARGET_BYTES)) {
+        adaptiveFetchTargetBytes =
+            Long.parseLong(sessConfMap.get(JdbcConnectionParams.ADAPTIVE_FETCH_TARGET_BYTES));
+      }
+      if (sessConfMap.containsKey(JdbcConnectionParams.ADAPTIVE_FETCH_TARGET_LATENCY_MS)) {
+        adaptiveFetchTargetLatencyMs =
+            Long.parseLong(sessConfMap.get(JdbcConnectionParams.ADAPTIVE_FETCH_TARGET_LATENCY_MS));
+      }
+    }
+    if (sessConfMap.containsKey(JdbcConnectionParams.TRANSPORT_POOL_SIZE)) {
+      transportPoolSize =
+          Integer.parseInt(sessConfMap.get(JdbcConnectionParams.TRANSPORT_POOL_SIZE));
+    }
+    if (sessConfMap.containsKey(JdbcConnectionParams.BATCH_INSERT_ROWS)) {
+      batchInsertRows = Integer.parseInt(sessConfMap.get(JdbcConnectionParams.BATCH_INSERT_ROWS));
+    }
     if (sessConfMap.containsKey(JdbcConnectionParams.INIT_FILE)) {
       initFile = sessConfMap.get(JdbcConnectionParams.INIT_FILE);
     }
@@ -168,10 +206,17 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
         try {
           // open the client transport
           openTransport();
-          // set up the client
-          TCLIService.Iface _client = new TCLIService.Client(new TBinaryProtocol(transport));
-          // Wrap the client with a thread-safe proxy to serialize the RPC calls
-          client = newSynchronizedClient(_client);
+          if (transportPoolSize > 1) {
+            // Dispatch the RPC calls over a pool of transports sharing the session
+            pooledHandler = new PooledHandler(openTransportPool());
+            client = newClient(pooledHandler);
+          } else {
+            // set up the client
+            TCLIService.Iface _client = new TCLIService.Client(new TBinaryProtocol(transport));
+            // Wrap the client with a thread-safe proxy to serialize the RPC calls
+            client = newSynchronizedClient(_client);
+          }
+          client = trackFailures(client);
           // open client session
           openSession();
           if (!isBeeLineMode) {
@@ -182,6 +227,7 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
           break;
         } catch (Exception e) {
           LOG.warn("Failed to connect to " + connParams.getHost() + ":" + connParams.getPort());
+          closePooledTransports();
           String errMsg = null;
           String warnMsg = "Could not open client transport with JDBC Uri: " + jdbcUriString + ": ";
           if (isZkDynamicDiscoveryMode()) {
@@ -352,14 +398,44 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
   }
 
   private void openTransport() throws Exception {
+    transport = openNewTransport();
+  }
+
+  private TTransport openNewTransport() throws Exception {
     assumeSubject =
         JdbcConnectionParams.AUTH_KERBEROS_AUTH_TYPE_FROM_SUBJECT.equals(
             sessConfMap.get(JdbcConnectionParams.AUTH_KERBEROS_AUTH_TYPE));
-    transport = isHttpTransportMode() ? createHttpTransport() : createBinaryTransport();
-    if (!transport.isOpen()) {
-      transport.open();
+    TTransport newTransport =
+        isHttpTransportMode() ? createHttpTransport() : createBinaryTransport();
+    if (!newTransport.isOpen()) {
+      newTransport.open();
       logZkDiscoveryMessage("Connected to " + connParams.getHost() + ":" + connParams.getPort());
     }
+    return newTransport;
+  }
+
+  /**
+   * Opens the extra transports of the pool to the same server. The session is identified by its
+   * handle rather than by the transport, so any of them can carry the calls of this session.
+   *
+   * @return the clients over the primary and the extra transports
+   */
+  private List<TCLIService.Iface> openTransportPool() throws Exception {
+    List<TCLIService.Iface> clients = new ArrayList<TCLIService.Iface>();
+    clients.add(new TCLIService.Client(new TBinaryProtocol(transport)));
+    for (int i = 1; i < transportPoolSize; i++) {
+      TTransport pooledTransport = openNewTransport();
+      pooledTransports.add(pooledTransport);
+      clients.add(new TCLIService.Client(new TBinaryProtocol(pooledTransport)));
+    }
+    return clients;
+  }
+
+  private void closePooledTransports() {
+    for (TTransport pooledTransport : pooledTransports) {
+      pooledTransport.close();
+    }
+    pooledTransports.clear();
   }
 
   public String getConnectedUrl() {
@@ -386,8 +462,7 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
     boolean useSsl = isSslConnection();
     // Create an http client from the configs
     httpClient = getHttpClient(useSsl);
-    transport = new THttpClient(getServerHttpUrl(useSsl), httpClient);
-    return transport;
+    return new THttpClient(getServerHttpUrl(useSsl), httpClient);
   }
 
   private CloseableHttpClient getHttpClient(Boolean useSsl) throws SQLException {
@@ -596,6 +671,7 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
    * @throws SQLException, TTransportException
    */
   private TTransport createBinaryTransport() throws SQLException, TTransportException {
+    TTransport transport;
     try {
       TTransport socketTransport = createUnderlyingTransport();
       // handle secure connection if specified
@@ -928,6 +1004,7 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
         if (transport != null) {
           transport.close();
         }
+        closePooledTransports();
       }
     }
   }
@@ -1224,15 +1301,17 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
     if (timeout < 0) {
       throw new SQLException("timeout value was negative");
     }
-    boolean rc = false;
-    try {
-      String productName =
-          new KyuubiDatabaseMetaData(this, client, sessHandle).getDatabaseProductName();
-      rc = true;
+    if (isClosed) {
+      return false;
+    }
+    // the query timeout bounds the check, 0 means no timeout for both
+    try (Statement stmt = createStatement()) {
+      stmt.setQueryTimeout(timeout);
+      stmt.execute("SELECT 1");
+      return true;
     } catch (SQLException e) {
-      // IGNORE
+      return false;
     }
-    return rc;
   }
 
   /*
@@ -1583,6 +1662,90 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
     return protocol;
   }
 
+  /** @return the number of result batches fetched ahead in the background, 0 if disabled */
+  int getPrefetchBatches() {
+    return prefetchBatches;
+  }
+
+  /** @return the target payload size of an adaptive fetch, 0 if the fetch size is fixed */
+  long getAdaptiveFetchTargetBytes() {
+    return adaptiveFetchTargetBytes;
+  }
+
+  /** @return the target round trip time of an adaptive fetch in milliseconds */
+  long getAdaptiveFetchTargetLatencyMs() {
+    return adaptiveFetchTargetLatencyMs;
+  }
+
+  /** @return the maximum number of rows a batched INSERT ... VALUES statement is sent with */
+  int getBatchInsertRows() {
+    return batchInsertRows;
+  }
+
+  /**
+   * @return whether an RPC of this connection has failed at the transport or protocol level, or
+   *     the server reported that the session is gone
+   */
+  boolean isBroken() {
+    return broken;
+  }
+
+  /** @return the database the session was opened with */
+  String getDefaultSchema() {
+    return connParams.getDbName();
+  }
+
+  private TCLIService.Iface trackFailures(TCLIService.Iface client) {
+    return (TCLIService.Iface)
+        Proxy.newProxyInstance(
+            KyuubiConnection.class.getClassLoader(),
+            new Class[] {TCLIService.Iface.class},
+            (proxy, method, args) -> {
+              Object resp;
+              try {
+                resp = invokeClient(client, method, args);
+              } catch (TTransportException e) {
+                // the pool fails over to its other transports as long as any is left
+                if (pooledHandler == null || !pooledHandler.hasLiveClients()) {
+                  broken = true;
+                }
+                throw e;
+              } catch (TProtocolException e) {
+                broken = true;
+                throw e;
+              }
+              if (isSessionLost(resp)) {
+                broken = true;
+              }
+              return resp;
+            });
+  }
+
+  /**
+   * @return whether the response reports that the server does not know the session anymore, or
+   *     that the server lost the connection to the engine serving it
+   */
+  static boolean isSessionLost(Object resp) {
+    if (resp == null) {
+      return false;
+    }
+    TStatus status;
+    try {
+      Object value = resp.getClass().getMethod("getStatus").invoke(resp);
+      if (!(value instanceof TStatus)) {
+        return false;
+      }
+      status = (TStatus) value;
+    } catch (ReflectiveOperationException e) {
+      return false;
+    }
+    String message = status.getErrorMessage();
+    return status.getStatusCode() == TStatusCode.ERROR_STATUS
+        && message != null
+        && (message.contains("Invalid SessionHandle")
+            || (message.contains("Socket for SessionHandle") && message.contains("is closed")));
+  }
+
   public static TCLIService.Iface newSynchronizedClient(TCLIService.Iface client) {
     return (TCLIService.Iface)
         Proxy.newProxyInstance(
@@ -1591,6 +1754,109 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
             new SynchronizedHandler(client));
   }
 
+  /**
+   * Creates a thread-safe client which runs each RPC call on an idle one of the given clients, so
+   * that up to {@code clients.size()} calls are in flight at the same time.
+   */
+  public static TCLIService.Iface newPooledClient(List<TCLIService.Iface> clients) {
+    return newClient(new PooledHandler(clients));
+  }
+
+  private static TCLIService.Iface newClient(InvocationHandler handler) {
+    return (TCLIService.Iface)
+        Proxy.newProxyInstance(
+            KyuubiConnection.class.getClassLoader(),
+            new Class[] {TCLIService.Iface.class},
+            handler);
+  }
+
+  private static Object invokeClient(TCLIService.Iface client, Method method, Object[] args)
+      throws TException {
+    try {
+      return method.invoke(client, args);
+    } catch (InvocationTargetException e) {
+      // all IFace APIs throw TException
+      if (e.getTargetException() instanceof TException) {
+        throw (TException) e.getTargetException();
+      } else {
+        // should not happen
+        throw new TException("Error in calling method " + method.getName(), e.getTargetException());
+      }
+    } catch (Exception e) {
+      throw new TException("Error in calling method " + method.getName(), e);
+    }
+  }
+
+  /**
+   * Runs each RPC call on an idle client of the pool. A client whose transport broke is dropped
+   * from the pool, and the calls which can safely be sent twice are retried on another one.
+   */
+  static class PooledHandler implements InvocationHandler {
+    // the RPC calls without side effects, or whose repetition is harmless
+    private static final Set<String> RETRYABLE_CALLS =
+        new HashSet<String>(
+            Arrays.asList(
+                "GetOperationStatus",
+                "GetResultSetMetadata",
+                "GetInfo",
+                "CancelOperation",
+                "CloseOperation"));
+
+    private final BlockingQueue<TCLIService.Iface> idleClients;
+    // the clients whose transport has not broken, idle or in use
+    private final AtomicInteger liveClients;
+
+    PooledHandler(List<TCLIService.Iface> clients) {
+      this.idleClients = new ArrayBlockingQueue<TCLIService.Iface>(clients.size(), true, clients);
+      this.liveClients = new AtomicInteger(clients.size());
+    }
+
+    boolean hasLiveClients() {
+      return liveClients.get() > 0;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      while (true) {
+        TCLIService.Iface client = takeClient();
+        boolean broken = false;
+        try {
+          return invokeClient(client, method, args);
+        } catch (TTransportException e) {
+          broken = true;
+          liveClients.decrementAndGet();
+          if (!RETRYABLE_CALLS.contains(method.getName()) || !hasLiveClients()) {
+            throw e;
+          }
+          LOG.warn("A transport of the pool is broken, retrying " + method.getName(), e);
+        } finally {
+          if (!broken) {
+            idleClients.offer(client);
+          }
+        }
+      }
+    }
+
+    private TCLIService.Iface takeClient() throws TException {
+      try {
+        // wake up now and then, the last live clients may break meanwhile
+        while (true) {
+          if (!hasLiveClients()) {
+            throw new TTransportException(
+                TTransportException.NOT_OPEN, "All the transports of the pool are broken");
+          }
+          TCLIService.Iface client = idleClients.poll(1, TimeUnit.SECONDS);
+          if (client != null) {
+            return client;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new TException("Interrupted while waiting for an idle transport", e);
+      }
+    }
+  }
+
   private static class SynchronizedHandler implements InvocationHandler {
     private final TCLIService.Iface client;
     private final ReentrantLock lock = new ReentrantLock(true);
@@ -1603,18 +1869,7 @@ public class KyuubiConnection implements java.sql.Connection, KyuubiLoggable {
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
       try {
         lock.lock();
-        return method.invoke(client, args);
-      } catch (InvocationTargetException e) {
-        // all IFace APIs throw TException
-        if (e.getTargetException() instanceof TException) {
-          throw (TException) e.getTargetException();
-        } else {
-          // should not happen
-          throw new TException(
-              "Error in calling method " + method.getName(), e.getTargetException());
-        }
-      } catch (Exception e) {
-        throw new TException("Error in calling method " + method.getName(), e);
+        return invokeClient(client, method, args);
       } finally {
         lock.unlock();
       }
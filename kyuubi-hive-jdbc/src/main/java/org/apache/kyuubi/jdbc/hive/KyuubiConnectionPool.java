@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps idle {@link KyuubiConnection}s, and so their sessions, open for reuse. A borrowed
+ * connection is handed out behind a proxy whose {@code close()} returns it to the pool. The
+ * statements, result sets and metadata it creates are proxied as well, so that the raw connection
+ * never leaks to the borrower, and the statements left open are closed on return.
+ *
+ * <p>A connection is not returned but closed when one of its RPCs failed at the transport or
+ * protocol level, when the server lost its session, or when the application issued a {@code SET}
+ * statement, since the session conf can not be restored. A {@code USE} statement or {@code
+ * setSchema} is undone on return. Idle connections are validated with {@link
+ * Connection#isValid(int)} before reuse once they have been idle for the validation interval, and
+ * a housekeeping thread keeps at least minIdle of them open.
+ *
+ * <p>With a positive maxTotal, at most maxTotal connections, idle or borrowed, are open at once. A
+ * borrower waits up to maxWaitMs for one to be returned or closed, and then fails.
+ */
+class KyuubiConnectionPool {
+
+  public static final Logger LOG = LoggerFactory.getLogger(KyuubiConnectionPool.class);
+
+  private final String url;
+  private final Properties info;
+  private final int minIdle;
+  private final int maxIdle;
+  private final int maxTotal;
+  private final long maxWaitMs;
+  private final int validationTimeout;
+  private final long validationIntervalMs;
+  // most recently returned first, so the warmest connections are reused
+  private final LinkedBlockingDeque<IdleConnection> idle = new LinkedBlockingDeque<>();
+  private final ScheduledExecutorService housekeeper;
+  // guarded by `this`, the number of open connections, idle or borrowed
+  private int total = 0;
+  private volatile boolean closed = false;
+
+  KyuubiConnectionPool(
+      String url,
+      Properties info,
+      int minIdle,
+      int maxIdle,
+      int maxTotal,
+      long maxWaitMs,
+      int validationTimeout,
+      long validationIntervalMs) {
+    this.url = url;
+    this.info = info;
+    this.minIdle = Math.min(minIdle, maxIdle);
+    this.maxIdle = maxIdle;
+    this.maxTotal = maxTotal;
+    this.maxWaitMs = maxWaitMs;
+    this.validationTimeout = validationTimeout;
+    this.validationIntervalMs = validationIntervalMs;
+    if (this.minIdle > 0) {
+      this.housekeeper =
+          Executors.newSingleThreadScheduledExecutor(
+              r -> {
+                Thread t = new Thread(r, "kyuubi-connection-pool-housekeeper");
+                t.setDaemon(true);
+                return t;
+              });
+      this.housekeeper.scheduleWithFixedDelay(
+          this::housekeep, 0, Math.max(1000L, validationIntervalMs), TimeUnit.MILLISECONDS);
+    } else {
+      this.housekeeper = null;
+    }
+  }
+
+  Connection borrow() throws SQLException {
+    long deadline = System.currentTimeMillis() + maxWaitMs;
+    while (true) {
+      if (closed) {
+        throw new SQLException("Connection pool is closed");
+      }
+      IdleConnection entry = idle.pollFirst();
+      if (entry != null) {
+        if (isHealthy(entry)) {
+          return wrap(entry.connection);
+        }
+        discard(entry.connection);
+      } else if (reserve(deadline)) {
+        break;
+      }
+    }
+    try {
+      return wrap(open());
+    } catch (SQLException | RuntimeException e) {
+      unreserve();
+      throw e;
+    }
+  }
+
+  /**
+   * Reserves a slot for a new connection, waiting until the deadline if maxTotal is reached.
+   *
+   * @return false if a connection has been returned to the idle queue meanwhile
+   */
+  private synchronized boolean reserve(long deadline) throws SQLException {
+    while (maxTotal > 0 && total >= maxTotal) {
+      // checked under the lock, as connections are offered to the idle queue before notifying
+      if (closed || !idle.isEmpty()) {
+        return false;
+      }
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        throw new SQLException(
+            "Timed out waiting for a pooled connection, all " + maxTotal + " are in use");
+      }
+      try {
+        wait(remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted while waiting for a pooled connection", e);
+      }
+    }
+    total++;
+    return true;
+  }
+
+  /** Reserves a slot for a new idle connection if maxTotal is not reached, without waiting. */
+  private synchronized boolean tryReserve() {
+    if (maxTotal > 0 && total >= maxTotal) {
+      return false;
+    }
+    total++;
+    return true;
+  }
+
+  private synchronized void unreserve() {
+    total--;
+    notifyAll();
+  }
+
+  int getIdleCount() {
+    return idle.size();
+  }
+
+  synchronized int getTotalCount() {
+    return total;
+  }
+
+  void close() {
+    closed = true;
+    synchronized (this) {
+      notifyAll();
+    }
+    if (housekeeper != null) {
+      housekeeper.shutdownNow();
+    }
+    IdleConnection entry;
+    while ((entry = idle.pollFirst()) != null) {
+      discard(entry.connection);
+    }
+  }
+
+  KyuubiConnection open() throws SQLException {
+    return new KyuubiConnection(url, info);
+  }
+
+  private boolean isHealthy(IdleConnection entry) {
+    KyuubiConnection connection = entry.connection;
+    try {
+      if (connection.isClosed() || connection.isBroken()) {
+        return false;
+      }
+      if (System.currentTimeMillis() - entry.idleSince < validationIntervalMs) {
+        return true;
+      }
+      return connection.isValid(validationTimeout);
+    } catch (SQLException e) {
+      LOG.debug("Failed to validate an idle connection", e);
+      return false;
+    }
+  }
+
+  private void release(KyuubiConnection connection, boolean sessionDirty, boolean schemaChanged) {
+    if (closed || sessionDirty || connection.isBroken() || idle.size() >= maxIdle) {
+      discard(connection);
+      return;
+    }
+    try {
+      if (connection.isClosed()) {
+        unreserve();
+        return;
+      }
+      connection.clearWarnings();
+      if (schemaChanged) {
+        connection.setSchema(connection.getDefaultSchema());
+      }
+    } catch (SQLException e) {
+      LOG.debug("Failed to reset the session state of a pooled connection", e);
+      discard(connection);
+      return;
+    }
+    idle.offerFirst(new IdleConnection(connection));
+    synchronized (this) {
+      notifyAll();
+    }
+  }
+
+  private void discard(KyuubiConnection connection) {
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      LOG.debug("Failed to close a pooled connection", e);
+    } finally {
+      unreserve();
+    }
+  }
+
+  /** Evicts the unhealthy idle connections and opens new ones up to minIdle. */
+  private void housekeep() {
+    for (IdleConnection entry : idle) {
+      if (!isHealthy(entry) && idle.remove(entry)) {
+        discard(entry.connection);
+      }
+    }
+    while (!closed && idle.size() < minIdle && tryReserve()) {
+      try {
+        idle.offerLast(new IdleConnection(open()));
+      } catch (SQLException e) {
+        unreserve();
+        LOG.warn("Failed to open an idle connection for the pool", e);
+        return;
+      }
+    }
+  }
+
+  private Connection wrap(KyuubiConnection connection) {
+    PooledConnectionHandler handler = new PooledConnectionHandler(connection);
+    handler.pooled = (Connection) newProxy(Connection.class, handler);
+    return handler.pooled;
+  }
+
+  private static Object newProxy(Class<?> iface, InvocationHandler handler) {
+    return Proxy.newProxyInstance(
+        KyuubiConnectionPool.class.getClassLoader(), new Class[] {iface}, handler);
+  }
+
+  /** Unwraps a proxy to itself only, the object behind it must not escape the pool's control. */
+  private static Object unwrap(Object proxy, Object[] args) throws SQLException {
+    Class<?> iface = (Class<?>) args[0];
+    if (iface.isInstance(proxy)) {
+      return proxy;
+    }
+    throw new SQLException("Cannot unwrap a pooled connection object to " + iface.getName());
+  }
+
+  /** @return "set" or "use" if the statement changes the session state, otherwise null */
+  private static String sessionCommand(String sql) {
+    String trimmed = sql.trim().toLowerCase(Locale.ROOT);
+    if (trimmed.startsWith("set ") || trimmed.startsWith("set\t")) {
+      return "set";
+    }
+    if (trimmed.startsWith("use ") || trimmed.startsWith("use\t")) {
+      return "use";
+    }
+    return null;
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+
+  private class PooledConnectionHandler implements InvocationHandler {
+    private final KyuubiConnection connection;
+    // the raw statements created through this handler and not closed yet
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private Connection pooled;
+    private boolean isClosed = false;
+    private boolean sessionDirty = false;
+    private boolean schemaChanged = false;
+
+    PooledConnectionHandler(KyuubiConnection connection) {
+      this.connection = connection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!isClosed) {
+            isClosed = true;
+            closeStatements();
+            release(connection, sessionDirty, schemaChanged);
+          }
+          return null;
+        case "isClosed":
+          return isClosed || connection.isClosed();
+        case "unwrap":
+          return unwrap(proxy, args);
+        case "isWrapperFor":
+          return ((Class<?>) args[0]).isInstance(proxy);
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Pooled" + connection;
+        default:
+          break;
+      }
+      if (isClosed) {
+        throw new SQLException("Connection is closed");
+      }
+      switch (method.getName()) {
+        case "setSchema":
+          schemaChanged = true;
+          break;
+        case "prepareStatement":
+        case "prepareCall":
+          onStatement((String) args[0]);
+          break;
+        default:
+          break;
+      }
+      Object result = KyuubiConnectionPool.invoke(connection, method, args);
+      if (result instanceof Statement) {
+        statements.add((Statement) result);
+        // Statement, PreparedStatement or CallableStatement, as declared by the factory method
+        return newProxy(method.getReturnType(), new DelegateHandler(result, null));
+      }
+      if (result instanceof DatabaseMetaData) {
+        return newProxy(DatabaseMetaData.class, new DelegateHandler(result, null));
+      }
+      return result;
+    }
+
+    private void onStatement(String sql) {
+      String command = sessionCommand(sql);
+      if ("set".equals(command)) {
+        sessionDirty = true;
+      } else if ("use".equals(command)) {
+        schemaChanged = true;
+      }
+    }
+
+    private void closeStatements() {
+      for (Statement statement : statements) {
+        try {
+          statement.close();
+        } catch (SQLException e) {
+          LOG.debug("Failed to close a statement left open on a pooled connection", e);
+        }
+      }
+      statements.clear();
+    }
+
+    /**
+     * Proxies a statement, result set or metadata object of a pooled connection, so that the raw
+     * connection and statements do not leak through {@code getConnection}, {@code getStatement} or
+     * {@code unwrap}.
+     */
+    private class DelegateHandler implements InvocationHandler {
+      private final Object target;
+      // the proxied statement a result set belongs to, null for the other objects
+      private final Statement statement;
+
+      DelegateHandler(Object target, Statement statement) {
+        this.target = target;
+        this.statement = statement;
+      }
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+          case "getConnection":
+            return pooled;
+          case "getStatement":
+            return statement;
+          case "unwrap":
+            return unwrap(proxy, args);
+          case "isWrapperFor":
+            return ((Class<?>) args[0]).isInstance(proxy);
+          case "equals":
+            return proxy == args[0];
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "close":
+            statements.remove(target);
+            break;
+          default:
+            break;
+        }
+        if (target instanceof Statement
+            && (method.getName().startsWith("execute") || "addBatch".equals(method.getName()))
+            && args != null
+            && args.length > 0
+            && args[0] instanceof String) {
+          onStatement((String) args[0]);
+        }
+        Object result = KyuubiConnectionPool.invoke(target, method, args);
+        if (result instanceof ResultSet) {
+          Statement owner = target instanceof Statement ? (Statement) proxy : statement;
+          return newProxy(ResultSet.class, new DelegateHandler(result, owner));
+        }
+        return result;
+      }
+    }
+  }
+
+  private static class IdleConnection {
+    private final KyuubiConnection connection;
+    private final long idleSince = System.currentTimeMillis();
+
+    IdleConnection(KyuubiConnection connection) {
+      this.connection = connection;
+    }
+  }
+}
@@ -21,17 +21,112 @@ import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
 import java.util.logging.Logger;
 import javax.sql.DataSource;
+import org.apache.kyuubi.jdbc.hive.Utils.JdbcConnectionParams;
 
-/** KyuubiDataSource. */
-public class KyuubiDataSource implements DataSource {
+/**
+ * KyuubiDataSource.
+ *
+ * <p>By default every {@link #getConnection()} opens a new connection and session. With a positive
+ * maxIdle, connections closed by the application are kept open in a pool and reused by subsequent
+ * {@link #getConnection()} calls, see {@link KyuubiConnectionPool}.
+ */
+public class KyuubiDataSource implements DataSource, AutoCloseable {
+
+  private String url = "";
+  private Properties info = new Properties();
+  private int minIdle = 0;
+  private int maxIdle = 0;
+  private int maxTotal = 0;
+  private long maxWaitMs = 30000L;
+  private int validationTimeout = 5;
+  private long validationIntervalMs = 30000L;
+  private KyuubiConnectionPool pool = null;
 
   /** */
   public KyuubiDataSource() {
     // TODO Auto-generated constructor stub
   }
 
+  public KyuubiDataSource(String url, Properties info) {
+    this.url = url;
+    this.info = info;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public void setUrl(String url) {
+    this.url = url;
+  }
+
+  public Properties getProperties() {
+    return info;
+  }
+
+  public void setProperties(Properties info) {
+    this.info = info;
+  }
+
+  public int getMinIdle() {
+    return minIdle;
+  }
+
+  /** Sets the number of idle connections the pool keeps open in advance, bounded by maxIdle. */
+  public void setMinIdle(int minIdle) {
+    this.minIdle = minIdle;
+  }
+
+  public int getMaxIdle() {
+    return maxIdle;
+  }
+
+  /** Sets the maximum number of idle connections kept for reuse, 0 disables pooling. */
+  public void setMaxIdle(int maxIdle) {
+    this.maxIdle = maxIdle;
+  }
+
+  public int getMaxTotal() {
+    return maxTotal;
+  }
+
+  /** Sets the maximum number of open pooled connections, idle or borrowed, 0 means no limit. */
+  public void setMaxTotal(int maxTotal) {
+    this.maxTotal = maxTotal;
+  }
+
+  public long getMaxWaitMs() {
+    return maxWaitMs;
+  }
+
+  /** Sets how long a borrower waits for a pooled connection once maxTotal is reached. */
+  public void setMaxWaitMs(long maxWaitMs) {
+    this.maxWaitMs = maxWaitMs;
+  }
+
+  public int getValidationTimeout() {
+    return validationTimeout;
+  }
+
+  /**
+   * Sets the timeout in seconds of the {@link Connection#isValid(int)} check of idle connections.
+   */
+  public void setValidationTimeout(int validationTimeout) {
+    this.validationTimeout = validationTimeout;
+  }
+
+  public long getValidationIntervalMs() {
+    return validationIntervalMs;
+  }
+
+  /** Sets how long a connection may stay idle before it is validated again on reuse. */
+  public void setValidationIntervalMs(long validationIntervalMs) {
+    this.validationIntervalMs = validationIntervalMs;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -40,7 +135,10 @@ public class KyuubiDataSource implements DataSource {
 
   @Override
   public Connection getConnection() throws SQLException {
-    return getConnection("", "");
+    if (maxIdle > 0) {
+      return getPool().borrow();
+    }
+    return openConnection(info);
   }
 
   /*
@@ -49,15 +147,53 @@ public class KyuubiDataSource implements DataSource {
    * @see javax.sql.DataSource#getConnection(java.lang.String, java.lang.String)
    */
 
+  /** Opens a dedicated connection for the given user, which is never pooled. */
   @Override
   public Connection getConnection(String username, String password) throws SQLException {
+    Properties props = new Properties();
+    props.putAll(info);
+    if (username != null) {
+      props.setProperty(JdbcConnectionParams.AUTH_USER, username);
+    }
+    if (password != null) {
+      props.setProperty(JdbcConnectionParams.AUTH_PASSWD, password);
+    }
+    return openConnection(props);
+  }
+
+  private Connection openConnection(Properties props) throws SQLException {
     try {
-      return new KyuubiConnection("", null);
+      return new KyuubiConnection(url, props);
     } catch (Exception ex) {
       throw new SQLException("Error in getting HiveConnection", ex);
     }
   }
 
+  private synchronized KyuubiConnectionPool getPool() {
+    if (pool == null) {
+      pool =
+          new KyuubiConnectionPool(
+              url,
+              info,
+              minIdle,
+              maxIdle,
+              maxTotal,
+              maxWaitMs,
+              validationTimeout,
+              validationIntervalMs);
+    }
+    return pool;
+  }
+
+  /** Closes the idle connections of the pool, borrowed connections are closed on return. */
+  @Override
+  public synchronized void close() {
+    if (pool != null) {
+      pool.close();
+      pool = null;
+    }
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -22,6 +22,7 @@ import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.Array;
+import java.sql.BatchUpdateException;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Date;
@@ -40,6 +41,7 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
@@ -49,18 +51,26 @@ import org.apache.hive.service.rpc.thrift.TSessionHandle;
 
 /** KyuubiPreparedStatement. */
 public class KyuubiPreparedStatement extends KyuubiStatement implements PreparedStatement {
-  private final String sql;
+  private final KyuubiSqlTemplate template;
+  // reused to render the statement of every execution
+  private final StringBuilder sqlBuilder = new StringBuilder();
 
   /** save the SQL parameters {paramLoc:paramValue} */
   private final HashMap<Integer, String> parameters = new HashMap<Integer, String>();
 
+  /** the parameter sets added by {@link #addBatch()} */
+  private final List<HashMap<Integer, String>> batch = new ArrayList<HashMap<Integer, String>>();
+
+  private final int batchInsertRows;
+
   public KyuubiPreparedStatement(
       KyuubiConnection connection,
       TCLIService.Iface client,
       TSessionHandle sessHandle,
       String sql) {
     super(connection, client, sessHandle);
-    this.sql = sql;
+    this.template = KyuubiSqlTemplate.of(sql);
+    this.batchInsertRows = Math.max(1, connection.getBatchInsertRows());
   }
 
   /*
@@ -70,8 +80,68 @@ public class KyuubiPreparedStatement extends KyuubiStatement implements Prepared
    */
 
   public void addBatch() throws SQLException {
-    // TODO Auto-generated method stub
-    throw new SQLFeatureNotSupportedException("Method not supported");
+    batch.add(new HashMap<Integer, String>(parameters));
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see java.sql.Statement#clearBatch()
+   */
+
+  @Override
+  public void clearBatch() throws SQLException {
+    batch.clear();
+  }
+
+  /**
+   * Executes the parameter sets added by {@link #addBatch()}. An {@code INSERT ... VALUES (...)}
+   * statement is sent as multi-row {@code INSERT ... VALUES (...), (...)} statements of up to
+   * batchInsertRows rows each, any other statement is executed once per parameter set.
+   *
+   * @return {@link java.sql.Statement#SUCCESS_NO_INFO} for every parameter set, as the server does
+   *     not report update counts
+   * @throws BatchUpdateException carrying the update counts of the parameter sets that had been
+   *     executed before the failure
+   */
+  @Override
+  public int[] executeBatch() throws SQLException {
+    List<HashMap<Integer, String>> rows = new ArrayList<HashMap<Integer, String>>(batch);
+    batch.clear();
+    int[] updateCounts = new int[rows.size()];
+    int executed = 0;
+    try {
+      KyuubiSqlTemplate values = template.getValuesTuple();
+      while (executed < rows.size()) {
+        int end = executed + 1;
+        String batchSql;
+        if (values == null) {
+          batchSql = updateSql(rows.get(executed));
+        } else {
+          end = Math.min(rows.size(), executed + batchInsertRows);
+          sqlBuilder.setLength(0);
+          sqlBuilder.append(template.getValuesPrefix());
+          for (int i = executed; i < end; i++) {
+            if (i > executed) {
+              sqlBuilder.append(", ");
+            }
+            values.render(sqlBuilder, rows.get(i));
+          }
+          batchSql = sqlBuilder.append(template.getValuesSuffix()).toString();
+        }
+        super.executeUpdate(batchSql);
+        Arrays.fill(updateCounts, executed, end, SUCCESS_NO_INFO);
+        executed = end;
+      }
+    } catch (SQLException e) {
+      throw new BatchUpdateException(
+          e.getMessage(),
+          e.getSQLState(),
+          e.getErrorCode(),
+          Arrays.copyOf(updateCounts, executed),
+          e);
+    }
+    return updateCounts;
   }
 
   /*
@@ -92,7 +162,7 @@ public class KyuubiPreparedStatement extends KyuubiStatement implements Prepared
    * @throws SQLException
    */
   public boolean execute() throws SQLException {
-    return super.execute(updateSql(sql, parameters));
+    return super.execute(updateSql(parameters));
   }
 
   /**
@@ -102,7 +172,7 @@ public class KyuubiPreparedStatement extends KyuubiStatement implements Prepared
    * @throws SQLException
    */
   public ResultSet executeQuery() throws SQLException {
-    return super.executeQuery(updateSql(sql, parameters));
+    return super.executeQuery(updateSql(parameters));
   }
 
   /*
@@ -112,74 +182,21 @@ public class KyuubiPreparedStatement extends KyuubiStatement implements Prepared
    */
 
   public int executeUpdate() throws SQLException {
-    super.executeUpdate(updateSql(sql, parameters));
+    super.executeUpdate(updateSql(parameters));
     return 0;
   }
 
   /**
    * update the SQL string with parameters set by setXXX methods of {@link PreparedStatement}
    *
-   * @param sql
    * @param parameters
    * @return updated SQL string
    * @throws SQLException
    */
-  private String updateSql(final String sql, HashMap<Integer, String> parameters)
-      throws SQLException {
-    List<String> parts = splitSqlStatement(sql);
-
-    StringBuilder newSql = new StringBuilder(parts.get(0));
-    for (int i = 1; i < parts.size(); i++) {
-      if (!parameters.containsKey(i)) {
-        throw new SQLException("Parameter #" + i + " is unset");
-      }
-      newSql.append(parameters.get(i));
-      newSql.append(parts.get(i));
-    }
-    return newSql.toString();
-  }
-
-  /**
-   * Splits the parametered sql statement at parameter boundaries.
-   *
-   * <p>taking into account ' and \ escaping.
-   *
-   * <p>output for: 'select 1 from ? where a = ?' ['select 1 from ',' where a = ','']
-   *
-   * @param sql
-   * @return
-   */
-  private List<String> splitSqlStatement(String sql) {
-    List<String> parts = new ArrayList<>();
-    int apCount = 0;
-    int off = 0;
-    boolean skip = false;
-
-    for (int i = 0; i < sql.length(); i++) {
-      char c = sql.charAt(i);
-      if (skip) {
-        skip = false;
-        continue;
-      }
-      switch (c) {
-        case '\'':
-          apCount++;
-          break;
-        case '\\':
-          skip = true;
-          break;
-        case '?':
-          if ((apCount & 1) == 0) {
-            parts.add(sql.substring(off, i));
-            off = i + 1;
-          }
-          break;
-        default:
-          break;
-      }
-    }
-    parts.add(sql.substring(off, sql.length()));
-    return parts;
+  private String updateSql(HashMap<Integer, String> parameters) throws SQLException {
+    sqlBuilder.setLength(0);
+    template.render(sqlBuilder, parameters);
+    return sqlBuilder.toString();
   }
 
   /*
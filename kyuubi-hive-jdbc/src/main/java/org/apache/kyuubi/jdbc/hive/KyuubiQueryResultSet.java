@@ -31,7 +31,6 @@ import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
 import org.apache.hive.service.cli.RowSet;
-import org.apache.hive.service.cli.RowSetFactory;
 import org.apache.hive.service.cli.TableSchema;
 import org.apache.hive.service.rpc.thrift.TCLIService;
 import org.apache.hive.service.rpc.thrift.TCLIServiceConstants;
@@ -64,14 +63,19 @@ public class KyuubiQueryResultSet extends KyuubiBaseResultSet {
   private TSessionHandle sessHandle;
   private int maxRows;
   private int fetchSize;
+  private int prefetchBatches;
+  private KyuubiAdaptiveFetchSize adaptiveFetchSize = null;
   private int rowsFetched = 0;
 
   private RowSet fetchedRows;
   private Iterator<Object[]> fetchedRowsItr;
+  // cursor within fetchedRows when it is a columnar batch, which is read in place
+  private int fetchedRowIndex = -1;
   private boolean isClosed = false;
   private boolean emptyResultSet = false;
   private boolean isScrollable = false;
   private boolean fetchFirst = false;
+  private volatile KyuubiRowSetPrefetcher prefetcher = null;
 
   private final TProtocolVersion protocol;
 
@@ -95,6 +99,9 @@ public class KyuubiQueryResultSet extends KyuubiBaseResultSet {
     private List<String> colTypes;
     private List<JdbcColumnAttributes> colAttributes;
     private int fetchSize = 50;
+    private int prefetchBatches = 0;
+    private long adaptiveFetchTargetBytes = 0;
+    private long adaptiveFetchTargetLatencyMs = 0;
     private boolean emptyResultSet = false;
     private boolean isScrollable = false;
     private ReentrantLock transportLock = null;
@@ -155,6 +162,26 @@ public class KyuubiQueryResultSet extends KyuubiBaseResultSet {
       return this;
     }
 
+    /**
+     * Sets the number of fetched batches that may be buffered ahead of the consumer by a background
+     * fetcher. 0 disables prefetching, and every batch is fetched on demand.
+     */
+    public Builder setPrefetchBatches(int prefetchBatches) {
+      this.prefetchBatches = prefetchBatches;
+      return this;
+    }
+
+    /**
+     * Enables adapting the row count of each fetch request, starting from the fetch size, so that a
+     * batch approaches the given payload size and round trip time. A non-positive target size keeps
+     * the fetch size fixed.
+     */
+    public Builder setAdaptiveFetchSize(long targetBytes, long targetLatencyMs) {
+      this.adaptiveFetchTargetBytes = targetBytes;
+      this.adaptiveFetchTargetLatencyMs = targetLatencyMs;
+      return this;
+    }
+
     public Builder setEmptyResultSet(boolean emptyResultSet) {
       this.emptyResultSet = emptyResultSet;
       return this;
@@ -185,6 +212,12 @@ public class KyuubiQueryResultSet extends KyuubiBaseResultSet {
     this.stmtHandle = builder.stmtHandle;
     this.sessHandle = builder.sessHandle;
     this.fetchSize = builder.fetchSize;
+    this.prefetchBatches = builder.prefetchBatches;
+    if (builder.adaptiveFetchTargetBytes > 0) {
+      this.adaptiveFetchSize =
+          new KyuubiAdaptiveFetchSize(
+              fetchSize, builder.adaptiveFetchTargetBytes, builder.adaptiveFetchTargetLatencyMs);
+    }
     columnNames = new ArrayList<String>();
     normalizedColumnNames = new ArrayList<String>();
     columnTypes = new ArrayList<String>();
@@ -300,6 +333,7 @@ public class KyuubiQueryResultSet extends KyuubiBaseResultSet {
 
   @Override
   public void close() throws SQLException {
+    stopPrefetching();
     if (this.statement != null && (this.statement instanceof KyuubiStatement)) {
       KyuubiStatement s = (KyuubiStatement) this.statement;
       s.closeClientOperation();
@@ -315,6 +349,23 @@ public class KyuubiQueryResultSet extends KyuubiBaseResultSet {
     isClosed = true;
   }
 
+  /**
+   * Stops the background fetcher, if any, and discards its buffered batches. Called once the
+   * underlying operation is closed, later fetches go to the server directly.
+   */
+  void stopPrefetching() {
+    prefetchBatches = 0;
+    closePrefetcher();
+  }
+
+  private void closePrefetcher() {
+    KyuubiRowSetPrefetcher activePrefetcher = prefetcher;
+    if (activePrefetcher != null) {
+      activePrefetcher.close();
+      prefetcher = null;
+    }
+  }
+
   private void closeOperationHandle(TOperationHandle stmtHandle) throws SQLException {
     try {
       if (stmtHandle != null) {
@@ -359,24 +410,61 @@ public class KyuubiQueryResultSet extends KyuubiBaseResultSet {
         orientation = TFetchOrientation.FETCH_FIRST;
         fetchedRows = null;
         fetchedRowsItr = null;
+        fetchedRowIndex = -1;
         fetchFirst = false;
+        closePrefetcher();
       }
-      if (fetchedRows == null || !fetchedRowsItr.hasNext()) {
-        TFetchResultsReq fetchReq = new TFetchResultsReq(stmtHandle, orientation, fetchSize);
-        TFetchResultsResp fetchResp;
-        fetchResp = client.FetchResults(fetchReq);
-        Utils.verifySuccessWithInfo(fetchResp.getStatus());
-
-        TRowSet results = fetchResp.getResults();
-        fetchedRows = RowSetFactory.create(results, protocol);
-        fetchedRowsItr = fetchedRows.iterator();
+      if (fetchedRows == null || !hasNextFetchedRow()) {
+        if (prefetchBatches > 0) {
+          KyuubiRowSetPrefetcher activePrefetcher = prefetcher;
+          if (activePrefetcher == null) {
+            activePrefetcher =
+                new KyuubiRowSetPrefetcher(
+                    client,
+                    stmtHandle,
+                    protocol,
+                    fetchSize,
+                    adaptiveFetchSize,
+                    orientation,
+                    prefetchBatches);
+            prefetcher = activePrefetcher;
+          }
+          fetchedRows = activePrefetcher.take();
+        } else {
+          int rows = adaptiveFetchSize == null ? fetchSize : adaptiveFetchSize.nextFetchSize();
+          TFetchResultsReq fetchReq = new TFetchResultsReq(stmtHandle, orientation, rows);
+          TFetchResultsResp fetchResp;
+          long startTime = System.nanoTime();
+          fetchResp = client.FetchResults(fetchReq);
+          long elapsedNanos = System.nanoTime() - startTime;
+          Utils.verifySuccessWithInfo(fetchResp.getStatus());
+
+          TRowSet results = fetchResp.getResults();
+          fetchedRows = KyuubiColumnarBatch.create(results, protocol);
+          if (adaptiveFetchSize != null) {
+            adaptiveFetchSize.onFetched(results, fetchedRows.numRows(), elapsedNanos);
+          }
+        }
+        if (fetchedRows instanceof KyuubiColumnarBatch) {
+          fetchedRowsItr = null;
+          fetchedRowIndex = -1;
+        } else {
+          fetchedRowsItr = fetchedRows.iterator();
+        }
       }
 
-      if (fetchedRowsItr.hasNext()) {
-        row = fetchedRowsItr.next();
-      } else {
+      if (!hasNextFetchedRow()) {
         return false;
       }
+      if (fetchedRowsItr == null) {
+        fetchedRowIndex++;
+        row = null;
+        columnarBatch = (KyuubiColumnarBatch) fetchedRows;
+        columnarRowIndex = fetchedRowIndex;
+      } else {
+        row = fetchedRowsItr.next();
+        columnarBatch = null;
+      }
 
       rowsFetched++;
     } catch (SQLException eS) {
@@ -389,6 +477,13 @@ public class KyuubiQueryResultSet extends KyuubiBaseResultSet {
     return true;
   }
 
+  private boolean hasNextFetchedRow() {
+    if (fetchedRowsItr == null) {
+      return fetchedRowIndex + 1 < fetchedRows.numRows();
+    }
+    return fetchedRowsItr.hasNext();
+  }
+
   @Override
   public ResultSetMetaData getMetaData() throws SQLException {
     if (isClosed) {
@@ -403,6 +498,9 @@ public class KyuubiQueryResultSet extends KyuubiBaseResultSet {
       throw new SQLException("Resultset is closed");
     }
     fetchSize = rows;
+    if (adaptiveFetchSize != null) {
+      adaptiveFetchSize.reset(rows);
+    }
   }
 
   @Override
@@ -466,6 +564,26 @@ public class KyuubiQueryResultSet extends KyuubiBaseResultSet {
     return rowsFetched;
   }
 
+  /**
+   * Besides the result set itself, unwraps the {@link KyuubiColumnarBatch} that holds the current
+   * row, when the server sent column-based results, to read whole column vectors at once.
+   */
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    if (columnarBatch != null && iface.isInstance(columnarBatch)) {
+      return iface.cast(columnarBatch);
+    }
+    throw new SQLException("Cannot unwrap to " + iface.getName());
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || (columnarBatch != null && iface.isInstance(columnarBatch));
+  }
+
   @Override
   public boolean isClosed() {
     return isClosed;
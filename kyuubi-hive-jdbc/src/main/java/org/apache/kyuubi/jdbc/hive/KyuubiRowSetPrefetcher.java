@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.apache.hive.service.cli.RowSet;
+import org.apache.hive.service.rpc.thrift.TCLIService;
+import org.apache.hive.service.rpc.thrift.TFetchOrientation;
+import org.apache.hive.service.rpc.thrift.TFetchResultsReq;
+import org.apache.hive.service.rpc.thrift.TFetchResultsResp;
+import org.apache.hive.service.rpc.thrift.TOperationHandle;
+import org.apache.hive.service.rpc.thrift.TProtocolVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps up to a bounded number of FetchResults batches in flight on a background thread, so the
+ * next batch is transferred while the application is still consuming the current one. The fetcher
+ * stops after the first empty batch or the first failure, which is handed over to the consumer.
+ */
+class KyuubiRowSetPrefetcher {
+
+  public static final Logger LOG = LoggerFactory.getLogger(KyuubiRowSetPrefetcher.class);
+
+  private static final Batch CLOSED = new Batch(null, null);
+
+  private final TCLIService.Iface client;
+  private final TOperationHandle stmtHandle;
+  private final TProtocolVersion protocol;
+  private final int fetchSize;
+  private final KyuubiAdaptiveFetchSize adaptiveFetchSize;
+  private final BlockingQueue<Batch> buffer;
+  private final Thread fetcher;
+
+  private volatile boolean isClosed = false;
+  private RowSet lastRowSet = null;
+  private SQLException failure = null;
+  private boolean exhausted = false;
+
+  KyuubiRowSetPrefetcher(
+      TCLIService.Iface client,
+      TOperationHandle stmtHandle,
+      TProtocolVersion protocol,
+      int fetchSize,
+      KyuubiAdaptiveFetchSize adaptiveFetchSize,
+      TFetchOrientation orientation,
+      int maxBufferedBatches) {
+    this.client = client;
+    this.stmtHandle = stmtHandle;
+    this.protocol = protocol;
+    this.fetchSize = fetchSize;
+    this.adaptiveFetchSize = adaptiveFetchSize;
+    this.buffer = new ArrayBlockingQueue<Batch>(Math.max(1, maxBufferedBatches));
+    this.fetcher = new Thread(() -> fetchLoop(orientation), "kyuubi-result-prefetcher");
+    this.fetcher.setDaemon(true);
+    this.fetcher.start();
+  }
+
+  private void fetchLoop(TFetchOrientation orientation) {
+    TFetchOrientation nextOrientation = orientation;
+    try {
+      while (!isClosed) {
+        int rows = adaptiveFetchSize == null ? fetchSize : adaptiveFetchSize.nextFetchSize();
+        TFetchResultsReq fetchReq = new TFetchResultsReq(stmtHandle, nextOrientation, rows);
+        nextOrientation = TFetchOrientation.FETCH_NEXT;
+        long startTime = System.nanoTime();
+        TFetchResultsResp fetchResp = client.FetchResults(fetchReq);
+        long elapsedNanos = System.nanoTime() - startTime;
+        Utils.verifySuccessWithInfo(fetchResp.getStatus());
+        RowSet rowSet = KyuubiColumnarBatch.create(fetchResp.getResults(), protocol);
+        if (adaptiveFetchSize != null) {
+          adaptiveFetchSize.onFetched(fetchResp.getResults(), rowSet.numRows(), elapsedNanos);
+        }
+        buffer.put(new Batch(rowSet, null));
+        if (rowSet.numRows() == 0) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // closed by the consumer, the buffered batches are discarded
+    } catch (Exception e) {
+      if (isClosed) {
+        LOG.debug("Ignore prefetch failure after the result set was closed", e);
+        return;
+      }
+      try {
+        buffer.put(new Batch(null, e));
+      } catch (InterruptedException ie) {
+        // closed by the consumer while handing over the failure
+      }
+    }
+  }
+
+  /**
+   * Takes the next prefetched batch, blocking until it has arrived. Once the results are exhausted
+   * the last (empty) batch is returned for every subsequent call, and a fetch failure is rethrown.
+   */
+  RowSet take() throws SQLException {
+    if (isClosed) {
+      throw new SQLException("Result prefetching has been stopped");
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    if (exhausted) {
+      return lastRowSet;
+    }
+    Batch batch;
+    try {
+      batch = buffer.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for the next batch of results", e);
+    }
+    if (batch == CLOSED) {
+      throw new SQLException("Result prefetching has been stopped");
+    }
+    if (batch.error != null) {
+      if (batch.error instanceof SQLException) {
+        failure = (SQLException) batch.error;
+      } else {
+        failure = new SQLException("Error retrieving next row", batch.error);
+      }
+      throw failure;
+    }
+    lastRowSet = batch.rowSet;
+    exhausted = lastRowSet.numRows() == 0;
+    return lastRowSet;
+  }
+
+  /** Stops the background fetcher and releases the buffered batches. */
+  void close() {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    fetcher.interrupt();
+    buffer.clear();
+    // wake up a consumer that is blocked in take() from another thread
+    buffer.offer(CLOSED);
+  }
+
+  private static class Batch {
+    private final RowSet rowSet;
+    private final Exception error;
+
+    Batch(RowSet rowSet, Exception error) {
+      this.rowSet = rowSet;
+      this.error = error;
+    }
+  }
+}
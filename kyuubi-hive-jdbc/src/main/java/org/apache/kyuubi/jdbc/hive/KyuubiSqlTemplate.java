@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A parametered sql statement split once into the literal segments around its {@code ?}
+ * placeholders. Templates are immutable and shared by all the prepared statements of the same sql
+ * through a bounded LRU cache, so repeated prepares and executions do not parse the sql again.
+ */
+class KyuubiSqlTemplate {
+
+  static final int MAX_CACHED_TEMPLATES = 256;
+
+  private static final Map<String, KyuubiSqlTemplate> CACHE =
+      new LinkedHashMap<String, KyuubiSqlTemplate>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, KyuubiSqlTemplate> eldest) {
+          return size() > MAX_CACHED_TEMPLATES;
+        }
+      };
+
+  // segments[0] ? segments[1] ? ... ? segments[n]
+  private final String[] segments;
+  private final int length;
+
+  // set when the sql is an INSERT ... VALUES (...) whose placeholders all sit in the tuple
+  private String valuesPrefix;
+  private KyuubiSqlTemplate valuesTuple;
+  private String valuesSuffix;
+
+  private KyuubiSqlTemplate(List<String> parts) {
+    this.segments = parts.toArray(new String[0]);
+    int len = 0;
+    for (String segment : segments) {
+      len += segment.length();
+    }
+    this.length = len;
+  }
+
+  /** @return the template of the sql, parsed at most once while it stays in the cache */
+  static KyuubiSqlTemplate of(String sql) {
+    synchronized (CACHE) {
+      KyuubiSqlTemplate template = CACHE.get(sql);
+      if (template != null) {
+        return template;
+      }
+    }
+    KyuubiSqlTemplate template = parse(sql);
+    synchronized (CACHE) {
+      CACHE.put(sql, template);
+    }
+    return template;
+  }
+
+  static KyuubiSqlTemplate parse(String sql) {
+    KyuubiSqlTemplate template = new KyuubiSqlTemplate(splitSqlStatement(sql));
+    template.parseValuesClause(sql);
+    return template;
+  }
+
+  /** @return the number of {@code ?} placeholders */
+  int numParameters() {
+    return segments.length - 1;
+  }
+
+  /**
+   * Appends the sql with its placeholders replaced by the parameters set by setXXX methods of
+   * {@link java.sql.PreparedStatement}.
+   *
+   * @param parameters the parameter values keyed by their 1-based position
+   * @throws SQLException if a parameter is unset
+   */
+  void render(StringBuilder sb, Map<Integer, String> parameters) throws SQLException {
+    sb.ensureCapacity(sb.length() + length + 16 * numParameters());
+    sb.append(segments[0]);
+    for (int i = 1; i < segments.length; i++) {
+      String value = parameters.get(i);
+      if (value == null) {
+        throw new SQLException("Parameter #" + i + " is unset");
+      }
+      sb.append(value);
+      sb.append(segments[i]);
+    }
+  }
+
+  /** @return the sql up to and including the VALUES keyword, null if not a batchable insert */
+  String getValuesPrefix() {
+    return valuesPrefix;
+  }
+
+  /** @return the template of the single VALUES tuple, null if not a batchable insert */
+  KyuubiSqlTemplate getValuesTuple() {
+    return valuesTuple;
+  }
+
+  /** @return the sql after the VALUES tuple, null if not a batchable insert */
+  String getValuesSuffix() {
+    return valuesSuffix;
+  }
+
+  /**
+   * Finds the {@code VALUES} tuple of an {@code INSERT ... VALUES (...)} statement whose parameters
+   * all appear in that single tuple, so that the tuple can be repeated once per batched parameter
+   * set.
+   */
+  private void parseValuesClause(String sql) {
+    if (!sql.trim().toLowerCase(Locale.ROOT).startsWith("insert")) {
+      return;
+    }
+    // find the last VALUES keyword outside of quotes, with the same escaping rules as
+    // splitSqlStatement
+    int valuesEnd = -1;
+    int apCount = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '\'') {
+        apCount++;
+      } else if ((apCount & 1) == 0
+          && sql.regionMatches(true, i, "values", 0, 6)
+          && (i == 0 || !Character.isLetterOrDigit(sql.charAt(i - 1)))
+          && (i + 6 == sql.length() || !Character.isLetterOrDigit(sql.charAt(i + 6)))) {
+        valuesEnd = i + 6;
+      }
+    }
+    if (valuesEnd < 0) {
+      return;
+    }
+    int start = valuesEnd;
+    while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+      start++;
+    }
+    if (start == sql.length() || sql.charAt(start) != '(') {
+      return;
+    }
+    // find the closing parenthesis of the tuple
+    int depth = 0;
+    int end = -1;
+    apCount = 0;
+    for (int i = start; i < sql.length() && end < 0; i++) {
+      char c = sql.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '\'') {
+        apCount++;
+      } else if ((apCount & 1) == 0 && c == '(') {
+        depth++;
+      } else if ((apCount & 1) == 0 && c == ')' && --depth == 0) {
+        end = i + 1;
+      }
+    }
+    if (end < 0 || !sql.substring(end).trim().isEmpty()) {
+      return;
+    }
+    String prefix = sql.substring(0, start);
+    if (prefix.indexOf('?') >= 0 && splitSqlStatement(prefix).size() > 1) {
+      return;
+    }
+    this.valuesPrefix = prefix;
+    this.valuesTuple = new KyuubiSqlTemplate(splitSqlStatement(sql.substring(start, end)));
+    this.valuesSuffix = sql.substring(end);
+  }
+
+  /**
+   * Splits the parametered sql statement at parameter boundaries.
+   *
+   * <p>taking into account ' and \ escaping.
+   *
+   * <p>output for: 'select 1 from ? where a = ?' ['select 1 from ',' where a = ','']
+   *
+   * @param sql
+   * @return
+   */
+  static List<String> splitSqlStatement(String sql) {
+    List<String> parts = new ArrayList<>();
+    int apCount = 0;
+    int off = 0;
+    boolean skip = false;
+
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (skip) {
+        skip = false;
+        continue;
+      }
+      switch (c) {
+        case '\'':
+          apCount++;
+          break;
+        case '\\':
+          skip = true;
+          break;
+        case '?':
+          if ((apCount & 1) == 0) {
+            parts.add(sql.substring(off, i));
+            off = i + 1;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    parts.add(sql.substring(off, sql.length()));
+    return parts;
+  }
+}
@@ -27,6 +27,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.hive.service.cli.RowSet;
 import org.apache.hive.service.cli.RowSetFactory;
@@ -54,6 +61,8 @@ import org.slf4j.LoggerFactory;
 public class KyuubiStatement implements java.sql.Statement, KyuubiLoggable {
   public static final Logger LOG = LoggerFactory.getLogger(KyuubiStatement.class.getName());
   public static final int DEFAULT_FETCH_SIZE = 1000;
+  static final long ASYNC_POLL_INITIAL_INTERVAL_MS = 10L;
+  static final long ASYNC_POLL_MAX_INTERVAL_MS = 1000L;
   private final KyuubiConnection connection;
   private TCLIService.Iface client;
   private TOperationHandle stmtHandle = null;
@@ -197,6 +206,9 @@ public class KyuubiStatement implements java.sql.Statement, KyuubiLoggable {
   }
 
   void closeClientOperation() throws SQLException {
+    if (resultSet instanceof KyuubiQueryResultSet) {
+      ((KyuubiQueryResultSet) resultSet).stopPrefetching();
+    }
     try {
       if (stmtHandle != null) {
         TCloseOperationReq closeReq = new TCloseOperationReq(stmtHandle);
@@ -259,6 +271,10 @@ public class KyuubiStatement implements java.sql.Statement, KyuubiLoggable {
             .setStmtHandle(stmtHandle)
             .setMaxRows(maxRows)
             .setFetchSize(fetchSize)
+            .setPrefetchBatches(connection.getPrefetchBatches())
+            .setAdaptiveFetchSize(
+                connection.getAdaptiveFetchTargetBytes(),
+                connection.getAdaptiveFetchTargetLatencyMs())
             .setScrollable(isScrollableResultset)
             .build();
     return true;
@@ -291,11 +307,154 @@ public class KyuubiStatement implements java.sql.Statement, KyuubiLoggable {
             .setStmtHandle(stmtHandle)
             .setMaxRows(maxRows)
             .setFetchSize(fetchSize)
+            .setPrefetchBatches(connection.getPrefetchBatches())
+            .setAdaptiveFetchSize(
+                connection.getAdaptiveFetchTargetBytes(),
+                connection.getAdaptiveFetchTargetLatencyMs())
             .setScrollable(isScrollableResultset)
             .build();
     return true;
   }
 
+  /**
+   * Starts the query execution on the server and returns a future of its result set, without
+   * blocking the calling thread. The operation status is polled on a scheduler shared by all
+   * statements, with a growing interval, instead of on a thread parked per query. Cancelling the
+   * future cancels the operation. The statement must not be used until the future is completed.
+   * Note: This method is an API for usage outside of Kyuubi, although it is not part of the
+   * interface java.sql.Statement.
+   *
+   * @param sql the query
+   * @return a future completed with the result set, or exceptionally with a SQLException
+   */
+  public CompletableFuture<ResultSet> executeQueryAsync(String sql) {
+    return executeOnServerAsync(
+        sql,
+        true,
+        hasResultSet -> {
+          if (!hasResultSet) {
+            throw new CompletionException(
+                new SQLException("The query did not generate a result set!"));
+          }
+          return resultSet;
+        });
+  }
+
+  /**
+   * Same as {@link #executeQueryAsync(String)}, for statements that do not return results.
+   *
+   * @param sql the statement
+   * @return a future completed with 0 as update count, or exceptionally with a SQLException
+   */
+  public CompletableFuture<Integer> executeUpdateAsync(String sql) {
+    return executeOnServerAsync(sql, false, hasResultSet -> 0);
+  }
+
+  /**
+   * @param withResultSet whether to build the result set of the operation if it has one
+   * @param onCompleted maps whether the operation has a result set to the result of the future
+   */
+  private <T> CompletableFuture<T> executeOnServerAsync(
+      String sql, boolean withResultSet, Function<Boolean, T> onCompleted) {
+    // completed with whether the operation has a result set
+    CompletableFuture<Boolean> execution = new CompletableFuture<Boolean>();
+    CompletableFuture<T> result = execution.thenApply(onCompleted);
+    try {
+      runAsyncOnServer(sql);
+    } catch (SQLException e) {
+      execution.completeExceptionally(e);
+      return result;
+    }
+    result.whenComplete(
+        (value, e) -> {
+          if (e instanceof CancellationException) {
+            execution.cancel(false);
+            try {
+              cancel();
+            } catch (SQLException ex) {
+              LOG.warn("Failed to cancel the operation of a cancelled future", ex);
+            }
+          }
+        });
+    scheduleStatusPoll(execution, stmtHandle, withResultSet, ASYNC_POLL_INITIAL_INTERVAL_MS);
+    return result;
+  }
+
+  private void scheduleStatusPoll(
+      CompletableFuture<Boolean> future,
+      TOperationHandle handle,
+      boolean withResultSet,
+      long intervalMs) {
+    AsyncStatusPoller.SCHEDULER.schedule(
+        () -> pollStatus(future, handle, withResultSet, intervalMs),
+        intervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private void pollStatus(
+      CompletableFuture<Boolean> future,
+      TOperationHandle handle,
+      boolean withResultSet,
+      long intervalMs) {
+    if (future.isDone()) {
+      return;
+    }
+    try {
+      TGetOperationStatusResp statusResp =
+          client.GetOperationStatus(new TGetOperationStatusReq(handle));
+      if (!isOperationComplete(statusResp)) {
+        scheduleStatusPoll(
+            future, handle, withResultSet, Math.min(intervalMs * 2, ASYNC_POLL_MAX_INTERVAL_MS));
+        return;
+      }
+      isOperationComplete = true;
+      isLogBeingGenerated = false;
+      boolean hasResultSet = statusResp.isHasResultSet() || handle.isHasResultSet();
+      if (!hasResultSet || !withResultSet) {
+        future.complete(hasResultSet);
+        return;
+      }
+      resultSet =
+          new KyuubiQueryResultSet.Builder(this)
+              .setClient(client)
+              .setSessionHandle(sessHandle)
+              .setStmtHandle(handle)
+              .setMaxRows(maxRows)
+              .setFetchSize(fetchSize)
+              .setPrefetchBatches(connection.getPrefetchBatches())
+              .setAdaptiveFetchSize(
+                  connection.getAdaptiveFetchTargetBytes(),
+                  connection.getAdaptiveFetchTargetLatencyMs())
+              .setScrollable(isScrollableResultset)
+              .build();
+      future.complete(true);
+    } catch (SQLException e) {
+      isLogBeingGenerated = false;
+      future.completeExceptionally(e);
+    } catch (Exception e) {
+      isLogBeingGenerated = false;
+      future.completeExceptionally(new SQLException(e.toString(), "08S01", e));
+    }
+  }
+
+  /** Polls the status of the asynchronous statements of all connections. */
+  private static class AsyncStatusPoller {
+    private static final ScheduledExecutorService SCHEDULER = newScheduler();
+
+    private static ScheduledExecutorService newScheduler() {
+      ScheduledThreadPoolExecutor scheduler =
+          new ScheduledThreadPoolExecutor(
+              Math.max(2, Runtime.getRuntime().availableProcessors()),
+              runnable -> {
+                Thread thread = new Thread(runnable, "kyuubi-async-status-poller");
+                thread.setDaemon(true);
+                return thread;
+              });
+      scheduler.setRemoveOnCancelPolicy(true);
+      return scheduler;
+    }
+  }
+
   private void runAsyncOnServer(String sql) throws SQLException {
     checkConnection("execute");
 
@@ -368,32 +527,9 @@ public class KyuubiStatement implements java.sql.Statement, KyuubiLoggable {
          */
         statusResp = client.GetOperationStatus(statusReq);
         inPlaceUpdateStream.update(statusResp.getProgressUpdateResponse());
-        Utils.verifySuccessWithInfo(statusResp.getStatus());
-        if (statusResp.isSetOperationState()) {
-          switch (statusResp.getOperationState()) {
-            case CLOSED_STATE:
-            case FINISHED_STATE:
-              isOperationComplete = true;
-              isLogBeingGenerated = false;
-              break;
-            case CANCELED_STATE:
-              // 01000 -> warning
-              throw new SQLException("Query was cancelled", "01000");
-            case TIMEDOUT_STATE:
-              throw new SQLTimeoutException("Query timed out after " + queryTimeout + " seconds");
-            case ERROR_STATE:
-              // Get the error details from the underlying exception
-              throw new SQLException(
-                  statusResp.getErrorMessage(),
-                  statusResp.getSqlState(),
-                  statusResp.getErrorCode());
-            case UKNOWN_STATE:
-              throw new SQLException("Unknown query", "HY000");
-            case INITIALIZED_STATE:
-            case PENDING_STATE:
-            case RUNNING_STATE:
-              break;
-          }
+        if (isOperationComplete(statusResp)) {
+          isOperationComplete = true;
+          isLogBeingGenerated = false;
         }
       } catch (SQLException e) {
         isLogBeingGenerated = false;
@@ -411,6 +547,37 @@ public class KyuubiStatement implements java.sql.Statement, KyuubiLoggable {
     return statusResp;
   }
 
+  /**
+   * @return true if the operation has completed successfully, false if it is still running
+   * @throws SQLException if the operation has failed, been cancelled or timed out
+   */
+  private boolean isOperationComplete(TGetOperationStatusResp statusResp) throws SQLException {
+    Utils.verifySuccessWithInfo(statusResp.getStatus());
+    if (statusResp.isSetOperationState()) {
+      switch (statusResp.getOperationState()) {
+        case CLOSED_STATE:
+        case FINISHED_STATE:
+          return true;
+        case CANCELED_STATE:
+          // 01000 -> warning
+          throw new SQLException("Query was cancelled", "01000");
+        case TIMEDOUT_STATE:
+          throw new SQLTimeoutException("Query timed out after " + queryTimeout + " seconds");
+        case ERROR_STATE:
+          // Get the error details from the underlying exception
+          throw new SQLException(
+              statusResp.getErrorMessage(), statusResp.getSqlState(), statusResp.getErrorCode());
+        case UKNOWN_STATE:
+          throw new SQLException("Unknown query", "HY000");
+        case INITIALIZED_STATE:
+        case PENDING_STATE:
+        case RUNNING_STATE:
+          break;
+      }
+    }
+    return false;
+  }
+
   private void checkConnection(String action) throws SQLException {
     if (isClosed) {
       throw new SQLException("Can't " + action + " after statement has been closed");
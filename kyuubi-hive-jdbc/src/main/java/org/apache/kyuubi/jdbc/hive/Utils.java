@@ -113,7 +113,20 @@ public class Utils {
     static final String HTTP_HEADER_PREFIX = "http.header.";
     // Set the fetchSize
     static final String FETCH_SIZE = "fetchSize";
+    // Set the number of result batches fetched ahead in the background, 0 disables prefetching
+    static final String PREFETCH_BATCHES = "prefetchBatches";
+    // Adapt the fetch size of each request to the observed batch size and round trip time
+    static final String ADAPTIVE_FETCH_SIZE = "adaptiveFetchSize";
+    static final String ADAPTIVE_FETCH_TARGET_BYTES = "adaptiveFetchTargetBytes";
+    static final long DEFAULT_ADAPTIVE_FETCH_TARGET_BYTES = 4L * 1024 * 1024;
+    static final String ADAPTIVE_FETCH_TARGET_LATENCY_MS = "adaptiveFetchTargetLatencyMs";
+    static final long DEFAULT_ADAPTIVE_FETCH_TARGET_LATENCY_MS = 1000L;
     static final String INIT_FILE = "initFile";
+    // Set the number of transports sharing the session, calls are serialized when it is 1
+    static final String TRANSPORT_POOL_SIZE = "transportPoolSize";
+    // Set the maximum number of rows a batched INSERT ... VALUES statement is sent with
+    static final String BATCH_INSERT_ROWS = "batchInsertRows";
+    static final int DEFAULT_BATCH_INSERT_ROWS = 1000;
 
     // --------------- Begin 2 way ssl options -------------------------
     // Use two way ssl. This param will take effect only when ssl=true
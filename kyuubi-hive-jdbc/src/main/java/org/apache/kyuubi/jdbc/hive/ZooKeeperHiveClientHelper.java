@@ -17,14 +17,12 @@
 
 package org.apache.kyuubi.jdbc.hive;
 
-import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import org.apache.curator.framework.CuratorFramework;
-import org.apache.curator.framework.CuratorFrameworkFactory;
-import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.Watcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +31,9 @@ class ZooKeeperHiveClientHelper {
   static final Logger LOG = LoggerFactory.getLogger(ZooKeeperHiveClientHelper.class.getName());
   // Pattern for key1=value1;key2=value2
   private static final Pattern kvPattern = Pattern.compile("([^=;]*)=([^;]*)[;]?");
+  // The load a Kyuubi server publishes into its znode data
+  static final String LOAD_OPEN_SESSIONS = "kyuubi.server.load.open.sessions";
+  static final String LOAD_EXEC_POOL_ACTIVE = "kyuubi.server.load.exec.pool.active";
   /** A no-op watcher class */
   static class DummyWatcher implements Watcher {
     @Override
@@ -50,30 +51,31 @@ class ZooKeeperHiveClientHelper {
     List<String> serverHosts;
     Random randomizer = new Random();
     String serverNode;
-    CuratorFramework zooKeeperClient =
-        CuratorFrameworkFactory.builder()
-            .connectString(zooKeeperEnsemble)
-            .retryPolicy(new ExponentialBackoffRetry(1000, 3))
-            .build();
+    ZooKeeperServiceDiscoveryCache cache =
+        ZooKeeperServiceDiscoveryCache.get(zooKeeperEnsemble, zooKeeperNamespace);
     try {
-      zooKeeperClient.start();
-      serverHosts = zooKeeperClient.getChildren().forPath("/" + zooKeeperNamespace);
+      Map<String, String> servers = cache.getServers();
+      serverHosts = new ArrayList<>(servers.keySet());
       // Remove the znodes we've already tried from this list
       serverHosts.removeAll(connParams.getRejectedHostZnodePaths());
+      if (serverHosts.isEmpty()) {
+        // The cached view may lag behind, read the namespace again before giving up
+        cache.reload(false);
+        servers = cache.getServers();
+        serverHosts = new ArrayList<>(servers.keySet());
+        serverHosts.removeAll(connParams.getRejectedHostZnodePaths());
+      }
       if (serverHosts.isEmpty()) {
         throw new ZooKeeperHiveClientException(
             "Tried all existing HiveServer2 uris from ZooKeeper.");
       }
-      // Now pick a server node randomly
-      serverNode = serverHosts.get(randomizer.nextInt(serverHosts.size()));
+      // Now pick a server node, preferring the less loaded one
+      serverNode = selectServer(serverHosts, servers, randomizer);
       connParams.setCurrentHostZnodePath(serverNode);
-      // Read data from the znode for this server node
+      // Data of this server node, cached and kept up to date with a watch
       // This data could be either config string (new releases) or server end
       // point (old releases)
-      String dataStr =
-          new String(
-              zooKeeperClient.getData().forPath("/" + zooKeeperNamespace + "/" + serverNode),
-              Charset.forName("UTF-8"));
+      String dataStr = servers.get(serverNode);
       Matcher matcher = kvPattern.matcher(dataStr);
       // If dataStr is not null and dataStr is not a KV pattern,
       // it must be the server uri added by an older version HS2
@@ -91,12 +93,53 @@ class ZooKeeperHiveClientHelper {
     } catch (Exception e) {
       throw new ZooKeeperHiveClientException(
           "Unable to read HiveServer2 configs from ZooKeeper", e);
-    } finally {
-      // Close the client connection with ZooKeeper
-      if (zooKeeperClient != null) {
-        zooKeeperClient.close();
+    }
+  }
+
+  /**
+   * Picks two distinct candidates at random and returns the less loaded one, i.e. the power of two
+   * choices, which spreads the connections evenly without herding onto the server that looked least
+   * loaded at the last update. Falls back to a random pick when no load is published.
+   *
+   * @param candidates the znode names to choose from
+   * @param servers the znode data by znode name
+   */
+  static String selectServer(
+      List<String> candidates, Map<String, String> servers, Random randomizer) {
+    int first = randomizer.nextInt(candidates.size());
+    if (candidates.size() == 1) {
+      return candidates.get(first);
+    }
+    int second = randomizer.nextInt(candidates.size() - 1);
+    if (second >= first) {
+      second++;
+    }
+    long firstLoad = parseLoad(servers.get(candidates.get(first)));
+    long secondLoad = parseLoad(servers.get(candidates.get(second)));
+    if (firstLoad >= 0 && secondLoad >= 0 && secondLoad < firstLoad) {
+      return candidates.get(second);
+    }
+    return candidates.get(first);
+  }
+
+  /** @return the load published in the znode data, or -1 if there is none */
+  static long parseLoad(String serverConfStr) {
+    if (serverConfStr == null) {
+      return -1L;
+    }
+    long load = -1L;
+    Matcher matcher = kvPattern.matcher(serverConfStr);
+    while (matcher.find()) {
+      if (LOAD_OPEN_SESSIONS.equals(matcher.group(1))
+          || LOAD_EXEC_POOL_ACTIVE.equals(matcher.group(1))) {
+        try {
+          load = Math.max(load, 0L) + Long.parseLong(matcher.group(2));
+        } catch (NumberFormatException e) {
+          return -1L;
+        }
       }
     }
+    return load;
   }
 
   /**
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.curator.RetryPolicy;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A process-wide view of the server znodes under a namespace of a ZooKeeper ensemble, shared by all
+ * the connections using that ensemble and namespace. The view is loaded once and then kept up to
+ * date by watches on the namespace children and on the data of each server znode, so resolving a
+ * server for a new connection does not touch ZooKeeper.
+ *
+ * <p>A cache not used for a while is evicted and its ZooKeeper client closed, and all the clients
+ * are closed when the JVM shuts down. While ZooKeeper is unavailable, the last known servers are
+ * used.
+ */
+class ZooKeeperServiceDiscoveryCache {
+  static final Logger LOG = LoggerFactory.getLogger(ZooKeeperServiceDiscoveryCache.class);
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final ConcurrentMap<String, ZooKeeperServiceDiscoveryCache> CACHES =
+      new ConcurrentHashMap<>();
+
+  static final long IDLE_EVICTION_MS = TimeUnit.MINUTES.toMillis(10);
+
+  static {
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                ZooKeeperServiceDiscoveryCache::closeAll, "kyuubi-zookeeper-discovery-shutdown"));
+  }
+
+  private final CuratorFramework zooKeeperClient;
+  private final String namespacePath;
+  // guarded by the CACHES entry of this cache
+  private long lastAccessMs = System.currentTimeMillis();
+  // znode name -> znode data, replaced as a whole on every change
+  private volatile Map<String, String> servers = Collections.emptyMap();
+  private volatile boolean loaded = false;
+
+  private final Watcher childrenWatcher =
+      new Watcher() {
+        @Override
+        public void process(WatchedEvent event) {
+          if (event.getType() == Event.EventType.NodeChildrenChanged) {
+            reloadQuietly(false);
+          }
+        }
+      };
+
+  private final Watcher dataWatcher =
+      new Watcher() {
+        @Override
+        public void process(WatchedEvent event) {
+          if (event.getType() == Event.EventType.NodeDataChanged && event.getPath() != null) {
+            String path = event.getPath();
+            updateQuietly(path.substring(path.lastIndexOf('/') + 1));
+          }
+        }
+      };
+
+  ZooKeeperServiceDiscoveryCache(
+      String zooKeeperEnsemble,
+      String zooKeeperNamespace,
+      RetryPolicy retryPolicy,
+      int connectionTimeoutMs) {
+    this.namespacePath = "/" + zooKeeperNamespace;
+    this.zooKeeperClient =
+        CuratorFrameworkFactory.builder()
+            .connectString(zooKeeperEnsemble)
+            .retryPolicy(retryPolicy)
+            .connectionTimeoutMs(connectionTimeoutMs)
+            .build();
+    // the watches are gone with an expired session, read everything again after reconnecting
+    this.zooKeeperClient
+        .getConnectionStateListenable()
+        .addListener(
+            (client, newState) -> {
+              if (newState == ConnectionState.RECONNECTED && loaded) {
+                reloadQuietly(true);
+              }
+            });
+    this.zooKeeperClient.start();
+  }
+
+  static ZooKeeperServiceDiscoveryCache get(String zooKeeperEnsemble, String zooKeeperNamespace) {
+    long now = System.currentTimeMillis();
+    evictIdle(now);
+    return CACHES.compute(
+        zooKeeperEnsemble + "/" + zooKeeperNamespace,
+        (key, cache) -> {
+          if (cache == null) {
+            cache =
+                new ZooKeeperServiceDiscoveryCache(
+                    zooKeeperEnsemble,
+                    zooKeeperNamespace,
+                    new ExponentialBackoffRetry(1000, 3),
+                    15000);
+          }
+          cache.lastAccessMs = now;
+          return cache;
+        });
+  }
+
+  /** Closes the caches not used for {@link #IDLE_EVICTION_MS} and their ZooKeeper clients. */
+  static void evictIdle(long now) {
+    for (String key : CACHES.keySet()) {
+      ZooKeeperServiceDiscoveryCache[] evicted = new ZooKeeperServiceDiscoveryCache[1];
+      CACHES.computeIfPresent(
+          key,
+          (k, cache) -> {
+            if (now - cache.lastAccessMs < IDLE_EVICTION_MS) {
+              return cache;
+            }
+            evicted[0] = cache;
+            return null;
+          });
+      if (evicted[0] != null) {
+        evicted[0].close();
+      }
+    }
+  }
+
+  /** Evicts all the caches and closes their ZooKeeper clients. */
+  static void closeAll() {
+    for (String key : CACHES.keySet()) {
+      ZooKeeperServiceDiscoveryCache cache = CACHES.remove(key);
+      if (cache != null) {
+        cache.close();
+      }
+    }
+  }
+
+  void close() {
+    try {
+      zooKeeperClient.close();
+    } catch (Exception e) {
+      LOG.debug("Failed to close the ZooKeeper client of " + namespacePath, e);
+    }
+  }
+
+  /**
+   * @return an immutable snapshot of the server znode names and their data, the last known one if
+   *     the view is stale and ZooKeeper is unavailable
+   */
+  Map<String, String> getServers() throws Exception {
+    if (!loaded) {
+      try {
+        reload(false);
+      } catch (Exception e) {
+        Map<String, String> lastKnown = servers;
+        if (lastKnown.isEmpty()) {
+          throw e;
+        }
+        LOG.warn(
+            "Failed to reload the server list of "
+                + namespacePath
+                + " from ZooKeeper, using the last known servers",
+            e);
+        return lastKnown;
+      }
+    }
+    return servers;
+  }
+
+  /**
+   * Lists the namespace again and reads the data of the znodes that are not cached yet, or of all
+   * the znodes if {@code readAll}.
+   */
+  synchronized void reload(boolean readAll) throws Exception {
+    List<String> children =
+        zooKeeperClient.getChildren().usingWatcher(childrenWatcher).forPath(namespacePath);
+    Map<String, String> current = servers;
+    Map<String, String> updated = new HashMap<>();
+    for (String child : children) {
+      String data = readAll ? null : current.get(child);
+      if (data == null) {
+        data = readData(child);
+      }
+      if (data != null) {
+        updated.put(child, data);
+      }
+    }
+    servers = Collections.unmodifiableMap(updated);
+    loaded = true;
+  }
+
+  private synchronized void update(String node) throws Exception {
+    if (!servers.containsKey(node)) {
+      return;
+    }
+    String data = readData(node);
+    Map<String, String> updated = new HashMap<>(servers);
+    if (data == null) {
+      updated.remove(node);
+    } else {
+      updated.put(node, data);
+    }
+    servers = Collections.unmodifiableMap(updated);
+  }
+
+  /** @return the data of the server znode, or null if it has gone meanwhile */
+  private String readData(String node) throws Exception {
+    try {
+      byte[] data =
+          zooKeeperClient.getData().usingWatcher(dataWatcher).forPath(namespacePath + "/" + node);
+      return data == null ? null : new String(data, UTF_8);
+    } catch (KeeperException.NoNodeException e) {
+      return null;
+    }
+  }
+
+  void reloadQuietly(boolean readAll) {
+    try {
+      reload(readAll);
+    } catch (Exception e) {
+      LOG.warn("Failed to reload the server list of " + namespacePath + " from ZooKeeper", e);
+      // the next lookup reads ZooKeeper again instead of relying on a stale view
+      loaded = false;
+    }
+  }
+
+  private void updateQuietly(String node) {
+    try {
+      update(node);
+    } catch (Exception e) {
+      LOG.warn("Failed to update " + namespacePath + "/" + node + " from ZooKeeper", e);
+      loaded = false;
+    }
+  }
+}
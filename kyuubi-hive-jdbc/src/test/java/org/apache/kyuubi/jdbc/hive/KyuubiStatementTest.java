@@ -18,8 +18,53 @@
 package org.apache.kyuubi.jdbc.hive;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.hive.service.rpc.thrift.TCLIService.Iface;
+import org.apache.hive.service.rpc.thrift.TCancelOperationReq;
+import org.apache.hive.service.rpc.thrift.TCancelOperationResp;
+import org.apache.hive.service.rpc.thrift.TColumn;
+import org.apache.hive.service.rpc.thrift.TColumnDesc;
+import org.apache.hive.service.rpc.thrift.TExecuteStatementReq;
+import org.apache.hive.service.rpc.thrift.TExecuteStatementResp;
+import org.apache.hive.service.rpc.thrift.TFetchResultsReq;
+import org.apache.hive.service.rpc.thrift.TFetchResultsResp;
+import org.apache.hive.service.rpc.thrift.TGetOperationStatusReq;
+import org.apache.hive.service.rpc.thrift.TGetOperationStatusResp;
+import org.apache.hive.service.rpc.thrift.TGetResultSetMetadataReq;
+import org.apache.hive.service.rpc.thrift.TGetResultSetMetadataResp;
+import org.apache.hive.service.rpc.thrift.TI32Column;
+import org.apache.hive.service.rpc.thrift.TOperationHandle;
+import org.apache.hive.service.rpc.thrift.TOperationState;
+import org.apache.hive.service.rpc.thrift.TPrimitiveTypeEntry;
+import org.apache.hive.service.rpc.thrift.TProtocolVersion;
+import org.apache.hive.service.rpc.thrift.TRow;
+import org.apache.hive.service.rpc.thrift.TRowSet;
+import org.apache.hive.service.rpc.thrift.TStatus;
+import org.apache.hive.service.rpc.thrift.TStatusCode;
+import org.apache.hive.service.rpc.thrift.TTableSchema;
+import org.apache.hive.service.rpc.thrift.TTypeDesc;
+import org.apache.hive.service.rpc.thrift.TTypeEntry;
+import org.apache.hive.service.rpc.thrift.TTypeId;
+import org.apache.thrift.transport.TTransportException;
 import org.junit.Test;
 
 public class KyuubiStatementTest {
@@ -54,4 +99,130 @@ public class KyuubiStatementTest {
       assertEquals("java.sql.SQLFeatureNotSupportedException: Method not supported", e.toString());
     }
   }
+
+  private Iface mockClient(TOperationState... states) throws Exception {
+    Iface client = mock(Iface.class);
+    TExecuteStatementResp execResp =
+        new TExecuteStatementResp(new TStatus(TStatusCode.SUCCESS_STATUS));
+    execResp.setOperationHandle(mock(TOperationHandle.class));
+    when(client.ExecuteStatement(any(TExecuteStatementReq.class))).thenReturn(execResp);
+    TGetOperationStatusResp[] statusResps = new TGetOperationStatusResp[states.length];
+    for (int i = 0; i < states.length; i++) {
+      statusResps[i] = new TGetOperationStatusResp(new TStatus(TStatusCode.SUCCESS_STATUS));
+      statusResps[i].setOperationState(states[i]);
+      statusResps[i].setErrorMessage("error");
+      statusResps[i].setHasResultSet(states[i] == TOperationState.FINISHED_STATE);
+    }
+    TGetOperationStatusResp[] rest = new TGetOperationStatusResp[states.length - 1];
+    System.arraycopy(statusResps, 1, rest, 0, rest.length);
+    when(client.GetOperationStatus(any(TGetOperationStatusReq.class)))
+        .thenReturn(statusResps[0], rest);
+    return client;
+  }
+
+  @Test
+  public void testExecuteUpdateAsync() throws Exception {
+    Iface client =
+        mockClient(
+            TOperationState.PENDING_STATE,
+            TOperationState.RUNNING_STATE,
+            TOperationState.FINISHED_STATE);
+    KyuubiStatement stmt = new KyuubiStatement(null, client, null);
+    assertEquals(0, (int) stmt.executeUpdateAsync("insert").get(10, TimeUnit.SECONDS));
+    // the result set of the operation, if any, is not built for an update
+    assertNull(stmt.getResultSet());
+    verify(client, never()).GetResultSetMetadata(any(TGetResultSetMetadataReq.class));
+  }
+
+  @Test
+  public void testExecuteUpdateAsyncFailure() throws Exception {
+    Iface client = mockClient(TOperationState.RUNNING_STATE, TOperationState.ERROR_STATE);
+    KyuubiStatement stmt = new KyuubiStatement(null, client, null);
+    try {
+      stmt.executeUpdateAsync("insert").get(10, TimeUnit.SECONDS);
+      fail("the operation failure should complete the future exceptionally");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof SQLException);
+      assertEquals("error", e.getCause().getMessage());
+    }
+  }
+
+  private static TRowSet intRowSet(Integer... values) {
+    TRowSet rowSet = new TRowSet(0, new ArrayList<TRow>());
+    rowSet.addToColumns(
+        TColumn.i32Val(new TI32Column(Arrays.asList(values), ByteBuffer.wrap(new byte[0]))));
+    return rowSet;
+  }
+
+  @Test
+  public void testExecuteQueryAsync() throws Exception {
+    Iface client = mockClient(TOperationState.RUNNING_STATE, TOperationState.FINISHED_STATE);
+    TTypeDesc intType =
+        new TTypeDesc(
+            Collections.singletonList(
+                TTypeEntry.primitiveEntry(new TPrimitiveTypeEntry(TTypeId.INT_TYPE))));
+    TGetResultSetMetadataResp metadataResp =
+        new TGetResultSetMetadataResp(new TStatus(TStatusCode.SUCCESS_STATUS));
+    metadataResp.setSchema(
+        new TTableSchema(Collections.singletonList(new TColumnDesc("id", intType, 1))));
+    when(client.GetResultSetMetadata(any(TGetResultSetMetadataReq.class)))
+        .thenReturn(metadataResp);
+    TFetchResultsResp rows = new TFetchResultsResp(new TStatus(TStatusCode.SUCCESS_STATUS));
+    rows.setResults(intRowSet(1, 2));
+    TFetchResultsResp end = new TFetchResultsResp(new TStatus(TStatusCode.SUCCESS_STATUS));
+    end.setResults(intRowSet());
+    when(client.FetchResults(any(TFetchResultsReq.class))).thenReturn(rows, end);
+    KyuubiConnection connection = mock(KyuubiConnection.class);
+    when(connection.getProtocol()).thenReturn(TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V10);
+
+    KyuubiStatement stmt = new KyuubiStatement(connection, client, null);
+    ResultSet rs = stmt.executeQueryAsync("select id").get(10, TimeUnit.SECONDS);
+    assertEquals("id", rs.getMetaData().getColumnName(1));
+    assertTrue(rs.next());
+    assertEquals(1, rs.getInt(1));
+    assertTrue(rs.next());
+    assertEquals(2, rs.getInt("id"));
+    assertFalse(rs.next());
+  }
+
+  @Test
+  public void testCancelExecuteQueryAsync() throws Exception {
+    Iface client = mockClient(TOperationState.RUNNING_STATE);
+    when(client.CancelOperation(any(TCancelOperationReq.class)))
+        .thenReturn(new TCancelOperationResp(new TStatus(TStatusCode.SUCCESS_STATUS)));
+    KyuubiStatement stmt = new KyuubiStatement(null, client, null);
+    CompletableFuture<ResultSet> future = stmt.executeQueryAsync("select id");
+    assertTrue(future.cancel(true));
+    verify(client).CancelOperation(any(TCancelOperationReq.class));
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      fail("the future was cancelled");
+    } catch (CancellationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testExecuteQueryAsyncFailure() throws Exception {
+    Iface client = mockClient(TOperationState.RUNNING_STATE, TOperationState.ERROR_STATE);
+    KyuubiStatement stmt = new KyuubiStatement(null, client, null);
+    try {
+      stmt.executeQueryAsync("select id").get(10, TimeUnit.SECONDS);
+      fail("the operation failure should complete the future exceptionally");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof SQLException);
+      assertEquals("error", e.getCause().getMessage());
+    }
+
+    Iface unreachable = mock(Iface.class);
+    when(unreachable.ExecuteStatement(any(TExecuteStatementReq.class)))
+        .thenThrow(new TTransportException("connection refused"));
+    stmt = new KyuubiStatement(null, unreachable, null);
+    try {
+      stmt.executeQueryAsync("select id").get(10, TimeUnit.SECONDS);
+      fail("the submission failure should complete the future exceptionally");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof SQLException);
+    }
+  }
 }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.hive.service.rpc.thrift.TColumn;
+import org.apache.hive.service.rpc.thrift.TI64Column;
+import org.apache.hive.service.rpc.thrift.TRow;
+import org.apache.hive.service.rpc.thrift.TRowSet;
+import org.junit.Test;
+
+public class TestKyuubiAdaptiveFetchSize {
+
+  private TRowSet longColumn(int numRows) {
+    List<Long> values = new ArrayList<Long>();
+    for (int i = 0; i < numRows; i++) {
+      values.add((long) i);
+    }
+    TRowSet rowSet = new TRowSet(0, new ArrayList<TRow>());
+    rowSet.setColumns(
+        Collections.singletonList(TColumn.i64Val(new TI64Column(values, ByteBuffer.allocate(0)))));
+    return rowSet;
+  }
+
+  @Test
+  public void testEstimateBytes() {
+    assertEquals(80L, KyuubiAdaptiveFetchSize.estimateBytes(longColumn(10)));
+  }
+
+  @Test
+  public void testGrowAtMostTwice() {
+    KyuubiAdaptiveFetchSize fetchSize = new KyuubiAdaptiveFetchSize(100, 1024 * 1024, 1000);
+    fetchSize.onFetched(longColumn(100), 100, TimeUnit.MILLISECONDS.toNanos(10));
+    assertEquals(200, fetchSize.nextFetchSize());
+  }
+
+  @Test
+  public void testShrinkToTargetBytes() {
+    KyuubiAdaptiveFetchSize fetchSize = new KyuubiAdaptiveFetchSize(1000, 800, 1000);
+    fetchSize.onFetched(longColumn(1000), 1000, TimeUnit.MILLISECONDS.toNanos(10));
+    assertEquals(100, fetchSize.nextFetchSize());
+  }
+
+  @Test
+  public void testShrinkToTargetLatency() {
+    KyuubiAdaptiveFetchSize fetchSize = new KyuubiAdaptiveFetchSize(1000, 1024 * 1024, 100);
+    fetchSize.onFetched(longColumn(1000), 1000, TimeUnit.MILLISECONDS.toNanos(1000));
+    assertEquals(100, fetchSize.nextFetchSize());
+  }
+
+  @Test
+  public void testBounds() {
+    KyuubiAdaptiveFetchSize fetchSize = new KyuubiAdaptiveFetchSize(0, 1, 1000);
+    assertEquals(KyuubiAdaptiveFetchSize.MIN_FETCH_SIZE, fetchSize.nextFetchSize());
+    fetchSize.onFetched(longColumn(100), 100, TimeUnit.MILLISECONDS.toNanos(10));
+    assertEquals(KyuubiAdaptiveFetchSize.MIN_FETCH_SIZE, fetchSize.nextFetchSize());
+  }
+}
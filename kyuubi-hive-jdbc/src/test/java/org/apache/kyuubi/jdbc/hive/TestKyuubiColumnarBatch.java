@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import org.apache.hive.service.cli.RowSet;
+import org.apache.hive.service.rpc.thrift.TBoolColumn;
+import org.apache.hive.service.rpc.thrift.TColumn;
+import org.apache.hive.service.rpc.thrift.TI32Column;
+import org.apache.hive.service.rpc.thrift.TProtocolVersion;
+import org.apache.hive.service.rpc.thrift.TRow;
+import org.apache.hive.service.rpc.thrift.TRowSet;
+import org.apache.hive.service.rpc.thrift.TStringColumn;
+import org.junit.Test;
+
+public class TestKyuubiColumnarBatch {
+
+  // the second row is null in every column
+  private static final ByteBuffer NULLS = ByteBuffer.wrap(new byte[] {0x02});
+
+  private TRowSet columnBased() {
+    TRowSet rowSet = new TRowSet(0, new ArrayList<TRow>());
+    rowSet.addToColumns(TColumn.i32Val(new TI32Column(Arrays.asList(1, 0, 3), NULLS)));
+    rowSet.addToColumns(TColumn.boolVal(new TBoolColumn(Arrays.asList(true, false, false), NULLS)));
+    rowSet.addToColumns(TColumn.stringVal(new TStringColumn(Arrays.asList("a", "", "c"), NULLS)));
+    return rowSet;
+  }
+
+  @Test
+  public void testReadInPlace() throws Exception {
+    RowSet rowSet =
+        KyuubiColumnarBatch.create(columnBased(), TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V10);
+    assertTrue(rowSet instanceof KyuubiColumnarBatch);
+    KyuubiColumnarBatch batch = (KyuubiColumnarBatch) rowSet;
+    assertEquals(3, batch.numRows());
+    assertEquals(3, batch.numColumns());
+
+    assertTrue(batch.isIntegral(0));
+    assertEquals(3L, batch.getLong(0, 2));
+    assertEquals(3d, batch.getDouble(0, 2), 0d);
+    assertTrue(batch.isNull(0, 1));
+    assertFalse(batch.isNull(0, 0));
+    assertEquals(0L, batch.getLong(0, 1));
+
+    assertTrue(batch.getBoolean(1, 0));
+    assertFalse(batch.getBoolean(1, 1));
+    assertNull(batch.getObject(2, 1));
+    assertEquals("c", batch.getObject(2, 2));
+  }
+
+  @Test
+  public void testRowView() throws Exception {
+    RowSet rowSet =
+        KyuubiColumnarBatch.create(columnBased(), TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V10);
+    Iterator<Object[]> rows = rowSet.iterator();
+    assertArrayEquals(new Object[] {1, true, "a"}, rows.next());
+    assertArrayEquals(new Object[] {null, null, null}, rows.next());
+    assertArrayEquals(new Object[] {3, false, "c"}, rows.next());
+    assertFalse(rows.hasNext());
+  }
+
+  @Test
+  public void testExtractSubset() throws Exception {
+    RowSet rowSet =
+        KyuubiColumnarBatch.create(columnBased(), TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V10);
+    KyuubiColumnarBatch batch = (KyuubiColumnarBatch) rowSet;
+    batch.setStartOffset(10);
+    RowSet subset = batch.extractSubset(2);
+    assertEquals(2, subset.numRows());
+    assertEquals(10, subset.getStartOffset());
+    assertEquals(1, batch.numRows());
+    assertEquals(12, batch.getStartOffset());
+    assertEquals(3L, batch.getLong(0, 0));
+    assertNull(((KyuubiColumnarBatch) subset).getObject(2, 1));
+
+    TRowSet sliced = subset.toTRowSet();
+    assertEquals(10, sliced.getStartRowOffset());
+    assertEquals(Arrays.asList(1, 0), sliced.getColumns().get(0).getI32Val().getValues());
+    assertArrayEquals(new byte[] {0x02}, sliced.getColumns().get(2).getStringVal().getNulls());
+    assertEquals(
+        Arrays.asList("c"), batch.toTRowSet().getColumns().get(2).getStringVal().getValues());
+    assertEquals(1, batch.extractSubset(5).numRows());
+    assertEquals(0, batch.numRows());
+  }
+
+  @Test
+  public void testAddRow() throws Exception {
+    RowSet rowSet =
+        KyuubiColumnarBatch.create(columnBased(), TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V10);
+    RowSet subset = rowSet.extractSubset(1);
+    subset.addRow(new Object[] {null, true, "d"});
+    rowSet.addRow(new Object[] {4, null, null});
+    assertEquals(2, subset.numRows());
+    assertEquals(3, rowSet.numRows());
+
+    Iterator<Object[]> rows = subset.iterator();
+    assertArrayEquals(new Object[] {1, true, "a"}, rows.next());
+    assertArrayEquals(new Object[] {null, true, "d"}, rows.next());
+    rows = rowSet.iterator();
+    assertArrayEquals(new Object[] {null, null, null}, rows.next());
+    assertArrayEquals(new Object[] {3, false, "c"}, rows.next());
+    assertArrayEquals(new Object[] {4, null, null}, rows.next());
+
+    TColumn column = rowSet.toTRowSet().getColumns().get(1);
+    assertEquals(Arrays.asList(false, false, false), column.getBoolVal().getValues());
+    assertArrayEquals(new byte[] {0x05}, column.getBoolVal().getNulls());
+  }
+
+  @Test
+  public void testRowBasedFallback() throws Exception {
+    RowSet rowSet =
+        KyuubiColumnarBatch.create(
+            new TRowSet(0, new ArrayList<TRow>()), TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V1);
+    assertFalse(rowSet instanceof KyuubiColumnarBatch);
+  }
+}
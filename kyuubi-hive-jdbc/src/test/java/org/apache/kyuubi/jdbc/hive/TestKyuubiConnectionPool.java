@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.apache.hive.service.rpc.thrift.TGetOperationStatusResp;
+import org.apache.hive.service.rpc.thrift.TStatus;
+import org.apache.hive.service.rpc.thrift.TStatusCode;
+import org.junit.Test;
+
+public class TestKyuubiConnectionPool {
+
+  private final List<KyuubiConnection> opened = new ArrayList<KyuubiConnection>();
+
+  private KyuubiConnectionPool newPool(int maxIdle) {
+    return newPool(maxIdle, 0, 30000L);
+  }
+
+  private KyuubiConnectionPool newPool(int maxIdle, int maxTotal, long validationIntervalMs) {
+    return new KyuubiConnectionPool(
+        "", new Properties(), 0, maxIdle, maxTotal, 100L, 5, validationIntervalMs) {
+      @Override
+      KyuubiConnection open() {
+        KyuubiConnection connection = mock(KyuubiConnection.class);
+        opened.add(connection);
+        return connection;
+      }
+    };
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    KyuubiConnectionPool pool = newPool(1);
+    Connection first = pool.borrow();
+    first.close();
+    assertTrue(first.isClosed());
+    assertEquals(1, pool.getIdleCount());
+    pool.borrow().close();
+    assertEquals(1, opened.size());
+    verify(opened.get(0), never()).close();
+  }
+
+  @Test
+  public void testMaxIdle() throws Exception {
+    KyuubiConnectionPool pool = newPool(1);
+    Connection first = pool.borrow();
+    Connection second = pool.borrow();
+    first.close();
+    second.close();
+    assertEquals(1, pool.getIdleCount());
+    verify(opened.get(1)).close();
+  }
+
+  @Test
+  public void testMaxTotal() throws Exception {
+    KyuubiConnectionPool pool = newPool(1, 2, 30000L);
+    Connection first = pool.borrow();
+    Connection second = pool.borrow();
+    try {
+      pool.borrow();
+      fail("no more than maxTotal connections may be open");
+    } catch (SQLException e) {
+      assertTrue(e.getMessage().contains("all 2 are in use"));
+    }
+    first.close();
+    Connection third = pool.borrow();
+    assertEquals(2, opened.size());
+    assertEquals(2, pool.getTotalCount());
+
+    when(opened.get(1).isBroken()).thenReturn(true);
+    second.close();
+    assertEquals(1, pool.getTotalCount());
+    pool.borrow();
+    assertEquals(3, opened.size());
+    third.close();
+    assertEquals(2, pool.getTotalCount());
+  }
+
+  @Test
+  public void testValidateIdleConnection() throws Exception {
+    KyuubiConnectionPool pool = newPool(1, 0, 0L);
+    pool.borrow().close();
+    when(opened.get(0).isValid(5)).thenReturn(true);
+    pool.borrow().close();
+    verify(opened.get(0)).isValid(5);
+    assertEquals(1, opened.size());
+
+    when(opened.get(0).isValid(5)).thenReturn(false);
+    pool.borrow();
+    verify(opened.get(0)).close();
+    assertEquals(2, opened.size());
+  }
+
+  @Test
+  public void testEvictBrokenConnection() throws Exception {
+    KyuubiConnectionPool pool = newPool(1);
+    Connection conn = pool.borrow();
+    when(opened.get(0).isBroken()).thenReturn(true);
+    conn.close();
+    assertEquals(0, pool.getIdleCount());
+    verify(opened.get(0)).close();
+  }
+
+  @Test
+  public void testResetSessionState() throws Exception {
+    KyuubiConnectionPool pool = newPool(2);
+    Connection conn = pool.borrow();
+    when(opened.get(0).getDefaultSchema()).thenReturn("default");
+    when(opened.get(0).createStatement()).thenReturn(mock(Statement.class));
+    conn.createStatement().execute("use db");
+    conn.close();
+    verify(opened.get(0)).setSchema("default");
+    assertEquals(1, pool.getIdleCount());
+
+    conn = pool.borrow();
+    conn.createStatement().execute(" SET a=b");
+    conn.close();
+    verify(opened.get(0)).close();
+    assertEquals(0, pool.getIdleCount());
+  }
+
+  @Test
+  public void testCloseOpenStatementsOnRelease() throws Exception {
+    KyuubiConnectionPool pool = newPool(1);
+    Connection conn = pool.borrow();
+    Statement closedByBorrower = mock(Statement.class);
+    Statement leftOpen = mock(Statement.class);
+    when(opened.get(0).createStatement()).thenReturn(closedByBorrower, leftOpen);
+    conn.createStatement().close();
+    conn.createStatement();
+    conn.close();
+    verify(closedByBorrower).close();
+    verify(leftOpen).close();
+    assertEquals(1, pool.getIdleCount());
+  }
+
+  @Test
+  public void testProxyStatementFactories() throws Exception {
+    KyuubiConnectionPool pool = newPool(1);
+    Connection conn = pool.borrow();
+    PreparedStatement prepared = mock(PreparedStatement.class);
+    CallableStatement callable = mock(CallableStatement.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(opened.get(0).prepareStatement("select 1")).thenReturn(prepared);
+    when(opened.get(0).prepareCall("call f()")).thenReturn(callable);
+    when(prepared.executeQuery()).thenReturn(resultSet);
+    when(resultSet.getStatement()).thenReturn(prepared);
+    when(prepared.getConnection()).thenReturn(opened.get(0));
+
+    PreparedStatement ps = conn.prepareStatement("select 1");
+    assertTrue(ps != prepared);
+    assertSame(conn, ps.getConnection());
+    ResultSet rs = ps.executeQuery();
+    assertSame(ps, rs.getStatement());
+    assertSame(conn, rs.getStatement().getConnection());
+    CallableStatement cs = conn.prepareCall("call f()");
+    assertSame(conn, cs.getConnection());
+
+    conn.close();
+    verify(prepared).close();
+    verify(callable).close();
+  }
+
+  @Test
+  public void testUnwrapDoesNotLeakConnection() throws Exception {
+    KyuubiConnectionPool pool = newPool(1);
+    Connection conn = pool.borrow();
+    assertSame(conn, conn.unwrap(Connection.class));
+    assertFalse(conn.isWrapperFor(KyuubiConnection.class));
+    try {
+      conn.unwrap(KyuubiConnection.class);
+      fail("the raw connection must not be unwrapped");
+    } catch (SQLException e) {
+      assertTrue(e.getMessage().contains(KyuubiConnection.class.getName()));
+    }
+    when(opened.get(0).createStatement()).thenReturn(mock(Statement.class));
+    Statement stmt = conn.createStatement();
+    assertSame(stmt, stmt.unwrap(Statement.class));
+    try {
+      stmt.unwrap(KyuubiStatement.class);
+      fail("the raw statement must not be unwrapped");
+    } catch (SQLException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testDetectSessionLost() {
+    assertFalse(KyuubiConnection.isSessionLost(statusResp(TStatusCode.SUCCESS_STATUS, null)));
+    assertFalse(
+        KyuubiConnection.isSessionLost(statusResp(TStatusCode.ERROR_STATUS, "Table not found")));
+    assertTrue(
+        KyuubiConnection.isSessionLost(
+            statusResp(TStatusCode.ERROR_STATUS, "Invalid SessionHandle [a1b2]")));
+    assertTrue(
+        KyuubiConnection.isSessionLost(
+            statusResp(
+                TStatusCode.ERROR_STATUS,
+                "Error operating ExecuteStatement: Socket for SessionHandle [a1b2] is closed")));
+    assertFalse(KyuubiConnection.isSessionLost(null));
+  }
+
+  private static TGetOperationStatusResp statusResp(TStatusCode code, String message) {
+    TStatus status = new TStatus(code);
+    status.setErrorMessage(message);
+    return new TGetOperationStatusResp(status);
+  }
+}
@@ -17,13 +17,19 @@
  */
 package org.apache.kyuubi.jdbc.hive;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.sql.BatchUpdateException;
 import java.sql.SQLException;
+import java.sql.Statement;
 import org.apache.hive.service.rpc.thrift.TCLIService.Iface;
+import org.apache.hive.service.rpc.thrift.TCloseOperationReq;
+import org.apache.hive.service.rpc.thrift.TCloseOperationResp;
 import org.apache.hive.service.rpc.thrift.TExecuteStatementReq;
 import org.apache.hive.service.rpc.thrift.TExecuteStatementResp;
 import org.apache.hive.service.rpc.thrift.TGetOperationStatusReq;
@@ -52,6 +58,7 @@ public class TestKyuubiPreparedStatement {
   @Before
   public void before() throws Exception {
     MockitoAnnotations.initMocks(this);
+    when(connection.getBatchInsertRows()).thenReturn(2);
     when(tExecStatementResp.getStatus()).thenReturn(tStatus_SUCCESS);
     when(tExecStatementResp.getOperationHandle()).thenReturn(tOperationHandle);
 
@@ -63,6 +70,8 @@ public class TestKyuubiPreparedStatement {
     when(client.GetOperationStatus(any(TGetOperationStatusReq.class)))
         .thenReturn(tGetOperationStatusResp);
     when(client.ExecuteStatement(any(TExecuteStatementReq.class))).thenReturn(tExecStatementResp);
+    when(client.CloseOperation(any(TCloseOperationReq.class)))
+        .thenReturn(new TCloseOperationResp(tStatus_SUCCESS));
   }
 
   @SuppressWarnings("resource")
@@ -151,4 +160,55 @@ public class TestKyuubiPreparedStatement {
     verify(client).ExecuteStatement(argument.capture());
     assertEquals("select 1 from x where a='\\044e' || 'v'", argument.getValue().getStatement());
   }
+
+  @SuppressWarnings("resource")
+  @Test
+  public void batchedInsertIsChunked() throws Exception {
+    String sql = "insert into x values (?, 'a?')";
+    KyuubiPreparedStatement ps = new KyuubiPreparedStatement(connection, client, sessHandle, sql);
+    for (int i = 1; i <= 3; i++) {
+      ps.setInt(1, i);
+      ps.addBatch();
+    }
+    int[] updateCounts = ps.executeBatch();
+    assertArrayEquals(
+        new int[] {Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO},
+        updateCounts);
+
+    ArgumentCaptor<TExecuteStatementReq> argument =
+        ArgumentCaptor.forClass(TExecuteStatementReq.class);
+    verify(client, times(2)).ExecuteStatement(argument.capture());
+    assertEquals(
+        "insert into x values (1, 'a?'), (2, 'a?')", argument.getAllValues().get(0).getStatement());
+    assertEquals("insert into x values (3, 'a?')", argument.getAllValues().get(1).getStatement());
+    assertEquals(0, ps.executeBatch().length);
+  }
+
+  @SuppressWarnings("resource")
+  @Test
+  public void batchedUpdateIsExecutedPerParameterSet() throws Exception {
+    String sql = "update x set a=? where b=1";
+    KyuubiPreparedStatement ps = new KyuubiPreparedStatement(connection, client, sessHandle, sql);
+    ps.setString(1, "v");
+    ps.addBatch();
+    ps.setString(1, "w");
+    ps.addBatch();
+    assertEquals(2, ps.executeBatch().length);
+
+    ArgumentCaptor<TExecuteStatementReq> argument =
+        ArgumentCaptor.forClass(TExecuteStatementReq.class);
+    verify(client, times(2)).ExecuteStatement(argument.capture());
+    assertEquals("update x set a='v' where b=1", argument.getAllValues().get(0).getStatement());
+    assertEquals("update x set a='w' where b=1", argument.getAllValues().get(1).getStatement());
+  }
+
+  @SuppressWarnings("resource")
+  @Test(expected = BatchUpdateException.class)
+  public void batchWithUnsetArgument() throws Exception {
+    String sql = "insert into x values (?, ?)";
+    KyuubiPreparedStatement ps = new KyuubiPreparedStatement(connection, client, sessHandle, sql);
+    ps.setInt(1, 1);
+    ps.addBatch();
+    ps.executeBatch();
+  }
 }
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hive.service.rpc.thrift.TCLIService.Iface;
+import org.apache.hive.service.rpc.thrift.TColumnValue;
+import org.apache.hive.service.rpc.thrift.TFetchOrientation;
+import org.apache.hive.service.rpc.thrift.TFetchResultsReq;
+import org.apache.hive.service.rpc.thrift.TFetchResultsResp;
+import org.apache.hive.service.rpc.thrift.TI32Value;
+import org.apache.hive.service.rpc.thrift.TOperationHandle;
+import org.apache.hive.service.rpc.thrift.TProtocolVersion;
+import org.apache.hive.service.rpc.thrift.TRow;
+import org.apache.hive.service.rpc.thrift.TRowSet;
+import org.apache.hive.service.rpc.thrift.TStatus;
+import org.apache.hive.service.rpc.thrift.TStatusCode;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class TestKyuubiRowSetPrefetcher {
+
+  @Mock private Iface client;
+  @Mock private TOperationHandle tOperationHandle;
+  private TStatus tStatus_SUCCESS = new TStatus(TStatusCode.SUCCESS_STATUS);
+
+  @Before
+  public void before() throws Exception {
+    MockitoAnnotations.initMocks(this);
+  }
+
+  private TFetchResultsResp fetchResp(int numRows) {
+    List<TRow> rows = new ArrayList<TRow>();
+    for (int i = 0; i < numRows; i++) {
+      rows.add(new TRow(Collections.singletonList(TColumnValue.i32Val(new TI32Value()))));
+    }
+    TFetchResultsResp resp = new TFetchResultsResp(tStatus_SUCCESS);
+    resp.setResults(new TRowSet(0, rows));
+    return resp;
+  }
+
+  private KyuubiRowSetPrefetcher newPrefetcher() {
+    return new KyuubiRowSetPrefetcher(
+        client,
+        tOperationHandle,
+        TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V1,
+        2,
+        null,
+        TFetchOrientation.FETCH_NEXT,
+        1);
+  }
+
+  @Test
+  public void testTakeUntilExhausted() throws Exception {
+    when(client.FetchResults(any(TFetchResultsReq.class)))
+        .thenReturn(fetchResp(2), fetchResp(1), fetchResp(0));
+    KyuubiRowSetPrefetcher prefetcher = newPrefetcher();
+    assertEquals(2, prefetcher.take().numRows());
+    assertEquals(1, prefetcher.take().numRows());
+    assertEquals(0, prefetcher.take().numRows());
+    assertEquals(0, prefetcher.take().numRows());
+    prefetcher.close();
+  }
+
+  @Test
+  public void testFailureIsHandedOver() throws Exception {
+    TFetchResultsResp errorResp = new TFetchResultsResp(new TStatus(TStatusCode.ERROR_STATUS));
+    when(client.FetchResults(any(TFetchResultsReq.class))).thenReturn(fetchResp(2), errorResp);
+    KyuubiRowSetPrefetcher prefetcher = newPrefetcher();
+    assertEquals(2, prefetcher.take().numRows());
+    for (int i = 0; i < 2; i++) {
+      try {
+        prefetcher.take();
+        fail("the fetch failure should be rethrown");
+      } catch (SQLException e) {
+        // expected
+      }
+    }
+    prefetcher.close();
+  }
+
+  @Test(expected = SQLException.class)
+  public void testTakeAfterClose() throws Exception {
+    when(client.FetchResults(any(TFetchResultsReq.class))).thenReturn(fetchResp(2));
+    KyuubiRowSetPrefetcher prefetcher = newPrefetcher();
+    prefetcher.close();
+    prefetcher.take();
+  }
+}
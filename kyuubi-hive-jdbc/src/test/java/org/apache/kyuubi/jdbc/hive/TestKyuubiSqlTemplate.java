@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class TestKyuubiSqlTemplate {
+
+  @Test
+  public void testRender() throws Exception {
+    KyuubiSqlTemplate template = KyuubiSqlTemplate.parse("select ? from x where a='?' and b=?");
+    assertEquals(2, template.numParameters());
+    Map<Integer, String> parameters = new HashMap<Integer, String>();
+    parameters.put(1, "1");
+    parameters.put(2, "'v'");
+    StringBuilder sb = new StringBuilder();
+    template.render(sb, parameters);
+    assertEquals("select 1 from x where a='?' and b='v'", sb.toString());
+    assertNull(template.getValuesTuple());
+  }
+
+  @Test(expected = SQLException.class)
+  public void testRenderUnsetParameter() throws Exception {
+    KyuubiSqlTemplate.parse("select ?").render(new StringBuilder(), new HashMap<Integer, String>());
+  }
+
+  @Test
+  public void testCachedBySql() {
+    String sql = "select 1 from x where a=?";
+    assertSame(KyuubiSqlTemplate.of(sql), KyuubiSqlTemplate.of(sql));
+  }
+
+  @Test
+  public void testValuesClause() {
+    KyuubiSqlTemplate template = KyuubiSqlTemplate.parse("INSERT INTO x VALUES (?, f(?)) ");
+    assertEquals("INSERT INTO x VALUES ", template.getValuesPrefix());
+    assertEquals(2, template.getValuesTuple().numParameters());
+    assertEquals(" ", template.getValuesSuffix());
+    assertNull(KyuubiSqlTemplate.parse("insert into x select ? from values").getValuesTuple());
+    assertNull(KyuubiSqlTemplate.parse("insert into x values (?), (?)").getValuesTuple());
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hive.service.rpc.thrift.TCLIService;
+import org.apache.hive.service.rpc.thrift.TExecuteStatementReq;
+import org.apache.hive.service.rpc.thrift.TExecuteStatementResp;
+import org.apache.hive.service.rpc.thrift.TGetOperationStatusReq;
+import org.apache.hive.service.rpc.thrift.TGetOperationStatusResp;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Test;
+
+public class TestKyuubiTransportPool {
+
+  @Test
+  public void testConcurrentCallsShareThePool() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger inFlight = new AtomicInteger();
+    Set<TCLIService.Iface> used = ConcurrentHashMap.newKeySet();
+    TCLIService.Iface[] clients = new TCLIService.Iface[2];
+    for (int i = 0; i < clients.length; i++) {
+      TCLIService.Iface client = mock(TCLIService.Iface.class);
+      when(client.GetOperationStatus(any(TGetOperationStatusReq.class)))
+          .thenAnswer(
+              invocation -> {
+                used.add(client);
+                inFlight.incrementAndGet();
+                release.await();
+                inFlight.decrementAndGet();
+                return new TGetOperationStatusResp();
+              });
+      clients[i] = client;
+    }
+    TCLIService.Iface pooled = KyuubiConnection.newPooledClient(Arrays.asList(clients));
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Future<?>[] calls = new Future<?>[3];
+      for (int i = 0; i < calls.length; i++) {
+        calls[i] = executor.submit(() -> pooled.GetOperationStatus(new TGetOperationStatusReq()));
+      }
+      long deadline = System.currentTimeMillis() + 10000;
+      while (inFlight.get() < 2 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      // one call per transport, the third waits for an idle one
+      Thread.sleep(200);
+      assertEquals(2, inFlight.get());
+      assertEquals(2, used.size());
+
+      release.countDown();
+      for (Future<?> call : calls) {
+        call.get(10, TimeUnit.SECONDS);
+      }
+      assertEquals(0, inFlight.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFailoverToAnotherTransport() throws Exception {
+    TCLIService.Iface broken = mock(TCLIService.Iface.class);
+    TCLIService.Iface healthy = mock(TCLIService.Iface.class);
+    TExecuteStatementResp executed = new TExecuteStatementResp();
+    TGetOperationStatusResp status = new TGetOperationStatusResp();
+    when(broken.ExecuteStatement(any(TExecuteStatementReq.class)))
+        .thenThrow(new TTransportException("broken pipe"));
+    when(healthy.ExecuteStatement(any(TExecuteStatementReq.class))).thenReturn(executed);
+    when(healthy.GetOperationStatus(any(TGetOperationStatusReq.class))).thenReturn(status);
+    TCLIService.Iface pooled = KyuubiConnection.newPooledClient(Arrays.asList(broken, healthy));
+
+    // a statement is not sent twice, the failure reaches the caller
+    try {
+      pooled.ExecuteStatement(new TExecuteStatementReq());
+      fail("the transport failure must not be hidden");
+    } catch (TTransportException e) {
+      // expected
+    }
+    // the broken transport is dropped and the later calls go to the healthy one
+    for (int i = 0; i < 3; i++) {
+      assertSame(executed, pooled.ExecuteStatement(new TExecuteStatementReq()));
+    }
+    verify(broken, times(1)).ExecuteStatement(any(TExecuteStatementReq.class));
+
+    // a call safe to repeat fails over transparently
+    when(broken.GetOperationStatus(any(TGetOperationStatusReq.class)))
+        .thenThrow(new TTransportException("broken pipe"));
+    TCLIService.Iface retrying = KyuubiConnection.newPooledClient(Arrays.asList(broken, healthy));
+    assertSame(status, retrying.GetOperationStatus(new TGetOperationStatusReq()));
+  }
+
+  @Test
+  public void testAllTransportsBroken() throws Exception {
+    TCLIService.Iface broken = mock(TCLIService.Iface.class);
+    when(broken.GetOperationStatus(any(TGetOperationStatusReq.class)))
+        .thenThrow(new TTransportException("broken pipe"));
+    KyuubiConnection.PooledHandler handler =
+        new KyuubiConnection.PooledHandler(Collections.singletonList(broken));
+    TCLIService.Iface pooled =
+        (TCLIService.Iface)
+            Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[] {TCLIService.Iface.class}, handler);
+    for (int i = 0; i < 2; i++) {
+      try {
+        pooled.GetOperationStatus(new TGetOperationStatusReq());
+        fail("no transport is left");
+      } catch (TTransportException e) {
+        // expected, and without waiting for an idle transport forever
+      }
+    }
+    assertFalse(handler.hasLiveClients());
+    verify(broken, times(1)).GetOperationStatus(any(TGetOperationStatusReq.class));
+  }
+}
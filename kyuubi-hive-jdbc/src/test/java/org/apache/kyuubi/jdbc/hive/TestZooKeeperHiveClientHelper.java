@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class TestZooKeeperHiveClientHelper {
+
+  private static String serverData(int openSessions, int execPoolActive) {
+    return "hive.server2.thrift.bind.host=localhost;hive.server2.thrift.port=10009;"
+        + ZooKeeperHiveClientHelper.LOAD_OPEN_SESSIONS
+        + "="
+        + openSessions
+        + ";"
+        + ZooKeeperHiveClientHelper.LOAD_EXEC_POOL_ACTIVE
+        + "="
+        + execPoolActive;
+  }
+
+  @Test
+  public void testParseLoad() {
+    assertEquals(7L, ZooKeeperHiveClientHelper.parseLoad(serverData(5, 2)));
+    assertEquals(-1L, ZooKeeperHiveClientHelper.parseLoad("localhost:10009"));
+    assertEquals(-1L, ZooKeeperHiveClientHelper.parseLoad(null));
+  }
+
+  @Test
+  public void testSelectLessLoadedServer() {
+    List<String> candidates = Arrays.asList("a", "b");
+    Map<String, String> servers = new HashMap<String, String>();
+    servers.put("a", serverData(10, 3));
+    servers.put("b", serverData(1, 0));
+    Random random = new Random(0);
+    for (int i = 0; i < 10; i++) {
+      assertEquals("b", ZooKeeperHiveClientHelper.selectServer(candidates, servers, random));
+    }
+  }
+
+  @Test
+  public void testSelectWithoutLoad() {
+    List<String> candidates = Arrays.asList("a", "b", "c");
+    Map<String, String> servers = new HashMap<String, String>();
+    servers.put("a", "localhost:10009");
+    servers.put("b", "localhost:10010");
+    servers.put("c", "localhost:10011");
+    Random random = new Random(0);
+    int[] picks = new int[3];
+    for (int i = 0; i < 300; i++) {
+      picks[
+          candidates.indexOf(
+              ZooKeeperHiveClientHelper.selectServer(candidates, servers, random))]++;
+    }
+    for (int pick : picks) {
+      assertEquals(true, pick > 50);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.jdbc.hive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.zookeeper.server.NIOServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestZooKeeperServiceDiscoveryCache {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private ZooKeeperServer zks;
+  private NIOServerCnxnFactory serverFactory;
+  private String ensemble;
+  private CuratorFramework client;
+
+  @Before
+  public void startZooKeeper() throws Exception {
+    zks = new ZooKeeperServer(folder.newFolder(), folder.newFolder(), 2000);
+    serverFactory = new NIOServerCnxnFactory();
+    serverFactory.configure(new InetSocketAddress("127.0.0.1", 0), 60);
+    serverFactory.startup(zks);
+    ensemble = "127.0.0.1:" + serverFactory.getLocalPort();
+    client = CuratorFrameworkFactory.newClient(ensemble, new RetryOneTime(100));
+    client.start();
+  }
+
+  @After
+  public void stopZooKeeper() {
+    ZooKeeperServiceDiscoveryCache.closeAll();
+    client.close();
+    stopServer();
+  }
+
+  private void stopServer() {
+    if (serverFactory != null) {
+      serverFactory.shutdown();
+      zks.shutdown();
+      serverFactory = null;
+    }
+  }
+
+  private void createServer(String namespace, String node, String data) throws Exception {
+    client
+        .create()
+        .creatingParentsIfNeeded()
+        .forPath("/" + namespace + "/" + node, data.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void eventually(Callable<Boolean> condition) throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.call()) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("condition not met within 10 seconds");
+      }
+      Thread.sleep(50);
+    }
+  }
+
+  @Test
+  public void testCacheHit() throws Exception {
+    createServer("hit", "server1", "host1:10009");
+    ZooKeeperServiceDiscoveryCache cache = ZooKeeperServiceDiscoveryCache.get(ensemble, "hit");
+    Map<String, String> servers = cache.getServers();
+    assertEquals(Collections.singletonMap("server1", "host1:10009"), servers);
+    // served from the cached view, without reading ZooKeeper again
+    assertSame(servers, cache.getServers());
+    assertSame(cache, ZooKeeperServiceDiscoveryCache.get(ensemble, "hit"));
+  }
+
+  @Test
+  public void testRefreshOnWatch() throws Exception {
+    createServer("watch", "server1", "host1:10009");
+    ZooKeeperServiceDiscoveryCache cache = ZooKeeperServiceDiscoveryCache.get(ensemble, "watch");
+    assertEquals(1, cache.getServers().size());
+
+    createServer("watch", "server2", "host2:10009");
+    eventually(() -> "host2:10009".equals(cache.getServers().get("server2")));
+
+    client.setData().forPath("/watch/server1", "host3:10009".getBytes(StandardCharsets.UTF_8));
+    eventually(() -> "host3:10009".equals(cache.getServers().get("server1")));
+
+    client.delete().forPath("/watch/server2");
+    eventually(() -> !cache.getServers().containsKey("server2"));
+  }
+
+  @Test
+  public void testFallbackWhenZooKeeperUnavailable() throws Exception {
+    createServer("fallback", "server1", "host1:10009");
+    ZooKeeperServiceDiscoveryCache cache =
+        new ZooKeeperServiceDiscoveryCache(ensemble, "fallback", new RetryOneTime(10), 1000);
+    ZooKeeperServiceDiscoveryCache empty =
+        new ZooKeeperServiceDiscoveryCache(ensemble, "fallback", new RetryOneTime(10), 1000);
+    try {
+      Map<String, String> expected = new HashMap<>();
+      expected.put("server1", "host1:10009");
+      assertEquals(expected, cache.getServers());
+
+      stopServer();
+      // a failed reload marks the view stale, the last known servers are still served
+      cache.reloadQuietly(false);
+      assertEquals(expected, cache.getServers());
+
+      try {
+        empty.getServers();
+        fail("there is nothing to fall back to without a loaded view");
+      } catch (Exception e) {
+        // expected
+      }
+    } finally {
+      cache.close();
+      empty.close();
+    }
+  }
+
+  @Test
+  public void testEvictIdle() throws Exception {
+    createServer("evict", "server1", "host1:10009");
+    ZooKeeperServiceDiscoveryCache cache = ZooKeeperServiceDiscoveryCache.get(ensemble, "evict");
+    assertEquals(1, cache.getServers().size());
+    ZooKeeperServiceDiscoveryCache.evictIdle(
+        System.currentTimeMillis() + ZooKeeperServiceDiscoveryCache.IDLE_EVICTION_MS);
+    ZooKeeperServiceDiscoveryCache reopened =
+        ZooKeeperServiceDiscoveryCache.get(ensemble, "evict");
+    assertNotSame(cache, reopened);
+    assertTrue(reopened.getServers().containsKey("server1"));
+  }
+}
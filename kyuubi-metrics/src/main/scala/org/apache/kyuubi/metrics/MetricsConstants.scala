@@ -24,6 +24,12 @@ object MetricsConstants {
   final val EXEC_POOL_ALIVE: String = KYUUBI + "exec.pool.threads.alive"
   final val EXEC_POOL_ACTIVE: String = KYUUBI + "exec.pool.threads.active"
 
+  final private val MYSQL = KYUUBI + "mysql."
+  final val MYSQL_EXEC_POOL_ALIVE: String = MYSQL + "exec.pool.threads.alive"
+  final val MYSQL_EXEC_POOL_ACTIVE: String = MYSQL + "exec.pool.threads.active"
+  final val MYSQL_EXEC_POOL_WAITING: String = MYSQL + "exec.pool.waiting"
+  final val MYSQL_EXEC_POOL_REJECTED: String = MYSQL + "exec.pool.rejected"
+
   final private val CONN = KYUUBI + "connection."
 
   final val CONN_OPEN: String = CONN + "opened"
@@ -17,8 +17,6 @@
 
 package org.apache.kyuubi.client
 
-import java.util.concurrent.locks.ReentrantLock
-
 import scala.collection.JavaConverters._
 
 import org.apache.hive.service.rpc.thrift._
@@ -27,31 +25,119 @@ import org.apache.thrift.transport.TSocket
 
 import org.apache.kyuubi.{KyuubiSQLException, Logging}
 import org.apache.kyuubi.config.KyuubiConf
-import org.apache.kyuubi.config.KyuubiConf.{ENGINE_LOGIN_TIMEOUT, ENGINE_REQUEST_TIMEOUT}
+import org.apache.kyuubi.config.KyuubiConf.{ENGINE_CONNECTION_POOL_SIZE, ENGINE_LOGIN_TIMEOUT, ENGINE_REQUEST_TIMEOUT}
 import org.apache.kyuubi.operation.FetchOrientation
 import org.apache.kyuubi.operation.FetchOrientation.FetchOrientation
 import org.apache.kyuubi.service.authentication.PlainSASLHelper
 import org.apache.kyuubi.session.SessionHandle
 import org.apache.kyuubi.util.ThriftUtils
 
-class KyuubiSyncThriftClient private (protocol: TProtocol)
-  extends TCLIService.Client(protocol) with Logging {
+/**
+ * The client of a Kyuubi session to its engine.
+ *
+ * The engine session is opened and closed over the primary connection, to which the engine binds
+ * the session, so that the session is closed by the engine if the primary connection is lost.
+ * The other requests are sent over any idle connection, and more connections, up to
+ * `maxConnections`, are opened on demand, so the requests of different operations do not wait
+ * for each other, e.g. fetching the results of a query while polling the status of another.
+ * A cancel request never waits, it is sent over a temporary connection if all are busy.
+ *
+ * @param openProtocol opens a new connection to the engine
+ * @param maxConnections the max number of connections kept to the engine
+ */
+class KyuubiSyncThriftClient private (openProtocol: () => TProtocol, maxConnections: Int)
+  extends Logging {
 
   @volatile private var _remoteSessionHandle: TSessionHandle = _
 
-  private val lock = new ReentrantLock()
+  private val primaryClient = new TCLIService.Client(openProtocol())
+
+  // guarded by `this`, the clients not sending requests, the most recently used first
+  private val idleClients = new java.util.ArrayDeque[TCLIService.Client]()
+  idleClients.push(primaryClient)
+
+  private var numClients: Int = 1
+
+  private var closed: Boolean = false
+
+  private def isOpen(client: TCLIService.Client): Boolean = {
+    client.getInputProtocol.getTransport.isOpen
+  }
+
+  private def closeTransport(client: TCLIService.Client): Unit = {
+    val transport = client.getInputProtocol.getTransport
+    if (transport.isOpen) transport.close()
+  }
+
+  private def takeIdleClient(primary: Boolean): Option[TCLIService.Client] = {
+    if (primary) {
+      Some(primaryClient).filter(client => idleClients.remove(client))
+    } else {
+      Option(idleClients.pollFirst())
+    }
+  }
 
   /**
-   * Lock every rpc call to send them sequentially
+   * Take an idle client, or open a new one if there is none and the limit is not reached, or
+   * else wait for one. The limit is ignored if `urgent` is true.
    */
-  private def withLockAcquired[T](block: => T): T = {
-    try {
-      lock.lock()
-      if (!protocol.getTransport.isOpen) {
+  private def acquireClient(primary: Boolean, urgent: Boolean): TCLIService.Client = {
+    val idle = synchronized {
+      var client = takeIdleClient(primary)
+      while (!closed && client.isEmpty && (primary || (!urgent && numClients >= maxConnections))) {
+        wait()
+        client = takeIdleClient(primary)
+      }
+      if (closed || !isOpen(primaryClient)) {
+        client.foreach(idleClients.push)
         throw KyuubiSQLException.connectionDoesNotExist()
       }
-      block
-    } finally lock.unlock()
+      if (client.isEmpty) numClients += 1
+      client
+    }
+
+    idle.getOrElse {
+      try {
+        val client = new TCLIService.Client(openProtocol())
+        debug(s"Opened a new connection to the engine for ${_remoteSessionHandle}")
+        client
+      } catch {
+        case e: Throwable =>
+          synchronized {
+            numClients -= 1
+            notifyAll()
+          }
+          throw e
+      }
+    }
+  }
+
+  /**
+   * Return a client after a request. Unless it is the primary one, the client is closed if the
+   * request failed, as the connection may be left in an undefined state, or if it is beyond the
+   * limit.
+   */
+  private def releaseClient(client: TCLIService.Client, failed: Boolean): Unit = synchronized {
+    if ((client ne primaryClient) && (closed || failed || numClients > maxConnections)) {
+      closeTransport(client)
+      numClients -= 1
+    } else {
+      idleClients.push(client)
+    }
+    notifyAll()
+  }
+
+  private def withClient[T](primary: Boolean = false, urgent: Boolean = false)(
+      request: TCLIService.Client => T): T = {
+    val client = acquireClient(primary, urgent)
+    var failed = true
+    try {
+      val result = request(client)
+      failed = false
+      result
+    } finally {
+      releaseClient(client, failed || !isOpen(client))
+    }
   }
 
   /**
@@ -66,7 +152,7 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
     req.setUsername(user)
     req.setPassword(password)
     req.setConfiguration(configs.asJava)
-    val resp = withLockAcquired(OpenSession(req))
+    val resp = withClient(primary = true)(_.OpenSession(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     _remoteSessionHandle = resp.getSessionHandle
     SessionHandle(_remoteSessionHandle, protocol)
@@ -75,13 +161,19 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
   def closeSession(): Unit = {
     val req = new TCloseSessionReq(_remoteSessionHandle)
     try {
-      val resp = withLockAcquired(CloseSession(req))
+      val resp = withClient(primary = true)(_.CloseSession(req))
       ThriftUtils.verifyTStatus(resp.getStatus)
     } catch {
       case e: Exception =>
         throw KyuubiSQLException("Error while cleaning up the engine resources", e)
     } finally {
-      if (protocol.getTransport.isOpen) protocol.getTransport.close()
+      synchronized {
+        closed = true
+        idleClients.asScala.foreach(closeTransport)
+        idleClients.clear()
+        notifyAll()
+      }
+      closeTransport(primaryClient)
     }
   }
 
@@ -94,21 +186,21 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
     req.setStatement(statement)
     req.setRunAsync(shouldRunAsync)
     req.setQueryTimeout(queryTimeout)
-    val resp = withLockAcquired(ExecuteStatement(req))
+    val resp = withClient()(_.ExecuteStatement(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     resp.getOperationHandle
   }
 
   def getTypeInfo: TOperationHandle = {
     val req = new TGetTypeInfoReq(_remoteSessionHandle)
-    val resp = withLockAcquired(GetTypeInfo(req))
+    val resp = withClient()(_.GetTypeInfo(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     resp.getOperationHandle
   }
 
   def getCatalogs: TOperationHandle = {
     val req = new TGetCatalogsReq(_remoteSessionHandle)
-    val resp = withLockAcquired(GetCatalogs(req))
+    val resp = withClient()(_.GetCatalogs(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     resp.getOperationHandle
   }
@@ -118,7 +210,7 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
     req.setSessionHandle(_remoteSessionHandle)
     req.setCatalogName(catalogName)
     req.setSchemaName(schemaName)
-    val resp = withLockAcquired(GetSchemas(req))
+    val resp = withClient()(_.GetSchemas(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     resp.getOperationHandle
   }
@@ -134,14 +226,14 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
     req.setSchemaName(schemaName)
     req.setTableName(tableName)
     req.setTableTypes(tableTypes)
-    val resp = withLockAcquired(GetTables(req))
+    val resp = withClient()(_.GetTables(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     resp.getOperationHandle
   }
 
   def getTableTypes: TOperationHandle = {
     val req = new TGetTableTypesReq(_remoteSessionHandle)
-    val resp = withLockAcquired(GetTableTypes(req))
+    val resp = withClient()(_.GetTableTypes(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     resp.getOperationHandle
   }
@@ -156,7 +248,7 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
     req.setSchemaName(schemaName)
     req.setTableName(tableName)
     req.setColumnName(columnName)
-    val resp = withLockAcquired(GetColumns(req))
+    val resp = withClient()(_.GetColumns(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     resp.getOperationHandle
   }
@@ -168,20 +260,20 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
     val req = new TGetFunctionsReq(_remoteSessionHandle, functionName)
     req.setCatalogName(catalogName)
     req.setSchemaName(schemaName)
-    val resp = withLockAcquired(GetFunctions(req))
+    val resp = withClient()(_.GetFunctions(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     resp.getOperationHandle
   }
 
   def getOperationStatus(operationHandle: TOperationHandle): TGetOperationStatusResp = {
     val req = new TGetOperationStatusReq(operationHandle)
-    val resp = withLockAcquired(GetOperationStatus(req))
+    val resp = withClient()(_.GetOperationStatus(req))
     resp
   }
 
   def cancelOperation(operationHandle: TOperationHandle): Unit = {
     val req = new TCancelOperationReq(operationHandle)
-    val resp = withLockAcquired(CancelOperation(req))
+    val resp = withClient(urgent = true)(_.CancelOperation(req))
     if (resp.getStatus.getStatusCode == TStatusCode.SUCCESS_STATUS) {
       info(s"$req succeed on engine side")
     } else {
@@ -191,7 +283,7 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
 
   def closeOperation(operationHandle: TOperationHandle): Unit = {
     val req = new TCloseOperationReq(operationHandle)
-    val resp = withLockAcquired(CloseOperation(req))
+    val resp = withClient()(_.CloseOperation(req))
     if (resp.getStatus.getStatusCode == TStatusCode.SUCCESS_STATUS) {
       info(s"$req succeed on engine side")
     } else {
@@ -201,7 +293,7 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
 
   def getResultSetMetadata(operationHandle: TOperationHandle): TTableSchema = {
     val req = new TGetResultSetMetadataReq(operationHandle)
-    val resp = withLockAcquired(GetResultSetMetadata(req))
+    val resp = withClient()(_.GetResultSetMetadata(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     resp.getSchema
   }
@@ -215,7 +307,7 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
     val req = new TFetchResultsReq(operationHandle, or, maxRows)
     val fetchType = if (fetchLog) 1.toShort else 0.toShort
     req.setFetchType(fetchType)
-    val resp = withLockAcquired(FetchResults(req))
+    val resp = withClient()(_.FetchResults(req))
     ThriftUtils.verifyTStatus(resp.getStatus)
     resp.getResults
   }
@@ -227,7 +319,7 @@ class KyuubiSyncThriftClient private (protocol: TProtocol)
     req.setSessionHandle(_remoteSessionHandle)
     req.setDelegationToken(encodedCredentials)
     try {
-      val resp = withLockAcquired(RenewDelegationToken(req))
+      val resp = withClient()(_.RenewDelegationToken(req))
       if (resp.getStatus.getStatusCode == TStatusCode.SUCCESS_STATUS) {
         debug(s"$req succeed on engine side")
       } else {
@@ -249,10 +341,13 @@ private[kyuubi] object KyuubiSyncThriftClient {
     val passwd = Option(password).filter(_.nonEmpty).getOrElse("anonymous")
     val loginTimeout = conf.get(ENGINE_LOGIN_TIMEOUT).toInt
     val requestTimeout = conf.get(ENGINE_REQUEST_TIMEOUT).toInt
-    val tSocket = new TSocket(host, port, requestTimeout, loginTimeout)
-    val tTransport = PlainSASLHelper.getPlainTransport(user, passwd, tSocket)
-    tTransport.open()
-    val tProtocol = new TBinaryProtocol(tTransport)
-    new KyuubiSyncThriftClient(tProtocol)
+    val maxConnections = conf.get(ENGINE_CONNECTION_POOL_SIZE)
+    val openProtocol = () => {
+      val tSocket = new TSocket(host, port, requestTimeout, loginTimeout)
+      val tTransport = PlainSASLHelper.getPlainTransport(user, passwd, tSocket)
+      tTransport.open()
+      new TBinaryProtocol(tTransport)
+    }
+    new KyuubiSyncThriftClient(openProtocol, maxConnections)
   }
 }
@@ -17,9 +17,11 @@
 
 package org.apache.kyuubi.engine
 
+import java.nio.charset.StandardCharsets
 import java.util.UUID
 import java.util.concurrent.TimeUnit
 
+import scala.collection.JavaConverters._
 import scala.util.Random
 
 import com.codahale.metrics.MetricRegistry
@@ -28,6 +30,7 @@ import org.apache.curator.framework.CuratorFramework
 import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex
 import org.apache.curator.utils.ZKPaths
 import org.apache.hadoop.security.UserGroupInformation
+import org.apache.zookeeper.KeeperException.NoNodeException
 
 import org.apache.kyuubi.{KYUUBI_VERSION, KyuubiSQLException, Logging, Utils}
 import org.apache.kyuubi.config.KyuubiConf
@@ -42,6 +45,7 @@ import org.apache.kyuubi.ha.client.ServiceDiscovery.getServerHost
 import org.apache.kyuubi.metrics.MetricsConstants.{ENGINE_FAIL, ENGINE_TIMEOUT, ENGINE_TOTAL}
 import org.apache.kyuubi.metrics.MetricsSystem
 import org.apache.kyuubi.operation.log.OperationLog
+import org.apache.kyuubi.session.CLIENT_IP_KEY
 
 /**
  * The description and functionality of an engine at server side
@@ -85,6 +89,16 @@ private[kyuubi] class EngineRef(
     case _ => "default" // [KYUUBI #1293]
   }
 
+  // The number of the standby engines, only for the CONNECTION share level
+  private[kyuubi] val standbyPoolSize: Int = shareLevel match {
+    case CONNECTION => conf.get(ENGINE_STANDBY_POOL_SIZE)
+    case _ => 0
+  }
+
+  // The conf to launch the standby engines, taken before it is changed by launching an engine
+  private val standbyConf: KyuubiConf =
+    if (standbyPoolSize > 0) conf.clone.unset(CLIENT_IP_KEY) else null
+
   // Launcher of the engine
   private[kyuubi] val appUser: String = shareLevel match {
     case SERVER => Utils.currentUser
@@ -134,6 +148,35 @@ private[kyuubi] class EngineRef(
     }
   }
 
+  /**
+   * The space where the standby engines of the same user and engine conf expose themselves:
+   *   /`serverSpace_CONNECTION_engineType_standby`/`user`/`digest of the engine conf`
+   *
+   * The tickets of the unclaimed ones are kept in the sibling `standbyTicketSpace`, named by
+   * their engine ref ids.
+   */
+  @VisibleForTesting
+  private[kyuubi] lazy val standbySpace: String = {
+    ZKPaths.makePath(
+      s"${serverSpace}_${KYUUBI_VERSION}_${shareLevel}_${engineType}_standby",
+      appUser,
+      standbyDigest)
+  }
+
+  @VisibleForTesting
+  private[kyuubi] lazy val standbyTicketSpace: String = {
+    ZKPaths.makePath(
+      s"${serverSpace}_${KYUUBI_VERSION}_${shareLevel}_${engineType}_standby_tickets",
+      appUser,
+      standbyDigest)
+  }
+
+  private lazy val standbyDigest: String = {
+    val launchConf = standbyConf.getAll - HA_ZK_NAMESPACE.key - HA_ZK_ENGINE_REF_ID.key
+    val bytes = launchConf.toSeq.sorted.mkString("\n").getBytes(StandardCharsets.UTF_8)
+    UUID.nameUUIDFromBytes(bytes).toString
+  }
+
   /**
    * The distributed lock path used to ensure only once engine being created for non-CONNECTION
    * share level.
@@ -169,19 +212,29 @@ private[kyuubi] class EngineRef(
       zkClient: CuratorFramework,
       extraEngineLog: Option[OperationLog]): (String, Int) = tryWithLock(zkClient) {
     // Get the engine address ahead if another process has succeeded
-    var engineRef = getServerHost(zkClient, engineSpace)
+    val engineRef = getServerHost(zkClient, engineSpace)
     if (engineRef.nonEmpty) return engineRef.get
 
-    conf.set(HA_ZK_NAMESPACE, engineSpace)
-    conf.set(HA_ZK_ENGINE_REF_ID, engineRefId)
+    launch(zkClient, conf, engineSpace, engineRefId, defaultEngineName, extraEngineLog)
+  }
+
+  private def launch(
+      zkClient: CuratorFramework,
+      launchConf: KyuubiConf,
+      namespace: String,
+      refId: String,
+      engineName: String,
+      extraEngineLog: Option[OperationLog]): (String, Int) = {
+    launchConf.set(HA_ZK_NAMESPACE, namespace)
+    launchConf.set(HA_ZK_ENGINE_REF_ID, refId)
     val builder = engineType match {
       case SPARK_SQL =>
-        conf.setIfMissing(SparkProcessBuilder.APP_KEY, defaultEngineName)
+        launchConf.setIfMissing(SparkProcessBuilder.APP_KEY, engineName)
         // tag is a seq type with comma-separated
-        conf.set(
+        launchConf.set(
           SparkProcessBuilder.TAG_KEY,
-          conf.getOption(SparkProcessBuilder.TAG_KEY).map(_ + ",").getOrElse("") + "KYUUBI")
-        new SparkProcessBuilder(appUser, conf, extraEngineLog)
+          launchConf.getOption(SparkProcessBuilder.TAG_KEY).map(_ + ",").getOrElse("") + "KYUUBI")
+        new SparkProcessBuilder(appUser, launchConf, extraEngineLog)
       case _ => throw new UnsupportedOperationException(s"Unsupported engine type: ${engineType}")
     }
     MetricsSystem.tracing(_.incCount(ENGINE_TOTAL))
@@ -190,6 +243,7 @@ private[kyuubi] class EngineRef(
       val process = builder.start
       val started = System.currentTimeMillis()
       var exitValue: Option[Int] = None
+      var engineRef: Option[(String, Int)] = None
       while (engineRef.isEmpty) {
         if (exitValue.isEmpty && process.waitFor(1, TimeUnit.SECONDS)) {
           exitValue = Some(process.exitValue())
@@ -210,7 +264,7 @@ private[kyuubi] class EngineRef(
             s"Timeout($timeout ms) to launched $engineType engine with $builder. $killMessage",
             builder.getError)
         }
-        engineRef = getEngineByRefId(zkClient, engineSpace, engineRefId)
+        engineRef = getEngineByRefId(zkClient, namespace, refId)
       }
       engineRef.get
     } finally {
@@ -220,6 +274,68 @@ private[kyuubi] class EngineRef(
     }
   }
 
+  private def standbyTickets(zkClient: CuratorFramework): Seq[String] = {
+    try {
+      zkClient.getChildren.forPath(standbyTicketSpace).asScala
+    } catch {
+      case _: NoNodeException => Nil
+    }
+  }
+
+  /**
+   * Claim an unclaimed standby engine, the one deleting its ticket successfully wins it.
+   */
+  private def claimStandby(zkClient: CuratorFramework): Option[(String, Int)] = {
+    standbyTickets(zkClient).iterator.map { refId =>
+      try {
+        zkClient.delete().forPath(ZKPaths.makePath(standbyTicketSpace, refId))
+        val engineRef = getEngineByRefId(zkClient, standbySpace, refId)
+        if (engineRef.isEmpty) {
+          warn(s"The standby engine $refId in $standbySpace is gone")
+        } else {
+          info(s"Claimed the standby engine $refId in $standbySpace")
+        }
+        engineRef
+      } catch {
+        case _: NoNodeException => None // claimed by others
+      }
+    }.collectFirst { case Some(engineRef) => engineRef }
+  }
+
+  /**
+   * The number of standby engines to launch for the pool to be full. The tickets outliving their
+   * engines, e.g. the ones timed out or crashed, are not counted but removed.
+   */
+  private[kyuubi] def missingStandbyEngines(zkClient: CuratorFramework): Int = {
+    val numStandbyEngines = standbyTickets(zkClient).count { refId =>
+      getEngineByRefId(zkClient, standbySpace, refId).isDefined || {
+        try {
+          zkClient.delete().forPath(ZKPaths.makePath(standbyTicketSpace, refId))
+          info(s"Removed the ticket of the standby engine $refId in $standbySpace, which is gone")
+        } catch {
+          case _: NoNodeException => // claimed or removed by others
+        }
+        false
+      }
+    }
+    standbyPoolSize - numStandbyEngines
+  }
+
+  /**
+   * Launch a standby engine and make it claimable.
+   */
+  private[kyuubi] def launchStandby(zkClient: CuratorFramework): Unit = {
+    val refId = UUID.randomUUID().toString
+    launch(
+      zkClient,
+      standbyConf.clone.set(ENGINE_IDLE_TIMEOUT, conf.get(ENGINE_STANDBY_IDLE_TIMEOUT)),
+      standbySpace,
+      refId,
+      s"kyuubi_${shareLevel}_${engineType}_${appUser}_standby_$refId",
+      None)
+    zkClient.create().creatingParentsIfNeeded().forPath(ZKPaths.makePath(standbyTicketSpace, refId))
+  }
+
   /**
    * Get the engine ref from engine space first or create a new one
    *
@@ -230,6 +346,7 @@ private[kyuubi] class EngineRef(
       zkClient: CuratorFramework,
       extraEngineLog: Option[OperationLog] = None): (String, Int) = {
     getServerHost(zkClient, engineSpace)
+      .orElse(if (standbyPoolSize > 0) claimStandby(zkClient) else None)
       .getOrElse {
         create(zkClient, extraEngineLog)
       }
@@ -51,6 +51,12 @@ class ExecuteStatement(
     session.sessionManager.getConf.get(KyuubiConf.OPERATION_STATUS_POLLING_MAX_ATTEMPTS)
   }
 
+  // only if the scheduled status polling is enabled
+  private val statusPoller: Option[StatusPoller] = session.sessionManager.operationManager match {
+    case manager: KyuubiOperationManager => manager.statusPoller
+    case _ => None
+  }
+
   override def getOperationLog: Option[OperationLog] = Option(_operationLog)
 
   override def beforeRun(): Unit = {
@@ -72,72 +78,108 @@ class ExecuteStatement(
     } catch onError()
   }
 
-  private def waitStatementComplete(): Unit =
-    try {
-      setState(OperationState.RUNNING)
-      var statusResp: TGetOperationStatusResp = null
-      var currentAttempts = 0
+  private var statusResp: TGetOperationStatusResp = _
 
-      def fetchOperationStatusWithRetry(): Unit = {
-        try {
-          statusResp = client.getOperationStatus(_remoteOpHandle)
-          currentAttempts = 0 // reset attempts whenever get touch with engine again
-        } catch {
-          case e: TException if currentAttempts >= maxStatusPollOnFailure =>
-            error(
-              s"Failed to get ${session.user}'s query[$getHandle] status after" +
-                s" $maxStatusPollOnFailure times, aborting",
-              e)
-            throw e
-          case e: TException =>
-            currentAttempts += 1
-            warn(
-              s"Failed to get ${session.user}'s query[$getHandle] status" +
-                s" ($currentAttempts / $maxStatusPollOnFailure)",
-              e)
-            Thread.sleep(100)
-        }
-      }
+  private var statusPollingAttempts = 0
 
-      // initialize operation status
-      while (statusResp == null) { fetchOperationStatusWithRetry() }
+  /**
+   * Fetch the status of the remote statement, returns false on a transport failure that should
+   * be retried later.
+   */
+  private def fetchOperationStatusWithRetry(): Boolean = {
+    try {
+      statusResp = client.getOperationStatus(_remoteOpHandle)
+      statusPollingAttempts = 0 // reset attempts whenever get touch with engine again
+      true
+    } catch {
+      case e: TException if statusPollingAttempts >= maxStatusPollOnFailure =>
+        error(
+          s"Failed to get ${session.user}'s query[$getHandle] status after" +
+            s" $maxStatusPollOnFailure times, aborting",
+          e)
+        throw e
+      case e: TException =>
+        statusPollingAttempts += 1
+        warn(
+          s"Failed to get ${session.user}'s query[$getHandle] status" +
+            s" ($statusPollingAttempts / $maxStatusPollOnFailure)",
+          e)
+        false
+    }
+  }
+
+  /**
+   * Handle the last status of the remote statement, returns true if it completes.
+   */
+  private def onStatementStatus(): Boolean = {
+    fetchQueryLog()
+    verifyTStatus(statusResp.getStatus)
+    val remoteState = statusResp.getOperationState
+    info(s"Query[$statementId] in ${remoteState.name()}")
+    val isComplete = remoteState match {
+      case INITIALIZED_STATE | PENDING_STATE | RUNNING_STATE =>
+        false
+
+      case FINISHED_STATE =>
+        setState(OperationState.FINISHED)
+        true
+
+      case CLOSED_STATE =>
+        setState(OperationState.CLOSED)
+        true
+
+      case CANCELED_STATE =>
+        setState(OperationState.CANCELED)
+        true
+
+      case TIMEDOUT_STATE =>
+        setState(OperationState.TIMEOUT)
+        true
+
+      case ERROR_STATE =>
+        throw KyuubiSQLException(statusResp.getErrorMessage)
+
+      case UKNOWN_STATE =>
+        throw KyuubiSQLException(s"UNKNOWN STATE for $statement")
+    }
+    sendCredentialsIfNeeded()
+    isComplete
+  }
 
+  private def waitStatementComplete(): Unit =
+    try {
+      setState(OperationState.RUNNING)
       var isComplete = false
       while (!isComplete) {
-        fetchQueryLog()
-        verifyTStatus(statusResp.getStatus)
-        val remoteState = statusResp.getOperationState
-        info(s"Query[$statementId] in ${remoteState.name()}")
-        isComplete = true
-        remoteState match {
-          case INITIALIZED_STATE | PENDING_STATE | RUNNING_STATE =>
-            isComplete = false
-            fetchOperationStatusWithRetry()
-
-          case FINISHED_STATE =>
-            setState(OperationState.FINISHED)
-
-          case CLOSED_STATE =>
-            setState(OperationState.CLOSED)
-
-          case CANCELED_STATE =>
-            setState(OperationState.CANCELED)
-
-          case TIMEDOUT_STATE =>
-            setState(OperationState.TIMEOUT)
-
-          case ERROR_STATE =>
-            throw KyuubiSQLException(statusResp.getErrorMessage)
-
-          case UKNOWN_STATE =>
-            throw KyuubiSQLException(s"UNKNOWN STATE for $statement")
+        if (fetchOperationStatusWithRetry()) {
+          isComplete = onStatementStatus()
+        } else {
+          Thread.sleep(100)
         }
-        sendCredentialsIfNeeded()
       }
       // see if anymore log could be fetched
       fetchQueryLog()
     } catch onError()
 
+  /**
+   * Poll the status of the remote statement once by the [[StatusPoller]], returns true if it
+   * completes.
+   */
+  private def pollStatementStatus(): Boolean = {
+    // cancelled or closed by the client meanwhile
+    if (isTerminalState(state)) return true
+    try {
+      val isComplete = fetchOperationStatusWithRetry() && onStatementStatus()
+      // see if anymore log could be fetched
+      if (isComplete) fetchQueryLog()
+      isComplete
+    } catch {
+      case e: Throwable =>
+        onError()(e)
+        true
+    }
+  }
+
   private def sendCredentialsIfNeeded(): Unit = {
     val appUser = session.asInstanceOf[KyuubiSessionImpl].engine.appUser
     val sessionManager = session.sessionManager.asInstanceOf[KyuubiSessionManager]
@@ -161,12 +203,21 @@ class ExecuteStatement(
 
   override protected def runInternal(): Unit = {
     executeStatement()
-    val sessionManager = session.sessionManager
-    val asyncOperation: Runnable = () => waitStatementComplete()
-    try {
-      val opHandle = sessionManager.submitBackgroundOperation(asyncOperation)
-      setBackgroundHandle(opHandle)
-    } catch onError("submitting query in background, query rejected")
+    statusPoller match {
+      case Some(poller) =>
+        setState(OperationState.RUNNING)
+        try {
+          setBackgroundHandle(poller.schedule(() => pollStatementStatus()))
+        } catch onError("submitting query in background, query rejected")
+
+      case None =>
+        val sessionManager = session.sessionManager
+        val asyncOperation: Runnable = () => waitStatementComplete()
+        try {
+          val opHandle = sessionManager.submitBackgroundOperation(asyncOperation)
+          setBackgroundHandle(opHandle)
+        } catch onError("submitting query in background, query rejected")
+    }
 
     if (!shouldRunAsync) getBackgroundHandle.get()
   }
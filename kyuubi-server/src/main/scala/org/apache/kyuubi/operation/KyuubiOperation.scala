@@ -53,6 +53,16 @@ abstract class KyuubiOperation(opType: OperationType, session: Session)
 
   def remoteOpHandle(): TOperationHandle = _remoteOpHandle
 
+  // only used after the remote operation is submitted
+  private lazy val resultPrefetcher: Option[ResultPrefetcher] =
+    session.sessionManager.operationManager match {
+      case manager: KyuubiOperationManager =>
+        manager.newResultPrefetcher { (order, rowSetSize) =>
+          client.fetchResults(_remoteOpHandle, order, rowSetSize, fetchLog = false)
+        }
+      case _ => None
+    }
+
   protected def verifyTStatus(tStatus: TStatus): Unit = {
     ThriftUtils.verifyTStatus(tStatus)
   }
@@ -103,6 +113,7 @@ abstract class KyuubiOperation(opType: OperationType, session: Session)
       setState(OperationState.CANCELED)
       MetricsSystem.tracing(_.decCount(MetricRegistry.name(OPERATION_OPEN, opTypeName)))
       if (_remoteOpHandle != null) {
+        resultPrefetcher.foreach(_.close())
         try {
           client.cancelOperation(_remoteOpHandle)
         } catch {
@@ -123,6 +134,7 @@ abstract class KyuubiOperation(opType: OperationType, session: Session)
         } catch {
           case e: IOException => error(e.getMessage, e)
         }
+        resultPrefetcher.foreach(_.close())
 
         try {
           client.closeOperation(_remoteOpHandle)
@@ -154,7 +166,10 @@ abstract class KyuubiOperation(opType: OperationType, session: Session)
     validateDefaultFetchOrientation(order)
     assertState(OperationState.FINISHED)
     setHasResultSet(true)
-    client.fetchResults(_remoteOpHandle, order, rowSetSize, fetchLog = false)
+    resultPrefetcher match {
+      case Some(prefetcher) => prefetcher.fetch(order, rowSetSize)
+      case None => client.fetchResults(_remoteOpHandle, order, rowSetSize, fetchLog = false)
+    }
   }
 
   override def shouldRunAsync: Boolean = false
@@ -17,17 +17,17 @@
 
 package org.apache.kyuubi.operation
 
-import java.util.concurrent.TimeUnit
+import java.util.concurrent.{ScheduledExecutorService, ThreadPoolExecutor, TimeUnit}
 
 import org.apache.hive.service.rpc.thrift.TRowSet
 
 import org.apache.kyuubi.config.KyuubiConf
-import org.apache.kyuubi.config.KyuubiConf.OPERATION_QUERY_TIMEOUT
+import org.apache.kyuubi.config.KyuubiConf._
 import org.apache.kyuubi.metrics.MetricsConstants.OPERATION_OPEN
 import org.apache.kyuubi.metrics.MetricsSystem
 import org.apache.kyuubi.operation.FetchOrientation.FetchOrientation
 import org.apache.kyuubi.session.{KyuubiSessionImpl, Session}
-import org.apache.kyuubi.util.ThriftUtils
+import org.apache.kyuubi.util.{ThreadUtils, ThriftUtils}
 
 class KyuubiOperationManager private (name: String) extends OperationManager(name) {
 
@@ -35,11 +35,46 @@ class KyuubiOperationManager private (name: String) extends OperationManager(nam
 
   private var queryTimeout: Option[Long] = None
 
+  private var resultPrefetchBatchSize: Int = _
+
+  // the background engine fetches of all the operations, only if the result prefetch is enabled
+  private var resultPrefetchPool: Option[ThreadPoolExecutor] = None
+
+  // tracks the running statements, only if the scheduled status polling is enabled
+  private var statusPollingScheduler: Option[ScheduledExecutorService] = None
+
+  private[operation] var statusPoller: Option[StatusPoller] = None
+
   override def initialize(conf: KyuubiConf): Unit = {
     queryTimeout = conf.get(OPERATION_QUERY_TIMEOUT).map(TimeUnit.MILLISECONDS.toSeconds)
+    resultPrefetchBatchSize = conf.get(OPERATION_RESULT_PREFETCH_BATCH_SIZE)
+    if (conf.get(OPERATION_RESULT_PREFETCH)) {
+      resultPrefetchPool = Some(ThreadUtils.newDaemonQueuedThreadPool(
+        conf.get(OPERATION_RESULT_PREFETCH_THREADS),
+        Int.MaxValue,
+        60000L,
+        "result-prefetch-pool"))
+    }
+    if (conf.get(OPERATION_STATUS_POLLING_SCHEDULED)) {
+      statusPollingScheduler = Some(ThreadUtils.newDaemonScheduledThreadPool(
+        conf.get(OPERATION_STATUS_POLLING_THREADS),
+        "status-polling-scheduler"))
+      statusPoller = statusPollingScheduler.map(
+        new StatusPoller(
+          _,
+          math.max(conf.get(OPERATION_STATUS_POLLING_MAX_INTERVAL), StatusPoller.MIN_INTERVAL)))
+    }
     super.initialize(conf)
   }
 
+  /**
+   * Create a [[ResultPrefetcher]] for an operation if the result prefetch is enabled.
+   */
+  private[operation] def newResultPrefetcher(
+      fetchResults: (FetchOrientation, Int) => TRowSet): Option[ResultPrefetcher] = {
+    resultPrefetchPool.map(new ResultPrefetcher(fetchResults, resultPrefetchBatchSize, _))
+  }
+
   private def getQueryTimeout(clientQueryTimeout: Long): Long = {
     // If clientQueryTimeout is smaller than systemQueryTimeout value,
     // we use the clientQueryTimeout value.
@@ -142,4 +177,10 @@ class KyuubiOperationManager private (name: String) extends OperationManager(nam
     MetricsSystem.tracing(_.registerGauge(OPERATION_OPEN, getOperationCount, 0))
     super.start()
   }
+
+  override def stop(): Unit = synchronized {
+    resultPrefetchPool.foreach(_.shutdownNow())
+    statusPollingScheduler.foreach(_.shutdownNow())
+    super.stop()
+  }
 }
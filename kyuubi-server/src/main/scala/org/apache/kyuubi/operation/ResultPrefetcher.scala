@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.operation
+
+import java.util.concurrent.{CompletableFuture, ExecutionException, Executor, RejectedExecutionException}
+
+import org.apache.hive.service.rpc.thrift._
+
+import org.apache.kyuubi.Logging
+import org.apache.kyuubi.operation.FetchOrientation.{FETCH_FIRST, FETCH_NEXT, FetchOrientation}
+import org.apache.kyuubi.util.RowSetUtils.{numRows, slice}
+
+/**
+ * Fetches the result of a remote operation from the engine ahead of the client.
+ *
+ * Every engine fetch asks for at least `batchSize` rows, and the rows beyond the client fetch size
+ * are returned by the following client fetches. As soon as a batch is taken, the next one is
+ * fetched in the background by `executor`, so the engine round trip overlaps with the one between
+ * the client and the server.
+ *
+ * @param fetchResults fetches a batch of the given orientation and size from the engine
+ * @param batchSize the minimum number of rows of an engine fetch
+ * @param executor runs the background engine fetches
+ */
+class ResultPrefetcher(
+    fetchResults: (FetchOrientation, Int) => TRowSet,
+    batchSize: Int,
+    executor: Executor) extends Logging {
+
+  // the last batch fetched from the engine, of which the rows before `offset` are returned
+  private var batch: TRowSet = _
+  private var offset: Int = 0
+  private var pending: CompletableFuture[TRowSet] = _
+  private var fetchSize: Int = batchSize
+  private var closed: Boolean = false
+
+  def fetch(order: FetchOrientation, rowSetSize: Int): TRowSet = synchronized {
+    if (closed) throw new IllegalStateException("The result prefetcher has been closed")
+    fetchSize = math.max(batchSize, rowSetSize)
+    if (order == FETCH_FIRST) {
+      // the background fetch must reach the engine before the cursor is reset
+      awaitPending()
+      takeBatch(fetchResults(FETCH_FIRST, fetchSize))
+    } else if (batch == null || (offset >= numRows(batch) && numRows(batch) > 0)) {
+      takeBatch(if (pending != null) takePending() else fetchResults(FETCH_NEXT, fetchSize))
+    }
+
+    val size = math.min(rowSetSize, numRows(batch) - offset)
+    val rowSet = slice(batch, offset, size)
+    offset += size
+    if (pending == null && numRows(batch) > 0) prefetch()
+    rowSet
+  }
+
+  /**
+   * Drops the buffered rows, the background fetch in flight, if any, is left to finish by itself.
+   */
+  def close(): Unit = synchronized {
+    closed = true
+    batch = null
+    pending = null
+  }
+
+  private def takeBatch(rowSet: TRowSet): Unit = {
+    batch = rowSet
+    offset = 0
+  }
+
+  private def prefetch(): Unit = {
+    try {
+      pending = CompletableFuture.supplyAsync(() => fetchResults(FETCH_NEXT, fetchSize), executor)
+    } catch {
+      case e: RejectedExecutionException =>
+        debug(s"Skip prefetching the next result batch: ${e.getMessage}")
+    }
+  }
+
+  private def takePending(): TRowSet = {
+    val future = pending
+    pending = null
+    try {
+      future.get()
+    } catch {
+      case e: ExecutionException => throw e.getCause
+    }
+  }
+
+  private def awaitPending(): Unit = {
+    if (pending != null) {
+      try {
+        takePending()
+      } catch {
+        case e: Throwable => debug(s"Ignore the prefetched result batch: ${e.getMessage}")
+      }
+    }
+  }
+}
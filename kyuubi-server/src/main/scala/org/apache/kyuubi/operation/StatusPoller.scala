@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.operation
+
+import java.util.concurrent.{CompletableFuture, ScheduledExecutorService, TimeUnit}
+
+/**
+ * Polls the status of the statements running in the engines on a shared scheduled pool, so that
+ * a statement only occupies a thread while a poll is in progress rather than for its whole
+ * runtime.
+ *
+ * @param scheduler the shared pool running the polls
+ * @param maxInterval the max interval(ms) between two polls of a statement
+ */
+class StatusPoller(scheduler: ScheduledExecutorService, maxInterval: Long) {
+  import StatusPoller._
+
+  /**
+   * Run `poll` right away, then again and again with an interval doubling from
+   * `MIN_INTERVAL` up to `maxInterval`, until it returns true or fails.
+   *
+   * @param poll polls the status once, returns true if the statement completes
+   * @return the future completed after the last poll
+   */
+  def schedule(poll: () => Boolean): CompletableFuture[Unit] = {
+    val future = new CompletableFuture[Unit]()
+
+    def pollAfter(delay: Long): Unit = {
+      scheduler.schedule(
+        new Runnable {
+          override def run(): Unit = {
+            try {
+              if (poll()) {
+                future.complete(())
+              } else {
+                pollAfter(math.min(math.max(delay * 2, MIN_INTERVAL), maxInterval))
+              }
+            } catch {
+              case e: Throwable => future.completeExceptionally(e)
+            }
+          }
+        },
+        delay,
+        TimeUnit.MILLISECONDS)
+    }
+
+    pollAfter(0)
+    future
+  }
+}
+
+object StatusPoller {
+  final val MIN_INTERVAL = 10L
+}
@@ -18,7 +18,7 @@
 package org.apache.kyuubi.server
 
 import java.net.{InetAddress, InetSocketAddress}
-import java.util.concurrent.{ThreadPoolExecutor, TimeUnit}
+import java.util.concurrent.TimeUnit
 
 import io.netty.bootstrap.ServerBootstrap
 import io.netty.buffer.PooledByteBufAllocator
@@ -29,10 +29,11 @@ import io.netty.handler.logging.{LoggingHandler, LogLevel}
 import org.apache.kyuubi._
 import org.apache.kyuubi.config.KyuubiConf
 import org.apache.kyuubi.config.KyuubiConf._
+import org.apache.kyuubi.metrics.MetricsConstants._
+import org.apache.kyuubi.metrics.MetricsSystem
 import org.apache.kyuubi.server.mysql._
 import org.apache.kyuubi.server.mysql.authentication.MySQLAuthHandler
 import org.apache.kyuubi.service.{AbstractFrontendService, Serverable, Service}
-import org.apache.kyuubi.util.ExecutorPoolCaptureOom
 import org.apache.kyuubi.util.NettyUtils._
 
 /**
@@ -41,7 +42,7 @@ import org.apache.kyuubi.util.NettyUtils._
 class KyuubiMySQLFrontendService(override val serverable: Serverable)
   extends AbstractFrontendService("KyuubiMySQLFrontendService") with Logging {
 
-  private var execPool: ThreadPoolExecutor = _
+  private var executor: MySQLCommandExecutor = _
 
   private var serverAddr: InetAddress = _
   private var port: Int = _
@@ -56,17 +57,20 @@ class KyuubiMySQLFrontendService(override val serverable: Serverable)
     val minThreads = conf.get(FRONTEND_MYSQL_MIN_WORKER_THREADS)
     val maxThreads = conf.get(FRONTEND_MYSQL_MAX_WORKER_THREADS)
     val keepAliveMs = conf.get(FRONTEND_MYSQL_WORKER_KEEPALIVE_TIME)
-    execPool = ExecutorPoolCaptureOom(
+    val queueSize = conf.get(FRONTEND_MYSQL_WORKER_QUEUE_SIZE)
+    executor = new MySQLCommandExecutor(
       "mysql-exec-pool",
       minThreads,
       maxThreads,
       keepAliveMs,
+      queueSize,
       oomHook)
 
     serverAddr = conf.get(FRONTEND_MYSQL_BIND_HOST)
       .map(InetAddress.getByName)
       .getOrElse(Utils.findLocalInetAddress)
     port = conf.get(FRONTEND_MYSQL_BIND_PORT)
+    val fetchSize = conf.get(FRONTEND_MYSQL_FETCH_SIZE)
     val workerThreads = defaultNumThreads(conf.get(FRONTEND_MYSQL_NETTY_WORKER_THREADS))
     val bossGroup = createEventLoop(1, "mysql-netty-boss")
     val workerGroup = createEventLoop(workerThreads, "mysql-netty-worker")
@@ -84,7 +88,7 @@ class KyuubiMySQLFrontendService(override val serverable: Serverable)
           .addLast(new MySQLPacketEncoder)
           .addLast(new MySQLAuthHandler)
           .addLast(new MySQLPacketDecoder)
-          .addLast(new MySQLCommandHandler(serverable.backendService, execPool))
+          .addLast(new MySQLCommandHandler(serverable.backendService, executor, fetchSize))
       })
     super.initialize(conf)
   }
@@ -101,6 +105,12 @@ class KyuubiMySQLFrontendService(override val serverable: Serverable)
         bindFuture.syncUninterruptibly
         port = bindFuture.channel.localAddress.asInstanceOf[InetSocketAddress].getPort
         isStarted = true
+        MetricsSystem.tracing { ms =>
+          ms.registerGauge(MYSQL_EXEC_POOL_ALIVE, executor.getPoolSize, 0)
+          ms.registerGauge(MYSQL_EXEC_POOL_ACTIVE, executor.getActiveCount, 0)
+          ms.registerGauge(MYSQL_EXEC_POOL_WAITING, executor.getWaitingCount, 0)
+          ms.registerGauge(MYSQL_EXEC_POOL_REJECTED, executor.getRejectedCount, 0L)
+        }
         info(s"MySQL frontend service has started at $connectionUrl.")
       } catch {
         case rethrow: Exception =>
@@ -124,6 +134,9 @@ class KyuubiMySQLFrontendService(override val serverable: Serverable)
         bootstrap.config.childGroup.shutdownGracefully
       }
       bootstrap = null
+      if (executor != null) {
+        executor.shutdown(10000)
+      }
       isStarted = false
     }
     super.stop()
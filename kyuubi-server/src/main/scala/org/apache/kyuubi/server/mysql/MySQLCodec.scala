@@ -69,11 +69,13 @@ class MySQLPacketDecoder extends ByteToMessageDecoder {
       case COM_QUIT.value => MySQLComQuitPacket()
       case COM_INIT_DB.value => MySQLComInitDbPacket.decode(payload)
       case COM_QUERY.value => MySQLComQueryPacket.decode(payload)
-      case COM_STMT_PREPARE.value | COM_STMT_EXECUTE.value
-          | COM_STMT_RESET.value | COM_STMT_CLOSE.value
-          | COM_FIELD_LIST.value =>
-        throw new UnsupportedOperationException(
-          "Currently Kyuubi does not support server side prepared statement")
+      case COM_STMT_PREPARE.value => MySQLComStmtPreparePacket.decode(payload)
+      case COM_STMT_EXECUTE.value =>
+        MySQLComStmtExecutePacket.decode(payload, MySQLPreparedStatementCache(ctx.channel))
+      case COM_STMT_CLOSE.value => MySQLComStmtClosePacket.decode(payload)
+      case COM_STMT_RESET.value => MySQLComStmtResetPacket.decode(payload)
+      case COM_FIELD_LIST.value =>
+        throw new UnsupportedOperationException("Currently Kyuubi does not support COM_FIELD_LIST")
       case unsupported =>
         MySQLUnsupportedCommandPacket(MySQLCommandPacketType.valueOf(unsupported))
     }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.server.mysql
+
+import java.util.concurrent.{Executor, LinkedBlockingQueue, RejectedExecutionException, ThreadPoolExecutor, TimeUnit}
+import java.util.concurrent.atomic.AtomicLong
+
+import org.apache.kyuubi.Logging
+import org.apache.kyuubi.util.ExecutorPoolCaptureOom
+
+/**
+ * Runs the commands of the MySQL connections on a bounded thread pool.
+ *
+ * The commands of a connection are run one by one in the order they arrive, so a connection
+ * takes at most one thread of the pool at a time. When all threads are busy, the connections
+ * with commands to run wait in a queue of `queueSize`, and are taken by the threads once they
+ * finish their current connections. Commands arriving beyond that are rejected.
+ */
+class MySQLCommandExecutor(
+    poolName: String,
+    minThreads: Int,
+    maxThreads: Int,
+    keepAliveMs: Long,
+    queueSize: Int,
+    oomHook: Runnable) extends Logging {
+
+  private val waiting = new WaitingQueue
+
+  // the waiting connections are the work queue of the pool itself, so that a thread finishing
+  // its connection always takes the next waiting one
+  private val pool: ThreadPoolExecutor =
+    ExecutorPoolCaptureOom(poolName, minThreads, maxThreads, keepAliveMs, oomHook, waiting)
+  pool.setRejectedExecutionHandler { (task, executor) =>
+    // the pool may have reached maxThreads since the queue asked it for a new thread
+    if (executor.isShutdown || !waiting.force(task)) {
+      throw new RejectedExecutionException(s"$poolName has neither a free thread nor a free slot")
+    }
+  }
+
+  private val rejected = new AtomicLong(0)
+
+  def newConnectionExecutor(): ConnectionExecutor = new ConnectionExecutor
+
+  def getPoolSize: Int = pool.getPoolSize
+
+  def getActiveCount: Int = pool.getActiveCount
+
+  def getWaitingCount: Int = waiting.size
+
+  def getRejectedCount: Long = rejected.get
+
+  def shutdown(timeoutMs: Long): Unit = {
+    pool.shutdown()
+    try {
+      pool.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)
+    } catch {
+      case e: InterruptedException =>
+        warn(s"Exceeded timeout($timeoutMs ms) to wait the $poolName shutdown", e)
+    }
+  }
+
+  /**
+   * Hands `conn` to a free thread, or queues it if there is none, returns false if the queue
+   * is full as well.
+   */
+  private def schedule(conn: ConnectionExecutor): Boolean = {
+    try {
+      pool.execute(() => conn.runAll())
+      true
+    } catch {
+      case _: RejectedExecutionException =>
+        rejected.incrementAndGet()
+        false
+    }
+  }
+
+  /**
+   * The connections waiting for a thread. Queueing fails as long as the pool can start another
+   * thread, so that the pool grows up to `maxThreads` before any connection waits, and once
+   * `queueSize` connections wait, unless there are idle threads to take them right away.
+   */
+  private class WaitingQueue extends LinkedBlockingQueue[Runnable] {
+
+    override def offer(task: Runnable): Boolean = synchronized {
+      pool.getPoolSize >= maxThreads && force(task)
+    }
+
+    def force(task: Runnable): Boolean = synchronized {
+      val idleThreads = pool.getPoolSize - pool.getActiveCount
+      size < math.max(queueSize, idleThreads) && super.offer(task)
+    }
+  }
+
+  /**
+   * Runs the commands of a connection in order on the pool.
+   */
+  class ConnectionExecutor private[MySQLCommandExecutor] extends Executor {
+
+    private val commands = new java.util.ArrayDeque[Runnable]
+
+    // whether the connection is running or waiting for a thread
+    private var scheduled = false
+
+    /**
+     * Whether no command of the connection is running or waiting to run.
+     */
+    def isIdle: Boolean = synchronized(!scheduled)
+
+    /**
+     * @throws RejectedExecutionException if the connection has to wait for a thread, but too
+     *                                    many connections are waiting already
+     */
+    override def execute(command: Runnable): Unit = synchronized {
+      commands.add(command)
+      if (!scheduled) {
+        scheduled = true
+        if (!schedule(this)) {
+          commands.clear()
+          scheduled = false
+          throw new RejectedExecutionException(
+            s"$poolName is busy with $maxThreads running and $queueSize waiting connections")
+        }
+      }
+    }
+
+    private[MySQLCommandExecutor] def runAll(): Unit = {
+      var command = takeNext()
+      while (command != null) {
+        try {
+          command.run()
+        } catch {
+          case e: Throwable =>
+            // keep running the rest commands of the connection in another thread
+            synchronized {
+              scheduled = !commands.isEmpty && schedule(this)
+              if (!scheduled) commands.clear()
+            }
+            throw e
+        }
+        command = takeNext()
+      }
+    }
+
+    private def takeNext(): Runnable = synchronized {
+      val command = commands.poll()
+      if (command == null) scheduled = false
+      command
+    }
+  }
+}
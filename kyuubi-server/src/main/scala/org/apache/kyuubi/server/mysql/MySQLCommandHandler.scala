@@ -17,13 +17,12 @@
 
 package org.apache.kyuubi.server.mysql
 
-import java.util.concurrent.{ConcurrentHashMap, ThreadPoolExecutor}
+import java.util.concurrent.{ConcurrentHashMap, RejectedExecutionException}
 import java.util.concurrent.atomic.AtomicInteger
 
-import scala.concurrent.{ExecutionContext, ExecutionContextExecutor, Future}
-import scala.util.{Failure, Success}
+import scala.util.control.NonFatal
 
-import io.netty.channel.{ChannelHandlerContext, SimpleChannelInboundHandler}
+import io.netty.channel.{Channel, ChannelHandlerContext, SimpleChannelInboundHandler}
 import org.apache.hive.service.rpc.thrift.TProtocolVersion
 
 import org.apache.kyuubi.{KyuubiSQLException, Logging}
@@ -31,6 +30,7 @@ import org.apache.kyuubi.operation.FetchOrientation
 import org.apache.kyuubi.operation.OperationState._
 import org.apache.kyuubi.server.mysql.MySQLCommandHandler._
 import org.apache.kyuubi.server.mysql.constant.MySQLCtxAttrKey._
+import org.apache.kyuubi.server.mysql.constant.{MySQLDataType, MySQLErrorCode}
 import org.apache.kyuubi.service.BackendService
 import org.apache.kyuubi.session.SessionHandle
 
@@ -39,18 +39,33 @@ object MySQLCommandHandler {
   val connIdToSessHandle = new ConcurrentHashMap[Int, SessionHandle]
 }
 
-class MySQLCommandHandler(be: BackendService, execPool: ThreadPoolExecutor)
+/**
+ * @param fetchSize the number of rows fetched from the backend at a time for a query result
+ */
+class MySQLCommandHandler(be: BackendService, executor: MySQLCommandExecutor, fetchSize: Int)
   extends SimpleChannelInboundHandler[MySQLCommandPacket] with Logging {
 
-  implicit private val ec: ExecutionContextExecutor = ExecutionContext.fromExecutor(execPool)
+  // runs the commands of this connection in order
+  private val connExecutor = executor.newConnectionExecutor()
 
   @volatile private var closed: Boolean = false
 
+  // notified when the channel becomes writable again or inactive
+  private val writabilityLock = new Object
+
   override def channelInactive(ctx: ChannelHandlerContext): Unit = {
+    writabilityLock.synchronized(writabilityLock.notifyAll())
     closeSession(ctx)
     super.channelInactive(ctx)
   }
 
+  override def channelWritabilityChanged(ctx: ChannelHandlerContext): Unit = {
+    if (ctx.channel.isWritable) {
+      writabilityLock.synchronized(writabilityLock.notifyAll())
+    }
+    super.channelWritabilityChanged(ctx)
+  }
+
   // handle process exception, generally should send error packet
   override def exceptionCaught(ctx: ChannelHandlerContext, cause: Throwable): Unit = {
     val connectionId = ctx.channel.attr(CONNECTION_ID).get
@@ -63,21 +78,85 @@ class MySQLCommandHandler(be: BackendService, execPool: ThreadPoolExecutor)
     }
   }
 
-  override def channelRead0(ctx: ChannelHandlerContext, packet: MySQLCommandPacket): Unit = Future {
+  override def channelRead0(ctx: ChannelHandlerContext, packet: MySQLCommandPacket): Unit = {
+    packet match {
+      case pkt: MySQLComPingPacket
+          if ctx.channel.attr(SESSION_HANDLE).get != null && connExecutor.isIdle =>
+        // answer in place, so that pings never wait for a thread of the busy execution pool
+        handlePing(ctx, pkt).foreach(ctx.write)
+        ctx.flush()
+      case _ =>
+        try {
+          connExecutor.execute(() => runCommand(ctx, packet))
+        } catch {
+          case e: RejectedExecutionException =>
+            warn(e.getMessage)
+            exceptionCaught(ctx, MySQLErrorCode.TOO_MANY_COMMANDS_EXCEPTION.toKyuubiSQLException)
+        }
+    }
+  }
+
+  private def runCommand(ctx: ChannelHandlerContext, packet: MySQLCommandPacket): Unit = try {
     ensureSessionOpened(ctx)
     packet match {
-      case pkt: MySQLComPingPacket => handlePing(ctx, pkt)
-      case pkt: MySQLComInitDbPacket => handleInitDb(ctx, pkt)
-      case pkt: MySQLComQuitPacket => handleQuit(ctx, pkt)
-      case pkt: MySQLComQueryPacket => handleQuery(ctx, pkt)
+      case pkt: MySQLComPingPacket => writePackets(ctx, handlePing(ctx, pkt).iterator)
+      case pkt: MySQLComInitDbPacket => writePackets(ctx, handleInitDb(ctx, pkt).iterator)
+      case pkt: MySQLComQuitPacket => writePackets(ctx, handleQuit(ctx, pkt).iterator)
+      case pkt: MySQLComQueryPacket =>
+        val result = handleQuery(ctx, pkt)
+        try writePackets(ctx, result.toPackets)
+        finally result.close()
+      case pkt: MySQLComStmtPreparePacket =>
+        writePackets(ctx, handleStmtPrepare(ctx, pkt).iterator)
+      case pkt: MySQLComStmtExecutePacket =>
+        val result = handleStmtExecute(ctx, pkt)
+        try writePackets(ctx, result.toBinaryPackets)
+        finally result.close()
+      case pkt: MySQLComStmtResetPacket => writePackets(ctx, handleStmtReset(ctx, pkt).iterator)
+      // no response for COM_STMT_CLOSE
+      case pkt: MySQLComStmtClosePacket => handleStmtClose(ctx, pkt)
       case bad => throw new UnsupportedOperationException(bad.getClass.getSimpleName)
     }
-  } onComplete {
-    case Success(responsePackets) =>
-      responsePackets.foreach(ctx.channel.write)
-      ctx.channel.flush()
-    case Failure(cause) =>
-      exceptionCaught(ctx, cause)
+  } catch {
+    case NonFatal(cause) => exceptionCaught(ctx, cause)
+  }
+
+  /**
+   * Writes the response packets in order. The packets are pulled from `packets` only while the
+   * channel is writable, otherwise the written ones are flushed, and the caller waits until the
+   * client has read enough of them, so that a large result never piles up in the memory.
+   *
+   * If `packets` fails after some of them are written, an ERR packet takes the place of the rest.
+   */
+  private def writePackets(ctx: ChannelHandlerContext, packets: Iterator[MySQLPacket]): Unit = {
+    val channel = ctx.channel
+    var lastSequenceId = -1
+    try {
+      packets.foreach { packet =>
+        if (!channel.isWritable) {
+          channel.flush()
+          awaitWritable(channel)
+        }
+        channel.write(packet)
+        lastSequenceId = packet.sequenceId
+      }
+    } catch {
+      case NonFatal(cause) if lastSequenceId >= 0 && channel.isActive =>
+        val errPacket = MySQLErrPacket(cause, lastSequenceId + 1)
+        error(s"Connection: ${channel.attr(CONNECTION_ID).get}, $errPacket")
+        channel.write(errPacket)
+    } finally {
+      channel.flush()
+    }
+  }
+
+  private def awaitWritable(channel: Channel): Unit = writabilityLock.synchronized {
+    while (!channel.isWritable) {
+      if (!channel.isActive) {
+        throw KyuubiSQLException(s"Connection ${channel.attr(CONNECTION_ID).get} is closed")
+      }
+      writabilityLock.wait(1000)
+    }
   }
 
   def ensureSessionOpened(ctx: ChannelHandlerContext): Unit =
@@ -99,8 +178,9 @@ class MySQLCommandHandler(be: BackendService, execPool: ThreadPoolExecutor)
         case Some(db) => Map("use:database" -> db)
         case None => Map.empty[String, String]
       }
-      // v1 is sufficient now, upgrade version when needed
-      val proto = TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V1
+      // v6+ makes the engines return the column based result set, which is much cheaper to
+      // encode at engine side and to transcode to MySQL text rows here
+      val proto = TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V10
       val sessionHandle = be.openSession(proto, user, "", remoteIp, sessionConf)
       sessionHandle
     } catch {
@@ -138,7 +218,7 @@ class MySQLCommandHandler(be: BackendService, execPool: ThreadPoolExecutor)
   def handleInitDb(
       ctx: ChannelHandlerContext,
       pkg: MySQLComInitDbPacket): Seq[MySQLPacket] = {
-    beExecuteStatement(ctx, s"use ${pkg.database}")
+    beExecuteStatement(ctx, s"use ${pkg.database}").close()
     MySQLOKPacket(1) :: Nil
   }
 
@@ -151,9 +231,54 @@ class MySQLCommandHandler(be: BackendService, execPool: ThreadPoolExecutor)
 
   def handleQuery(
       ctx: ChannelHandlerContext,
-      pkg: MySQLComQueryPacket): Seq[MySQLPacket] = {
+      pkg: MySQLComQueryPacket): MySQLQueryResult = {
     debug(s"Receive query: ${pkg.sql}")
-    executeStatement(ctx, pkg.sql).toPackets
+    executeStatement(ctx, pkg.sql)
+  }
+
+  def handleStmtPrepare(
+      ctx: ChannelHandlerContext,
+      pkg: MySQLComStmtPreparePacket): Seq[MySQLPacket] = {
+    debug(s"Receive prepare: ${pkg.sql}")
+    val statement = MySQLPreparedStatementCache(ctx.channel).prepare(pkg.sql)
+    val numParams = statement.numParams
+    // the result columns are unknown until the statement is executed, and they are sent along
+    // with the result of COM_STMT_EXECUTE
+    val prepareOK = MySQLComStmtPrepareOKPacket(1, statement.statementId, 0, numParams)
+    if (numParams == 0) {
+      prepareOK :: Nil
+    } else {
+      val paramDefinitions = (0 until numParams).map { i =>
+        MySQLColumnDefinition41Packet(
+          sequenceId = 2 + i,
+          flags = 0,
+          name = "?",
+          columnLength = 0,
+          columnType = MySQLDataType.VAR_STRING,
+          decimals = 0)
+      }
+      (prepareOK +: paramDefinitions) :+ MySQLEofPacket(numParams + 2)
+    }
+  }
+
+  def handleStmtExecute(
+      ctx: ChannelHandlerContext,
+      pkg: MySQLComStmtExecutePacket): MySQLQueryResult = {
+    val statement = MySQLPreparedStatementCache(ctx.channel)
+      .get(pkg.statementId, "mysqld_stmt_execute")
+    executeStatement(ctx, statement.bind(pkg.parameters))
+  }
+
+  def handleStmtReset(
+      ctx: ChannelHandlerContext,
+      pkg: MySQLComStmtResetPacket): Seq[MySQLPacket] = {
+    // no long data is kept, just check the statement exists
+    MySQLPreparedStatementCache(ctx.channel).get(pkg.statementId, "mysqld_stmt_reset")
+    MySQLOKPacket(1) :: Nil
+  }
+
+  def handleStmtClose(ctx: ChannelHandlerContext, pkg: MySQLComStmtClosePacket): Unit = {
+    MySQLPreparedStatementCache(ctx.channel).close(pkg.statementId)
   }
 
   def executeStatement(ctx: ChannelHandlerContext, sql: String): MySQLQueryResult = {
@@ -171,18 +296,22 @@ class MySQLCommandHandler(be: BackendService, execPool: ThreadPoolExecutor)
     try {
       val ssHandle = ctx.channel.attr(SESSION_HANDLE).get
       val opHandle = be.executeStatement(ssHandle, sql, runAsync = false, queryTimeout = 0)
-      val opStatus = be.getOperationStatus(opHandle)
-      if (opStatus.state != FINISHED) {
-        throw opStatus.exception
-          .getOrElse(KyuubiSQLException(s"Error operator state ${opStatus.state}"))
+      try {
+        val opStatus = be.getOperationStatus(opHandle)
+        if (opStatus.state != FINISHED) {
+          throw opStatus.exception
+            .getOrElse(KyuubiSQLException(s"Error operator state ${opStatus.state}"))
+        }
+        val tableSchema = be.getResultSetMetadata(opHandle)
+        MySQLQueryResult(
+          tableSchema,
+          () => be.fetchResults(opHandle, FetchOrientation.FETCH_NEXT, fetchSize, fetchLog = false),
+          () => be.closeOperation(opHandle))
+      } catch {
+        case e: Exception =>
+          be.closeOperation(opHandle)
+          throw e
       }
-      val tableSchema = be.getResultSetMetadata(opHandle)
-      val rowSet = be.fetchResults(
-        opHandle,
-        FetchOrientation.FETCH_NEXT,
-        Int.MaxValue,
-        fetchLog = false)
-      MySQLQueryResult(tableSchema, rowSet)
     } catch {
       case rethrow: Exception =>
         warn("Error executing statement: ", rethrow)
@@ -17,10 +17,16 @@
 
 package org.apache.kyuubi.server.mysql
 
+import java.math.BigDecimal
+import java.nio.ByteBuffer
+import java.nio.charset.{CharacterCodingException, StandardCharsets}
+import java.time.{LocalDate, LocalDateTime}
+
 import io.netty.buffer.ByteBuf
 
 import org.apache.kyuubi.server.mysql.MySQLRichByteBuf.Implicit
-import org.apache.kyuubi.server.mysql.constant.MySQLCommandPacketType
+import org.apache.kyuubi.server.mysql.constant.{MySQLCommandPacketType, MySQLDataType}
+import org.apache.kyuubi.server.mysql.constant.MySQLDataType._
 
 sealed abstract class MySQLCommandPacket(
     cmdType: MySQLCommandPacketType) extends MySQLPacket {
@@ -64,5 +70,155 @@ object MySQLComQueryPacket extends SupportsDecode[MySQLComQueryPacket] {
 case class MySQLComQueryPacket(
     sql: String) extends MySQLCommandPacket(MySQLCommandPacketType.COM_QUERY)
 
+object MySQLComStmtPreparePacket extends SupportsDecode[MySQLComStmtPreparePacket] {
+  override def decode(payload: ByteBuf): MySQLComStmtPreparePacket = {
+    val sql = payload.readStringEOF
+    MySQLComStmtPreparePacket(sql)
+  }
+}
+
+case class MySQLComStmtPreparePacket(
+    sql: String) extends MySQLCommandPacket(MySQLCommandPacketType.COM_STMT_PREPARE)
+
+// https://dev.mysql.com/doc/internals/en/com-stmt-execute.html
+object MySQLComStmtExecutePacket {
+
+  /**
+   * The parameters can only be decoded with their count and types, which are taken from the
+   * statement prepared in the same connection.
+   */
+  def decode(
+      payload: ByteBuf,
+      statements: MySQLPreparedStatementCache): MySQLComStmtExecutePacket = {
+    val statementId = payload.readInt4
+    val statement =
+      try statements.get(statementId, "mysqld_stmt_execute")
+      catch {
+        case e: Exception =>
+          payload.skipBytes(payload.readableBytes)
+          throw e
+      }
+    val flags = payload.readInt1
+    // iteration count, always 1
+    payload.readInt4
+    val numParams = statement.numParams
+    val params = new Array[Any](numParams)
+    if (numParams > 0) {
+      val nullBitmap = MySQLNullBitmap(numParams, payload)
+      val newParamsBound = payload.readInt1 == 1
+      if (newParamsBound) {
+        statement.paramTypes = (0 until numParams).map { _ =>
+          val dataType = MySQLDataType.valueOf(payload.readInt1)
+          val unsigned = (payload.readInt1 & 0x80) != 0
+          MySQLParameterType(dataType, unsigned)
+        }
+      }
+      val paramTypes = statement.paramTypes
+      require(paramTypes.size == numParams, s"Types of the $numParams parameters are not bound")
+      (0 until numParams).foreach { i =>
+        if (!nullBitmap.isNullParameter(i)) {
+          params(i) = readParameter(payload, paramTypes(i))
+        }
+      }
+    }
+    MySQLComStmtExecutePacket(statementId, flags, params)
+  }
+
+  private def readParameter(payload: ByteBuf, paramType: MySQLParameterType): Any = {
+    val unsigned = paramType.unsigned
+    paramType.dataType match {
+      case TINY => if (unsigned) payload.readUnsignedByte.toInt else payload.readByte.toInt
+      case SHORT | YEAR => if (unsigned) payload.readUnsignedShortLE else payload.readShortLE.toInt
+      case LONG | INT24 => if (unsigned) payload.readUnsignedIntLE else payload.readIntLE
+      case LONGLONG if unsigned =>
+        new BigDecimal(java.lang.Long.toUnsignedString(payload.readLongLE))
+      case LONGLONG => payload.readLongLE
+      case FLOAT => payload.readFloatLE
+      case DOUBLE => payload.readDoubleLE
+      case DATE | DATETIME | TIMESTAMP => readDateTime(payload, paramType.dataType == DATE)
+      case TIME => readTime(payload)
+      case NULL => null
+      case DECIMAL | NEWDECIMAL => new BigDecimal(payload.readStringLenenc)
+      case TINY_BLOB | MEDIUM_BLOB | LONG_BLOB | BLOB | BIT | GEOMETRY =>
+        payload.readStringLenencByBytes
+      case _ => readText(payload.readStringLenencByBytes)
+    }
+  }
+
+  /**
+   * The string parameters are text in UTF-8, unless the client sends binary data as a string,
+   * which is then kept as bytes rather than replaced by the malformed characters.
+   */
+  private def readText(bytes: Array[Byte]): Any = {
+    try {
+      StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString
+    } catch {
+      case _: CharacterCodingException => bytes
+    }
+  }
+
+  private def readDateTime(payload: ByteBuf, isDate: Boolean): Any = {
+    payload.readInt1 match {
+      // the zero date, which has no equivalent in the sql engines
+      case 0 => null
+      case length =>
+        val year = payload.readInt2
+        val month = payload.readInt1
+        val day = payload.readInt1
+        if (length == 4) {
+          LocalDate.of(year, month, day)
+        } else {
+          val hour = payload.readInt1
+          val minute = payload.readInt1
+          val second = payload.readInt1
+          val micros = if (length == 11) payload.readInt4 else 0
+          val dateTime = LocalDateTime.of(year, month, day, hour, minute, second, micros * 1000)
+          if (isDate) dateTime.toLocalDate else dateTime
+        }
+    }
+  }
+
+  private def readTime(payload: ByteBuf): String = {
+    payload.readInt1 match {
+      case 0 => "00:00:00"
+      case length =>
+        val negative = payload.readInt1 == 1
+        val days = payload.readInt4
+        val hours = days * 24 + payload.readInt1
+        val minutes = payload.readInt1
+        val seconds = payload.readInt1
+        val micros = if (length == 12) payload.readInt4 else 0
+        val sign = if (negative) "-" else ""
+        val fraction = if (micros != 0) f".$micros%06d" else ""
+        f"$sign$hours%02d:$minutes%02d:$seconds%02d$fraction"
+    }
+  }
+}
+
+case class MySQLComStmtExecutePacket(
+    statementId: Int,
+    flags: Int,
+    parameters: Seq[Any]) extends MySQLCommandPacket(MySQLCommandPacketType.COM_STMT_EXECUTE)
+
+object MySQLComStmtClosePacket extends SupportsDecode[MySQLComStmtClosePacket] {
+  override def decode(payload: ByteBuf): MySQLComStmtClosePacket = {
+    val statementId = payload.readInt4
+    MySQLComStmtClosePacket(statementId)
+  }
+}
+
+case class MySQLComStmtClosePacket(
+    statementId: Int) extends MySQLCommandPacket(MySQLCommandPacketType.COM_STMT_CLOSE)
+
+object MySQLComStmtResetPacket extends SupportsDecode[MySQLComStmtResetPacket] {
+  override def decode(payload: ByteBuf): MySQLComStmtResetPacket = {
+    val statementId = payload.readInt4
+    MySQLComStmtResetPacket(statementId)
+  }
+}
+
+case class MySQLComStmtResetPacket(
+    statementId: Int) extends MySQLCommandPacket(MySQLCommandPacketType.COM_STMT_RESET)
+
 case class MySQLUnsupportedCommandPacket(
     cmdType: MySQLCommandPacketType) extends MySQLCommandPacket(cmdType)
@@ -19,8 +19,9 @@ package org.apache.kyuubi.server.mysql
 
 import java.lang.{Boolean => JBoolean}
 import java.math.BigDecimal
+import java.nio.ByteBuffer
 import java.sql.Timestamp
-import java.time.LocalDateTime
+import java.time.{LocalDate, LocalDateTime, LocalTime}
 
 import io.netty.buffer.ByteBuf
 
@@ -103,3 +104,170 @@ case class MySQLTextResultSetRowPacket(
     }
   }
 }
+
+/**
+ * A text protocol row taken from the column based result set, the values are written from the
+ * columns directly.
+ */
+case class MySQLColumnarTextResultSetRowPacket(
+    sequenceId: Int,
+    columns: Array[MySQLTextColumn],
+    rowIndex: Int) extends MySQLPacket with SupportsEncode {
+
+  override def encode(payload: ByteBuf): Unit = {
+    var i = 0
+    while (i < columns.length) {
+      columns(i).write(payload, rowIndex)
+      i += 1
+    }
+  }
+}
+
+// https://dev.mysql.com/doc/internals/en/com-stmt-prepare-response.html
+case class MySQLComStmtPrepareOKPacket(
+    sequenceId: Int,
+    statementId: Int,
+    columnCount: Int,
+    parameterCount: Int) extends MySQLPacket with SupportsEncode {
+
+  def status: Int = 0x00
+
+  def warnings: Int = 0
+
+  override def encode(payload: ByteBuf): Unit = {
+    payload.writeInt1(status)
+    payload.writeInt4(statementId)
+    payload.writeInt2(columnCount)
+    payload.writeInt2(parameterCount)
+    payload.writeReserved(1)
+    payload.writeInt2(warnings)
+  }
+}
+
+// https://dev.mysql.com/doc/internals/en/binary-protocol-value.html
+object MySQLBinaryValue {
+
+  def write(payload: ByteBuf, dataType: MySQLDataType, value: Any): Unit = dataType match {
+    case MySQLDataType.TINY => payload.writeInt1(toLong(value).toInt)
+    case MySQLDataType.SHORT | MySQLDataType.YEAR => payload.writeInt2(toLong(value).toInt)
+    case MySQLDataType.LONG | MySQLDataType.INT24 => payload.writeInt4(toLong(value).toInt)
+    case MySQLDataType.LONGLONG => payload.writeInt8(toLong(value))
+    case MySQLDataType.FLOAT => payload.writeFloatLE(toDouble(value).toFloat)
+    case MySQLDataType.DOUBLE => payload.writeDoubleLE(toDouble(value))
+    case MySQLDataType.DATE | MySQLDataType.DATETIME | MySQLDataType.TIMESTAMP =>
+      writeDateTime(payload, toLocalDateTime(value))
+    case _ => value match {
+        case bytes: Array[Byte] => payload.writeBytesLenenc(bytes)
+        case buffer: ByteBuffer =>
+          val bytes = buffer.duplicate()
+          payload.writeIntLenenc(bytes.remaining)
+          payload.writeBytes(bytes)
+        case decimal: BigDecimal => payload.writeStringLenenc(decimal.toPlainString)
+        case other => payload.writeStringLenenc(other.toString)
+      }
+  }
+
+  private def toLong(value: Any): Long = value match {
+    case JBoolean.TRUE => 1L
+    case JBoolean.FALSE => 0L
+    case n: Number => n.longValue
+    case other => other.toString.toLong
+  }
+
+  private def toDouble(value: Any): Double = value match {
+    case n: Number => n.doubleValue
+    case other => other.toString.toDouble
+  }
+
+  private def toLocalDateTime(value: Any): LocalDateTime = value match {
+    case time: LocalDateTime => time
+    case date: LocalDate => date.atStartOfDay
+    case ts: Timestamp => ts.toLocalDateTime
+    case date: java.sql.Date => date.toLocalDate.atStartOfDay
+    // the engines send the date and timestamp values as strings
+    case str: String if str.length <= 10 => LocalDate.parse(str).atStartOfDay
+    case str: String if str.contains('T') => LocalDateTime.parse(str)
+    case other => Timestamp.valueOf(other.toString).toLocalDateTime
+  }
+
+  private def writeDateTime(payload: ByteBuf, time: LocalDateTime): Unit = {
+    val length =
+      if (time.getNano != 0) 11
+      else if (time.toLocalTime == LocalTime.MIDNIGHT) 4
+      else 7
+    payload.writeInt1(length)
+    payload.writeInt2(time.getYear)
+    payload.writeInt1(time.getMonthValue)
+    payload.writeInt1(time.getDayOfMonth)
+    if (length > 4) {
+      payload.writeInt1(time.getHour)
+      payload.writeInt1(time.getMinute)
+      payload.writeInt1(time.getSecond)
+    }
+    if (length > 7) {
+      payload.writeInt4(time.getNano / 1000)
+    }
+  }
+}
+
+// https://dev.mysql.com/doc/internals/en/binary-protocol-resultset-row.html
+/**
+ * The base of the binary protocol rows, the null bitmap is reserved before the values are written
+ * and filled in along with them.
+ */
+trait MySQLBinaryResultSetRow extends MySQLPacket with SupportsEncode {
+
+  def header: Int = 0x00
+
+  def colCount: Int
+
+  def isNull(i: Int): Boolean
+
+  def writeValue(payload: ByteBuf, i: Int): Unit
+
+  override def encode(payload: ByteBuf): Unit = {
+    payload.writeInt1(header)
+    // the offset of the null bitmap is 2 for the binary rows
+    val nullBitmapIndex = payload.writerIndex
+    payload.writeReserved((colCount + 7 + 2) / 8)
+    var i = 0
+    while (i < colCount) {
+      if (isNull(i)) {
+        val bytePos = nullBitmapIndex + (i + 2) / 8
+        payload.setByte(bytePos, payload.getByte(bytePos) | (1 << ((i + 2) % 8)))
+      } else {
+        writeValue(payload, i)
+      }
+      i += 1
+    }
+  }
+}
+
+case class MySQLBinaryResultSetRowPacket(
+    sequenceId: Int,
+    dataTypes: Seq[MySQLDataType],
+    row: Seq[Any]) extends MySQLBinaryResultSetRow {
+
+  override def colCount: Int = dataTypes.size
+
+  override def isNull(i: Int): Boolean = row(i) == null
+
+  override def writeValue(payload: ByteBuf, i: Int): Unit = {
+    MySQLBinaryValue.write(payload, dataTypes(i), row(i))
+  }
+}
+
+/**
+ * A binary protocol row taken from the column based result set.
+ */
+case class MySQLColumnarBinaryResultSetRowPacket(
+    sequenceId: Int,
+    columns: Array[MySQLBinaryColumn],
+    rowIndex: Int) extends MySQLBinaryResultSetRow {
+
+  override def colCount: Int = columns.length
+
+  override def isNull(i: Int): Boolean = columns(i).isNull(rowIndex)
+
+  override def writeValue(payload: ByteBuf, i: Int): Unit = columns(i).writeValue(payload, rowIndex)
+}
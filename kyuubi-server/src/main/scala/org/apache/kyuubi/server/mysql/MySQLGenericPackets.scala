@@ -20,6 +20,7 @@ package org.apache.kyuubi.server.mysql
 import java.sql.SQLException
 
 import io.netty.buffer.ByteBuf
+import io.netty.handler.codec.DecoderException
 
 import org.apache.kyuubi.KyuubiSQLException
 import org.apache.kyuubi.server.mysql.MySQLRichByteBuf.Implicit
@@ -49,19 +50,21 @@ case class MySQLOKPacket(
 }
 
 object MySQLErrPacket {
-  def apply(cause: Throwable): MySQLErrPacket = {
+  def apply(cause: Throwable, sequenceId: Int = 1): MySQLErrPacket = {
     cause match {
       case kse: KyuubiSQLException if kse.getCause != null =>
         // prefer brief nested error message instead of whole stacktrace
-        apply(kse.getCause)
+        apply(kse.getCause, sequenceId)
+      case de: DecoderException if de.getCause != null =>
+        apply(de.getCause, sequenceId)
       case e: Exception if e.getMessage contains "NoSuchDatabaseException" =>
-        MySQLErrPacket(1, MySQLErrorCode.ER_BAD_DB_ERROR, cause.getMessage)
+        MySQLErrPacket(sequenceId, MySQLErrorCode.ER_BAD_DB_ERROR, cause.getMessage)
       case se: SQLException if se.getSQLState == null =>
-        MySQLErrPacket(1, MySQLErrorCode.ER_INTERNAL_ERROR, cause.getMessage)
+        MySQLErrPacket(sequenceId, MySQLErrorCode.ER_INTERNAL_ERROR, cause.getMessage)
       case se: SQLException =>
-        MySQLErrPacket(1, MySQLErrorCode(se.getErrorCode, se.getSQLState, se.getMessage))
+        MySQLErrPacket(sequenceId, MySQLErrorCode(se.getErrorCode, se.getSQLState, se.getMessage))
       case _ =>
-        MySQLErrPacket(1, MySQLErrorCode.UNKNOWN_EXCEPTION, cause.getMessage)
+        MySQLErrPacket(sequenceId, MySQLErrorCode.UNKNOWN_EXCEPTION, cause.getMessage)
     }
   }
 }
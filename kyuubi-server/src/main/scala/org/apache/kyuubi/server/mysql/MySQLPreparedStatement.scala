@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.server.mysql
+
+import java.math.BigDecimal
+import java.sql.Timestamp
+import java.time.{LocalDate, LocalDateTime}
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+import scala.collection.mutable.ArrayBuffer
+
+import io.netty.channel.Channel
+
+import org.apache.kyuubi.KyuubiSQLException
+import org.apache.kyuubi.server.mysql.MySQLDateTimeUtils._
+import org.apache.kyuubi.server.mysql.constant.{MySQLCtxAttrKey, MySQLDataType, MySQLErrorCode}
+
+/**
+ * The type of a parameter sent by COM_STMT_EXECUTE.
+ */
+case class MySQLParameterType(dataType: MySQLDataType, unsigned: Boolean)
+
+/**
+ * A statement prepared by COM_STMT_PREPARE. The sql is split at the `?` placeholders once, and
+ * each COM_STMT_EXECUTE only fills the parameters in as sql literals.
+ */
+class MySQLPreparedStatement(val statementId: Int, val sql: String) {
+
+  private val parts: Array[String] = MySQLPreparedStatement.splitSql(sql)
+
+  def numParams: Int = parts.length - 1
+
+  /**
+   * The parameter types bound by the last COM_STMT_EXECUTE which sent them, MySQL clients only
+   * send the types again when they change.
+   */
+  @volatile var paramTypes: Seq[MySQLParameterType] = Seq.empty
+
+  def bind(params: Seq[Any]): String = {
+    require(params.size == numParams, s"Expect $numParams parameters, but got ${params.size}")
+    val sb = new StringBuilder(parts(0))
+    var i = 0
+    while (i < numParams) {
+      sb.append(MySQLPreparedStatement.toSqlLiteral(params(i))).append(parts(i + 1))
+      i += 1
+    }
+    sb.toString
+  }
+}
+
+object MySQLPreparedStatement {
+
+  /**
+   * Splits the sql at the `?` placeholders, the ones in quoted strings or identifiers and in
+   * comments are skipped.
+   */
+  def splitSql(sql: String): Array[String] = {
+    val parts = new ArrayBuffer[String]
+    var quote: Char = 0
+    var off = 0
+    var i = 0
+    while (i < sql.length) {
+      sql.charAt(i) match {
+        case '\\' if quote != 0 => i += 1
+        case c if quote != 0 => if (c == quote) quote = 0
+        case c @ ('\'' | '"' | '`') => quote = c
+        case '#' => i = commentEnd(sql, i + 1, "\n")
+        case '-' if sql.startsWith("--", i) => i = commentEnd(sql, i + 2, "\n")
+        case '/' if sql.startsWith("/*", i) => i = commentEnd(sql, i + 2, "*/")
+        case '?' =>
+          parts += sql.substring(off, i)
+          off = i + 1
+        case _ =>
+      }
+      i += 1
+    }
+    parts += sql.substring(off)
+    parts.toArray
+  }
+
+  // the index of the last character of a comment, which is ended by `terminator` or the sql
+  private def commentEnd(sql: String, from: Int, terminator: String): Int = {
+    val end = sql.indexOf(terminator, from)
+    if (end < 0) sql.length - 1 else end + terminator.length - 1
+  }
+
+  def toSqlLiteral(value: Any): String = value match {
+    case null => "NULL"
+    case d: java.lang.Double if d.isNaN || d.isInfinite => s"CAST('$d' AS DOUBLE)"
+    case f: java.lang.Float if f.isNaN || f.isInfinite => s"CAST('$f' AS FLOAT)"
+    case decimal: BigDecimal => decimal.toPlainString
+    case n: Number => n.toString
+    case date: LocalDate => s"'$date'"
+    case time: LocalDateTime if time.getNano == 0 => s"'${dtFmt.format(time)}'"
+    case time: LocalDateTime => s"'${Timestamp.valueOf(time)}'"
+    case bytes: Array[Byte] => toHexLiteral(bytes)
+    case other => "'" + other.toString.replace("\\", "\\\\").replace("'", "\\'") + "'"
+  }
+
+  private val HEX_DIGITS = "0123456789ABCDEF".toCharArray
+
+  private def toHexLiteral(bytes: Array[Byte]): String = {
+    val sb = new StringBuilder(bytes.length * 2 + 3).append("X'")
+    bytes.foreach { b =>
+      sb.append(HEX_DIGITS((b >> 4) & 0xF)).append(HEX_DIGITS(b & 0xF))
+    }
+    sb.append('\'').toString
+  }
+}
+
+/**
+ * The statements prepared in a MySQL connection.
+ */
+class MySQLPreparedStatementCache {
+
+  private val nextStatementId = new AtomicInteger(0)
+
+  private val statements = new ConcurrentHashMap[Int, MySQLPreparedStatement]
+
+  def prepare(sql: String): MySQLPreparedStatement = {
+    val statement = new MySQLPreparedStatement(nextStatementId.incrementAndGet(), sql)
+    statements.put(statement.statementId, statement)
+    statement
+  }
+
+  def get(statementId: Int, command: String): MySQLPreparedStatement = {
+    val statement = statements.get(statementId)
+    if (statement == null) {
+      val code = MySQLErrorCode.ER_UNKNOWN_STMT_HANDLER
+      throw new KyuubiSQLException(
+        code.errorMessage.format(statementId, command),
+        code.sqlState,
+        code.errorCode,
+        null)
+    }
+    statement
+  }
+
+  def close(statementId: Int): Unit = statements.remove(statementId)
+
+  def size: Int = statements.size
+}
+
+object MySQLPreparedStatementCache {
+
+  def apply(channel: Channel): MySQLPreparedStatementCache = {
+    val attr = channel.attr(MySQLCtxAttrKey.PREPARED_STATEMENTS)
+    val cache = attr.get
+    if (cache != null) {
+      cache
+    } else {
+      val newCache = new MySQLPreparedStatementCache
+      Option(attr.setIfAbsent(newCache)).getOrElse(newCache)
+    }
+  }
+}
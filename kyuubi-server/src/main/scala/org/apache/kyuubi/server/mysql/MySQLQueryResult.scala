@@ -22,6 +22,7 @@ import scala.collection.JavaConverters._
 import org.apache.hive.service.rpc.thrift._
 
 import org.apache.kyuubi.server.mysql.constant.MySQLDataType
+import org.apache.kyuubi.util.RowSetUtils
 
 object MySQLQueryResult {
 
@@ -29,8 +30,11 @@ object MySQLQueryResult {
     new MySQLSimpleQueryResult(schema, rows)
   }
 
-  def apply(schema: TTableSchema, rows: TRowSet): MySQLThriftQueryResult = {
-    new MySQLThriftQueryResult(schema, rows)
+  def apply(
+      schema: TTableSchema,
+      fetchRowSet: () => TRowSet,
+      onClose: () => Unit): MySQLThriftQueryResult = {
+    new MySQLThriftQueryResult(schema, fetchRowSet, onClose)
   }
 }
 
@@ -38,32 +42,51 @@ trait MySQLQueryResult {
 
   def colCount: Int
 
-  def rowCount: Int
-
   def toColDefinePackets: Seq[MySQLPacket]
 
-  def toRowPackets: Seq[MySQLPacket]
-
-  def toPackets: Seq[MySQLPacket] = {
-    val buf = Seq.newBuilder[MySQLPacket]
-    buf +=
-      MySQLFieldCountPacket(1, colCount) ++=
-      toColDefinePackets +=
-      MySQLEofPacket(colCount + 2) ++=
-      toRowPackets +=
-      MySQLEofPacket(colCount + rowCount + 3)
-    buf.result
+  /**
+   * The row packets of the result starting from `firstSequenceId`, which may be fetched lazily
+   * while iterating.
+   */
+  def toRowPackets(firstSequenceId: Int): Iterator[MySQLPacket]
+
+  /**
+   * The same as [[toRowPackets]], but in the binary protocol, for the prepared statements.
+   */
+  def toBinaryRowPackets(firstSequenceId: Int): Iterator[MySQLPacket]
+
+  /**
+   * Releases the resources held by the result, e.g. the backend operation.
+   */
+  def close(): Unit = {}
+
+  /**
+   * The packets of the result, the row packets are built on demand, and the sequence id of the
+   * final EOF packet is decided after all rows are taken.
+   */
+  def toPackets: Iterator[MySQLPacket] = packets(toRowPackets)
+
+  def toBinaryPackets: Iterator[MySQLPacket] = packets(toBinaryRowPackets)
+
+  private def packets(rowPacketsFrom: Int => Iterator[MySQLPacket]): Iterator[MySQLPacket] = {
+    var sequenceId = colCount + 2
+    val header = MySQLFieldCountPacket(1, colCount) +:
+      toColDefinePackets :+
+      MySQLEofPacket(sequenceId)
+    val rowPackets = rowPacketsFrom(sequenceId + 1).map { packet =>
+      sequenceId = packet.sequenceId
+      packet
+    }
+    header.iterator ++ rowPackets ++ Iterator.fill(1)(MySQLEofPacket(sequenceId + 1))
   }
 }
 
 class MySQLSimpleQueryResult(
     schema: Seq[MySQLField],
-    rows: Seq[Seq[Any]]) extends MySQLQueryResult {
+    data: Seq[Seq[Any]]) extends MySQLQueryResult {
 
   override def colCount: Int = schema.size
 
-  override def rowCount: Int = rows.size
-
   override def toColDefinePackets: Seq[MySQLPacket] =
     schema.zipWithIndex.map { case (field, i) =>
       val sequenceId = 2 + i
@@ -77,26 +100,77 @@ class MySQLSimpleQueryResult(
         decimals = decimals)
     }
 
-  override def toRowPackets: Seq[MySQLPacket] =
-    rows.zipWithIndex.map { case (row, i) =>
-      val sequenceId = colCount + 3 + i
-      MySQLTextResultSetRowPacket(sequenceId = sequenceId, row = row)
+  override def toRowPackets(firstSequenceId: Int): Iterator[MySQLPacket] =
+    data.iterator.zipWithIndex.map { case (row, i) =>
+      MySQLTextResultSetRowPacket(sequenceId = firstSequenceId + i, row = row)
     }
+
+  override def toBinaryRowPackets(firstSequenceId: Int): Iterator[MySQLPacket] = {
+    val dataTypes = schema.map(_.dataType)
+    data.iterator.zipWithIndex.map { case (row, i) =>
+      MySQLBinaryResultSetRowPacket(firstSequenceId + i, dataTypes, row)
+    }
+  }
 }
 
+/**
+ * The result of a backend operation, whose rows are fetched by `fetchRowSet` batch by batch until
+ * an empty batch is returned. Both the row based and the column based `TRowSet` are supported.
+ */
 class MySQLThriftQueryResult(
     schema: TTableSchema,
-    rows: TRowSet) extends MySQLQueryResult {
+    fetchRowSet: () => TRowSet,
+    onClose: () => Unit) extends MySQLQueryResult {
 
   override def colCount: Int = schema.getColumnsSize
 
-  override def rowCount: Int = rows.getRows.size
-
   override def toColDefinePackets: Seq[MySQLPacket] = schema.getColumns.asScala
     .zipWithIndex.map { case (tCol, i) => tColDescToMySQL(tCol, 2 + i) }
 
-  override def toRowPackets: Seq[MySQLPacket] = rows.getRows.asScala
-    .zipWithIndex.map { case (tRow, i) => tRowToMySQL(tRow, colCount + 3 + i) }
+  private lazy val dataTypes: Seq[MySQLDataType] =
+    schema.getColumns.asScala.map(tCol => tTypeDescToMySQL(tCol.getTypeDesc))
+
+  override def toRowPackets(firstSequenceId: Int): Iterator[MySQLPacket] =
+    rowPackets(firstSequenceId, binary = false)
+
+  override def toBinaryRowPackets(firstSequenceId: Int): Iterator[MySQLPacket] =
+    rowPackets(firstSequenceId, binary = true)
+
+  private def rowPackets(firstSequenceId: Int, binary: Boolean): Iterator[MySQLPacket] = {
+    var sequenceId = firstSequenceId
+    def nextSequenceId(): Int = {
+      sequenceId += 1
+      sequenceId - 1
+    }
+    Iterator.continually(fetchRowSet())
+      .takeWhile(RowSetUtils.numRows(_) > 0)
+      .flatMap { rowSet =>
+        val numRows = RowSetUtils.numRows(rowSet)
+        if (rowSet.isSetColumns && binary) {
+          // the columns are shared by all rows of the batch
+          val columns = rowSet.getColumns.asScala.zip(dataTypes)
+            .map { case (tColumn, dataType) => MySQLBinaryColumn(tColumn, dataType) }.toArray
+          Iterator.range(0, numRows).map { i =>
+            MySQLColumnarBinaryResultSetRowPacket(nextSequenceId(), columns, i)
+          }
+        } else if (rowSet.isSetColumns) {
+          val columns = rowSet.getColumns.asScala.map(MySQLTextColumn(_)).toArray
+          Iterator.range(0, numRows).map { i =>
+            MySQLColumnarTextResultSetRowPacket(nextSequenceId(), columns, i)
+          }
+        } else if (binary) {
+          rowSet.getRows.asScala.iterator.map { tRow =>
+            MySQLBinaryResultSetRowPacket(nextSequenceId(), dataTypes, tRowToMySQL(tRow))
+          }
+        } else {
+          rowSet.getRows.asScala.iterator.map { tRow =>
+            MySQLTextResultSetRowPacket(nextSequenceId(), tRowToMySQL(tRow))
+          }
+        }
+      }
+  }
+
+  override def close(): Unit = onClose()
 
   private def tColDescToMySQL(
       tCol: TColumnDesc,
@@ -113,8 +187,8 @@ class MySQLThriftQueryResult(
       decimals = decimals)
   }
 
-  private def tRowToMySQL(tRow: TRow, sequenceId: Int): MySQLTextResultSetRowPacket = {
-    val mysqlRow = tRow.getColVals.asScala.map {
+  private def tRowToMySQL(tRow: TRow): Seq[Any] = {
+    tRow.getColVals.asScala.map {
       case tVal: TColumnValue if tVal.isSetBoolVal => tVal.getBoolVal.isValue
       case tVal: TColumnValue if tVal.isSetByteVal => tVal.getByteVal.getValue
       case tVal: TColumnValue if tVal.isSetI16Val => tVal.getI16Val.getValue
@@ -123,7 +197,6 @@ class MySQLThriftQueryResult(
       case tVal: TColumnValue if tVal.isSetDoubleVal => tVal.getDoubleVal.getValue
       case tVal: TColumnValue if tVal.isSetStringVal => tVal.getStringVal.getValue
     }
-    MySQLTextResultSetRowPacket(sequenceId = sequenceId, row = mysqlRow)
   }
 
   private def tTypeDescToMySQL(typeDesc: TTypeDesc): MySQLDataType =
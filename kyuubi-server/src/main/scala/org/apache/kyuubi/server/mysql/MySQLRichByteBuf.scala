@@ -19,7 +19,7 @@ package org.apache.kyuubi.server.mysql
 
 import java.nio.charset.StandardCharsets
 
-import io.netty.buffer.ByteBuf
+import io.netty.buffer.{ByteBuf, ByteBufUtil}
 
 // https://dev.mysql.com/doc/internals/en/integer.html#packet-Protocol
 object MySQLRichByteBuf {
@@ -200,9 +200,20 @@ object MySQLRichByteBuf {
      * @param value fixed length string
      */
     def writeStringLenenc(value: String): ByteBuf = {
-      val bytes = value.getBytes(charset)
-      writeIntLenenc(bytes.length)
-      self.writeBytes(bytes)
+      writeIntLenenc(ByteBufUtil.utf8Bytes(value))
+      ByteBufUtil.writeUtf8(self, value)
+      self
+    }
+
+    /**
+     * Write lenenc string which only contains ASCII characters to byte buffers.
+     *
+     * @param value ASCII string
+     */
+    def writeAsciiLenenc(value: String): ByteBuf = {
+      writeIntLenenc(value.length)
+      ByteBufUtil.writeAscii(self, value)
+      self
     }
 
     /**
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.server.mysql
+
+import java.nio.ByteBuffer
+import java.util.{List => JList}
+
+import io.netty.buffer.ByteBuf
+import org.apache.hive.service.rpc.thrift.TColumn
+
+import org.apache.kyuubi.server.mysql.MySQLRichByteBuf.Implicit
+import org.apache.kyuubi.server.mysql.constant.MySQLDataType
+
+/**
+ * A column of a column based `TRowSet`, whose values are written to the row packets in place,
+ * without materializing the rows.
+ */
+abstract class MySQLThriftColumn(nulls: Array[Byte]) {
+
+  def isNull(rowIndex: Int): Boolean = {
+    val i = rowIndex >> 3
+    nulls != null && i < nulls.length && (nulls(i) & (1 << (rowIndex & 7))) != 0
+  }
+
+  /**
+   * Writes the non-null value at `rowIndex`.
+   */
+  protected def writeValue(payload: ByteBuf, rowIndex: Int): Unit
+}
+
+/**
+ * A [[MySQLThriftColumn]] written to the text protocol row packets.
+ */
+abstract class MySQLTextColumn(nulls: Array[Byte]) extends MySQLThriftColumn(nulls) {
+
+  /**
+   * Writes the value at `rowIndex` as a lenenc string, or 0xFB for null.
+   */
+  def write(payload: ByteBuf, rowIndex: Int): Unit = {
+    if (isNull(rowIndex)) {
+      payload.writeInt1(0xFB)
+    } else {
+      writeValue(payload, rowIndex)
+    }
+  }
+}
+
+object MySQLTextColumn {
+
+  def apply(column: TColumn): MySQLTextColumn = column.getSetField match {
+    case TColumn._Fields.BOOL_VAL =>
+      val c = column.getBoolVal
+      new MySQLBoolTextColumn(c.getValues, c.getNulls)
+    case TColumn._Fields.BYTE_VAL =>
+      val c = column.getByteVal
+      new MySQLNumericTextColumn(c.getValues, c.getNulls)
+    case TColumn._Fields.I16_VAL =>
+      val c = column.getI16Val
+      new MySQLNumericTextColumn(c.getValues, c.getNulls)
+    case TColumn._Fields.I32_VAL =>
+      val c = column.getI32Val
+      new MySQLNumericTextColumn(c.getValues, c.getNulls)
+    case TColumn._Fields.I64_VAL =>
+      val c = column.getI64Val
+      new MySQLNumericTextColumn(c.getValues, c.getNulls)
+    case TColumn._Fields.DOUBLE_VAL =>
+      val c = column.getDoubleVal
+      new MySQLNumericTextColumn(c.getValues, c.getNulls)
+    case TColumn._Fields.STRING_VAL =>
+      val c = column.getStringVal
+      new MySQLStringTextColumn(c.getValues, c.getNulls)
+    case TColumn._Fields.BINARY_VAL =>
+      val c = column.getBinaryVal
+      new MySQLBinaryTextColumn(c.getValues, c.getNulls)
+  }
+}
+
+class MySQLBoolTextColumn(values: JList[java.lang.Boolean], nulls: Array[Byte])
+  extends MySQLTextColumn(nulls) {
+
+  override protected def writeValue(payload: ByteBuf, rowIndex: Int): Unit = {
+    payload.writeInt1(1)
+    payload.writeByte(if (values.get(rowIndex)) '1' else '0')
+  }
+}
+
+class MySQLNumericTextColumn(values: JList[_ <: Number], nulls: Array[Byte])
+  extends MySQLTextColumn(nulls) {
+
+  override protected def writeValue(payload: ByteBuf, rowIndex: Int): Unit = {
+    payload.writeAsciiLenenc(values.get(rowIndex).toString)
+  }
+}
+
+class MySQLStringTextColumn(values: JList[String], nulls: Array[Byte])
+  extends MySQLTextColumn(nulls) {
+
+  override protected def writeValue(payload: ByteBuf, rowIndex: Int): Unit = {
+    payload.writeStringLenenc(values.get(rowIndex))
+  }
+}
+
+class MySQLBinaryTextColumn(values: JList[ByteBuffer], nulls: Array[Byte])
+  extends MySQLTextColumn(nulls) {
+
+  override protected def writeValue(payload: ByteBuf, rowIndex: Int): Unit = {
+    val value = values.get(rowIndex).duplicate()
+    payload.writeIntLenenc(value.remaining)
+    payload.writeBytes(value)
+  }
+}
+
+/**
+ * A [[MySQLThriftColumn]] written to the binary protocol row packets, in the representation of
+ * `dataType` declared by the column definition.
+ */
+class MySQLBinaryColumn(val dataType: MySQLDataType, values: JList[_], nulls: Array[Byte])
+  extends MySQLThriftColumn(nulls) {
+
+  override def writeValue(payload: ByteBuf, rowIndex: Int): Unit = {
+    MySQLBinaryValue.write(payload, dataType, values.get(rowIndex))
+  }
+}
+
+object MySQLBinaryColumn {
+
+  def apply(column: TColumn, dataType: MySQLDataType): MySQLBinaryColumn = {
+    column.getSetField match {
+      case TColumn._Fields.BOOL_VAL =>
+        val c = column.getBoolVal
+        new MySQLBinaryColumn(dataType, c.getValues, c.getNulls)
+      case TColumn._Fields.BYTE_VAL =>
+        val c = column.getByteVal
+        new MySQLBinaryColumn(dataType, c.getValues, c.getNulls)
+      case TColumn._Fields.I16_VAL =>
+        val c = column.getI16Val
+        new MySQLBinaryColumn(dataType, c.getValues, c.getNulls)
+      case TColumn._Fields.I32_VAL =>
+        val c = column.getI32Val
+        new MySQLBinaryColumn(dataType, c.getValues, c.getNulls)
+      case TColumn._Fields.I64_VAL =>
+        val c = column.getI64Val
+        new MySQLBinaryColumn(dataType, c.getValues, c.getNulls)
+      case TColumn._Fields.DOUBLE_VAL =>
+        val c = column.getDoubleVal
+        new MySQLBinaryColumn(dataType, c.getValues, c.getNulls)
+      case TColumn._Fields.STRING_VAL =>
+        val c = column.getStringVal
+        new MySQLBinaryColumn(dataType, c.getValues, c.getNulls)
+      case TColumn._Fields.BINARY_VAL =>
+        val c = column.getBinaryVal
+        new MySQLBinaryColumn(dataType, c.getValues, c.getNulls)
+    }
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.kyuubi.server.mysql.constant
 import io.netty.util.AttributeKey
 import io.netty.util.AttributeKey._
 
+import org.apache.kyuubi.server.mysql.MySQLPreparedStatementCache
 import org.apache.kyuubi.session.SessionHandle
 
 object MySQLCtxAttrKey {
@@ -30,4 +31,6 @@ object MySQLCtxAttrKey {
   val DATABASE: AttributeKey[String] = valueOf[String]("DATABASE")
   val SESSION_HANDLE: AttributeKey[SessionHandle] = valueOf[SessionHandle]("SESSION_HANDLE")
   val OP_HANDLE: AttributeKey[SessionHandle] = valueOf[SessionHandle]("OP_HANDLE")
+  val PREPARED_STATEMENTS: AttributeKey[MySQLPreparedStatementCache] =
+    valueOf[MySQLPreparedStatementCache]("PREPARED_STATEMENTS")
 }
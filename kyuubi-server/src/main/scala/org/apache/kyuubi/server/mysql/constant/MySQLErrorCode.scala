@@ -34,6 +34,11 @@ object MySQLErrorCode {
       "08004",
       "Too many connections")
 
+  object TOO_MANY_COMMANDS_EXCEPTION extends MySQLErrorCode(
+      1996,
+      "C1996",
+      "Too many commands are waiting for execution, please retry later")
+
   object RUNTIME_EXCEPTION extends MySQLErrorCode(
       1997,
       "C1997",
@@ -79,6 +84,11 @@ object MySQLErrorCode {
       "HY000",
       "This command is not supported in the prepared statement protocol yet")
 
+  object ER_UNKNOWN_STMT_HANDLER extends MySQLErrorCode(
+      1243,
+      "HY000",
+      "Unknown prepared statement handler (%s) given to %s")
+
   object ER_DB_CREATE_EXISTS_ERROR extends MySQLErrorCode(
       1007,
       "HY000",
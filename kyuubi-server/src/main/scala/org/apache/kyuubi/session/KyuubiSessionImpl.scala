@@ -75,12 +75,36 @@ class KyuubiSessionImpl(
     runOperation(launchEngineOp)
   }
 
+  /**
+   * The status polling timeout of the session, shortened to half of the engine request timeout if
+   * it is not shorter, as every status request of a running operation would time out otherwise.
+   */
+  private[kyuubi] def engineStatusPollingTimeout: Long = {
+    val timeout = sessionConf.get(OPERATION_STATUS_POLLING_TIMEOUT)
+    val requestTimeout = sessionConf.get(ENGINE_REQUEST_TIMEOUT)
+    if (requestTimeout > 0 && timeout >= requestTimeout) {
+      warn(s"${OPERATION_STATUS_POLLING_TIMEOUT.key}($timeout ms) is not shorter than" +
+        s" ${ENGINE_REQUEST_TIMEOUT.key}($requestTimeout ms), using ${requestTimeout / 2} ms")
+      requestTimeout / 2
+    } else {
+      timeout
+    }
+  }
+
   private[kyuubi] def openEngineSession(extraEngineLog: Option[OperationLog] = None): Unit = {
     withZkClient(sessionConf) { zkClient =>
       val (host, port) = engine.getOrCreate(zkClient, extraEngineLog)
+      sessionManager.refillEngineStandby(engine, sessionConf)
       val passwd = Option(password).filter(_.nonEmpty).getOrElse("anonymous")
       _client = KyuubiSyncThriftClient.createClient(user, passwd, host, port, sessionConf)
-      _engineSessionHandle = _client.openSession(protocol, user, passwd, normalizedConf)
+      // the engine holds the status requests of the running operations for this long, the
+      // scheduled polls are backed off at server-side instead, so they return right away
+      val statusPollingTimeout =
+        if (sessionManager.getConf.get(OPERATION_STATUS_POLLING_SCHEDULED)) 0L
+        else engineStatusPollingTimeout
+      val engineSessionConf =
+        normalizedConf + (OPERATION_STATUS_POLLING_TIMEOUT.key -> statusPollingTimeout.toString)
+      _engineSessionHandle = _client.openSession(protocol, user, passwd, engineSessionConf)
       logSessionInfo(s"Connected to engine [$host:$port] with ${_engineSessionHandle}")
       sessionEvent.openedTime = System.currentTimeMillis()
       sessionEvent.sessionId = handle.identifier.toString
@@ -17,6 +17,9 @@
 
 package org.apache.kyuubi.session
 
+import java.util.concurrent.{ConcurrentHashMap, RejectedExecutionException, ThreadPoolExecutor}
+import java.util.concurrent.atomic.AtomicInteger
+
 import com.codahale.metrics.MetricRegistry
 import org.apache.hive.service.rpc.thrift.TProtocolVersion
 
@@ -24,9 +27,12 @@ import org.apache.kyuubi.{KyuubiSQLException, Utils}
 import org.apache.kyuubi.config.KyuubiConf
 import org.apache.kyuubi.config.KyuubiConf._
 import org.apache.kyuubi.credentials.HadoopCredentialsManager
+import org.apache.kyuubi.engine.EngineRef
+import org.apache.kyuubi.ha.client.ZooKeeperClientProvider.withZkClient
 import org.apache.kyuubi.metrics.MetricsConstants._
 import org.apache.kyuubi.metrics.MetricsSystem
 import org.apache.kyuubi.operation.KyuubiOperationManager
+import org.apache.kyuubi.util.ThreadUtils
 
 class KyuubiSessionManager private (name: String) extends SessionManager(name) {
 
@@ -35,8 +41,19 @@ class KyuubiSessionManager private (name: String) extends SessionManager(name) {
   val operationManager = new KyuubiOperationManager()
   val credentialsManager = new HadoopCredentialsManager()
 
+  // launches the standby engines in the background
+  private var engineStandbyLauncher: ThreadPoolExecutor = _
+
+  // the number of standby engines being launched of each standby space
+  private val launchingStandbyEngines = new ConcurrentHashMap[String, AtomicInteger]()
+
   override def initialize(conf: KyuubiConf): Unit = {
     addService(credentialsManager)
+    engineStandbyLauncher = ThreadUtils.newDaemonQueuedThreadPool(
+      conf.get(ENGINE_STANDBY_LAUNCH_THREADS),
+      Int.MaxValue,
+      60000L,
+      "engine-standby-launcher")
     val absPath = Utils.getAbsolutePathFromWork(conf.get(SERVER_OPERATION_LOG_DIR_ROOT))
     _operationLogRoot = Some(absPath.toAbsolutePath.toString)
     super.initialize(conf)
@@ -94,5 +111,59 @@ class KyuubiSessionManager private (name: String) extends SessionManager(name) {
     super.start()
   }
 
+  /**
+   * Launch the standby engines missing from the pool of `engine` in the background, if enabled.
+   */
+  private[kyuubi] def refillEngineStandby(engine: EngineRef, conf: KyuubiConf): Unit = {
+    if (engine.standbyPoolSize > 0) {
+      val launching =
+        launchingStandbyEngines.computeIfAbsent(engine.standbySpace, _ => new AtomicInteger(0))
+      submitToEngineStandbyLauncher {
+        var missing = 0
+        withZkClient(conf)(zkClient => missing = engine.missingStandbyEngines(zkClient))
+        // reserve the engines to launch against the ones being launched
+        var toLaunch = 0
+        var reserved = false
+        while (!reserved) {
+          val current = launching.get()
+          toLaunch = math.max(missing - current, 0)
+          reserved = launching.compareAndSet(current, current + toLaunch)
+        }
+        (0 until toLaunch).foreach { _ =>
+          val submitted = submitToEngineStandbyLauncher {
+            try {
+              withZkClient(conf)(engine.launchStandby)
+            } finally {
+              launching.decrementAndGet()
+            }
+          }
+          if (!submitted) launching.decrementAndGet()
+        }
+      }
+    }
+  }
+
+  private def submitToEngineStandbyLauncher(task: => Unit): Boolean = {
+    try {
+      engineStandbyLauncher.execute { () =>
+        try {
+          task
+        } catch {
+          case e: Throwable => warn("Error launching the standby engines", e)
+        }
+      }
+      true
+    } catch {
+      case e: RejectedExecutionException =>
+        warn(s"Skip launching the standby engines: ${e.getMessage}")
+        false
+    }
+  }
+
+  override def stop(): Unit = synchronized {
+    if (engineStandbyLauncher != null) engineStandbyLauncher.shutdownNow()
+    super.stop()
+  }
+
   override protected def isServer: Boolean = true
 }
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.client
+
+import java.util.concurrent.{Executors, Semaphore, TimeUnit}
+
+import scala.concurrent.{Await, ExecutionContext, ExecutionContextExecutorService, Future}
+import scala.concurrent.duration._
+
+import org.apache.hive.service.rpc.thrift.TProtocolVersion
+
+import org.apache.kyuubi.{KyuubiFunSuite, KyuubiSQLException, Utils}
+import org.apache.kyuubi.config.KyuubiConf
+import org.apache.kyuubi.config.KyuubiConf.ENGINE_CONNECTION_POOL_SIZE
+import org.apache.kyuubi.operation.{NoopOperationManager, Operation}
+import org.apache.kyuubi.service.{AbstractNoopServer, NoopBackendService, NoopThriftBinaryFrontendService}
+import org.apache.kyuubi.session.{NoopSessionManager, Session}
+
+class KyuubiSyncThriftClientSuite extends KyuubiFunSuite {
+  import KyuubiSyncThriftClientSuite._
+
+  private val server = new BlockingServer()
+  private val operationManager = server.backendService.sessionManager.operationManager
+
+  // the requests block their threads, so they are not sent from the global execution context
+  implicit private val requestContext: ExecutionContextExecutorService =
+    ExecutionContext.fromExecutorService(Executors.newCachedThreadPool())
+
+  override def beforeAll(): Unit = {
+    server.initialize(KyuubiConf().set(KyuubiConf.FRONTEND_THRIFT_BINARY_BIND_PORT, 0))
+    server.start()
+    super.beforeAll()
+  }
+
+  override def afterAll(): Unit = {
+    server.getServices.foreach(_.stop())
+    requestContext.shutdown()
+    super.afterAll()
+  }
+
+  private def withClient(poolSize: Int)(f: KyuubiSyncThriftClient => Unit): Unit = {
+    val Array(host, port) = server.frontendServices.head.connectionUrl.split(":")
+    val conf = KyuubiConf().set(ENGINE_CONNECTION_POOL_SIZE, poolSize)
+    val client =
+      KyuubiSyncThriftClient.createClient(Utils.currentUser, "", host, port.toInt, conf)
+    client.openSession(TProtocolVersion.HIVE_CLI_SERVICE_PROTOCOL_V10, Utils.currentUser, "", Map())
+    try {
+      f(client)
+    } finally {
+      client.closeSession()
+    }
+  }
+
+  test("requests of different operations are sent in parallel") {
+    withClient(poolSize = 2) { client =>
+      val blocked = Future(client.executeStatement(BLOCK, false, 0))
+      operationManager.awaitBlocked(1)
+      Await.result(Future(client.getTypeInfo), 10.seconds)
+      assert(!blocked.isCompleted)
+      operationManager.unblock(1)
+      Await.result(blocked, 10.seconds)
+    }
+  }
+
+  test("cancel requests never wait for the others") {
+    withClient(poolSize = 1) { client =>
+      val opHandle = client.getCatalogs
+      val blocked = Future(client.executeStatement(BLOCK, false, 0))
+      operationManager.awaitBlocked(1)
+      val waiting = Future(client.getTypeInfo)
+      Await.result(Future(client.cancelOperation(opHandle)), 10.seconds)
+      assert(!blocked.isCompleted && !waiting.isCompleted)
+      operationManager.unblock(1)
+      Await.result(blocked, 10.seconds)
+      Await.result(waiting, 10.seconds)
+    }
+  }
+
+  test("no requests after the session is closed") {
+    var closedClient: KyuubiSyncThriftClient = null
+    withClient(poolSize = 2) { client =>
+      // both requests are in flight at once, so two connections are opened
+      val blocked = Seq.fill(2)(Future(client.executeStatement(BLOCK, false, 0)))
+      operationManager.awaitBlocked(2)
+      operationManager.unblock(2)
+      blocked.foreach(Await.result(_, 10.seconds))
+      closedClient = client
+    }
+    val e = intercept[KyuubiSQLException](closedClient.getTypeInfo)
+    assert(e.getMessage === "connection does not exist")
+  }
+}
+
+object KyuubiSyncThriftClientSuite {
+  private val BLOCK = "block"
+
+  /**
+   * Holds the ExecuteStatement requests of [[BLOCK]] until they are released, so the tests
+   * control which requests are in flight.
+   */
+  class BlockingOperationManager extends NoopOperationManager {
+    private val entered = new Semaphore(0)
+    private val released = new Semaphore(0)
+
+    def awaitBlocked(requests: Int): Unit = {
+      assert(entered.tryAcquire(requests, 10, TimeUnit.SECONDS))
+    }
+
+    def unblock(requests: Int): Unit = released.release(requests)
+
+    override def newExecuteStatementOperation(
+        session: Session,
+        statement: String,
+        runAsync: Boolean,
+        queryTimeout: Long): Operation = {
+      if (statement == BLOCK) {
+        entered.release()
+        released.acquire()
+      }
+      super.newExecuteStatementOperation(session, statement, runAsync, queryTimeout)
+    }
+  }
+
+  class BlockingSessionManager extends NoopSessionManager {
+    override val operationManager = new BlockingOperationManager()
+  }
+
+  class BlockingBackendService extends NoopBackendService {
+    override val sessionManager = new BlockingSessionManager()
+  }
+
+  class BlockingServer extends AbstractNoopServer("BlockingServer") {
+    override val backendService = new BlockingBackendService()
+    override val frontendServices = Seq(new NoopThriftBinaryFrontendService(this))
+  }
+}
@@ -19,6 +19,8 @@ package org.apache.kyuubi.engine
 
 import java.util.UUID
 
+import scala.collection.JavaConverters._
+
 import org.apache.curator.utils.ZKPaths
 import org.apache.hadoop.security.UserGroupInformation
 import org.scalatest.time.SpanSugar.convertIntToGrainOfTime
@@ -218,4 +220,41 @@ class EngineRefSuite extends KyuubiFunSuite {
       assert(port2 == port1, "engine shared")
     }
   }
+
+  test("claim the standby engines of CONNECTION share level") {
+    conf.set(KyuubiConf.ENGINE_SHARE_LEVEL, CONNECTION.toString)
+    conf.set(KyuubiConf.ENGINE_TYPE, SPARK_SQL.toString)
+    conf.set(KyuubiConf.ENGINE_STANDBY_POOL_SIZE, 2)
+    conf.set(HighAvailabilityConf.HA_ZK_NAMESPACE, "engine_standby_test")
+    conf.set(HighAvailabilityConf.HA_ZK_QUORUM, zkServer.getConnectString)
+    try {
+      val engine = new EngineRef(conf, user)
+      assert(engine.standbySpace === new EngineRef(conf, user).standbySpace)
+      assert(engine.standbySpace !==
+        new EngineRef(conf.clone.set("spark.executor.memory", "2g"), user).standbySpace)
+
+      ZooKeeperClientProvider.withZkClient(conf) { client =>
+        assert(engine.missingStandbyEngines(client) === 2)
+        client.create().creatingParentsIfNeeded().forPath(
+          ZKPaths.makePath(
+            engine.standbySpace,
+            s"serviceUri=localhost:10001;version=$KYUUBI_VERSION;refId=id1;sequence=0000000000"),
+          "localhost:10001".getBytes)
+        // the ticket of id0 is left by a standby engine which is gone
+        Seq("id0", "id1").foreach { refId =>
+          client.create().creatingParentsIfNeeded()
+            .forPath(ZKPaths.makePath(engine.standbyTicketSpace, refId))
+        }
+        // only id1 is counted, and the stale ticket of id0 is removed
+        assert(engine.missingStandbyEngines(client) === 1)
+        assert(client.getChildren.forPath(engine.standbyTicketSpace).asScala === Seq("id1"))
+
+        assert(engine.getOrCreate(client) === (("localhost", 10001)))
+        assert(client.getChildren.forPath(engine.standbyTicketSpace).isEmpty)
+        assert(engine.missingStandbyEngines(client) === 2)
+      }
+    } finally {
+      conf.unset(KyuubiConf.ENGINE_STANDBY_POOL_SIZE)
+    }
+  }
 }
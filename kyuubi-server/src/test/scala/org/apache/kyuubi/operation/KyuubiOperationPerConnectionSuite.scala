@@ -158,4 +158,26 @@ class KyuubiOperationPerConnectionSuite extends WithKyuubiServer with HiveJDBCTe
       assert(resultSet.getString(1).nonEmpty)
     }
   }
+
+  test("pass the status polling timeout of the session to the engine") {
+    val key = KyuubiConf.OPERATION_STATUS_POLLING_TIMEOUT.key
+    withSessionConf()(Map(key -> "1234"))(Map.empty) {
+      withJdbcStatement() { statement =>
+        val resultSet = statement.executeQuery(s"SET $key")
+        assert(resultSet.next())
+        assert(resultSet.getString(2) === "1234")
+      }
+    }
+
+    // a status request held longer than the engine request timeout would always time out
+    withSessionConf()(Map(
+      key -> "PT2M",
+      KyuubiConf.ENGINE_REQUEST_TIMEOUT.key -> "PT10S"))(Map.empty) {
+      withJdbcStatement() { statement =>
+        val resultSet = statement.executeQuery(s"SET $key")
+        assert(resultSet.next())
+        assert(resultSet.getString(2) === "5000")
+      }
+    }
+  }
 }
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.operation
+
+import scala.collection.JavaConverters._
+
+import org.apache.hive.service.rpc.thrift._
+import org.apache.hive.service.rpc.thrift.TFetchOrientation._
+import org.apache.hive.service.rpc.thrift.TOperationState._
+import org.scalatest.time.SpanSugar._
+
+import org.apache.kyuubi.WithKyuubiServer
+import org.apache.kyuubi.config.KyuubiConf
+import org.apache.kyuubi.config.KyuubiConf._
+
+class KyuubiOperationResultPrefetchSuite extends WithKyuubiServer with HiveJDBCTestHelper {
+
+  override protected def jdbcUrl: String = getJdbcUrl
+
+  override protected val conf: KyuubiConf = KyuubiConf()
+    .set(ENGINE_SHARE_LEVEL, "user")
+    .set(OPERATION_RESULT_PREFETCH, true)
+    .set(OPERATION_RESULT_PREFETCH_BATCH_SIZE, 10)
+
+  private def executeAndWait(
+      client: TCLIService.Iface,
+      handle: TSessionHandle,
+      statement: String): TOperationHandle = {
+    val req = new TExecuteStatementReq(handle, statement)
+    req.setRunAsync(true)
+    val resp = client.ExecuteStatement(req)
+    assert(resp.getStatus.getStatusCode === TStatusCode.SUCCESS_STATUS)
+    val opHandle = resp.getOperationHandle
+    eventually(timeout(60.seconds), interval(100.milliseconds)) {
+      val statusResp = client.GetOperationStatus(new TGetOperationStatusReq(opHandle))
+      assert(statusResp.getOperationState === FINISHED_STATE)
+    }
+    opHandle
+  }
+
+  private def fetch(
+      client: TCLIService.Iface,
+      opHandle: TOperationHandle,
+      orientation: TFetchOrientation,
+      size: Int): Seq[Long] = {
+    val resp = client.FetchResults(new TFetchResultsReq(opHandle, orientation, size))
+    assert(resp.getStatus.getStatusCode === TStatusCode.SUCCESS_STATUS)
+    resp.getResults.getColumns.get(0).getI64Val.getValues.asScala.map(_.toLong)
+  }
+
+  private def fetchAll(client: TCLIService.Iface, opHandle: TOperationHandle): Seq[Long] = {
+    Iterator.continually(fetch(client, opHandle, FETCH_NEXT, 7)).takeWhile(_.nonEmpty)
+      .flatten.toList
+  }
+
+  test("return the prefetched rows in order") {
+    withSessionHandle { (client, handle) =>
+      val opHandle = executeAndWait(client, handle, "SELECT id FROM range(95)")
+      // client fetches smaller than and not aligned with the engine fetches
+      assert(fetchAll(client, opHandle) === (0L until 95L))
+    }
+  }
+
+  test("restart from the first row with FETCH_FIRST") {
+    withSessionHandle { (client, handle) =>
+      val opHandle = executeAndWait(client, handle, "SELECT id FROM range(95)")
+      assert(fetch(client, opHandle, FETCH_NEXT, 7) === (0L until 7L))
+      // the next batch is prefetched meanwhile, and must not leak into the restarted cursor
+      assert(fetch(client, opHandle, FETCH_NEXT, 7) === (7L until 14L))
+      assert(fetch(client, opHandle, FETCH_FIRST, 7) === (0L until 7L))
+      assert(fetchAll(client, opHandle) === (7L until 95L))
+
+      assert(fetch(client, opHandle, FETCH_FIRST, 30) === (0L until 30L))
+      assert(fetchAll(client, opHandle) === (30L until 95L))
+    }
+  }
+
+  test("close and cancel while a prefetch is in flight") {
+    withSessionHandle { (client, handle) =>
+      (0 until 5).foreach { _ =>
+        val opHandle = executeAndWait(client, handle, "SELECT id FROM range(1000)")
+        assert(fetch(client, opHandle, FETCH_NEXT, 5) === (0L until 5L))
+        // the rest of the first batch is buffered and the next one is being prefetched
+        val closeResp = client.CloseOperation(new TCloseOperationReq(opHandle))
+        assert(closeResp.getStatus.getStatusCode === TStatusCode.SUCCESS_STATUS)
+        val fetchResp = client.FetchResults(new TFetchResultsReq(opHandle, FETCH_NEXT, 5))
+        assert(fetchResp.getStatus.getStatusCode === TStatusCode.ERROR_STATUS)
+      }
+
+      (0 until 5).foreach { _ =>
+        val opHandle = executeAndWait(client, handle, "SELECT id FROM range(1000)")
+        assert(fetch(client, opHandle, FETCH_NEXT, 5) === (0L until 5L))
+        val cancelResp = client.CancelOperation(new TCancelOperationReq(opHandle))
+        assert(cancelResp.getStatus.getStatusCode === TStatusCode.SUCCESS_STATUS)
+        val statusResp = client.GetOperationStatus(new TGetOperationStatusReq(opHandle))
+        assert(statusResp.getOperationState === CANCELED_STATE)
+        val fetchResp = client.FetchResults(new TFetchResultsReq(opHandle, FETCH_NEXT, 5))
+        assert(fetchResp.getStatus.getStatusCode === TStatusCode.ERROR_STATUS)
+        client.CloseOperation(new TCloseOperationReq(opHandle))
+      }
+
+      // the abandoned prefetches neither break the session nor the following queries
+      val opHandle = executeAndWait(client, handle, "SELECT id FROM range(95)")
+      assert(fetchAll(client, opHandle) === (0L until 95L))
+    }
+  }
+}
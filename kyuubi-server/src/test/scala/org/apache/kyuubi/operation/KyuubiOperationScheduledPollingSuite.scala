@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.operation
+
+import org.apache.hive.service.rpc.thrift._
+import org.apache.hive.service.rpc.thrift.TOperationState._
+import org.scalatest.time.SpanSugar._
+
+import org.apache.kyuubi.WithKyuubiServer
+import org.apache.kyuubi.config.KyuubiConf
+import org.apache.kyuubi.config.KyuubiConf._
+
+class KyuubiOperationScheduledPollingSuite extends WithKyuubiServer with HiveJDBCTestHelper {
+
+  override protected def jdbcUrl: String = getJdbcUrl
+
+  override protected val conf: KyuubiConf = KyuubiConf()
+    .set(ENGINE_SHARE_LEVEL, "user")
+    .set(OPERATION_STATUS_POLLING_SCHEDULED, true)
+    .set(OPERATION_STATUS_POLLING_THREADS, 1)
+    .set(OPERATION_STATUS_POLLING_MAX_INTERVAL, 200L)
+
+  private def executeAsync(
+      client: TCLIService.Iface,
+      handle: TSessionHandle,
+      statement: String): TOperationHandle = {
+    val req = new TExecuteStatementReq(handle, statement)
+    req.setRunAsync(true)
+    val resp = client.ExecuteStatement(req)
+    assert(resp.getStatus.getStatusCode === TStatusCode.SUCCESS_STATUS)
+    resp.getOperationHandle
+  }
+
+  private def getStatus(
+      client: TCLIService.Iface,
+      opHandle: TOperationHandle): TGetOperationStatusResp = {
+    client.GetOperationStatus(new TGetOperationStatusReq(opHandle))
+  }
+
+  private def waitForState(
+      client: TCLIService.Iface,
+      opHandle: TOperationHandle,
+      state: TOperationState): TGetOperationStatusResp = {
+    var resp: TGetOperationStatusResp = null
+    eventually(timeout(60.seconds), interval(100.milliseconds)) {
+      resp = getStatus(client, opHandle)
+      assert(resp.getOperationState === state)
+    }
+    resp
+  }
+
+  test("finish the statements tracked by the scheduled polling") {
+    withSessionHandle { (client, handle) =>
+      val opHandles = (0 until 4).map(i => executeAsync(client, handle, s"SELECT $i"))
+      opHandles.zipWithIndex.foreach { case (opHandle, i) =>
+        waitForState(client, opHandle, FINISHED_STATE)
+        val fetchReq = new TFetchResultsReq(opHandle, TFetchOrientation.FETCH_NEXT, 10)
+        val rowSet = client.FetchResults(fetchReq).getResults
+        assert(rowSet.getColumns.get(0).getI32Val.getValues.get(0) === i)
+      }
+    }
+  }
+
+  test("report the error of the statement tracked by the scheduled polling") {
+    withSessionHandle { (client, handle) =>
+      val opHandle = executeAsync(client, handle, "SELECT assert_true(1 < 0)")
+      val resp = waitForState(client, opHandle, ERROR_STATE)
+      assert(resp.getErrorMessage.contains("1 < 0"))
+    }
+  }
+
+  test("cancel the statement tracked by the scheduled polling") {
+    withSessionHandle { (client, handle) =>
+      val opHandle =
+        executeAsync(client, handle, "SELECT java_method('java.lang.Thread', 'sleep', 60000L)")
+      waitForState(client, opHandle, RUNNING_STATE)
+      val resp = client.CancelOperation(new TCancelOperationReq(opHandle))
+      assert(resp.getStatus.getStatusCode === TStatusCode.SUCCESS_STATUS)
+      waitForState(client, opHandle, CANCELED_STATE)
+      // the later polls do not change the state
+      Thread.sleep(1000)
+      assert(getStatus(client, opHandle).getOperationState === CANCELED_STATE)
+    }
+  }
+
+  test("close the statement tracked by the scheduled polling") {
+    withSessionHandle { (client, handle) =>
+      val opHandle =
+        executeAsync(client, handle, "SELECT java_method('java.lang.Thread', 'sleep', 60000L)")
+      waitForState(client, opHandle, RUNNING_STATE)
+      val resp = client.CloseOperation(new TCloseOperationReq(opHandle))
+      assert(resp.getStatus.getStatusCode === TStatusCode.SUCCESS_STATUS)
+      val statusResp = getStatus(client, opHandle)
+      assert(statusResp.getStatus.getStatusCode === TStatusCode.ERROR_STATUS)
+      assert(statusResp.getStatus.getErrorMessage.contains("Invalid"))
+
+      // the scheduled pool goes on with the other statements
+      val next = executeAsync(client, handle, "SELECT 1")
+      waitForState(client, next, FINISHED_STATE)
+    }
+  }
+}
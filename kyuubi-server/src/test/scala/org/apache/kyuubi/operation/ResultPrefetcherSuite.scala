@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.operation
+
+import java.util.concurrent.{ConcurrentLinkedQueue, Executors}
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable.ArrayBuffer
+
+import org.apache.hive.service.rpc.thrift._
+
+import org.apache.kyuubi.{KyuubiFunSuite, KyuubiSQLException}
+import org.apache.kyuubi.operation.FetchOrientation.{FETCH_FIRST, FETCH_NEXT, FetchOrientation}
+import org.apache.kyuubi.util.RowSetUtils
+import org.apache.kyuubi.util.RowSetUtils.bitSetToBuffer
+
+class ResultPrefetcherSuite extends KyuubiFunSuite {
+
+  private val executor = Executors.newSingleThreadExecutor()
+
+  override def afterAll(): Unit = {
+    executor.shutdownNow()
+    super.afterAll()
+  }
+
+  /**
+   * A remote result of the ints in [0, numRows), the odd ones in the second column are nulls.
+   */
+  private class FakeEngine(numRows: Int) {
+    private var cursor = 0
+    val requests = new ConcurrentLinkedQueue[(FetchOrientation, Int)]()
+
+    def fetchResults(order: FetchOrientation, maxRows: Int): TRowSet = synchronized {
+      requests.add((order, maxRows))
+      if (order == FETCH_FIRST) cursor = 0
+      val values = (cursor until math.min(cursor + maxRows, numRows)).map(Int.box)
+      cursor += values.size
+      val nulls = new java.util.BitSet()
+      values.indices.filter(values(_) % 2 == 1).foreach(nulls.set)
+      val tRowSet = new TRowSet(0, new java.util.ArrayList[TRow](0))
+      tRowSet.addToColumns(TColumn.i32Val(new TI32Column(values.asJava, new java.util.BitSet())))
+      tRowSet.addToColumns(TColumn.i32Val(new TI32Column(values.asJava, nulls)))
+      tRowSet
+    }
+  }
+
+  private def fetchAll(prefetcher: ResultPrefetcher, rowSetSize: Int): Seq[Int] = {
+    val result = new ArrayBuffer[Int]
+    var done = false
+    while (!done) {
+      val rowSet = prefetcher.fetch(FETCH_NEXT, rowSetSize)
+      val numRows = RowSetUtils.numRows(rowSet)
+      assert(numRows <= rowSetSize)
+      val values = rowSet.getColumns.get(0).getI32Val.getValues.asScala.map(_.intValue())
+      val nulls = java.util.BitSet.valueOf(rowSet.getColumns.get(1).getI32Val.getNulls)
+      values.indices.foreach(i => assert(nulls.get(i) === (values(i) % 2 == 1)))
+      result ++= values
+      done = numRows == 0
+    }
+    result
+  }
+
+  test("coalesce small client fetches into engine fetches of the batch size") {
+    val engine = new FakeEngine(1050)
+    val prefetcher = new ResultPrefetcher(engine.fetchResults, 100, executor)
+    assert(fetchAll(prefetcher, 10) === (0 until 1050))
+    val requests = engine.requests.asScala.toSeq
+    assert(requests.forall(_ === ((FETCH_NEXT, 100))))
+    // 11 batches with rows and the empty one at the end
+    assert(requests.size === 12)
+  }
+
+  test("client fetch sizes larger than the batch size are respected") {
+    val engine = new FakeEngine(1000)
+    val prefetcher = new ResultPrefetcher(engine.fetchResults, 100, executor)
+    assert(fetchAll(prefetcher, 300) === (0 until 1000))
+    assert(engine.requests.asScala.forall(_._2 === 300))
+  }
+
+  test("fetch from the start") {
+    val engine = new FakeEngine(500)
+    val prefetcher = new ResultPrefetcher(engine.fetchResults, 100, executor)
+    assert(RowSetUtils.numRows(prefetcher.fetch(FETCH_NEXT, 50)) === 50)
+    assert(RowSetUtils.numRows(prefetcher.fetch(FETCH_NEXT, 100)) === 50)
+    val first = prefetcher.fetch(FETCH_FIRST, 10)
+    assert(first.getColumns.get(0).getI32Val.getValues.asScala === (0 until 10))
+    assert(fetchAll(prefetcher, 10) === (10 until 500))
+  }
+
+  test("row based result") {
+    val rows = (0 until 25).map { i =>
+      val value = new TI32Value()
+      value.setValue(i)
+      new TRow(java.util.Collections.singletonList[TColumnValue](TColumnValue.i32Val(value)))
+    }
+    var cursor = 0
+    val prefetcher = new ResultPrefetcher(
+      (_, maxRows) => {
+        val batch = rows.slice(cursor, cursor + maxRows)
+        cursor += batch.size
+        new TRowSet(0, batch.asJava)
+      },
+      10,
+      executor)
+    val result = new ArrayBuffer[Int]
+    var rowSet = prefetcher.fetch(FETCH_NEXT, 3)
+    while (rowSet.getRowsSize > 0) {
+      assert(rowSet.getRowsSize <= 3)
+      result ++= rowSet.getRows.asScala.map(_.getColVals.get(0).getI32Val.getValue)
+      rowSet = prefetcher.fetch(FETCH_NEXT, 3)
+    }
+    assert(result === (0 until 25))
+  }
+
+  test("the failure of a prefetch is thrown by the following fetch") {
+    var fetched = 0
+    val prefetcher = new ResultPrefetcher(
+      (_, maxRows) => {
+        fetched += 1
+        if (fetched > 1) throw KyuubiSQLException("engine is gone")
+        new FakeEngine(maxRows).fetchResults(FETCH_NEXT, maxRows)
+      },
+      10,
+      executor)
+    assert(RowSetUtils.numRows(prefetcher.fetch(FETCH_NEXT, 10)) === 10)
+    val e = intercept[KyuubiSQLException](prefetcher.fetch(FETCH_NEXT, 10))
+    assert(e.getMessage === "engine is gone")
+    prefetcher.close()
+    intercept[IllegalStateException](prefetcher.fetch(FETCH_NEXT, 10))
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.operation
+
+import java.util.concurrent.{ExecutionException, TimeUnit}
+import java.util.concurrent.atomic.AtomicInteger
+
+import scala.collection.mutable.ArrayBuffer
+
+import org.apache.kyuubi.{KyuubiFunSuite, KyuubiSQLException}
+import org.apache.kyuubi.util.ThreadUtils
+
+class StatusPollerSuite extends KyuubiFunSuite {
+
+  private val scheduler = ThreadUtils.newDaemonScheduledThreadPool(2, "status-poller-test")
+
+  override def afterAll(): Unit = {
+    scheduler.shutdownNow()
+    super.afterAll()
+  }
+
+  test("poll until the statement completes with the backoff intervals") {
+    val poller = new StatusPoller(scheduler, 80)
+    val pollTimes = new ArrayBuffer[Long]
+    val future = poller.schedule { () =>
+      pollTimes.synchronized(pollTimes += System.nanoTime())
+      pollTimes.size == 6
+    }
+    future.get(10, TimeUnit.SECONDS)
+    val intervals = pollTimes.sliding(2).map { case Seq(a, b) => (b - a) / 1000000 }.toSeq
+    // 10, 20, 40, 80, 80
+    assert(intervals.size === 5)
+    intervals.zip(Seq(10, 20, 40, 80, 80)).foreach { case (actual, expected) =>
+      assert(actual >= expected)
+    }
+  }
+
+  test("many statements share a small pool") {
+    val poller = new StatusPoller(scheduler, 20)
+    val polls = new AtomicInteger()
+    val futures = (0 until 100).map { _ =>
+      val remaining = new AtomicInteger(5)
+      poller.schedule { () =>
+        polls.incrementAndGet()
+        remaining.decrementAndGet() == 0
+      }
+    }
+    futures.foreach(_.get(10, TimeUnit.SECONDS))
+    assert(polls.get() === 500)
+  }
+
+  test("the failure of a poll completes the future") {
+    val poller = new StatusPoller(scheduler, 20)
+    val polls = new AtomicInteger()
+    val future = poller.schedule { () =>
+      if (polls.incrementAndGet() == 3) throw KyuubiSQLException("engine is gone")
+      false
+    }
+    val e = intercept[ExecutionException](future.get(10, TimeUnit.SECONDS))
+    assert(e.getCause.getMessage === "engine is gone")
+    Thread.sleep(100)
+    assert(polls.get() === 3)
+  }
+}
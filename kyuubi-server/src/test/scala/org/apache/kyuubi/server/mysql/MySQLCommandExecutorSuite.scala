@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.server.mysql
+
+import java.util.concurrent.{ConcurrentLinkedQueue, CountDownLatch, RejectedExecutionException, TimeUnit}
+import java.util.concurrent.atomic.AtomicInteger
+
+import scala.collection.JavaConverters._
+
+import org.scalatest.time.SpanSugar._
+
+import org.apache.kyuubi.KyuubiFunSuite
+
+class MySQLCommandExecutorSuite extends KyuubiFunSuite {
+
+  private def newExecutor(maxThreads: Int, queueSize: Int): MySQLCommandExecutor = {
+    new MySQLCommandExecutor("test-mysql-exec-pool", 1, maxThreads, 60000, queueSize, () => ())
+  }
+
+  test("run the commands of a connection one by one in order") {
+    val executor = newExecutor(4, 0)
+    try {
+      val conn = executor.newConnectionExecutor()
+      val done = new ConcurrentLinkedQueue[Int]
+      val running = new AtomicInteger(0)
+      val maxRunning = new AtomicInteger(0)
+      (0 until 100).foreach { i =>
+        conn.execute { () =>
+          maxRunning.accumulateAndGet(running.incrementAndGet(), (a, b) => math.max(a, b))
+          Thread.sleep(1)
+          done.add(i)
+          running.decrementAndGet()
+        }
+      }
+      eventually(timeout(10.seconds)) {
+        assert(done.size === 100)
+        assert(conn.isIdle)
+      }
+      assert(done.asScala.toSeq === (0 until 100))
+      assert(maxRunning.get === 1)
+    } finally {
+      executor.shutdown(1000)
+    }
+  }
+
+  test("queue the connections when all threads are busy and reject beyond the limit") {
+    val executor = newExecutor(1, 1)
+    try {
+      val latch = new CountDownLatch(1)
+      val conn1 = executor.newConnectionExecutor()
+      conn1.execute(() => latch.await())
+
+      val conn2 = executor.newConnectionExecutor()
+      val conn2Done = new CountDownLatch(1)
+      conn2.execute(() => conn2Done.countDown())
+      assert(executor.getWaitingCount === 1)
+
+      val conn3 = executor.newConnectionExecutor()
+      intercept[RejectedExecutionException](conn3.execute(() => ()))
+      assert(conn3.isIdle)
+      assert(executor.getRejectedCount === 1)
+
+      latch.countDown()
+      conn2Done.await()
+      eventually(timeout(10.seconds)) {
+        assert(executor.getWaitingCount === 0)
+        assert(conn1.isIdle && conn2.isIdle)
+      }
+    } finally {
+      executor.shutdown(1000)
+    }
+  }
+
+  test("run every connection queued while the pool is saturated") {
+    val executor = newExecutor(2, 100)
+    try {
+      (0 until 50).foreach { round =>
+        val conns = (0 until 40).map(_ => executor.newConnectionExecutor())
+        // every connection counts down once, the first of a group after a failing command
+        val done = new CountDownLatch(conns.size)
+        val submitters = conns.grouped(10).map { group =>
+          new Thread(() => {
+            group.zipWithIndex.foreach { case (conn, i) =>
+              if (i == 0) conn.execute(() => throw new RuntimeException("expected"))
+              conn.execute(() => done.countDown())
+            }
+          })
+        }.toList
+        submitters.foreach(_.start())
+        submitters.foreach(_.join())
+        assert(done.await(10, TimeUnit.SECONDS), s"a queued connection is left in round $round")
+      }
+      assert(executor.getRejectedCount === 0)
+      eventually(timeout(10.seconds)) {
+        assert(executor.getWaitingCount === 0)
+        assert(executor.getActiveCount === 0)
+      }
+    } finally {
+      executor.shutdown(1000)
+    }
+  }
+}
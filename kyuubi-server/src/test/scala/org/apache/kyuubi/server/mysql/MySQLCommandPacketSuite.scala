@@ -17,6 +17,8 @@
 
 package org.apache.kyuubi.server.mysql
 
+import java.sql.SQLException
+
 import org.apache.kyuubi.KyuubiFunSuite
 
 class MySQLCommandPacketSuite extends KyuubiFunSuite with MySQLCodecHelper {
@@ -47,4 +49,58 @@ class MySQLCommandPacketSuite extends KyuubiFunSuite with MySQLCodecHelper {
       assert(decoded === expected)
     }
   }
+
+  test("decode MySQLComStmtPreparePacket") {
+    val payload = decodeHex("73 65 6c 65 63 74 20 3f")
+    val expected = MySQLComStmtPreparePacket("select ?")
+    verifyDecode(MySQLComStmtPreparePacket, payload, expected) { (decoded, expected) =>
+      assert(decoded === expected)
+    }
+  }
+
+  test("decode MySQLComStmtExecutePacket") {
+    val statements = new MySQLPreparedStatementCache
+    val statementId = statements.prepare("select * from t where a = ? and b = ?").statementId
+    // the types are bound, and the second parameter is null
+    val payload1 = decodeHex(
+      """01 00 00 00 00 01 00 00 00 02 01 08 00 fd 00 2a
+        |00 00 00 00 00 00 00
+        |""".stripMargin)
+    assert(MySQLComStmtExecutePacket.decode(payload1, statements) ===
+      MySQLComStmtExecutePacket(statementId, 0, Seq(42L, null)))
+    // the types are taken from the last execution
+    val payload2 = decodeHex(
+      """01 00 00 00 00 01 00 00 00 00 00 07 00 00 00 00
+        |00 00 00 01 61
+        |""".stripMargin)
+    assert(MySQLComStmtExecutePacket.decode(payload2, statements) ===
+      MySQLComStmtExecutePacket(statementId, 0, Seq(7L, "a")))
+
+    val payload3 = decodeHex("09 00 00 00 00 01 00 00 00")
+    val e = intercept[SQLException](MySQLComStmtExecutePacket.decode(payload3, statements))
+    assert(e.getErrorCode === 1243)
+    assert(payload3.readableBytes === 0)
+  }
+
+  test("decode the binary parameters of MySQLComStmtExecutePacket as bytes") {
+    val statements = new MySQLPreparedStatementCache
+    statements.prepare("select ?, ?, ?")
+    // a BLOB, a VAR_STRING of invalid UTF-8 and a VAR_STRING of valid UTF-8
+    val payload = decodeHex(
+      """01 00 00 00 00 01 00 00 00 00 01 fc 00 fd 00 fd
+        |00 02 00 ff 02 c3 28 03 e4 bd a0
+        |""".stripMargin)
+    val params = MySQLComStmtExecutePacket.decode(payload, statements).parameters
+    assert(params(0).asInstanceOf[Array[Byte]].toSeq === Seq[Byte](0, -1))
+    assert(params(1).asInstanceOf[Array[Byte]].toSeq === Seq[Byte](-61, 40))
+    assert(params(2) === "\u4f60")
+  }
+
+  test("decode MySQLComStmtClosePacket") {
+    val payload = decodeHex("01 00 00 00")
+    val expected = MySQLComStmtClosePacket(1)
+    verifyDecode(MySQLComStmtClosePacket, payload, expected) { (decoded, expected) =>
+      assert(decoded === expected)
+    }
+  }
 }
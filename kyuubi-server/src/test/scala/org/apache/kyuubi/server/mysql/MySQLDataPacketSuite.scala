@@ -17,6 +17,13 @@
 
 package org.apache.kyuubi.server.mysql
 
+import java.nio.ByteBuffer
+import java.time.LocalDateTime
+
+import scala.collection.JavaConverters._
+
+import org.apache.hive.service.rpc.thrift._
+
 import org.apache.kyuubi.KyuubiFunSuite
 import org.apache.kyuubi.server.mysql.constant.MySQLDataType
 
@@ -42,4 +49,52 @@ class MySQLDataPacketSuite extends KyuubiFunSuite with MySQLCodecHelper {
     val expected = decodeHex("0e 31 2e 34 2e 30 2d 53 4e 41 50 53 48 4f 54")
     verifyEncode(expected, packet)
   }
+
+  test("encode MySQLColumnarTextResultSetRowPacket") {
+    val ints = TColumn.i32Val(new TI32Column(
+      Seq[Integer](1, 0).asJava,
+      ByteBuffer.wrap(Array[Byte](0x02))))
+    val strings = TColumn.stringVal(new TStringColumn(
+      Seq("ab", "c").asJava,
+      ByteBuffer.wrap(Array[Byte](0x00))))
+    val bools = TColumn.boolVal(new TBoolColumn(
+      Seq[java.lang.Boolean](true, false).asJava,
+      ByteBuffer.wrap(Array.empty[Byte])))
+    val columns = Array(ints, strings, bools).map(MySQLTextColumn(_))
+    verifyEncode(
+      decodeHex("01 31 02 61 62 01 31"),
+      MySQLColumnarTextResultSetRowPacket(2, columns, 0))
+    verifyEncode(
+      decodeHex("fb 01 63 01 30"),
+      MySQLColumnarTextResultSetRowPacket(3, columns, 1))
+  }
+
+  test("encode MySQLComStmtPrepareOKPacket") {
+    val packet = MySQLComStmtPrepareOKPacket(1, 1, 0, 2)
+    val expected = decodeHex("00 01 00 00 00 00 00 02 00 00 00 00")
+    verifyEncode(expected, packet)
+  }
+
+  test("encode MySQLBinaryResultSetRowPacket") {
+    val packet = MySQLBinaryResultSetRowPacket(
+      4,
+      Seq(MySQLDataType.LONG, MySQLDataType.VAR_STRING, MySQLDataType.DATETIME),
+      Seq(1, null, LocalDateTime.of(2021, 1, 2, 3, 4, 5)))
+    val expected = decodeHex("00 08 01 00 00 00 07 e5 07 01 02 03 04 05")
+    verifyEncode(expected, packet)
+  }
+
+  test("encode MySQLColumnarBinaryResultSetRowPacket") {
+    val longs = TColumn.i64Val(new TI64Column(
+      Seq[java.lang.Long](5L).asJava,
+      ByteBuffer.wrap(Array.empty[Byte])))
+    val dates = TColumn.stringVal(new TStringColumn(
+      Seq("2021-01-02").asJava,
+      ByteBuffer.wrap(Array.empty[Byte])))
+    val columns = Array(
+      MySQLBinaryColumn(longs, MySQLDataType.LONGLONG),
+      MySQLBinaryColumn(dates, MySQLDataType.DATE))
+    val expected = decodeHex("00 00 05 00 00 00 00 00 00 00 04 e5 07 01 02")
+    verifyEncode(expected, MySQLColumnarBinaryResultSetRowPacket(4, columns, 0))
+  }
 }
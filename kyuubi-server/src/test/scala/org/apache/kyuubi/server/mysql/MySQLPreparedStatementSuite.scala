@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.server.mysql
+
+import java.time.{LocalDate, LocalDateTime}
+
+import org.apache.kyuubi.KyuubiFunSuite
+
+class MySQLPreparedStatementSuite extends KyuubiFunSuite {
+
+  test("split sql at the placeholders out of quotes") {
+    val parts = MySQLPreparedStatement.splitSql(
+      "select '?', `?`, \"a\\\"?\" from t where a = ? and b = ?")
+    assert(parts.toSeq ===
+      Seq("select '?', `?`, \"a\\\"?\" from t where a = ", " and b = ", ""))
+  }
+
+  test("split sql at the placeholders out of comments") {
+    val parts = MySQLPreparedStatement.splitSql(
+      "select /* ? */ a -- ?\nfrom t # ?\nwhere a = ? /*+ ? */ and b = ? -- ?")
+    assert(parts.toSeq ===
+      Seq("select /* ? */ a -- ?\nfrom t # ?\nwhere a = ", " /*+ ? */ and b = ", " -- ?"))
+    assert(MySQLPreparedStatement.splitSql("select ? /* ?").length === 2)
+  }
+
+  test("bind the parameters as sql literals") {
+    val statement = new MySQLPreparedStatement(1, "select ?, ?, ?, ?, ?")
+    assert(statement.numParams === 5)
+    val sql = statement.bind(Seq(
+      1,
+      null,
+      "it's a \\",
+      LocalDate.of(2021, 1, 2),
+      LocalDateTime.of(2021, 1, 2, 3, 4, 5)))
+    assert(sql === "select 1, NULL, 'it\\'s a \\\\', '2021-01-02', '2021-01-02 03:04:05'")
+    intercept[IllegalArgumentException](statement.bind(Seq(1)))
+  }
+
+  test("bind the binary parameters as hex literals") {
+    val statement = new MySQLPreparedStatement(1, "select ?, ?")
+    val sql = statement.bind(Seq(Array[Byte](0, -1, 0x1f), Array.empty[Byte]))
+    assert(sql === "select X'00FF1F', X''")
+  }
+
+  test("prepare and close statements") {
+    val statements = new MySQLPreparedStatementCache
+    val s1 = statements.prepare("select 1")
+    val s2 = statements.prepare("select 1")
+    assert(s1.statementId !== s2.statementId)
+    assert(statements.get(s1.statementId, "test") === s1)
+    statements.close(s1.statementId)
+    assert(statements.size === 1)
+    intercept[Exception](statements.get(s1.statementId, "test"))
+  }
+}
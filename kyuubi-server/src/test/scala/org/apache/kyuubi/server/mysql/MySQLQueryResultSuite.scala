@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.kyuubi.server.mysql
+
+import java.nio.ByteBuffer
+
+import scala.collection.JavaConverters._
+
+import org.apache.hive.service.rpc.thrift._
+
+import org.apache.kyuubi.KyuubiFunSuite
+import org.apache.kyuubi.server.mysql.constant.MySQLDataType
+import org.apache.kyuubi.util.ThriftUtils
+
+class MySQLQueryResultSuite extends KyuubiFunSuite {
+
+  private val schema = {
+    val desc = new TTypeDesc
+    desc.addToTypes(TTypeEntry.primitiveEntry(new TPrimitiveTypeEntry(TTypeId.INT_TYPE)))
+    val tColumnDesc = new TColumnDesc()
+    tColumnDesc.setColumnName("id")
+    tColumnDesc.setTypeDesc(desc)
+    tColumnDesc.setPosition(0)
+    val schema = new TTableSchema()
+    schema.addToColumns(tColumnDesc)
+    schema
+  }
+
+  /**
+   * Returns the ints in [0, numRows) in batches of `batchSize`, and counts the fetches.
+   */
+  private class FakeBackend(numRows: Int, batchSize: Int) {
+    private var cursor = 0
+    var fetches = 0
+    var closed = false
+
+    def fetchRowSet(): TRowSet = {
+      fetches += 1
+      val rows = (cursor until math.min(cursor + batchSize, numRows)).map { i =>
+        val value = new TI32Value()
+        value.setValue(i)
+        new TRow(List(TColumnValue.i32Val(value)).asJava)
+      }
+      cursor += rows.size
+      new TRowSet(0, rows.asJava)
+    }
+  }
+
+  test("fetch the rows of a thrift result on demand") {
+    val backend = new FakeBackend(25, 10)
+    val result = MySQLQueryResult(schema, () => backend.fetchRowSet(), () => backend.closed = true)
+    val packets = result.toPackets
+    // the field count, the column definition and the EOF packets
+    assert((1 to 3).map(_ => packets.next().sequenceId) === Seq(1, 2, 3))
+    assert(backend.fetches === 0)
+    val first = packets.next()
+    assert(first === MySQLTextResultSetRowPacket(4, Seq(0)))
+    assert(backend.fetches === 1)
+    val rest = packets.toList
+    // 3 batches with rows and the empty one at the end
+    assert(backend.fetches === 4)
+    assert(rest.init === (1 until 25).map(i => MySQLTextResultSetRowPacket(4 + i, Seq(i))))
+    assert(rest.last === MySQLEofPacket(29))
+    assert(!backend.closed)
+    result.close()
+    assert(backend.closed)
+  }
+
+  test("transcode the column based thrift result") {
+    val batches = Iterator(
+      (0 until 3, Array[Byte](0x02)),
+      (3 until 5, Array.empty[Byte])).map { case (range, nulls) =>
+      val rowSet = new TRowSet(range.head, new java.util.ArrayList[TRow](0))
+      val values = range.map(Int.box).asJava
+      rowSet.addToColumns(TColumn.i32Val(new TI32Column(values, ByteBuffer.wrap(nulls))))
+      rowSet
+    } ++ Iterator.continually(ThriftUtils.newEmptyRowSet)
+    val packets = MySQLQueryResult(schema, () => batches.next(), () => ()).toPackets.toList
+    assert(packets.map(_.sequenceId) === (1 to 9))
+    val rows = packets.slice(3, 8).map(_.asInstanceOf[MySQLColumnarTextResultSetRowPacket])
+    assert(rows.map(_.rowIndex) === Seq(0, 1, 2, 0, 1))
+    assert(rows(1).columns.head.isNull(1))
+    assert(!rows(3).columns.head.isNull(0))
+    assert(packets.last === MySQLEofPacket(9))
+  }
+
+  test("empty thrift result") {
+    val backend = new FakeBackend(0, 10)
+    val packets = MySQLQueryResult(schema, () => backend.fetchRowSet(), () => ()).toPackets.toList
+    assert(packets.map(_.sequenceId) === Seq(1, 2, 3, 4))
+    assert(packets.last === MySQLEofPacket(4))
+  }
+
+  test("simple result") {
+    val result = MySQLQueryResult(
+      MySQLField("a", MySQLDataType.VAR_STRING) :: Nil,
+      Seq(Seq("x"), Seq("y")))
+    assert(result.toPackets.map(_.sequenceId).toList === Seq(1, 2, 3, 4, 5, 6))
+  }
+}